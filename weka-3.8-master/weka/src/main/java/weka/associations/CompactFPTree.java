@@ -0,0 +1,335 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    CompactFPTree.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.associations;
+
+import java.util.Arrays;
+
+import weka.core.RevisionHandler;
+import weka.core.RevisionUtils;
+
+/**
+ * An FP-tree stored in int arrays. Items are identified by dense ids, and the
+ * items of a transaction have to be inserted in ascending order of their ids,
+ * so that more frequent items should get smaller ids. Every node stores its
+ * parent, item and count, as well as a link to the next node with the same
+ * item. The children of a node are found through an open addressing hash
+ * table keyed by parent and item. Node 0 is the root.
+ * <p/>
+ * The tree also knows which item of its parent tree each of its items stands
+ * for, so that conditional trees can be mined recursively.
+ *
+ * @version $Revision$
+ */
+public class CompactFPTree implements RevisionHandler {
+
+  /** The initial number of nodes that space is allocated for. */
+  protected static final int INITIAL_CAPACITY = 64;
+
+  /** For each item, the item of the original tree it stands for. */
+  protected int[] m_itemIDs;
+
+  /** The support of each item. */
+  protected int[] m_support;
+
+  /** The first node of each item, -1 if there is none. */
+  protected int[] m_firstNode;
+
+  /** The number of nodes, including the root. */
+  protected int m_numNodes;
+
+  /** The parent of each node. */
+  protected int[] m_parent;
+
+  /** The item of each node. */
+  protected int[] m_item;
+
+  /** The count of each node. */
+  protected int[] m_count;
+
+  /** The next node with the same item, -1 for the last one. */
+  protected int[] m_nextNode;
+
+  /** Hash table of the nodes (other than the root) plus one, 0 is empty. */
+  protected int[] m_children;
+
+  /** The items in the order their first node was created. */
+  protected int[] m_itemsInOrder;
+
+  /** The number of items that have a node. */
+  protected int m_numItemsInTree;
+
+  /**
+   * Creates an empty tree.
+   *
+   * @param itemIDs the item of the original tree each item stands for
+   */
+  public CompactFPTree(int[] itemIDs) {
+    m_itemIDs = itemIDs;
+    m_support = new int[itemIDs.length];
+    m_firstNode = new int[itemIDs.length];
+    Arrays.fill(m_firstNode, -1);
+    m_itemsInOrder = new int[itemIDs.length];
+
+    m_parent = new int[INITIAL_CAPACITY];
+    m_item = new int[INITIAL_CAPACITY];
+    m_count = new int[INITIAL_CAPACITY];
+    m_nextNode = new int[INITIAL_CAPACITY];
+    m_children = new int[2 * INITIAL_CAPACITY];
+    m_parent[0] = -1;
+    m_item[0] = -1;
+    m_nextNode[0] = -1;
+    m_numNodes = 1;
+  }
+
+  /**
+   * Creates an empty tree whose items are the original ones.
+   *
+   * @param numItems the number of items
+   */
+  public CompactFPTree(int numItems) {
+    this(identity(numItems));
+  }
+
+  /**
+   * Returns the array 0, 1, ..., n - 1.
+   *
+   * @param n the length of the array
+   * @return the array
+   */
+  protected static int[] identity(int n) {
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = i;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the slot of the hash table to start looking for a child in.
+   *
+   * @param parent the parent node
+   * @param item the item of the child
+   * @return the slot
+   */
+  protected int slot(int parent, int item) {
+    int h = (parent * 0x9E3779B9) ^ (item * 0x85EBCA6B);
+    return (h ^ (h >>> 15)) & (m_children.length - 1);
+  }
+
+  /**
+   * Returns the child of a node with a given item.
+   *
+   * @param parent the parent node
+   * @param item the item of the child
+   * @return the child, -1 if there is none
+   */
+  public int getChild(int parent, int item) {
+    int mask = m_children.length - 1;
+    for (int s = slot(parent, item);; s = (s + 1) & mask) {
+      int node = m_children[s] - 1;
+      if (node < 0) {
+        return -1;
+      }
+      if (m_parent[node] == parent && m_item[node] == item) {
+        return node;
+      }
+    }
+  }
+
+  /**
+   * Enters a node into the hash table of children.
+   *
+   * @param node the node
+   */
+  protected void putChild(int node) {
+    int mask = m_children.length - 1;
+    int s = slot(m_parent[node], m_item[node]);
+    while (m_children[s] != 0) {
+      s = (s + 1) & mask;
+    }
+    m_children[s] = node + 1;
+  }
+
+  /**
+   * Adds a node, growing the arrays if necessary.
+   *
+   * @param parent the parent node
+   * @param item the item of the node
+   * @return the node
+   */
+  protected int addNode(int parent, int item) {
+    if (m_numNodes == m_parent.length) {
+      int capacity = 2 * m_parent.length;
+      m_parent = Arrays.copyOf(m_parent, capacity);
+      m_item = Arrays.copyOf(m_item, capacity);
+      m_count = Arrays.copyOf(m_count, capacity);
+      m_nextNode = Arrays.copyOf(m_nextNode, capacity);
+      m_children = new int[2 * capacity];
+      for (int i = 1; i < m_numNodes; i++) {
+        putChild(i);
+      }
+    }
+
+    int node = m_numNodes++;
+    m_parent[node] = parent;
+    m_item[node] = item;
+    if (m_firstNode[item] < 0) {
+      m_itemsInOrder[m_numItemsInTree++] = item;
+    }
+    m_nextNode[node] = m_firstNode[item];
+    m_firstNode[item] = node;
+    putChild(node);
+
+    return node;
+  }
+
+  /**
+   * Inserts a transaction into the tree.
+   *
+   * @param items the items of the transaction, in ascending order
+   * @param length the number of items
+   * @param count the number of times the transaction occurs
+   */
+  public void addTransaction(int[] items, int length, int count) {
+    int node = 0;
+    for (int i = 0; i < length; i++) {
+      int child = getChild(node, items[i]);
+      if (child < 0) {
+        child = addNode(node, items[i]);
+      }
+      m_count[child] += count;
+      m_support[items[i]] += count;
+      node = child;
+    }
+  }
+
+  /**
+   * Builds the conditional tree of an item from the paths leading to its
+   * nodes. Only the items that are frequent within these paths are kept.
+   *
+   * @param item the item
+   * @param minSupport the minimum support of the items to keep
+   * @return the conditional tree, null if it would be empty
+   */
+  public CompactFPTree conditionalTree(int item, int minSupport) {
+    // only items with smaller ids precede the item on a path
+    int[] support = new int[item];
+    for (int node = m_firstNode[item]; node >= 0; node = m_nextNode[node]) {
+      int count = m_count[node];
+      for (int p = m_parent[node]; p > 0; p = m_parent[p]) {
+        support[m_item[p]] += count;
+      }
+    }
+
+    int[] newIDs = new int[item];
+    int numItems = 0;
+    for (int i = 0; i < item; i++) {
+      newIDs[i] = (support[i] >= minSupport) ? numItems++ : -1;
+    }
+    if (numItems == 0) {
+      return null;
+    }
+    int[] itemIDs = new int[numItems];
+    for (int i = 0; i < item; i++) {
+      if (newIDs[i] >= 0) {
+        itemIDs[newIDs[i]] = m_itemIDs[i];
+      }
+    }
+
+    CompactFPTree result = new CompactFPTree(itemIDs);
+    int[] path = new int[numItems];
+    for (int node = m_firstNode[item]; node >= 0; node = m_nextNode[node]) {
+      int length = 0;
+      for (int p = m_parent[node]; p > 0; p = m_parent[p]) {
+        if (newIDs[m_item[p]] >= 0) {
+          path[length++] = newIDs[m_item[p]];
+        }
+      }
+      for (int i = 0, j = length - 1; i < j; i++, j--) {
+        int h = path[i];
+        path[i] = path[j];
+        path[j] = h;
+      }
+      result.addTransaction(path, length, m_count[node]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of items.
+   *
+   * @return the number of items
+   */
+  public int numItems() {
+    return m_itemIDs.length;
+  }
+
+  /**
+   * Returns the item of the original tree that an item stands for.
+   *
+   * @param item the item
+   * @return the item of the original tree
+   */
+  public int getItemID(int item) {
+    return m_itemIDs[item];
+  }
+
+  /**
+   * Returns the support of an item.
+   *
+   * @param item the item
+   * @return the support
+   */
+  public int getSupport(int item) {
+    return m_support[item];
+  }
+
+  /**
+   * Returns the number of nodes, including the root.
+   *
+   * @return the number of nodes
+   */
+  public int numNodes() {
+    return m_numNodes;
+  }
+
+  /**
+   * Returns the items that occur in the tree, in the order their first node
+   * was created.
+   *
+   * @return the items
+   */
+  public int[] getItemsInOrderOfInsertion() {
+    return Arrays.copyOf(m_itemsInOrder, m_numItemsInTree);
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
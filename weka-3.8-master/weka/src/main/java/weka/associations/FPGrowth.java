@@ -23,6 +23,7 @@ package weka.associations;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -34,6 +35,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import weka.core.Attribute;
 import weka.core.Capabilities;
@@ -147,6 +150,13 @@ import weka.core.Utils;
  *  with -transactions and/or -rules
  * </pre>
  * 
+ * <pre>
+ * -num-slots &lt;num&gt;
+ *  Number of execution slots for mining the FP-tree.
+ *  (default 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)
+ * </pre>
+ * 
  * <!-- options-end -->
  * 
  * @author Mark Hall (mhall{[at]}pentaho{[dot]}com)
@@ -969,6 +979,15 @@ public class FPGrowth extends AbstractAssociator implements
   /** If set, then only output rules containing these itmes */
   protected String m_rulesMustContain = "";
 
+  /** The number of threads to use for mining the FP-tree */
+  protected int m_numExecutionSlots = 1;
+
+  /**
+   * The minimum number of nodes of a conditional FP-tree for it to be mined
+   * by a task of its own
+   */
+  protected static final int MIN_NODES_TO_FORK = 64;
+
   /**
    * Returns default capabilities of the classifier.
    * 
@@ -1385,6 +1404,282 @@ public class FPGrowth extends AbstractAssociator implements
     }
   }
 
+  /**
+   * Get the items that meet the minimum support, sorted in descending order of
+   * frequency. The position of an item in this list is its id in the compact
+   * FP-tree.
+   * 
+   * @param singletons the singleton item sets
+   * @param minSupport the minimum support
+   * @return the frequent items
+   */
+  protected ArrayList<BinaryItem> getFrequentItems(
+    ArrayList<BinaryItem> singletons, int minSupport) {
+    ArrayList<BinaryItem> frequent = new ArrayList<BinaryItem>();
+    for (BinaryItem b : singletons) {
+      if (b.getFrequency() >= minSupport) {
+        frequent.add(b);
+      }
+    }
+    Collections.sort(frequent);
+
+    return frequent;
+  }
+
+  /**
+   * Inserts a single instance into the compact FP-tree.
+   * 
+   * @param current the instance to insert
+   * @param itemIDs the id of the item of each attribute, -1 for attributes
+   *          whose item does not meet the minimum support
+   * @param transaction a buffer for the ids of the items of the instance
+   * @param tree the tree to insert into
+   */
+  private void insertTransaction(Instance current, int[] itemIDs,
+    int[] transaction, CompactFPTree tree) {
+    int length = 0;
+    if (current instanceof SparseInstance) {
+      for (int j = 0; j < current.numValues(); j++) {
+        int id = itemIDs[current.index(j)];
+        if (id >= 0) {
+          transaction[length++] = id;
+        }
+      }
+    } else {
+      for (int j = 0; j < current.numAttributes(); j++) {
+        if (itemIDs[j] >= 0 && !current.isMissing(j)) {
+          if (current.attribute(j).numValues() == 1
+            || current.value(j) == m_positiveIndex - 1) {
+            transaction[length++] = itemIDs[j];
+          }
+        }
+      }
+    }
+    Arrays.sort(transaction, 0, length);
+    tree.addTransaction(transaction, length, 1);
+  }
+
+  /**
+   * Construct a compact frequent pattern tree by inserting each transaction in
+   * the data into the tree. Only those items from each transaction that meet
+   * the minimum support threshold are inserted.
+   * 
+   * @param singletons the singleton item sets
+   * @param items the items that meet the minimum support, as returned by
+   *          getFrequentItems()
+   * @param dataSource the source of the data (either Instances or an
+   *          ArffLoader)
+   * @return the tree
+   * @throws Exception if the data can't be read
+   */
+  protected CompactFPTree buildCompactFPTree(ArrayList<BinaryItem> singletons,
+    ArrayList<BinaryItem> items, Object dataSource) throws Exception {
+
+    int[] itemIDs = new int[singletons.size()];
+    Arrays.fill(itemIDs, -1);
+    for (int i = 0; i < items.size(); i++) {
+      itemIDs[items.get(i).getAttribute().index()] = i;
+    }
+    int[] transaction = new int[items.size()];
+
+    CompactFPTree tree = new CompactFPTree(items.size());
+    if (dataSource instanceof Instances) {
+      Instances data = (Instances) dataSource;
+      for (int i = 0; i < data.numInstances(); i++) {
+        insertTransaction(data.instance(i), itemIDs, transaction, tree);
+      }
+    } else if (dataSource instanceof weka.core.converters.ArffLoader) {
+      weka.core.converters.ArffLoader loader = (weka.core.converters.ArffLoader) dataSource;
+      Instances data = loader.getStructure();
+      Instance current = null;
+      int count = 0;
+      while ((current = loader.getNextInstance(data)) != null) {
+        insertTransaction(current, itemIDs, transaction, tree);
+        count++;
+        if (count % m_offDiskReportingFrequency == 0) {
+          System.err.println("build tree done: " + count);
+        }
+      }
+    }
+
+    return tree;
+  }
+
+  /**
+   * Mines the conditional trees of the items of a compact FP-tree, forking a
+   * new task for each conditional tree that is large enough.
+   */
+  protected class MiningTask extends
+    RecursiveTask<ArrayList<FrequentBinaryItemSet>> {
+
+    /** For serialization */
+    private static final long serialVersionUID = -2473389917330236553L;
+
+    /** The tree to mine */
+    protected CompactFPTree m_tree;
+
+    /** The items that the tree is conditional on */
+    protected ArrayList<BinaryItem> m_conditionalItems;
+
+    /** The items of the original tree */
+    protected ArrayList<BinaryItem> m_items;
+
+    /** The position of each item of the original tree in the mining order */
+    protected int[] m_order;
+
+    /** The minimum support */
+    protected int m_minSupport;
+
+    /**
+     * Constructor.
+     * 
+     * @param tree the tree to mine
+     * @param conditionalItems the items that the tree is conditional on
+     * @param items the items of the original tree
+     * @param order the position of each item in the mining order
+     * @param minSupport the minimum support
+     */
+    public MiningTask(CompactFPTree tree,
+      ArrayList<BinaryItem> conditionalItems, ArrayList<BinaryItem> items,
+      int[] order, int minSupport) {
+      m_tree = tree;
+      m_conditionalItems = conditionalItems;
+      m_items = items;
+      m_order = order;
+      m_minSupport = minSupport;
+    }
+
+    /**
+     * Mines the tree.
+     * 
+     * @return the large item sets found
+     */
+    @Override
+    protected ArrayList<FrequentBinaryItemSet> compute() {
+      return mineTree(m_tree, m_conditionalItems, m_items, m_order,
+        m_minSupport, true);
+    }
+  }
+
+  /**
+   * Find large item sets in a compact FP-tree. The items of each tree are
+   * processed in the given order, and the item sets found for an item are
+   * listed straight after the item set that the item adds to the conditional
+   * items.
+   * 
+   * @param tree the tree to mine
+   * @param conditionalItems the items that the tree is conditional on
+   * @param items the items of the original tree
+   * @param order the position of each item of the original tree in the mining
+   *          order
+   * @param minSupport the minimum acceptable support
+   * @param parallel whether to mine the larger conditional trees in tasks of
+   *          their own
+   * @return the large item sets found
+   */
+  protected ArrayList<FrequentBinaryItemSet> mineTree(CompactFPTree tree,
+    ArrayList<BinaryItem> conditionalItems, ArrayList<BinaryItem> items,
+    int[] order, int minSupport, boolean parallel) {
+
+    long[] sorted = new long[tree.numItems()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = ((long) order[tree.getItemID(i)] << 32) | i;
+    }
+    Arrays.sort(sorted);
+
+    ArrayList<ArrayList<FrequentBinaryItemSet>> parts = new ArrayList<ArrayList<FrequentBinaryItemSet>>();
+    ArrayList<MiningTask> tasks = new ArrayList<MiningTask>();
+    for (long s : sorted) {
+      int item = (int) s;
+      int support = tree.getSupport(item);
+      if (support < minSupport) {
+        continue;
+      }
+
+      // this item gets added to the conditional items
+      ArrayList<BinaryItem> newConditional = new ArrayList<BinaryItem>(
+        conditionalItems);
+      newConditional.add(items.get(tree.getItemID(item)));
+      ArrayList<FrequentBinaryItemSet> part = new ArrayList<FrequentBinaryItemSet>();
+      part.add(new FrequentBinaryItemSet(new ArrayList<BinaryItem>(
+        newConditional), support));
+
+      MiningTask task = null;
+      if (m_maxItems <= 0 || newConditional.size() < m_maxItems) {
+        CompactFPTree conditional = tree.conditionalTree(item, minSupport);
+        if (conditional != null) {
+          if (parallel && conditional.numNodes() >= MIN_NODES_TO_FORK) {
+            task = new MiningTask(conditional, newConditional, items, order,
+              minSupport);
+            task.fork();
+          } else {
+            part.addAll(mineTree(conditional, newConditional, items, order,
+              minSupport, parallel));
+          }
+        }
+      }
+      parts.add(part);
+      tasks.add(task);
+    }
+
+    ArrayList<FrequentBinaryItemSet> result = new ArrayList<FrequentBinaryItemSet>();
+    for (int i = 0; i < parts.size(); i++) {
+      result.addAll(parts.get(i));
+      if (tasks.get(i) != null) {
+        result.addAll(tasks.get(i).join());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Find large item sets in a compact FP-tree, using as many threads as there
+   * are execution slots. The items are mined in the order of the hash-based
+   * header table of the original FP-tree implementation, so that the large
+   * item sets, and therefore the order of rules with equal metric values, are
+   * the same as before.
+   * 
+   * @param tree the tree to mine
+   * @param items the items of the tree
+   * @param largeItemSets holds the large item sets found
+   * @param minSupport the minimum acceptable support
+   * @throws Exception if the number of execution slots is invalid
+   */
+  protected void mineTree(CompactFPTree tree, ArrayList<BinaryItem> items,
+    FrequentItemSets largeItemSets, int minSupport) throws Exception {
+
+    Map<BinaryItem, Integer> headerTable = new HashMap<BinaryItem, Integer>();
+    for (int item : tree.getItemsInOrderOfInsertion()) {
+      headerTable.put(items.get(item), item);
+    }
+    int[] order = new int[items.size()];
+    int position = 0;
+    for (int item : headerTable.values()) {
+      order[item] = position++;
+    }
+
+    ArrayList<BinaryItem> conditionalItems = new ArrayList<BinaryItem>();
+    ArrayList<FrequentBinaryItemSet> sets;
+    int numSlots = (m_numExecutionSlots == 0) ? Runtime.getRuntime()
+      .availableProcessors() : m_numExecutionSlots;
+    if (numSlots > 1) {
+      ForkJoinPool pool = new ForkJoinPool(numSlots);
+      try {
+        sets = pool.invoke(new MiningTask(tree, conditionalItems, items,
+          order, minSupport));
+      } finally {
+        pool.shutdownNow();
+      }
+    } else {
+      sets = mineTree(tree, conditionalItems, items, order, minSupport, false);
+    }
+
+    for (FrequentBinaryItemSet set : sets) {
+      largeItemSets.addItemSet(set);
+    }
+  }
+
   /**
    * Construct a new FPGrowth object.
    */
@@ -1406,6 +1701,7 @@ public class FPGrowth extends AbstractAssociator implements
     m_transactionsMustContain = "";
     m_rulesMustContain = "";
     m_mustContainOR = false;
+    m_numExecutionSlots = 1;
   }
 
   /**
@@ -1801,6 +2097,34 @@ public class FPGrowth extends AbstractAssociator implements
     return m_findAllRulesForSupportLevel;
   }
 
+  /**
+   * Tip text for this property suitable for displaying in the GUI.
+   * 
+   * @return the tip text for this property.
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for mining the "
+      + "FP-tree (0 to use one per core).";
+  }
+
+  /**
+   * Set the number of execution slots.
+   * 
+   * @param numSlots the number of execution slots (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_numExecutionSlots = numSlots;
+  }
+
+  /**
+   * Get the number of execution slots.
+   * 
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+    return m_numExecutionSlots;
+  }
+
   /**
    * Set how often to report some progress when the data is being read
    * incrementally off of the disk rather than loaded into memory.
@@ -1910,6 +2234,9 @@ public class FPGrowth extends AbstractAssociator implements
     String string9 = "\tOnly print rules that contain these items. (default = no restriction)";
     String string10 = "\tUse OR instead of AND for must contain list(s). Use in conjunction"
       + "\n\twith -transactions and/or -rules";
+    String string11 = "\tNumber of execution slots for mining the FP-tree.\n"
+      + "\t(default 1 - i.e. no parallelism)\n"
+      + "\t(use 0 to auto-detect number of cores)";
 
     newVector.add(new Option(string00, "P", 1,
       "-P <attribute index of positive value>"));
@@ -1931,6 +2258,7 @@ public class FPGrowth extends AbstractAssociator implements
     newVector.add(new Option(string9, "rules", 1,
       "-rules <comma separated list " + "of attribute names>"));
     newVector.add(new Option(string10, "use-or", 0, "-use-or"));
+    newVector.add(new Option(string11, "num-slots", 1, "-num-slots <num>"));
 
     newVector.addAll(Collections.list(super.listOptions()));
 
@@ -2012,6 +2340,13 @@ public class FPGrowth extends AbstractAssociator implements
    *  with -transactions and/or -rules
    * </pre>
    * 
+   * <pre>
+   * -num-slots &lt;num&gt;
+   *  Number of execution slots for mining the FP-tree.
+   *  (default 1 - i.e. no parallelism)
+   *  (use 0 to auto-detect number of cores)
+   * </pre>
+   * 
    * <!-- options-end -->
    * 
    * @param options the list of options as an array of strings
@@ -2076,6 +2411,11 @@ public class FPGrowth extends AbstractAssociator implements
 
     setFindAllRulesForSupportLevel(Utils.getFlag('S', options));
 
+    String slotsString = Utils.getOption("num-slots", options);
+    if (slotsString.length() != 0) {
+      setNumExecutionSlots(Integer.parseInt(slotsString));
+    }
+
     super.setOptions(options);
   }
 
@@ -2122,6 +2462,11 @@ public class FPGrowth extends AbstractAssociator implements
       options.add("-use-or");
     }
 
+    if (getNumExecutionSlots() != 1) {
+      options.add("-num-slots");
+      options.add("" + getNumExecutionSlots());
+    }
+
     Collections.addAll(options, super.getOptions());
 
     return options.toArray(new String[0]);
@@ -2213,6 +2558,10 @@ public class FPGrowth extends AbstractAssociator implements
     // can we handle the data?
     capabilities.testWithFail(data);
 
+    if (m_numExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
+
     // prune any instances that don't contain the requested items (if any)
     // can only do this if we are not reading the data incrementally
     if (m_transactionsMustContain.length() > 0 && (source instanceof Instances)) {
@@ -2258,8 +2607,9 @@ public class FPGrowth extends AbstractAssociator implements
       if (arffLoader) {
         System.err.println("Building FP-tree...");
       }
-      FPTreeRoot tree = buildFPTree(singletons, source,
+      ArrayList<BinaryItem> items = getFrequentItems(singletons,
         currentSupportAsInstances);
+      CompactFPTree tree = buildCompactFPTree(singletons, items, source);
 
       FrequentItemSets largeItemSets = new FrequentItemSets(m_numInstances);
 
@@ -2268,10 +2618,7 @@ public class FPGrowth extends AbstractAssociator implements
       }
 
       // mine the tree
-      FrequentBinaryItemSet conditionalItems = new FrequentBinaryItemSet(
-        new ArrayList<BinaryItem>(), 0);
-      mineTree(tree, largeItemSets, 0, conditionalItems,
-        currentSupportAsInstances);
+      mineTree(tree, items, largeItemSets, currentSupportAsInstances);
 
       m_largeItemSets = largeItemSets;
 
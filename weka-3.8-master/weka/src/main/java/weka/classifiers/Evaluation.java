@@ -80,6 +80,12 @@ import weka.core.Summarizable;
  * 1).
  * <p/>
  * 
+ * -num-slots number <br/>
+ * The number of execution slots (threads) for building the models of the
+ * cross-validation, 0 for one per core (default: 1). Passed on to the
+ * classifier instead if it has an option of that name.
+ * <p/>
+ * 
  * -m filename <br/>
  * The name of a file containing a cost matrix.
  * <p/>
@@ -300,6 +306,28 @@ public class Evaluation implements Serializable, Summarizable, RevisionHandler {
     return m_delegate.getDiscardPredictions();
   }
 
+  /**
+   * Sets the number of execution slots (threads) to use for building the
+   * models of a cross-validation. With 1 slot the folds are built one after
+   * the other, with 0 one slot per core is used. The results do not depend on
+   * the number of slots.
+   *
+   * @param numSlots the number of execution slots (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_delegate.setNumExecutionSlots(numSlots);
+  }
+
+  /**
+   * Returns the number of execution slots used for building the models of a
+   * cross-validation.
+   *
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+    return m_delegate.getNumExecutionSlots();
+  }
+
   /**
    * Returns the area under ROC for those predictions that have been collected
    * in the evaluateClassifier(Classifier, Instances) method. Returns
@@ -454,6 +482,12 @@ public class Evaluation implements Serializable, Summarizable, RevisionHandler {
    * 1).
    * <p/>
    * 
+   * -num-slots number <br/>
+   * The number of execution slots (threads) for building the models of the
+   * cross-validation, 0 for one per core (default: 1). Passed on to the
+   * classifier instead if it has an option of that name.
+   * <p/>
+   * 
    * -m filename <br/>
    * The name of a file containing a cost matrix.
    * <p/>
@@ -588,6 +622,12 @@ public class Evaluation implements Serializable, Summarizable, RevisionHandler {
    * 1).
    * <p/>
    * 
+   * -num-slots number <br/>
+   * The number of execution slots (threads) for building the models of the
+   * cross-validation, 0 for one per core (default: 1). Passed on to the
+   * classifier instead if it has an option of that name.
+   * <p/>
+   * 
    * -m file with cost matrix <br/>
    * The name of a file containing a cost matrix.
    * <p/>
@@ -21,6 +21,7 @@
 
 package weka.classifiers.bayes;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Vector;
@@ -244,6 +245,13 @@ public class NaiveBayes extends AbstractClassifier implements OptionHandler,
     m_Distributions = new Estimator[m_Instances.numAttributes() - 1][m_Instances
       .numClasses()];
     m_ClassDistribution = new DiscreteEstimator(m_Instances.numClasses(), true);
+    double[] sparseNumPrecisions = null;
+    for (Instance instance : m_Instances) {
+      if (instance instanceof SparseInstance) {
+        sparseNumPrecisions = sparseNumPrecisions();
+        break;
+      }
+    }
     int attIndex = 0;
     Enumeration<Attribute> enu = m_Instances.enumerateAttributes();
     while (enu.hasMoreElements()) {
@@ -252,7 +260,10 @@ public class NaiveBayes extends AbstractClassifier implements OptionHandler,
       // If the attribute is numeric, determine the estimator
       // numeric precision from differences between adjacent values
       double numPrecision = DEFAULT_NUM_PRECISION;
-      if (attribute.type() == Attribute.NUMERIC) {
+      if (attribute.type() == Attribute.NUMERIC
+        && sparseNumPrecisions != null) {
+        numPrecision = sparseNumPrecisions[attribute.index()];
+      } else if (attribute.type() == Attribute.NUMERIC) {
         m_Instances.sort(attribute);
         if ((m_Instances.numInstances() > 0)
           && !m_Instances.instance(0).isMissing(attribute)) {
@@ -297,11 +308,37 @@ public class NaiveBayes extends AbstractClassifier implements OptionHandler,
       attIndex++;
     }
 
-    // Compute counts
+    // Compute counts. For sparse instances, only the values that are stored
+    // are added one by one, and the zeros are added per class at the end.
+    double[] sparseWeights = new double[m_NumClasses];
+    int[] numSparse = new int[m_NumClasses];
+    double[][] storedWeights = null;
+    int[][] numStored = null;
     Enumeration<Instance> enumInsts = m_Instances.enumerateInstances();
     while (enumInsts.hasMoreElements()) {
       Instance instance = enumInsts.nextElement();
-      updateClassifier(instance);
+      if (instance instanceof SparseInstance) {
+        if (storedWeights == null) {
+          storedWeights = new double[m_Distributions.length][m_NumClasses];
+          numStored = new int[m_Distributions.length][m_NumClasses];
+        }
+        int classValue = (int) instance.classValue();
+        sparseWeights[classValue] += instance.weight();
+        numSparse[classValue]++;
+        updateClassifierSparse(instance, storedWeights, numStored);
+      } else {
+        updateClassifier(instance);
+      }
+    }
+    if (storedWeights != null) {
+      for (int i = 0; i < m_Distributions.length; i++) {
+        for (int j = 0; j < m_NumClasses; j++) {
+          if (numStored[i][j] < numSparse[j]) {
+            m_Distributions[i][j].addValue(0,
+              sparseWeights[j] - storedWeights[i][j]);
+          }
+        }
+      }
     }
 
     // Save space
@@ -332,6 +369,127 @@ public class NaiveBayes extends AbstractClassifier implements OptionHandler,
     }
   }
 
+  /**
+   * Determines the numeric precision of all numeric attributes from the
+   * differences between adjacent distinct values, like buildClassifier() does
+   * for dense data, but without sorting the training instances once per
+   * attribute. Instead, the values that are stored in the instances are
+   * collected per attribute in a single pass, plus a single zero for
+   * attributes that are not stored in some sparse instance, and sorted.
+   * 
+   * @return the precision per attribute index, only set for numeric
+   *         attributes
+   */
+  protected double[] sparseNumPrecisions() {
+
+    int numAtts = m_Instances.numAttributes();
+    int classIndex = m_Instances.classIndex();
+    int[] numValues = new int[numAtts];
+    int[] numStored = new int[numAtts];
+    int numSparse = 0;
+    for (Instance instance : m_Instances) {
+      if (instance instanceof SparseInstance) {
+        numSparse++;
+        for (int i = 0; i < instance.numValues(); i++) {
+          numStored[instance.index(i)]++;
+          if (!instance.isMissingSparse(i)) {
+            numValues[instance.index(i)]++;
+          }
+        }
+      } else {
+        for (int j = 0; j < numAtts; j++) {
+          if (!instance.isMissing(j)) {
+            numValues[j]++;
+          }
+        }
+      }
+    }
+
+    double[][] values = new double[numAtts][];
+    for (int j = 0; j < numAtts; j++) {
+      if (j != classIndex && m_Instances.attribute(j).isNumeric()) {
+        values[j] =
+          new double[numValues[j] + ((numStored[j] < numSparse) ? 1 : 0)];
+      }
+    }
+    int[] numFilled = new int[numAtts];
+    for (Instance instance : m_Instances) {
+      if (instance instanceof SparseInstance) {
+        for (int i = 0; i < instance.numValues(); i++) {
+          int index = instance.index(i);
+          if (values[index] != null && !instance.isMissingSparse(i)) {
+            values[index][numFilled[index]++] = instance.valueSparse(i);
+          }
+        }
+      } else {
+        for (int j = 0; j < numAtts; j++) {
+          if (values[j] != null && !instance.isMissing(j)) {
+            values[j][numFilled[j]++] = instance.value(j);
+          }
+        }
+      }
+    }
+
+    double[] result = new double[numAtts];
+    for (int j = 0; j < numAtts; j++) {
+      result[j] = DEFAULT_NUM_PRECISION;
+      if (values[j] == null || values[j].length == 0) {
+        continue;
+      }
+      Arrays.sort(values[j]);
+      double lastVal = values[j][0];
+      double deltaSum = 0;
+      int distinct = 0;
+      for (int i = 1; i < values[j].length; i++) {
+        if (values[j][i] != lastVal) {
+          deltaSum += values[j][i] - lastVal;
+          lastVal = values[j][i];
+          distinct++;
+        }
+      }
+      if (distinct > 0) {
+        result[j] = deltaSum / distinct;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds the values that are stored in a sparse training instance, and
+   * records the weight of the instance for each of these attributes, so that
+   * the weight of the zeros that are not stored can be added in one go later.
+   * The instance must not have a missing class value.
+   * 
+   * @param instance the sparse training instance
+   * @param storedWeights the weight of the stored values per attribute and
+   *          class, to add to
+   * @param numStored the number of stored values per attribute and class, to
+   *          add to
+   * @exception Exception if the instance could not be incorporated in the
+   *              model.
+   */
+  protected void updateClassifierSparse(Instance instance,
+    double[][] storedWeights, int[][] numStored) throws Exception {
+
+    int classIndex = m_Instances.classIndex();
+    int classValue = (int) instance.classValue();
+    double weight = instance.weight();
+    for (int i = 0; i < instance.numValues(); i++) {
+      int index = instance.index(i);
+      if (index != classIndex) {
+        int attIndex = (index < classIndex) ? index : index - 1;
+        storedWeights[attIndex][classValue] += weight;
+        numStored[attIndex][classValue]++;
+        if (!instance.isMissingSparse(i)) {
+          m_Distributions[attIndex][classValue].addValue(
+            instance.valueSparse(i), weight);
+        }
+      }
+    }
+    m_ClassDistribution.addValue(instance.classValue(), weight);
+  }
+
   /**
    * Calculates the class membership probabilities for the given test instance.
    * 
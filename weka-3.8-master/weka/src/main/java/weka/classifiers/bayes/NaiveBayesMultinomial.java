@@ -20,11 +20,23 @@
 
 package weka.classifiers.bayes;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import weka.classifiers.AbstractClassifier;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Option;
 import weka.core.RevisionUtils;
 import weka.core.TechnicalInformation;
 import weka.core.TechnicalInformation.Field;
@@ -63,6 +75,12 @@ import weka.core.WeightedInstancesHandler;
  <!-- options-start -->
  * Valid options are: <p/>
  *
+ * -num-slots &lt;num&gt; <br>
+ * Number of execution slots for counting the words.
+ * (default 1 - i.e. no parallelism)
+ * (use 0 to auto-detect number of cores)
+ * <p>
+ *
  * -output-debug-info <br>
  * If set, classifier is run in debug mode and may output additional info to
  * the console.
@@ -113,6 +131,9 @@ public class NaiveBayesMultinomial extends AbstractClassifier
   /** copy of header information for use in toString method */
   protected Instances m_headerInfo;
 
+  /** the number of threads to use for counting the words */
+  protected int m_numExecutionSlots = 1;
+
   /**
    * Returns a string describing this classifier
    * @return a description of the classifier suitable for
@@ -147,6 +168,128 @@ public class NaiveBayesMultinomial extends AbstractClassifier
     return result;
   }
 
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+
+    Vector<Option> newVector = new Vector<Option>(1);
+
+    newVector.addElement(new Option(
+      "\tNumber of execution slots for counting the words.\n"
+        + "\t(default 1 - i.e. no parallelism)\n"
+        + "\t(use 0 to auto-detect number of cores)", "num-slots", 1,
+      "-num-slots <num>"));
+
+    newVector.addAll(Collections.list(super.listOptions()));
+
+    return newVector.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   * <p/>
+   *
+   * <!-- options-start -->
+   * Valid options are: <p/>
+   *
+   * -num-slots &lt;num&gt; <br>
+   * Number of execution slots for counting the words.
+   * (default 1 - i.e. no parallelism)
+   * (use 0 to auto-detect number of cores)
+   * <p>
+   *
+   * -output-debug-info <br>
+   * If set, classifier is run in debug mode and may output additional info to
+   * the console.
+   * <p>
+   *
+   * -do-not-check-capabilities <br>
+   * If set, classifier capabilities are not checked before classifier is built
+   * (use with caution).
+   * <p>
+   *
+   * -num-decimal-laces <br>
+   * The number of decimal places for the output of numbers in the model.
+   * <p>
+   *
+   * -batch-size <br>
+   * The desired batch size for batch prediction.
+   * <p>
+   *
+   * <!-- options-end -->
+   *
+   * @param options the list of options as an array of strings
+   * @exception Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+
+    String slots = Utils.getOption("num-slots", options);
+    if (slots.length() != 0) {
+      setNumExecutionSlots(Integer.parseInt(slots));
+    } else {
+      setNumExecutionSlots(1);
+    }
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the classifier.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+
+    Vector<String> options = new Vector<String>();
+
+    if (getNumExecutionSlots() != 1) {
+      options.add("-num-slots");
+      options.add("" + getNumExecutionSlots());
+    }
+
+    Collections.addAll(options, super.getOptions());
+
+    return options.toArray(new String[0]);
+  }
+
+  /**
+   * Returns the tip text for this property
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for counting the "
+      + "words in the training data (0 to use one per core). The data is "
+      + "split into as many parts, each part is counted separately and the "
+      + "counts are added up at the end.";
+  }
+
+  /**
+   * Set the number of execution slots (threads) to use for counting the words.
+   *
+   * @param numSlots the number of slots to use (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_numExecutionSlots = numSlots;
+  }
+
+  /**
+   * Get the number of execution slots (threads) to use for counting the
+   * words.
+   *
+   * @return the number of slots to use
+   */
+  public int getNumExecutionSlots() {
+    return m_numExecutionSlots;
+  }
+
   /**
    * Returns default capabilities of the classifier.
    *
@@ -206,24 +349,7 @@ public class NaiveBayesMultinomial extends AbstractClassifier
 
     //enumerate through the instances 
     double[] wordsPerClass = new double[m_numClasses];
-    for (Instance instance : instances) {
-      double classValue = instance.value(instance.classIndex());
-      if (!Utils.isMissingValue(classValue)) {
-        int classIndex = (int) classValue;
-        m_probOfClass[classIndex] += instance.weight();
-        for (int a = 0; a < instance.numValues(); a++) {
-          if (instance.index(a) != instance.classIndex()) {
-            if (!instance.isMissingSparse(a)) {
-              double numOccurrences = instance.valueSparse(a) * instance.weight();
-              if (numOccurrences < 0)
-                throw new Exception("Numeric attribute values must all be greater or equal to zero.");
-              wordsPerClass[classIndex] += numOccurrences;
-              m_probOfWordGivenClass[classIndex][instance.index(a)] += numOccurrences;
-            }
-          }
-        }
-      }
-    }
+    addCounts(instances, wordsPerClass);
 	
     /*
       normalising probOfWordGivenClass values
@@ -240,6 +366,139 @@ public class NaiveBayesMultinomial extends AbstractClassifier
     Utils.normalize(m_probOfClass);
   }
 
+  /**
+   * Adds the class weights and word counts of the given instances to
+   * m_probOfClass and m_probOfWordGivenClass. With more than one execution
+   * slot, the instances are split into contiguous parts that are counted by
+   * separate threads into their own arrays, which are then added up in the
+   * order of the parts.
+   *
+   * @param instances the instances to count
+   * @param wordsPerClass the total word counts per class, to add to
+   * @throws Exception if a value is negative or a thread fails
+   */
+  protected void addCounts(final Instances instances, double[] wordsPerClass)
+    throws Exception {
+
+    if (m_numExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
+    int numSlots = (m_numExecutionSlots == 0) ? Runtime.getRuntime()
+      .availableProcessors() : m_numExecutionSlots;
+    if (numSlots <= 1 || instances.numInstances() < 2) {
+      addCounts(instances, 0, instances.numInstances(), m_probOfClass,
+        m_probOfWordGivenClass, wordsPerClass);
+      return;
+    }
+
+    int chunkSize = (instances.numInstances() + numSlots - 1) / numSlots;
+    final List<double[]> classCounts = new ArrayList<double[]>();
+    final List<double[][]> wordCounts = new ArrayList<double[][]>();
+    final List<double[]> wordTotals = new ArrayList<double[]>();
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int start = 0; start < instances.numInstances(); start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(start + chunkSize, instances.numInstances());
+      final double[] partClassCounts = new double[m_numClasses];
+      final double[][] partWordCounts = new double[m_numClasses][];
+      final double[] partWordTotals = new double[m_numClasses];
+      classCounts.add(partClassCounts);
+      wordCounts.add(partWordCounts);
+      wordTotals.add(partWordTotals);
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          addCounts(instances, from, to, partClassCounts, partWordCounts,
+            partWordTotals);
+          return null;
+        }
+      });
+    }
+
+    ExecutorService executorPool =
+      Executors.newFixedThreadPool(Math.min(numSlots, tasks.size()));
+    try {
+      List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (Callable<Void> task : tasks) {
+        results.add(executorPool.submit(task));
+      }
+      for (Future<Void> future : results) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    } finally {
+      executorPool.shutdownNow();
+    }
+
+    for (int p = 0; p < tasks.size(); p++) {
+      for (int c = 0; c < m_numClasses; c++) {
+        m_probOfClass[c] += classCounts.get(p)[c];
+        wordsPerClass[c] += wordTotals.get(p)[c];
+        double[] counts = wordCounts.get(p)[c];
+        if (counts != null) {
+          for (int a = 0; a < m_numAttributes; a++) {
+            m_probOfWordGivenClass[c][a] += counts[a];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the class weights and word counts of a range of instances to the
+   * given arrays. Only the values that are stored in an instance are visited,
+   * so sparse instances are counted in time proportional to their number of
+   * non-zero values. Rows of wordCounts that are null are created when the
+   * first instance of their class is encountered.
+   *
+   * @param instances the instances
+   * @param from the first instance to count
+   * @param to the instance after the last one to count
+   * @param classCounts the class weights, to add to
+   * @param wordCounts the word counts per class, to add to
+   * @param wordsPerClass the total word counts per class, to add to
+   * @throws Exception if a value is negative
+   */
+  protected static void addCounts(Instances instances, int from, int to,
+    double[] classCounts, double[][] wordCounts, double[] wordsPerClass)
+    throws Exception {
+
+    int classIndex = instances.classIndex();
+    int numAttributes = instances.numAttributes();
+    for (int i = from; i < to; i++) {
+      Instance instance = instances.instance(i);
+      double classValue = instance.value(classIndex);
+      if (!Utils.isMissingValue(classValue)) {
+        int c = (int) classValue;
+        double weight = instance.weight();
+        classCounts[c] += weight;
+        double[] counts = wordCounts[c];
+        if (counts == null) {
+          counts = wordCounts[c] = new double[numAttributes];
+        }
+        for (int a = 0, numValues = instance.numValues(); a < numValues; a++) {
+          int index = instance.index(a);
+          if (index != classIndex) {
+            double value = instance.valueSparse(a);
+            if (!Utils.isMissingValue(value)) {
+              double numOccurrences = value * weight;
+              if (numOccurrences < 0)
+                throw new Exception("Numeric attribute values must all be greater or equal to zero.");
+              wordsPerClass[c] += numOccurrences;
+              counts[index] += numOccurrences;
+            }
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Calculates the class membership probabilities for the given test 
    * instance.
@@ -47,8 +47,10 @@ import weka.core.Utils;
 import weka.core.WeightedInstancesHandler;
 import weka.core.stemmers.NullStemmer;
 import weka.core.stemmers.Stemmer;
+import weka.core.stopwords.AbstractStopwords;
 import weka.core.stopwords.Null;
 import weka.core.stopwords.StopwordsHandler;
+import weka.core.tokenizers.Token;
 import weka.core.tokenizers.Tokenizer;
 import weka.core.tokenizers.WordTokenizer;
 
@@ -404,16 +406,23 @@ public class NaiveBayesMultinomialText extends AbstractClassifier implements
       if (instance.attribute(i).isString() && !instance.isMissing(i)) {
         m_tokenizer.tokenize(instance.stringValue(i));
 
-        while (m_tokenizer.hasMoreElements()) {
-          String word = m_tokenizer.nextElement();
+        Token token;
+        while ((token = m_tokenizer.nextToken()) != null) {
           if (m_lowercaseTokens) {
-            word = word.toLowerCase();
+            token.toLowerCase();
           }
 
-          word = m_stemmer.stem(word);
-
-          if (m_StopwordsHandler.isStopword(word)) {
-            continue;
+          String word;
+          if (m_stemmer instanceof NullStemmer) {
+            if (AbstractStopwords.isStopword(m_StopwordsHandler, token)) {
+              continue;
+            }
+            word = token.toString();
+          } else {
+            word = m_stemmer.stem(token.toString());
+            if (m_StopwordsHandler.isStopword(word)) {
+              continue;
+            }
           }
 
           Count docCount = m_inputVector.get(word);
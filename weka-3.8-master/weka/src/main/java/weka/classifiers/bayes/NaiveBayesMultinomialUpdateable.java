@@ -56,6 +56,12 @@ import weka.core.Utils;
  <!-- options-start -->
  * Valid options are: <p/>
  *
+ * -num-slots &lt;num&gt; <br>
+ * Number of execution slots for counting the words.
+ * (default 1 - i.e. no parallelism)
+ * (use 0 to auto-detect number of cores)
+ * <p>
+ *
  * -output-debug-info <br>
  * If set, classifier is run in debug mode and may output additional info to
  * the console.
@@ -121,9 +127,7 @@ public class NaiveBayesMultinomialUpdateable extends NaiveBayesMultinomial imple
       m_wordsPerClass[i] = m_numAttributes - 1;
     }
 
-    for (Instance instance : instances) {
-      updateClassifier(instance);
-    }
+    addCounts(instances, m_wordsPerClass);
   }
 
   /**
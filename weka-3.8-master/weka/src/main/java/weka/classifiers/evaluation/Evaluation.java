@@ -56,6 +56,11 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -105,6 +110,12 @@ import java.util.zip.GZIPOutputStream;
  * 1).
  * <p/>
  *
+ * -num-slots number <br/>
+ * The number of execution slots (threads) for building the models of the
+ * cross-validation, 0 for one per core (default: 1). Passed on to the
+ * classifier instead if it has an option of that name.
+ * <p/>
+ *
  * -m filename <br/>
  * The name of a file containing a cost matrix.
  * <p/>
@@ -448,6 +459,12 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
    */
   protected boolean m_DiscardPredictions;
 
+  /**
+   * the number of execution slots (threads) to use for building the models of
+   * a cross-validation, 0 for one per core.
+   */
+  protected int m_NumExecutionSlots = 1;
+
   /**
    * Holds plugin evaluation metrics
    */
@@ -610,6 +627,29 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
     return m_DiscardPredictions;
   }
 
+  /**
+   * Sets the number of execution slots (threads) to use for building the
+   * models of a cross-validation. With 1 slot the folds are built one after
+   * the other, with 0 one slot per core is used. The results do not depend on
+   * the number of slots.
+   *
+   * @param numSlots the number of execution slots (0 for one per core)
+   * @see #crossValidateModel(Classifier, Instances, int, Random, Object...)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_NumExecutionSlots = numSlots;
+  }
+
+  /**
+   * Returns the number of execution slots used for building the models of a
+   * cross-validation.
+   *
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+    return m_NumExecutionSlots;
+  }
+
   /**
    * Returns the list of plugin metrics in use (or null if there are none)
    *
@@ -801,7 +841,11 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
    * Performs a (stratified if class is nominal) cross-validation for a
    * classifier on a set of instances. Performs a deep copy of the
    * classifier before each call to buildClassifier() (just in case the
-   * classifier is not initialized properly).
+   * classifier is not initialized properly). If more than one execution slot
+   * is set via setNumExecutionSlots(int), the models of the folds are built
+   * concurrently;
+   * they are still evaluated in the order of the folds, so the results are the
+   * same as with a single thread.
    *
    * @param classifier             the classifier with any options set.
    * @param data                   the data on which the cross-validation is to be performed
@@ -836,20 +880,22 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
     }
 
     // Do the folds
-    for (int i = 0; i < numFolds; i++) {
-      Instances train = data.trainCV(numFolds, i, random);
-      setPriors(train);
-      Classifier copiedClassifier = AbstractClassifier.makeCopy(classifier);
-      copiedClassifier.buildClassifier(train);
-      if (classificationOutput == null && forPrinting.length > 0) {
-        ((StringBuffer)forPrinting[0]).append("\n=== Classifier model (training fold " + (i + 1) +") ===\n\n" +
-                copiedClassifier);
-      }
-      Instances test = data.testCV(numFolds, i);
-      if (classificationOutput != null){
-        evaluateModel(copiedClassifier, test, forPrinting);
-      } else {
-        evaluateModel(copiedClassifier, test);
+    if (m_NumExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
+    int numSlots = (m_NumExecutionSlots == 0) ? Runtime.getRuntime()
+      .availableProcessors() : m_NumExecutionSlots;
+    if (numSlots > 1 && numFolds > 1) {
+      crossValidateFolds(classifier, data, numFolds, numSlots, random,
+        classificationOutput, forPrinting);
+    } else {
+      for (int i = 0; i < numFolds; i++) {
+        Instances train = data.trainCV(numFolds, i, random);
+        setPriors(train);
+        Classifier copiedClassifier = AbstractClassifier.makeCopy(classifier);
+        copiedClassifier.buildClassifier(train);
+        evaluateFold(copiedClassifier, data.testCV(numFolds, i), i,
+          classificationOutput, forPrinting);
       }
     }
     m_NumFolds = numFolds;
@@ -859,6 +905,91 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
     }
   }
 
+  /**
+   * Builds the models of the folds of a cross-validation concurrently and
+   * evaluates them in the order of the folds. The training sets are drawn one
+   * after the other, so the random number generator is used exactly as in the
+   * sequential cross-validation.
+   *
+   * @param classifier the classifier with any options set
+   * @param data the randomized (and stratified) data
+   * @param numFolds the number of folds
+   * @param numSlots the number of threads to use
+   * @param random random number generator for randomizing the training sets
+   * @param classificationOutput the output for the predictions, can be null
+   * @param forPrinting the objects for printing
+   * @throws Exception if a classifier could not be generated successfully
+   */
+  protected void crossValidateFolds(final Classifier classifier,
+    Instances data, int numFolds, int numSlots, Random random,
+    AbstractOutput classificationOutput, Object... forPrinting)
+    throws Exception {
+
+    Instances[] trains = new Instances[numFolds];
+    List<Future<Classifier>> models = new ArrayList<Future<Classifier>>();
+    ExecutorService executorPool =
+      Executors.newFixedThreadPool(Math.min(numSlots, numFolds));
+    try {
+      for (int i = 0; i < numFolds; i++) {
+        final Instances train = data.trainCV(numFolds, i, random);
+        trains[i] = train;
+        models.add(executorPool.submit(new Callable<Classifier>() {
+          @Override
+          public Classifier call() throws Exception {
+            Classifier copiedClassifier =
+              AbstractClassifier.makeCopy(classifier);
+            copiedClassifier.buildClassifier(train);
+            return copiedClassifier;
+          }
+        }));
+      }
+
+      for (int i = 0; i < numFolds; i++) {
+        Classifier copiedClassifier;
+        try {
+          copiedClassifier = models.get(i).get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+        models.set(i, null);
+        setPriors(trains[i]);
+        trains[i] = null;
+        evaluateFold(copiedClassifier, data.testCV(numFolds, i), i,
+          classificationOutput, forPrinting);
+      }
+    } finally {
+      executorPool.shutdownNow();
+    }
+  }
+
+  /**
+   * Evaluates the model of one fold of a cross-validation on its test set.
+   *
+   * @param copiedClassifier the model built on the training set of the fold
+   * @param test the test set of the fold
+   * @param fold the index of the fold
+   * @param classificationOutput the output for the predictions, can be null
+   * @param forPrinting the objects for printing
+   * @throws Exception if the model could not be evaluated successfully
+   */
+  protected void evaluateFold(Classifier copiedClassifier, Instances test,
+    int fold, AbstractOutput classificationOutput, Object... forPrinting)
+    throws Exception {
+
+    if (classificationOutput == null && forPrinting.length > 0) {
+      ((StringBuffer)forPrinting[0]).append("\n=== Classifier model (training fold " + (fold + 1) +") ===\n\n" +
+              copiedClassifier);
+    }
+    if (classificationOutput != null){
+      evaluateModel(copiedClassifier, test, forPrinting);
+    } else {
+      evaluateModel(copiedClassifier, test);
+    }
+  }
+
   /**
    * Performs a (stratified if class is nominal) cross-validation for a
    * classifier on a set of instances.
@@ -921,6 +1052,12 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
    * 1).
    * <p/>
    * <p>
+   * -num-slots number <br/>
+   * The number of execution slots (threads) for building the models of the
+   * cross-validation, 0 for one per core (default: 1). Passed on to the
+   * classifier instead if it has an option of that name.
+   * <p/>
+   * <p>
    * -m filename <br/>
    * The name of a file containing a cost matrix.
    * <p/>
@@ -1190,6 +1327,12 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
    * 1).
    * <p/>
    *
+   * -num-slots number <br/>
+   * The number of execution slots (threads) for building the models of the
+   * cross-validation, 0 for one per core (default: 1). Passed on to the
+   * classifier instead if it has an option of that name.
+   * <p/>
+   *
    * -m file with cost matrix <br/>
    * The name of a file containing a cost matrix.
    * <p/>
@@ -1303,6 +1446,9 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
     String testFileName = Utils.getOption('T', options);
     String foldsString = Utils.getOption('x', options);
     String seedString = Utils.getOption('s', options);
+    // -num-slots is left to classifiers that have an option of that name
+    String numSlotsString = hasOption(classifier, "num-slots") ? ""
+      : Utils.getOption("num-slots", options);
     boolean outputModelsForTrainingSplits = Utils.getFlag("output-models-for-training-splits", options);
     boolean classStatistics = !Utils.getFlag("do-not-output-per-class-statistics", options);
     boolean noOutput = Utils.getFlag('o', options);
@@ -1328,7 +1474,7 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
     CostMatrix costMatrix = null;
     double splitPercentage = -1;
     int classIndex = -1, actualClassIndex = -1;
-    int seed = 1, folds = 10;
+    int seed = 1, folds = 10, numSlots = 1;
     Instances train = null, test = null, template = null;
     AbstractOutput classificationOutput = null;
     List<String> toggleList = new ArrayList<String>();
@@ -1433,6 +1579,9 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
       if (foldsString.length() != 0) {
         folds = Integer.parseInt(foldsString);
       }
+      if (numSlotsString.length() != 0) {
+        numSlots = Integer.parseInt(numSlotsString);
+      }
       if (classIndexString.length() != 0) {
         if (classIndexString.equals("first")) {
           classIndex = 1;
@@ -1723,6 +1872,7 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
           testingEvaluation = new Evaluation(new Instances(mappedClassifierHeader, 0), costMatrix);
         }
         testingEvaluation.toggleEvalMetrics(toggleList);
+        testingEvaluation.setNumExecutionSlots(numSlots);
         classifier = AbstractClassifier.makeCopy(classifierBackup);
         predsBuff.append("\n=== Predictions under cross-validation ===\n\n");
         testingEvaluation.crossValidateModel(classifier, new DataSource(trainFileName).getDataSet(actualClassIndex), folds, random,
@@ -1744,6 +1894,7 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
       }
       testingEvaluation.setDiscardPredictions(discardPredictions);
       testingEvaluation.toggleEvalMetrics(toggleList);
+      testingEvaluation.setNumExecutionSlots(numSlots);
 
       // CASE 1: SEPARATE TEST SET
       if (testFileName.length() > 0) {
@@ -4483,6 +4634,27 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
     return true;
   }
 
+  /**
+   * Tells whether the classifier has an option of the given name.
+   *
+   * @param classifier the classifier
+   * @param name the name of the option, without the leading dash
+   * @return true if the classifier lists an option of that name
+   */
+  protected static boolean hasOption(Classifier classifier, String name) {
+
+    if (classifier instanceof OptionHandler) {
+      Enumeration<Option> enu = ((OptionHandler) classifier).listOptions();
+      while (enu.hasMoreElements()) {
+        if (name.equals(enu.nextElement().name())) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
   /**
    * Make up the help string giving all the command line options.
    *
@@ -4528,6 +4700,14 @@ public class Evaluation implements Summarizable, RevisionHandler, Serializable {
     optionsText
       .append("\tSets random number seed for cross-validation or percentage split\n");
     optionsText.append("\t(default: 1).\n");
+    optionsText.append("-num-slots <number of execution slots>\n");
+    optionsText
+      .append("\tSets number of execution slots (threads) for building the\n");
+    optionsText
+      .append("\tmodels of the cross-validation, 0 for one per core\n");
+    optionsText
+      .append("\t(default: 1). Passed on to the classifier instead if it\n");
+    optionsText.append("\thas an option of that name.\n");
     optionsText.append("-m <name of file with cost matrix>\n");
     optionsText.append("\tSets file with cost matrix.\n");
     optionsText.append("-continue-iterating\n");
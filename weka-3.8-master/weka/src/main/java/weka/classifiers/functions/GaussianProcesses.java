@@ -118,6 +118,14 @@ import java.util.Enumeration;
  * *  -1 to turn it off.
  * *  (default: 250007)</pre>
  * * 
+ * * <pre> -M &lt;num&gt;
+ * *  The memory in megabytes for caching whole rows of the kernel
+ * *  matrix, used instead of the cache above if greater than 0.
+ * *  (default: 0)</pre>
+ * * 
+ * * <pre> -F
+ * *  Store the rows in the row cache as floats.</pre>
+ * * 
  * * <pre> -output-debug-info
  * *  Enables debugging output (if available) to be printed.
  * *  (default: off)</pre>
@@ -366,6 +374,7 @@ public class GaussianProcesses extends RandomizableClassifier implements
     m_actualKernel = Kernel.makeCopy(m_kernel);
     if (m_kernel instanceof CachedKernel) {
       ((CachedKernel)m_actualKernel).setCacheSize(-1); // We don't need a cache at all
+      ((CachedKernel)m_actualKernel).setRowCacheMemory(0);
     }
     m_actualKernel.buildKernel(insts);
 
@@ -388,11 +397,24 @@ public class GaussianProcesses extends RandomizableClassifier implements
     // initialize kernel matrix/covariance matrix
     int n = insts.numInstances();
     m_L = new UpperSPDDenseMatrix(n);
-    for (int i = 0; i < n; i++) {
-      for (int j = i + 1; j < n; j++) {
-        m_L.set(i, j, m_weights[i] * m_weights[j] * m_actualKernel.eval(i, j, insts.instance(i)));
+    if (m_actualKernel instanceof CachedKernel) {
+
+      // Compute the rows in one go
+      double[] row = new double[n];
+      for (int i = 0; i < n; i++) {
+        ((CachedKernel)m_actualKernel).evalRow(i, i, n, row);
+        for (int j = i + 1; j < n; j++) {
+          m_L.set(i, j, m_weights[i] * m_weights[j] * row[j]);
+        }
+        m_L.set(i, i, m_weights[i] * m_weights[i] * row[i] + m_deltaSquared);
+      }
+    } else {
+      for (int i = 0; i < n; i++) {
+        for (int j = i + 1; j < n; j++) {
+          m_L.set(i, j, m_weights[i] * m_weights[j] * m_actualKernel.eval(i, j, insts.instance(i)));
+        }
+        m_L.set(i, i, m_weights[i] * m_weights[i] * m_actualKernel.eval(i, i, insts.instance(i)) + m_deltaSquared);
       }
-      m_L.set(i, i, m_weights[i] * m_weights[i] * m_actualKernel.eval(i, i, insts.instance(i)) + m_deltaSquared);
     }
 
     // Compute inverse of kernel matrix
@@ -652,6 +674,14 @@ public class GaussianProcesses extends RandomizableClassifier implements
    * *  -1 to turn it off.
    * *  (default: 250007)</pre>
    * * 
+   * * <pre> -M &lt;num&gt;
+   * *  The memory in megabytes for caching whole rows of the kernel
+   * *  matrix, used instead of the cache above if greater than 0.
+   * *  (default: 0)</pre>
+   * * 
+   * * <pre> -F
+   * *  Store the rows in the row cache as floats.</pre>
+   * * 
    * * <pre> -output-debug-info
    * *  Enables debugging output (if available) to be printed.
    * *  (default: off)</pre>
@@ -21,9 +21,16 @@
 
 package weka.classifiers.functions;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.pmml.producer.LogisticProducerHelper;
@@ -33,6 +40,7 @@ import weka.core.Capabilities.Capability;
 import weka.core.ConjugateGradientOptimization;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.LBFGSOptimization;
 import weka.core.Optimization;
 import weka.core.Option;
 import weka.core.OptionHandler;
@@ -135,6 +143,18 @@ import weka.filters.unsupervised.attribute.ReplaceMissingValues;
  *  Set the maximum number of iterations (default -1, until convergence).
  * </pre>
  * 
+ * <pre>
+ * -L
+ *  Use limited-memory BFGS (L-BFGS) rather than BFGS updates.
+ * </pre>
+ * 
+ * <pre>
+ * -num-slots &lt;num&gt;
+ *  Number of execution slots for evaluating the log-likelihood and its gradient.
+ *  (default 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)
+ * </pre>
+ * 
  * <!-- options-end -->
  * 
  * @author Xin Xu (xx5@cs.waikato.ac.nz)
@@ -183,6 +203,12 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
   /** Whether to use conjugate gradient descent rather than BFGS updates. */
   private boolean m_useConjugateGradientDescent = false;
 
+  /** Whether to use limited-memory BFGS rather than BFGS updates. */
+  private boolean m_useLBFGS = false;
+
+  /** The number of threads to use for evaluating the log-likelihood. */
+  private int m_numExecutionSlots = 1;
+
   /** Whether to turn of standardization of attributes. */
   private boolean m_doNotStandardizeAttributes = false;
 
@@ -265,7 +291,7 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
    */
   @Override
   public Enumeration<Option> listOptions() {
-    Vector<Option> newVector = new Vector<Option>(4);
+    Vector<Option> newVector = new Vector<Option>(6);
 
     newVector.addElement(new Option(
       "\tUse conjugate gradient descent rather than BFGS updates.", "C", 0,
@@ -277,6 +303,14 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
       "R", 1, "-R <ridge>"));
     newVector.addElement(new Option("\tSet the maximum number of iterations"
       + " (default -1, until convergence).", "M", 1, "-M <number>"));
+    newVector.addElement(new Option(
+      "\tUse limited-memory BFGS (L-BFGS) rather than BFGS updates.", "L", 0,
+      "-L"));
+    newVector.addElement(new Option(
+      "\tNumber of execution slots for evaluating the log-likelihood and its"
+        + " gradient.\n\t(default 1 - i.e. no parallelism)\n"
+        + "\t(use 0 to auto-detect number of cores)", "num-slots", 1,
+      "-num-slots <num>"));
 
     newVector.addAll(Collections.list(super.listOptions()));
 
@@ -310,6 +344,18 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
    *  Set the maximum number of iterations (default -1, until convergence).
    * </pre>
    * 
+   * <pre>
+   * -L
+   *  Use limited-memory BFGS (L-BFGS) rather than BFGS updates.
+   * </pre>
+   * 
+   * <pre>
+   * -num-slots &lt;num&gt;
+   *  Number of execution slots for evaluating the log-likelihood and its gradient.
+   *  (default 1 - i.e. no parallelism)
+   *  (use 0 to auto-detect number of cores)
+   * </pre>
+   * 
    * <!-- options-end -->
    * 
    * @param options the list of options as an array of strings
@@ -334,6 +380,14 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
       m_MaxIts = -1;
     }
 
+    setUseLBFGS(Utils.getFlag('L', options));
+    String slotsString = Utils.getOption("num-slots", options);
+    if (slotsString.length() != 0) {
+      setNumExecutionSlots(Integer.parseInt(slotsString));
+    } else {
+      setNumExecutionSlots(1);
+    }
+
     super.setOptions(options);
   }
 
@@ -357,6 +411,13 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
     options.add("" + m_Ridge);
     options.add("-M");
     options.add("" + m_MaxIts);
+    if (getUseLBFGS()) {
+      options.add("-L");
+    }
+    if (getNumExecutionSlots() != 1) {
+      options.add("-num-slots");
+      options.add("" + getNumExecutionSlots());
+    }
     Collections.addAll(options, super.getOptions());
 
     return options.toArray(new String[0]);
@@ -421,6 +482,66 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
     return m_useConjugateGradientDescent;
   }
 
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String useLBFGSTipText() {
+    return "Use limited-memory BFGS (L-BFGS) rather than BFGS updates; needs "
+      + "memory linear rather than quadratic in the number of parameters.";
+  }
+
+  /**
+   * Sets whether limited-memory BFGS is used.
+   * 
+   * @param useLBFGS true if L-BFGS is to be used.
+   */
+  public void setUseLBFGS(boolean useLBFGS) {
+    m_useLBFGS = useLBFGS;
+  }
+
+  /**
+   * Gets whether to use limited-memory BFGS rather than BFGS updates.
+   * 
+   * @return true if L-BFGS is used
+   */
+  public boolean getUseLBFGS() {
+    return m_useLBFGS;
+  }
+
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for evaluating the "
+      + "log-likelihood and its gradient (0 to use one per core). The "
+      + "training data is split into as many parts, whose contributions are "
+      + "added up.";
+  }
+
+  /**
+   * Sets the number of execution slots (threads) to use.
+   * 
+   * @param numSlots the number of slots to use (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_numExecutionSlots = numSlots;
+  }
+
+  /**
+   * Gets the number of execution slots (threads) to use.
+   * 
+   * @return the number of slots to use
+   */
+  public int getNumExecutionSlots() {
+    return m_numExecutionSlots;
+  }
+
   /**
    * Returns the tip text for this property
    *
@@ -516,12 +637,12 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
     }
 
     @Override
-    protected double objectiveFunction(double[] x) {
+    protected double objectiveFunction(double[] x) throws Exception {
       return m_oO.objectiveFunction(x);
     }
 
     @Override
-    protected double[] evaluateGradient(double[] x) {
+    protected double[] evaluateGradient(double[] x) throws Exception {
       return m_oO.evaluateGradient(x);
     }
 
@@ -540,12 +661,36 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
     }
 
     @Override
-    protected double objectiveFunction(double[] x) {
+    protected double objectiveFunction(double[] x) throws Exception {
       return m_oO.objectiveFunction(x);
     }
 
     @Override
-    protected double[] evaluateGradient(double[] x) {
+    protected double[] evaluateGradient(double[] x) throws Exception {
+      return m_oO.evaluateGradient(x);
+    }
+
+    @Override
+    public String getRevision() {
+      return RevisionUtils.extract("$Revision$");
+    }
+  }
+
+  private class OptEngLBFGS extends LBFGSOptimization {
+
+    OptObject m_oO = null;
+
+    private OptEngLBFGS(OptObject oO) {
+      m_oO = oO;
+    }
+
+    @Override
+    protected double objectiveFunction(double[] x) throws Exception {
+      return m_oO.objectiveFunction(x);
+    }
+
+    @Override
+    protected double[] evaluateGradient(double[] x) throws Exception {
       return m_oO.evaluateGradient(x);
     }
 
@@ -563,6 +708,12 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
     /** Class labels of instances */
     private int[] cls;
 
+    /** Threads for evaluating parts of the data, null to use this thread */
+    private ExecutorService pool;
+
+    /** The number of parts to split the data into when using threads */
+    private int numParts;
+
     /**
      * Set the weights of instances
      * 
@@ -581,6 +732,40 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
       cls = c;
     }
 
+    /**
+     * Set the threads for evaluating parts of the data
+     * 
+     * @param p the threads, null to evaluate all data in the calling thread
+     * @param n the number of parts to split the data into
+     */
+    public void setExecutorPool(ExecutorService p, int n) {
+      pool = p;
+      numParts = n;
+    }
+
+    /**
+     * Runs the given tasks with the threads and waits for them to finish.
+     * 
+     * @param tasks the tasks to run
+     * @throws Exception if a task fails
+     */
+    protected void runTasks(List<Callable<Void>> tasks) throws Exception {
+      List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (Callable<Void> task : tasks) {
+        results.add(pool.submit(task));
+      }
+      for (Future<Void> future : results) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    }
+
     /**
      * Computes the logarithm of x plus y given the logarithms of x and y.
      * 
@@ -611,11 +796,66 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
      * @param x the current values of variables
      * @return the value of the objective function
      */
-    protected double objectiveFunction(double[] x) {
+    protected double objectiveFunction(final double[] x) throws Exception {
+      double nll = 0; // -LogLikelihood
+      int dim = m_NumPredictors + 1; // Number of variables per class
+
+      if (pool == null) {
+        nll = negativeLogLikelihood(x, 0, cls.length);
+      } else {
+        // Evaluate parts of the data in parallel and add up in order
+        final double[] parts = new double[numParts];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int p = 0; p < numParts; p++) {
+          final int part = p;
+          tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() {
+              parts[part] = negativeLogLikelihood(x, partStart(part),
+                partStart(part + 1));
+              return null;
+            }
+          });
+        }
+        runTasks(tasks);
+        for (double part : parts) {
+          nll += part;
+        }
+      }
+
+      // Ridge: note that intercepts NOT included
+      for (int offset = 0; offset < m_NumClasses - 1; offset++) {
+        for (int r = 1; r < dim; r++) {
+          nll += m_Ridge * x[offset * dim + r] * x[offset * dim + r];
+        }
+      }
+
+      return nll;
+    }
+
+    /**
+     * Returns the index of the first instance of a part of the data.
+     * 
+     * @param part the part, numParts for the end of the last part
+     * @return the index of the first instance
+     */
+    protected int partStart(int part) {
+      return (int) ((long) cls.length * part / numParts);
+    }
+
+    /**
+     * Evaluates the weighted negative log-likelihood of a range of instances.
+     * 
+     * @param x the current values of variables
+     * @param from the first instance
+     * @param to the instance after the last one
+     * @return the negative log-likelihood of the instances
+     */
+    protected double negativeLogLikelihood(double[] x, int from, int to) {
       double nll = 0; // -LogLikelihood
       int dim = m_NumPredictors + 1; // Number of variables per class
 
-      for (int i = 0; i < cls.length; i++) { // ith instance
+      for (int i = from; i < to; i++) { // ith instance
 
         double[] exp = new double[m_NumClasses - 1];
         int index;
@@ -637,27 +877,67 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
         nll -= weights[i] * (num - denom); // Weighted NLL
       }
 
+      return nll;
+    }
+
+    /**
+     * Evaluate Jacobian vector
+     * 
+     * @param x the current values of variables
+     * @return the gradient vector
+     */
+    protected double[] evaluateGradient(final double[] x) throws Exception {
+      double[] grad = new double[x.length];
+      int dim = m_NumPredictors + 1; // Number of variables per class
+
+      if (pool == null) {
+        addGradient(x, 0, cls.length, grad);
+      } else {
+        // Evaluate parts of the data in parallel and add up in order
+        final double[][] parts = new double[numParts][x.length];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int p = 0; p < numParts; p++) {
+          final int part = p;
+          tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() {
+              addGradient(x, partStart(part), partStart(part + 1),
+                parts[part]);
+              return null;
+            }
+          });
+        }
+        runTasks(tasks);
+        for (double[] part : parts) {
+          for (int j = 0; j < grad.length; j++) {
+            grad[j] += part[j];
+          }
+        }
+      }
+
       // Ridge: note that intercepts NOT included
       for (int offset = 0; offset < m_NumClasses - 1; offset++) {
         for (int r = 1; r < dim; r++) {
-          nll += m_Ridge * x[offset * dim + r] * x[offset * dim + r];
+          grad[offset * dim + r] += 2 * m_Ridge * x[offset * dim + r];
         }
       }
 
-      return nll;
+      return grad;
     }
 
     /**
-     * Evaluate Jacobian vector
+     * Adds the gradient of the weighted negative log-likelihood of a range of
+     * instances to the given vector.
      * 
      * @param x the current values of variables
-     * @return the gradient vector
+     * @param from the first instance
+     * @param to the instance after the last one
+     * @param grad the gradient vector to add to
      */
-    protected double[] evaluateGradient(double[] x) {
-      double[] grad = new double[x.length];
+    protected void addGradient(double[] x, int from, int to, double[] grad) {
       int dim = m_NumPredictors + 1; // Number of variables per class
 
-      for (int i = 0; i < cls.length; i++) { // ith instance
+      for (int i = from; i < to; i++) { // ith instance
         double[] num = new double[m_NumClasses - 1]; // numerator of
                                                      // [-log(1+sum(exp))]'
         int index;
@@ -696,15 +976,6 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
           }
         }
       }
-
-      // Ridge: note that intercepts NOT included
-      for (int offset = 0; offset < m_NumClasses - 1; offset++) {
-        for (int r = 1; r < dim; r++) {
-          grad[offset * dim + r] += 2 * m_Ridge * x[offset * dim + r];
-        }
-      }
-
-      return grad;
     }
   }
 
@@ -740,6 +1011,13 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
    */
   @Override
   public void buildClassifier(Instances train) throws Exception {
+    if (getUseConjugateGradientDescent() && getUseLBFGS()) {
+      throw new Exception(
+        "Cannot use both conjugate gradient descent and L-BFGS!");
+    }
+    if (m_numExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
     // can classifier handle the data?
     getCapabilities().testWithFail(train);
 
@@ -875,31 +1153,47 @@ public class Logistic extends AbstractClassifier implements OptionHandler,
     oO.setWeights(weights);
     oO.setClassLabels(Y);
 
+    int numSlots = (m_numExecutionSlots == 0) ? Runtime.getRuntime()
+      .availableProcessors() : m_numExecutionSlots;
+    ExecutorService pool = null;
+    if (numSlots > 1 && nC > 1) {
+      pool = Executors.newFixedThreadPool(Math.min(numSlots, nC));
+      oO.setExecutorPool(pool, Math.min(numSlots, nC));
+    }
+
     Optimization opt = null;
     if (m_useConjugateGradientDescent) {
       opt = new OptEngCG(oO);
+    } else if (m_useLBFGS) {
+      opt = new OptEngLBFGS(oO);
     } else {
       opt = new OptEng(oO);
     }
     opt.setDebug(m_Debug);
 
-    if (m_MaxIts == -1) { // Search until convergence
-      x = opt.findArgmin(x, b);
-      while (x == null) {
-        x = opt.getVarbValues();
+    try {
+      if (m_MaxIts == -1) { // Search until convergence
+        x = opt.findArgmin(x, b);
+        while (x == null) {
+          x = opt.getVarbValues();
+          if (m_Debug) {
+            System.out.println("First set of iterations finished, not enough!");
+          }
+          x = opt.findArgmin(x, b);
+        }
         if (m_Debug) {
-          System.out.println("First set of iterations finished, not enough!");
+          System.out.println(" -------------<Converged>--------------");
         }
+      } else {
+        opt.setMaxIteration(m_MaxIts);
         x = opt.findArgmin(x, b);
+        if (x == null) {
+          x = opt.getVarbValues();
+        }
       }
-      if (m_Debug) {
-        System.out.println(" -------------<Converged>--------------");
-      }
-    } else {
-      opt.setMaxIteration(m_MaxIts);
-      x = opt.findArgmin(x, b);
-      if (x == null) {
-        x = opt.getVarbValues();
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
       }
     }
 
@@ -23,6 +23,7 @@ package weka.classifiers.functions;
 
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
+import weka.classifiers.functions.supportVector.CachedKernel;
 import weka.classifiers.functions.supportVector.Kernel;
 import weka.classifiers.functions.supportVector.NormalizedPolyKernel;
 import weka.classifiers.functions.supportVector.PolyKernel;
@@ -54,8 +55,15 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
  <!-- globalinfo-start -->
@@ -161,6 +169,11 @@ import java.util.Vector;
   Full name of calibration model, followed by options.
   (default: "weka.classifiers.functions.Logistic")</pre>
  
+ <pre> -num-slots &lt;num&gt;
+  Number of execution slots.
+  (default 1 - i.e. no parallelism)
+  (use 0 to auto-detect number of cores)</pre>
+ 
  <pre> -output-debug-info
   If set, classifier is run in debug mode and
   may output additional info to the console</pre>
@@ -189,6 +202,14 @@ import java.util.Vector;
   -1 to turn it off.
   (default: 250007)</pre>
  
+ <pre> -M &lt;num&gt;
+  The memory in megabytes for caching whole rows of the kernel
+  matrix, used instead of the cache above if greater than 0.
+  (default: 0)</pre>
+ 
+ <pre> -F
+  Store the rows in the row cache as floats.</pre>
+ 
  <pre> -output-debug-info
   Enables debugging output (if available) to be printed.
   (default: off)</pre>
@@ -1269,6 +1290,9 @@ public class SMO
 
   /** the kernel to use */
   protected Kernel m_kernel = new PolyKernel();
+
+  /** The number of threads for training the binary classifiers */
+  protected int m_numExecutionSlots = 1;
   
   /**
    * Turns off checks for missing values, etc. Use with caution.
@@ -1322,6 +1346,10 @@ public class SMO
    */
   public void buildClassifier(Instances insts) throws Exception {
 
+    if (m_numExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
+
     if (!m_checksTurnedOff) {
       // can classifier handle the data?
       getCapabilities().testWithFail(insts);
@@ -1394,40 +1422,203 @@ public class SMO
     m_KernelIsLinear = (m_kernel instanceof PolyKernel) && (((PolyKernel) m_kernel).getExponent() == 1.0) &&
             !(((PolyKernel) m_kernel).getUseLowerOrder()) && !(m_kernel instanceof NormalizedPolyKernel);
 
-    // Generate subsets representing each class
-    Instances[] subsets = new Instances[insts.numClasses()];
+    // Generate the indices of the instances of each class
+    int[][] subsetIndices = new int[insts.numClasses()][];
+    int[] counts = new int[insts.numClasses()];
+    for (int j = 0; j < insts.numInstances(); j++) {
+      counts[(int) insts.instance(j).classValue()]++;
+    }
     for (int i = 0; i < insts.numClasses(); i++) {
-      subsets[i] = new Instances(insts, insts.numInstances());
+      subsetIndices[i] = new int[counts[i]];
+      counts[i] = 0;
     }
     for (int j = 0; j < insts.numInstances(); j++) {
-      Instance inst = insts.instance(j);
-      subsets[(int) inst.classValue()].add(inst);
+      int cl = (int) insts.instance(j).classValue();
+      subsetIndices[cl][counts[cl]++] = j;
     }
-    for (int i = 0; i < insts.numClasses(); i++) {
-      subsets[i].compactify();
+
+    // Let the binary classifiers share the kernel's row cache, if it has
+    // one, with rows computed on the full data
+    CachedKernel sharedKernel = null;
+    if ((insts.numClasses() > 2) && (getKernel() instanceof CachedKernel)
+            && (((CachedKernel) getKernel()).getRowCacheMemory() > 0)) {
+      sharedKernel = (CachedKernel) Kernel.makeCopy(getKernel());
+      sharedKernel.buildKernel(insts);
     }
 
-    // Build the binary classifiers
+    // Set up the binary classifiers. The training data of each pair of
+    // classes is shuffled here, one pair after the other, so that the
+    // results do not depend on the number of execution slots.
     Random rand = new Random(m_randomSeed);
     m_classifiers = new BinarySMO[insts.numClasses()][insts.numClasses()];
+    int[][][] orders = new int[insts.numClasses()][insts.numClasses()][];
+    int numPairs = 0;
     for (int i = 0; i < insts.numClasses(); i++) {
       for (int j = i + 1; j < insts.numClasses(); j++) {
         m_classifiers[i][j] = new BinarySMO();
         m_classifiers[i][j].setKernel(Kernel.makeCopy(getKernel()));
-        Instances data = new Instances(insts, insts.numInstances());
-        for (int k = 0; k < subsets[i].numInstances(); k++) {
-          data.add(subsets[i].instance(k));
+
+        // Same as Instances.randomize(rand) on the instances of both classes
+        int[] order = new int[subsetIndices[i].length
+                + subsetIndices[j].length];
+        System.arraycopy(subsetIndices[i], 0, order, 0,
+                subsetIndices[i].length);
+        System.arraycopy(subsetIndices[j], 0, order,
+                subsetIndices[i].length, subsetIndices[j].length);
+        for (int k = order.length - 1; k > 0; k--) {
+          int l = rand.nextInt(k + 1);
+          int index = order[k];
+          order[k] = order[l];
+          order[l] = index;
         }
-        for (int k = 0; k < subsets[j].numInstances(); k++) {
-          data.add(subsets[j].instance(k));
+        orders[i][j] = order;
+        numPairs++;
+
+        if (sharedKernel != null) {
+          ((CachedKernel) m_classifiers[i][j].getKernel())
+                  .shareRowCache(sharedKernel, order);
         }
-        data.compactify();
-        data.randomize(rand);
-        m_classifiers[i][j].buildClassifier(data, i, j,
-                m_fitCalibratorModels,
-                m_numFolds, m_randomSeed);
       }
     }
+
+    // Build the binary classifiers
+    int numSlots = (m_numExecutionSlots == 0)
+            ? Runtime.getRuntime().availableProcessors() : m_numExecutionSlots;
+    try {
+      if ((numSlots > 1) && (numPairs > 1)) {
+        buildClassifiers(insts, orders, Math.min(numSlots, numPairs),
+                sharedKernel != null);
+      } else {
+        for (int i = 0; i < insts.numClasses(); i++) {
+          for (int j = i + 1; j < insts.numClasses(); j++) {
+            m_classifiers[i][j].buildClassifier(pairData(insts, orders[i][j]),
+                    i, j, m_fitCalibratorModels, m_numFolds, m_randomSeed);
+            orders[i][j] = null;
+          }
+        }
+      }
+    } finally {
+      if (sharedKernel != null) {
+        sharedKernel.clean();
+      }
+    }
+  }
+
+  /**
+   * Returns the training data of a binary classifier.
+   *
+   * @param insts the full training data
+   * @param order the indices of the instances of the binary classifier, in
+   *          the order in which it is to see them
+   * @return the training data
+   */
+  protected Instances pairData(Instances insts, int[] order) {
+
+    Instances data = new Instances(insts, order.length);
+    for (int index : order) {
+      data.add(insts.instance(index));
+    }
+    return data;
+  }
+
+  /**
+   * Estimates the memory taken by the cache of a kernel while a binary
+   * classifier is being trained.
+   *
+   * @param kernel the kernel
+   * @param numInstances the number of training instances
+   * @param sharedRowCache whether the kernel uses a shared row cache
+   * @return the estimate in bytes
+   */
+  protected long estimateCacheMemory(Kernel kernel, int numInstances,
+          boolean sharedRowCache) {
+
+    if (!(kernel instanceof CachedKernel) || sharedRowCache) {
+      return 0;
+    }
+    CachedKernel cachedKernel = (CachedKernel) kernel;
+    long n = numInstances;
+    if (cachedKernel.getRowCacheMemory() > 0) {
+      return Math.min(cachedKernel.getRowCacheMemory() * 1024L * 1024L,
+              n * (n * 8 + 64));
+    } else if (cachedKernel.getCacheSize() == 0) {
+      return (n * (n + 1) / 2) * 8 + n * 16;
+    } else if (cachedKernel.getCacheSize() > 0) {
+
+      // a double value and a long key for each of the 4 slots of an entry
+      return cachedKernel.getCacheSize() * 4L * 16L;
+    } else {
+      return 0;
+    }
+  }
+
+  /**
+   * Trains the binary classifiers concurrently. The kernel caches of the
+   * classifiers being trained at the same time are kept within half of the
+   * heap that is free at the start: a classifier waits until the estimated
+   * memory of its cache is available (a classifier whose cache does not fit
+   * at all is trained on its own).
+   *
+   * @param insts the full training data
+   * @param orders the indices of the training instances of each pair of
+   *          classes
+   * @param numSlots the number of threads to use
+   * @param sharedRowCache whether the kernels share one row cache
+   * @throws Exception if a classifier can't be built successfully
+   */
+  protected void buildClassifiers(final Instances insts,
+          final int[][][] orders, int numSlots, boolean sharedRowCache)
+          throws Exception {
+
+    // Memory is counted in kilobytes
+    Runtime runtime = Runtime.getRuntime();
+    long free = runtime.maxMemory()
+            - (runtime.totalMemory() - runtime.freeMemory());
+    final int budget = (int) Math.max(Math.min(free / 2 / 1024,
+            Integer.MAX_VALUE), 1);
+    final Semaphore memory = new Semaphore(budget, true);
+
+    List<Future<Void>> results = new ArrayList<Future<Void>>();
+    ExecutorService executorPool = Executors.newFixedThreadPool(numSlots);
+    try {
+      for (int i = 0; i < insts.numClasses(); i++) {
+        for (int j = i + 1; j < insts.numClasses(); j++) {
+          final BinarySMO smo = m_classifiers[i][j];
+          final int cl1 = i;
+          final int cl2 = j;
+          final int permits = (int) Math.min(estimateCacheMemory(
+                  smo.getKernel(), orders[i][j].length, sharedRowCache)
+                  / 1024, budget);
+          results.add(executorPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              memory.acquire(permits);
+              try {
+                smo.buildClassifier(pairData(insts, orders[cl1][cl2]), cl1,
+                        cl2, m_fitCalibratorModels, m_numFolds,
+                        m_randomSeed);
+              } finally {
+                memory.release(permits);
+              }
+              return null;
+            }
+          }));
+        }
+      }
+
+      for (Future<Void> result : results) {
+        try {
+          result.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    } finally {
+      executorPool.shutdownNow();
+    }
   }
 
   /**
@@ -1708,6 +1899,11 @@ public class SMO
                     "\t(default: \"weka.classifiers.functions.Logistic\")",
             "calibrator", 1, "-calibrator <scheme specification>"));
 
+    result.addElement(new Option("\tNumber of execution slots.\n"
+            + "\t(default 1 - i.e. no parallelism)\n"
+            + "\t(use 0 to auto-detect number of cores)", "num-slots", 1,
+            "-num-slots <num>"));
+
     result.addAll(Collections.list(super.listOptions()));
 
     result.addElement(new Option(
@@ -1772,6 +1968,11 @@ public class SMO
     Full name of calibration model, followed by options.
     (default: "weka.classifiers.functions.Logistic")</pre>
    
+   <pre> -num-slots &lt;num&gt;
+    Number of execution slots.
+    (default 1 - i.e. no parallelism)
+    (use 0 to auto-detect number of cores)</pre>
+   
    <pre> -output-debug-info
     If set, classifier is run in debug mode and
     may output additional info to the console</pre>
@@ -1800,6 +2001,14 @@ public class SMO
     -1 to turn it off.
     (default: 250007)</pre>
    
+   <pre> -M &lt;num&gt;
+    The memory in megabytes for caching whole rows of the kernel
+    matrix, used instead of the cache above if greater than 0.
+    (default: 0)</pre>
+   
+   <pre> -F
+    Store the rows in the row cache as floats.</pre>
+   
    <pre> -output-debug-info
     Enables debugging output (if available) to be printed.
     (default: off)</pre>
@@ -1881,6 +2090,12 @@ public class SMO
     else
       setRandomSeed(1);
 
+    tmpStr = Utils.getOption("num-slots", options);
+    if (tmpStr.length() != 0)
+      setNumExecutionSlots(Integer.parseInt(tmpStr));
+    else
+      setNumExecutionSlots(1);
+
     tmpStr     = Utils.getOption('K', options);
     tmpOptions = Utils.splitOptions(tmpStr);
     if (tmpOptions.length != 0) {
@@ -1943,6 +2158,11 @@ public class SMO
     result.add(getCalibrator().getClass().getName() + " "
             + Utils.joinOptions(((OptionHandler)getCalibrator()).getOptions()));
 
+    if (getNumExecutionSlots() != 1) {
+      result.add("-num-slots");
+      result.add("" + getNumExecutionSlots());
+    }
+
     Collections.addAll(result, super.getOptions());
     
     return (String[]) result.toArray(new String[result.size()]);	  
@@ -2239,6 +2459,37 @@ public class SMO
     
     m_randomSeed = newrandomSeed;
   }
+
+  /**
+   * Returns the tip text for this property
+   * @return tip text for this property suitable for
+   * displaying in the explorer/experimenter gui
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for training "
+      + "the binary classifiers of a multi-class problem (0 to use one per "
+      + "core).";
+  }
+
+  /**
+   * Get the number of execution slots.
+   *
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+
+    return m_numExecutionSlots;
+  }
+
+  /**
+   * Set the number of execution slots.
+   *
+   * @param numSlots the number of execution slots (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+
+    m_numExecutionSlots = numSlots;
+  }
   
   /**
    * Prints out the classifier.
@@ -145,6 +145,14 @@ import java.util.Vector;
  *  -1 to turn it off.
  *  (default: 250007)</pre>
  * 
+ * <pre> -M &lt;num&gt;
+ *  The memory in megabytes for caching whole rows of the kernel
+ *  matrix, used instead of the cache above if greater than 0.
+ *  (default: 0)</pre>
+ * 
+ * <pre> -F
+ *  Store the rows in the row cache as floats.</pre>
+ * 
  * <pre> -E &lt;num&gt;
  *  The Exponent to use.
  *  (default: 1.0)</pre>
@@ -366,6 +374,14 @@ public class SMOreg
    *  -1 to turn it off.
    *  (default: 250007)</pre>
    * 
+   * <pre> -M &lt;num&gt;
+   *  The memory in megabytes for caching whole rows of the kernel
+   *  matrix, used instead of the cache above if greater than 0.
+   *  (default: 0)</pre>
+   * 
+   * <pre> -F
+   *  Store the rows in the row cache as floats.</pre>
+   * 
    * <pre> -E &lt;num&gt;
    *  The Exponent to use.
    *  (default: 1.0)</pre>
@@ -32,7 +32,9 @@ import weka.core.Utils;
 /**
  * Base class for RBFKernel and PolyKernel that implements a simple LRU.
  * (least-recently-used) cache if the cache size is set to a value > 0.
- * Otherwise it uses a full cache.
+ * Otherwise it uses a full cache. Alternatively, whole rows of the kernel
+ * matrix can be cached in an LRU cache with a given amount of memory, which
+ * can also be shared between kernels built on subsets of the same data.
  * 
  * @author Eibe Frank (eibe@cs.waikato.ac.nz)
  * @author Shane Legg (shane@intelligenesis.net) (sparse vector code)
@@ -68,6 +70,33 @@ public abstract class CachedKernel extends Kernel {
   /** number of cache slots in an entry */
   protected int m_cacheSlots = 4;
 
+  /** The memory in megabytes for the row cache, 0 to not use it */
+  protected int m_rowCacheMemory = 0;
+
+  /** Whether the row cache stores floats rather than doubles */
+  protected boolean m_rowCacheUseFloats = false;
+
+  /** The row cache, if used */
+  protected transient KernelRowCache m_rowCache;
+
+  /** The kernel computing the rows of a shared row cache, null if not shared */
+  protected transient CachedKernel m_rowSource;
+
+  /** The rows of a shared row cache that correspond to our instances */
+  protected transient int[] m_rowIndices;
+
+  /** The indices of the two rows used last, to save on cache lookups */
+  protected transient int[] m_recentIndices;
+
+  /** The two rows used last */
+  protected transient Object[] m_recentRows;
+
+  /** Marks data that cannot be turned into dense rows */
+  protected static final double[][] NO_DENSE_ROWS = new double[0][];
+
+  /** The values of the instances without the class, null if not extracted */
+  protected transient volatile double[][] m_denseRows;
+
   /**
    * default constructor - does nothing.
    */
@@ -106,6 +135,14 @@ public abstract class CachedKernel extends Kernel {
           + "\t-1 to turn it off.\n" + "\t(default: 250007)", "C", 1,
         "-C <num>"));
 
+    result.addElement(new Option(
+      "\tThe memory in megabytes for caching whole rows of the kernel\n"
+        + "\tmatrix, used instead of the cache above if greater than 0.\n"
+        + "\t(default: 0)", "M", 1, "-M <num>"));
+
+    result.addElement(new Option(
+      "\tStore the rows in the row cache as floats.", "F", 0, "-F"));
+
     result.addAll(Collections.list(super.listOptions()));
 
     return result.elements();
@@ -129,6 +166,15 @@ public abstract class CachedKernel extends Kernel {
       setCacheSize(250007);
     }
 
+    tmpStr = Utils.getOption('M', options);
+    if (tmpStr.length() != 0) {
+      setRowCacheMemory(Integer.parseInt(tmpStr));
+    } else {
+      setRowCacheMemory(0);
+    }
+
+    setRowCacheUseFloats(Utils.getFlag('F', options));
+
     super.setOptions(options);
   }
 
@@ -145,6 +191,15 @@ public abstract class CachedKernel extends Kernel {
     result.add("-C");
     result.add("" + getCacheSize());
 
+    if (getRowCacheMemory() > 0) {
+      result.add("-M");
+      result.add("" + getRowCacheMemory());
+    }
+
+    if (getRowCacheUseFloats()) {
+      result.add("-F");
+    }
+
     Collections.addAll(result, super.getOptions());
 
     return result.toArray(new String[result.size()]);
@@ -179,6 +234,38 @@ public abstract class CachedKernel extends Kernel {
     long key = -1;
     int location = -1;
 
+    // Use row cache? The matrix is symmetric, so either of the two rows
+    // used last will do.
+    if ((id1 >= 0) && (m_rowCache != null)) {
+      int row = (m_rowIndices != null) ? m_rowIndices[id1] : id1;
+      int col = (m_rowIndices != null) ? m_rowIndices[id2] : id2;
+      for (int i = 0; i < 2; i++) {
+        if (m_recentIndices[i] == row) {
+          m_cacheHits++;
+          return m_rowCache.entry(m_recentRows[i], col);
+        }
+        if (m_recentIndices[i] == col) {
+          m_cacheHits++;
+          return m_rowCache.entry(m_recentRows[i], row);
+        }
+      }
+
+      // get the whole row, as the next calls are likely to need it too
+      int kernelEvals = m_kernelEvals;
+      Object values = m_rowCache.getRow(row, this);
+      if (m_kernelEvals == kernelEvals) {
+        m_cacheHits++;
+      }
+
+      // replace the row used less recently
+      m_recentIndices[1] = m_recentIndices[0];
+      m_recentRows[1] = m_recentRows[0];
+      m_recentIndices[0] = row;
+      m_recentRows[0] = values;
+
+      return m_rowCache.entry(values, col);
+    }
+
     // we can only cache if we know the indexes and caching is not
     // disabled (m_cacheSize == -1)
     if ((id1 >= 0) && (m_cacheSize != -1)) {
@@ -189,10 +276,8 @@ public abstract class CachedKernel extends Kernel {
           m_kernelMatrix = new double[m_data.numInstances()][];
           for (int i = 0; i < m_data.numInstances(); i++) {
             m_kernelMatrix[i] = new double[i + 1];
-            for (int j = 0; j <= i; j++) {
-              m_kernelEvals++;
-              m_kernelMatrix[i][j] = evaluate(i, j, m_data.instance(i));
-            }
+            evaluateRow(i, 0, i + 1, true, m_kernelMatrix[i]);
+            m_kernelEvals += i + 1;
           }
         }
         m_cacheHits++;
@@ -251,6 +336,181 @@ public abstract class CachedKernel extends Kernel {
     return result;
   }
 
+  /**
+   * Computes a part of a row of the kernel matrix, evaluating each entry
+   * either with the row's instance first, like evaluate(row, j,
+   * instance(row)), or second, like evaluate(j, row, instance(j)). The
+   * default implementation calls evaluate(); subclasses can compute the
+   * entries from the dense rows, as long as the results are the same.
+   * 
+   * @param row the index of the row
+   * @param from the index of the first entry to compute
+   * @param to the index after the last entry to compute
+   * @param rowFirst whether the row's instance is the first argument
+   * @param values the array for the entries, at their indices
+   * @throws Exception if something goes wrong
+   */
+  protected void evaluateRow(int row, int from, int to, boolean rowFirst,
+    double[] values) throws Exception {
+
+    evaluateRowByInstance(row, from, to, rowFirst, values);
+  }
+
+  /**
+   * Computes a part of a row of the kernel matrix by calling evaluate() for
+   * each entry.
+   * 
+   * @param row the index of the row
+   * @param from the index of the first entry to compute
+   * @param to the index after the last entry to compute
+   * @param rowFirst whether the row's instance is the first argument
+   * @param values the array for the entries, at their indices
+   * @throws Exception if something goes wrong
+   */
+  protected final void evaluateRowByInstance(int row, int from, int to,
+    boolean rowFirst, double[] values) throws Exception {
+
+    Instance inst = m_data.instance(row);
+    for (int j = from; j < to; j++) {
+      if (rowFirst) {
+        values[j] = evaluate(row, j, inst);
+      } else {
+        values[j] = evaluate(j, row, m_data.instance(j));
+      }
+    }
+  }
+
+  /**
+   * Computes a part of a row of the kernel matrix, without using the cache.
+   * Entry j is the same as eval(row, j, instance(row)) with caching turned
+   * off, but whole rows are computed faster for dense data.
+   * 
+   * @param row the index of the row
+   * @param from the index of the first entry to compute
+   * @param to the index after the last entry to compute
+   * @param values the array for the entries, at their indices
+   * @throws Exception if something goes wrong
+   */
+  public void evalRow(int row, int from, int to, double[] values)
+    throws Exception {
+
+    evaluateRow(row, from, to, true, values);
+    m_kernelEvals += to - from;
+  }
+
+  /**
+   * Returns the values of the instances without the class attribute, if all
+   * instances are dense and all other attributes are numeric or nominal, so
+   * that a dot product of two rows sums the same terms in the same order as
+   * dotProd(). The rows are extracted on first use.
+   * 
+   * @return the rows, null if the data is not suitable
+   */
+  protected double[][] denseRows() {
+
+    double[][] rows = m_denseRows;
+    if (rows == null) {
+      synchronized (this) {
+        rows = m_denseRows;
+        if (rows == null) {
+          rows = extractDenseRows(m_data);
+          m_denseRows = rows;
+        }
+      }
+    }
+    return (rows == NO_DENSE_ROWS) ? null : rows;
+  }
+
+  /**
+   * Extracts the values of the instances without the class attribute.
+   * 
+   * @param data the data
+   * @return the rows, NO_DENSE_ROWS if the data is not suitable
+   */
+  protected static double[][] extractDenseRows(Instances data) {
+
+    int classIndex = data.classIndex();
+    for (int j = 0; j < data.numAttributes(); j++) {
+      if ((j != classIndex) && !data.attribute(j).isNumeric()
+        && !data.attribute(j).isNominal()) {
+        return NO_DENSE_ROWS;
+      }
+    }
+    for (int i = 0; i < data.numInstances(); i++) {
+      if (data.instance(i).numValues() != data.numAttributes()) {
+        return NO_DENSE_ROWS;
+      }
+    }
+
+    int numValues = data.numAttributes() - ((classIndex >= 0) ? 1 : 0);
+    double[][] rows = new double[data.numInstances()][numValues];
+    for (int i = 0; i < data.numInstances(); i++) {
+      Instance inst = data.instance(i);
+      double[] row = rows[i];
+      int k = 0;
+      for (int j = 0; j < data.numAttributes(); j++) {
+        if (j != classIndex) {
+          row[k++] = inst.valueSparse(j);
+        }
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Calculates the dot product of two dense rows.
+   * 
+   * @param row1 the first row
+   * @param row2 the second row
+   * @return the dot product
+   */
+  protected static double dotProd(double[] row1, double[] row2) {
+
+    double result = 0;
+    for (int i = 0; i < row1.length; i++) {
+      result += row1[i] * row2[i];
+    }
+    return result;
+  }
+
+  /**
+   * Computes a row of the kernel matrix for the row cache, using the kernel
+   * that the cache belongs to. Each entry is computed with the larger index
+   * first, like in the full cache, so that the matrix is exactly symmetric.
+   * 
+   * @param row the index of the row in the data of the cache
+   * @param values the array to fill with the row
+   * @throws Exception if something goes wrong
+   */
+  protected void computeRow(int row, double[] values) throws Exception {
+
+    CachedKernel source = (m_rowSource != null) ? m_rowSource : this;
+    source.evaluateRow(row, 0, row + 1, true, values);
+    source.evaluateRow(row, row + 1, values.length, false, values);
+    m_kernelEvals += values.length;
+  }
+
+  /**
+   * Makes this kernel use the row cache of the given kernel, which must have
+   * been built with a row cache on data that contains the instances this
+   * kernel is going to be built on. This way kernels for subsets of the same
+   * data, possibly used by several threads, can share one cache. Rows are
+   * computed by the given kernel. Must be called before buildKernel(); the
+   * cache is released by clean().
+   * 
+   * @param source the kernel owning the row cache
+   * @param indices for each instance of this kernel's data, the index of the
+   *          instance in the data of the given kernel
+   */
+  public void shareRowCache(CachedKernel source, int[] indices) {
+
+    if (source.m_rowCache == null) {
+      throw new IllegalArgumentException("Kernel has no row cache to share!");
+    }
+    m_rowSource = source;
+    m_rowIndices = indices;
+  }
+
   /**
    * Returns the number of time Eval has been called.
    * 
@@ -279,6 +539,12 @@ public abstract class CachedKernel extends Kernel {
     m_storage = null;
     m_keys = null;
     m_kernelMatrix = null;
+    m_rowCache = null;
+    m_rowSource = null;
+    m_rowIndices = null;
+    m_recentIndices = null;
+    m_recentRows = null;
+    m_denseRows = null;
   }
 
   /**
@@ -350,6 +616,72 @@ public abstract class CachedKernel extends Kernel {
     return "The size of the cache (a prime number), 0 for full cache and -1 to turn it off.";
   }
 
+  /**
+   * Sets the memory for caching whole rows of the kernel matrix.
+   * 
+   * @param value the memory in megabytes, 0 to not use the row cache
+   */
+  public void setRowCacheMemory(int value) {
+    if (value >= 0) {
+      m_rowCacheMemory = value;
+      clean();
+    } else {
+      System.out.println("Row cache memory cannot be smaller than 0 "
+        + "(provided: " + value + ")!");
+    }
+  }
+
+  /**
+   * Gets the memory for caching whole rows of the kernel matrix.
+   * 
+   * @return the memory in megabytes
+   */
+  public int getRowCacheMemory() {
+    return m_rowCacheMemory;
+  }
+
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String rowCacheMemoryTipText() {
+    return "The memory in megabytes for caching whole rows of the kernel "
+      + "matrix (least recently used rows are dropped first), used instead "
+      + "of the cache of the given size if greater than 0.";
+  }
+
+  /**
+   * Sets whether the row cache stores floats rather than doubles.
+   * 
+   * @param value true if floats are to be stored
+   */
+  public void setRowCacheUseFloats(boolean value) {
+    m_rowCacheUseFloats = value;
+    clean();
+  }
+
+  /**
+   * Gets whether the row cache stores floats rather than doubles.
+   * 
+   * @return true if floats are stored
+   */
+  public boolean getRowCacheUseFloats() {
+    return m_rowCacheUseFloats;
+  }
+
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String rowCacheUseFloatsTipText() {
+    return "Whether to store the rows in the row cache as floats, which "
+      + "halves the memory per row but rounds the kernel values.";
+  }
+
   /**
    * initializes variables etc.
    * 
@@ -362,8 +694,23 @@ public abstract class CachedKernel extends Kernel {
     m_kernelEvals = 0;
     m_cacheHits = 0;
     m_numInsts = m_data.numInstances();
+    m_denseRows = null;
 
-    if (getCacheSize() > 0) {
+    if ((m_rowSource != null) || (getRowCacheMemory() > 0)) {
+      if (m_rowSource != null) {
+        // Use shared row cache
+        m_rowCache = m_rowSource.m_rowCache;
+      } else {
+        // Use row cache
+        m_rowCache = new KernelRowCache(m_numInsts, m_numInsts,
+          getRowCacheMemory(), getRowCacheUseFloats());
+      }
+      m_recentIndices = new int[] { -1, -1 };
+      m_recentRows = new Object[2];
+      m_storage = null;
+      m_keys = null;
+      m_kernelMatrix = null;
+    } else if (getCacheSize() > 0) {
       // Use LRU cache
       m_storage = new double[m_cacheSize * m_cacheSlots];
       m_keys = new long[m_cacheSize * m_cacheSlots];
@@ -0,0 +1,248 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KernelRowCache.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.classifiers.functions.supportVector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import weka.core.RevisionHandler;
+import weka.core.RevisionUtils;
+
+/**
+ * A least-recently-used cache for whole rows of a kernel matrix, with a memory
+ * budget given in megabytes. The rows are stored either as doubles or as
+ * floats, in which case the kernel values are rounded to float precision
+ * whether they come from the cache or not. The cache is split into shards,
+ * each with its own lock and LRU order, so that several threads can use it at
+ * the same time; rows are computed outside the locks.
+ *
+ * @version $Revision$
+ */
+public class KernelRowCache implements RevisionHandler {
+
+  /** The maximum number of shards. */
+  protected static final int MAX_SHARDS = 16;
+
+  /** The minimum number of rows per shard before the cache gets split. */
+  protected static final int MIN_ROWS_PER_SHARD = 8;
+
+  /** The number of bytes per row in addition to the values. */
+  protected static final int ROW_OVERHEAD = 64;
+
+  /**
+   * A shard of the cache: a map from row index to row (double[] or float[])
+   * in access order that drops the eldest row when full.
+   */
+  protected static class Shard extends LinkedHashMap<Integer, Object> {
+
+    /** for serialization */
+    private static final long serialVersionUID = -4217370735012218404L;
+
+    /** The maximum number of rows in this shard. */
+    protected int m_Capacity;
+
+    /**
+     * Initializes the shard.
+     *
+     * @param capacity the maximum number of rows
+     */
+    public Shard(int capacity) {
+      super(16, 0.75f, true);
+      m_Capacity = capacity;
+    }
+
+    /**
+     * Drops the least recently used row when the shard is full.
+     *
+     * @param eldest the least recently used row
+     * @return true if the row is to be removed
+     */
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, Object> eldest) {
+      return size() > m_Capacity;
+    }
+  }
+
+  /** The length of the rows. */
+  protected int m_RowLength;
+
+  /** Whether the rows are stored as floats. */
+  protected boolean m_UseFloats;
+
+  /** The shards, a power of two of them. */
+  protected Shard[] m_Shards;
+
+  /** The shift that turns a hash into the index of a shard. */
+  protected int m_ShardShift;
+
+  /**
+   * Initializes the cache. At least two rows are kept regardless of the
+   * memory budget, and no more rows than the matrix has.
+   *
+   * @param numRows the number of rows of the kernel matrix
+   * @param rowLength the length of the rows
+   * @param megabytes the memory budget in megabytes
+   * @param useFloats whether to store the rows as floats
+   */
+  public KernelRowCache(int numRows, int rowLength, double megabytes,
+    boolean useFloats) {
+
+    m_RowLength = rowLength;
+    m_UseFloats = useFloats;
+
+    long rowBytes = (long) rowLength * (useFloats ? 4 : 8) + ROW_OVERHEAD;
+    long capacity = (long) (megabytes * 1024 * 1024) / rowBytes;
+    capacity = Math.max(Math.min(capacity, numRows), 2);
+
+    int numShards = Integer.highestOneBit((int) Math.min(MAX_SHARDS,
+      Math.max(capacity / MIN_ROWS_PER_SHARD, 1)));
+    m_ShardShift = 32 - Integer.numberOfTrailingZeros(numShards);
+    m_Shards = new Shard[numShards];
+    for (int i = 0; i < numShards; i++) {
+      // spread the remainder over the first shards
+      m_Shards[i] = new Shard((int) ((capacity + numShards - 1 - i)
+        / numShards));
+    }
+  }
+
+  /**
+   * Returns the shard of a row. The shard is chosen by the top bits of a
+   * multiplicative hash, so that the rows in a shard do not all share their
+   * low bits, which the hash map of the shard relies on.
+   *
+   * @param row the index of the row
+   * @return the shard
+   */
+  protected Shard shard(int row) {
+
+    if (m_Shards.length == 1) {
+      return m_Shards[0];
+    }
+    return m_Shards[(row * 0x9E3779B9) >>> m_ShardShift];
+  }
+
+  /**
+   * Returns the cached row with the given index, if any, and marks it as
+   * used.
+   *
+   * @param row the index of the row
+   * @return the row (double[] or float[]), null if not cached
+   */
+  public Object lookup(int row) {
+
+    Shard shard = shard(row);
+    synchronized (shard) {
+      return shard.get(row);
+    }
+  }
+
+  /**
+   * Returns the row with the given index, computing it with the given kernel
+   * and caching it if it is not cached yet. Rows are never modified, so a
+   * caller may hold on to a row after it has been dropped from the cache.
+   *
+   * @param row the index of the row
+   * @param kernel the kernel that computes rows that are not cached
+   * @return the row (double[] or float[])
+   * @throws Exception if the row cannot be computed
+   */
+  public Object getRow(int row, CachedKernel kernel) throws Exception {
+
+    Object values = lookup(row);
+    if (values != null) {
+      return values;
+    }
+
+    double[] computed = new double[m_RowLength];
+    kernel.computeRow(row, computed);
+    if (m_UseFloats) {
+      float[] rounded = new float[m_RowLength];
+      for (int i = 0; i < m_RowLength; i++) {
+        rounded[i] = (float) computed[i];
+      }
+      values = rounded;
+    } else {
+      values = computed;
+    }
+
+    Shard shard = shard(row);
+    synchronized (shard) {
+      shard.put(row, values);
+    }
+    return values;
+  }
+
+  /**
+   * Returns an entry of a row.
+   *
+   * @param values the row (double[] or float[])
+   * @param col the index of the entry
+   * @return the entry
+   */
+  public double entry(Object values, int col) {
+
+    if (m_UseFloats) {
+      return ((float[]) values)[col];
+    } else {
+      return ((double[]) values)[col];
+    }
+  }
+
+  /**
+   * Returns the number of rows currently cached.
+   *
+   * @return the number of rows
+   */
+  public int numRows() {
+
+    int result = 0;
+    for (Shard shard : m_Shards) {
+      synchronized (shard) {
+        result += shard.size();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the maximum number of rows the cache holds.
+   *
+   * @return the capacity in rows
+   */
+  public int capacity() {
+
+    int result = 0;
+    for (Shard shard : m_Shards) {
+      result += shard.m_Capacity;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
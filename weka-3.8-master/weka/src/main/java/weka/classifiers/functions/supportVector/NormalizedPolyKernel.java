@@ -44,6 +44,14 @@ import weka.core.RevisionUtils;
  *  -1 to turn it off.
  *  (default: 250007)</pre>
  * 
+ * <pre> -M &lt;num&gt;
+ *  The memory in megabytes for caching whole rows of the kernel
+ *  matrix, used instead of the cache above if greater than 0.
+ *  (default: 0)</pre>
+ * 
+ * <pre> -F
+ *  Store the rows in the row cache as floats.</pre>
+ * 
  * <pre> -E &lt;num&gt;
  *  The Exponent to use.
  *  (default: 1.0)</pre>
@@ -174,6 +182,57 @@ public class NormalizedPolyKernel
     }
     return result;
   }
+
+  /**
+   * Computes a part of a row of the kernel matrix from the dense rows, if
+   * available, in the same way as evaluate().
+   * 
+   * @param row the index of the row
+   * @param from the index of the first entry to compute
+   * @param to the index after the last entry to compute
+   * @param rowFirst whether the row's instance is the first argument
+   * @param values the array for the entries, at their indices
+   * @throws Exception if something goes wrong
+   */
+  @Override
+  protected void evaluateRow(int row, int from, int to, boolean rowFirst,
+    double[] values) throws Exception {
+
+    double[][] rows = denseRows();
+    if ((rows == null) || (m_diagDotproducts == null)) {
+      evaluateRowByInstance(row, from, to, rowFirst, values);
+      return;
+    }
+
+    double[] x = rows[row];
+    for (int j = from; j < to; j++) {
+      if (j == row) {
+        values[j] = 1.0;
+        continue;
+      }
+      double numerator = dotProd(x, rows[j]);
+      double denom1 = m_diagDotproducts[rowFirst ? row : j];
+      double denom2 = m_diagDotproducts[rowFirst ? j : row];
+
+      // Use lower order terms?
+      if (m_lowerOrder) {
+        numerator += 1.0;
+        denom1 += 1.0;
+        denom2 += 1.0;
+      }
+      double result;
+      double denominatorSquared = denom1 * denom2;
+      if (denominatorSquared <= 0) {
+        result = 0;
+      } else {
+        result = numerator / Math.sqrt(denominatorSquared);
+      }
+      if (m_exponent != 1.0) {
+        result = Math.pow(result, m_exponent);
+      }
+      values[j] = result;
+    }
+  }
   
   /**
    * returns a string representation for the Kernel
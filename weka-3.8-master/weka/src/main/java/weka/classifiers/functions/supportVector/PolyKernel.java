@@ -56,6 +56,18 @@ import weka.core.Utils;
  * </pre>
  * 
  * <pre>
+ * -M &lt;num&gt;
+ *  The memory in megabytes for caching whole rows of the kernel
+ *  matrix, used instead of the cache above if greater than 0.
+ *  (default: 0)
+ * </pre>
+ * 
+ * <pre>
+ * -F
+ *  Store the rows in the row cache as floats.
+ * </pre>
+ * 
+ * <pre>
  * -E &lt;num&gt;
  *  The Exponent to use.
  *  (default: 1.0)
@@ -165,6 +177,18 @@ public class PolyKernel extends CachedKernel {
    * </pre>
    * 
    * <pre>
+   * -M &lt;num&gt;
+   *  The memory in megabytes for caching whole rows of the kernel
+   *  matrix, used instead of the cache above if greater than 0.
+   *  (default: 0)
+   * </pre>
+   * 
+   * <pre>
+   * -F
+   *  Store the rows in the row cache as floats.
+   * </pre>
+   * 
+   * <pre>
    * -E &lt;num&gt;
    *  The Exponent to use.
    *  (default: 1.0)
@@ -246,6 +270,40 @@ public class PolyKernel extends CachedKernel {
     return result;
   }
 
+  /**
+   * Computes a part of a row of the kernel matrix from the dense rows, if
+   * available, in the same way as evaluate().
+   * 
+   * @param row the index of the row
+   * @param from the index of the first entry to compute
+   * @param to the index after the last entry to compute
+   * @param rowFirst whether the row's instance is the first argument
+   * @param values the array for the entries, at their indices
+   * @throws Exception if something goes wrong
+   */
+  @Override
+  protected void evaluateRow(int row, int from, int to, boolean rowFirst,
+    double[] values) throws Exception {
+
+    double[][] rows = denseRows();
+    if (rows == null) {
+      super.evaluateRow(row, from, to, rowFirst, values);
+      return;
+    }
+
+    double[] x = rows[row];
+    for (int j = from; j < to; j++) {
+      double result = dotProd(x, rows[j]);
+      if (m_lowerOrder) {
+        result += 1.0;
+      }
+      if (m_exponent != 1.0) {
+        result = Math.pow(result, m_exponent);
+      }
+      values[j] = result;
+    }
+  }
+
   /**
    * Returns the Capabilities of this kernel.
    * 
@@ -65,6 +65,18 @@ import weka.core.Utils;
  * </pre>
  * 
  * <pre>
+ * -M &lt;num&gt;
+ *  The memory in megabytes for caching whole rows of the kernel
+ *  matrix, used instead of the cache above if greater than 0.
+ *  (default: 0)
+ * </pre>
+ * 
+ * <pre>
+ * -F
+ *  Store the rows in the row cache as floats.
+ * </pre>
+ * 
+ * <pre>
  * -O &lt;num&gt;
  *  The Omega parameter.
  *  (default: 1.0)
@@ -207,6 +219,18 @@ public class Puk extends CachedKernel implements TechnicalInformationHandler {
    * </pre>
    * 
    * <pre>
+   * -M &lt;num&gt;
+   *  The memory in megabytes for caching whole rows of the kernel
+   *  matrix, used instead of the cache above if greater than 0.
+   *  (default: 0)
+   * </pre>
+   * 
+   * <pre>
+   * -F
+   *  Store the rows in the row cache as floats.
+   * </pre>
+   * 
+   * <pre>
    * -O &lt;num&gt;
    *  The Omega parameter.
    *  (default: 1.0)
@@ -296,6 +320,47 @@ public class Puk extends CachedKernel implements TechnicalInformationHandler {
     }
   }
 
+  /**
+   * Computes a part of a row of the kernel matrix from the dense rows, if
+   * available, in the same way as evaluate().
+   * 
+   * @param row the index of the row
+   * @param from the index of the first entry to compute
+   * @param to the index after the last entry to compute
+   * @param rowFirst whether the row's instance is the first argument
+   * @param values the array for the entries, at their indices
+   * @throws Exception if something goes wrong
+   */
+  @Override
+  protected void evaluateRow(int row, int from, int to, boolean rowFirst,
+    double[] values) throws Exception {
+
+    double[][] rows = denseRows();
+    if (rows == null) {
+      super.evaluateRow(row, from, to, rowFirst, values);
+      return;
+    }
+
+    double[] x = rows[row];
+    for (int j = from; j < to; j++) {
+      if (j == row) {
+        values[j] = 1.0;
+        continue;
+      }
+      double squaredDifference;
+      if (rowFirst) {
+        squaredDifference = -2.0 * dotProd(x, rows[j]) + m_kernelPrecalc[row]
+          + m_kernelPrecalc[j];
+      } else {
+        squaredDifference = -2.0 * dotProd(x, rows[j]) + m_kernelPrecalc[j]
+          + m_kernelPrecalc[row];
+      }
+      double intermediate = m_factor * Math.sqrt(squaredDifference);
+      values[j] = 1.0 / Math.pow(1.0 + intermediate * intermediate,
+        getOmega());
+    }
+  }
+
   /**
    * Sets the omega value.
    * 
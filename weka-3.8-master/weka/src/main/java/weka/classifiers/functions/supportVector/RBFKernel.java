@@ -38,6 +38,14 @@ import weka.core.Capabilities.Capability;
  *  -1 to turn it off.
  *  (default: 250007)</pre>
  * 
+ * <pre> -M &lt;num&gt;
+ *  The memory in megabytes for caching whole rows of the kernel
+ *  matrix, used instead of the cache above if greater than 0.
+ *  (default: 0)</pre>
+ * 
+ * <pre> -F
+ *  Store the rows in the row cache as floats.</pre>
+ * 
  * <pre> -G &lt;double&gt;
  *  The value to use for the gamma parameter (default: 0.01).</pre>
  * 
@@ -143,6 +151,42 @@ public class RBFKernel extends CachedKernel {
     }
   }
 
+  /**
+   * Computes a part of a row of the kernel matrix from the dense rows, if
+   * available, in the same way as evaluate().
+   * 
+   * @param row the index of the row
+   * @param from the index of the first entry to compute
+   * @param to the index after the last entry to compute
+   * @param rowFirst whether the row's instance is the first argument
+   * @param values the array for the entries, at their indices
+   * @throws Exception if something goes wrong
+   */
+  @Override
+  protected void evaluateRow(int row, int from, int to, boolean rowFirst,
+    double[] values) throws Exception {
+
+    double[][] rows = denseRows();
+    if (rows == null) {
+      super.evaluateRow(row, from, to, rowFirst, values);
+      return;
+    }
+
+    double[] x = rows[row];
+    double precalc = m_kernelPrecalc[row];
+    for (int j = from; j < to; j++) {
+      if (j == row) {
+        values[j] = 1.0;
+      } else if (rowFirst) {
+        values[j] = Math.exp(-m_gamma * (precalc - 2 * dotProd(x, rows[j])
+          + m_kernelPrecalc[j]));
+      } else {
+        values[j] = Math.exp(-m_gamma * (m_kernelPrecalc[j]
+          - 2 * dotProd(x, rows[j]) + precalc));
+      }
+    }
+  }
+
   /**
    * Returns the Capabilities of this kernel.
    * 
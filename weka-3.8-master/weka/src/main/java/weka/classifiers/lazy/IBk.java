@@ -21,9 +21,16 @@
 
 package weka.classifiers.lazy;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.UpdateableClassifier;
@@ -105,6 +112,11 @@ import weka.core.neighboursearch.NearestNeighbourSearch;
  *  The nearest neighbour search algorithm to use (default: weka.core.neighboursearch.LinearNNSearch).
  * </pre>
  * 
+ * <pre> -num-slots &lt;num&gt;
+ *  Number of execution slots for batch prediction.
+ *  (default 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ * 
  <!-- options-end -->
  *
  * @author Stuart Inglis (singlis@cs.waikato.ac.nz)
@@ -185,6 +197,9 @@ public class IBk
 
   /** The number of attributes the contribute to a prediction. */
   protected double m_NumAttributesUsed;
+
+  /** The number of threads to use for batch prediction. */
+  protected int m_NumExecutionSlots = 1;
   
   /**
    * IBk classifier. Simple instance-based learner that uses the class
@@ -439,6 +454,36 @@ public class IBk
     m_NNSearch = nearestNeighbourSearchAlgorithm;
   }
    
+  /**
+   * Returns the tip text for this property.
+   * @return tip text for this property suitable for
+   * displaying in the explorer/experimenter gui
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for batch "
+      + "prediction (0 to use one per core).";
+  }
+
+  /**
+   * Gets the number of execution slots.
+   *
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+
+    return m_NumExecutionSlots;
+  }
+
+  /**
+   * Sets the number of execution slots.
+   *
+   * @param numSlots the number of execution slots (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+
+    m_NumExecutionSlots = numSlots;
+  }
+
   /**
    * Get the number of training instances the classifier is currently using.
    * 
@@ -564,6 +609,161 @@ public class IBk
       //throw new Exception("No training instances!");
       return m_defaultModel.distributionForInstance(instance);
     }
+    prepareForPrediction();
+
+    m_NNSearch.addInstanceInfo(instance);
+
+    Instances neighbours = m_NNSearch.kNearestNeighbours(instance, m_kNN);
+    double [] distances = m_NNSearch.getDistances();
+    double [] distribution = makeDistribution( neighbours, distances );
+
+    return distribution;
+  }
+
+  /**
+   * Returns true if batch prediction uses more than one thread.
+   *
+   * @return true if batch prediction is parallel
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return m_NumExecutionSlots != 1;
+  }
+
+  /**
+   * Calculates the class membership probabilities for the given test
+   * instances, using the number of execution slots set. The queries are
+   * answered by copies of the nearest neighbour search with their own state,
+   * one per thread. Since adding the information from a test instance may
+   * change the search, e.g. the ranges of the distance function, the queries
+   * are answered in runs between such instances, so that the predictions are
+   * the same as when classifying the instances one after the other.
+   *
+   * @param batch the instances to be classified
+   * @return predicted class probability distributions
+   * @throws Exception if an error occurred during the prediction
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances batch)
+    throws Exception {
+
+    if (m_NumExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
+    int numSlots = (m_NumExecutionSlots == 0)
+      ? Runtime.getRuntime().availableProcessors() : m_NumExecutionSlots;
+    if ((numSlots == 1) || (batch.numInstances() < 2)
+      || (m_Train.numInstances() == 0)) {
+      return super.distributionsForInstances(batch);
+    }
+    prepareForPrediction();
+
+    NearestNeighbourSearch[] searches = new NearestNeighbourSearch[numSlots];
+    for (int i = 0; i < numSlots; i++) {
+      searches[i] = m_NNSearch.concurrentCopy();
+      if (searches[i] == null) {
+        return super.distributionsForInstances(batch);
+      }
+    }
+
+    double[][] result = new double[batch.numInstances()][];
+    ExecutorService executorPool = Executors.newFixedThreadPool(numSlots);
+    try {
+      int start = 0;
+      for (int i = 0; i < batch.numInstances(); i++) {
+        if (m_NNSearch.changedByInstanceInfo(batch.instance(i))) {
+          distributionsForInstances(batch, start, i, searches, executorPool,
+            result);
+          m_NNSearch.addInstanceInfo(batch.instance(i));
+          start = i;
+        }
+      }
+      distributionsForInstances(batch, start, batch.numInstances(), searches,
+        executorPool, result);
+    } finally {
+      executorPool.shutdownNow();
+    }
+
+    return result;
+  }
+
+  /**
+   * Calculates the class membership probabilities for a run of test
+   * instances, split evenly over the given searches.
+   *
+   * @param batch the instances to be classified
+   * @param from the index of the first instance of the run
+   * @param to the index after the last instance of the run
+   * @param searches the searches, one per thread
+   * @param executorPool the threads
+   * @param result the distributions, filled in for the instances of the run
+   * @throws Exception if an error occurred during the prediction
+   */
+  protected void distributionsForInstances(final Instances batch, int from,
+    int to, NearestNeighbourSearch[] searches, ExecutorService executorPool,
+    final double[][] result) throws Exception {
+
+    int chunkSize = (to - from + searches.length - 1) / searches.length;
+    if (chunkSize <= 1) {
+      distributionsForInstances(batch, from, to, searches[0], result);
+      return;
+    }
+
+    List<Future<Void>> results = new ArrayList<Future<Void>>();
+    for (int i = 0; from + i * chunkSize < to; i++) {
+      final int start = from + i * chunkSize;
+      final int end = Math.min(start + chunkSize, to);
+      final NearestNeighbourSearch search = searches[i];
+      results.add(executorPool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          distributionsForInstances(batch, start, end, search, result);
+          return null;
+        }
+      }));
+    }
+
+    for (Future<Void> future : results) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Calculates the class membership probabilities for a run of test
+   * instances with the given search, without adding their information to it.
+   *
+   * @param batch the instances to be classified
+   * @param from the index of the first instance of the run
+   * @param to the index after the last instance of the run
+   * @param search the search to use
+   * @param result the distributions, filled in for the instances of the run
+   * @throws Exception if an error occurred during the prediction
+   */
+  protected void distributionsForInstances(Instances batch, int from, int to,
+    NearestNeighbourSearch search, double[][] result) throws Exception {
+
+    for (int i = from; i < to; i++) {
+      Instances neighbours = search.kNearestNeighbours(batch.instance(i),
+        m_kNN);
+      result[i] = makeDistribution(neighbours, search.getDistances());
+    }
+  }
+
+  /**
+   * Applies the window size and selects k by cross-validation if necessary
+   * before classifying instances.
+   *
+   * @throws Exception if k cannot be selected
+   */
+  protected void prepareForPrediction() throws Exception {
+
     if ((m_WindowSize > 0) && (m_Train.numInstances() > m_WindowSize)) {
       m_kNNValid = false;
       boolean deletedInstance=false;
@@ -579,14 +779,6 @@ public class IBk
     if (!m_kNNValid && (m_CrossValidate) && (m_kNNUpper >= 1)) {
       crossValidate();
     }
-
-    m_NNSearch.addInstanceInfo(instance);
-
-    Instances neighbours = m_NNSearch.kNearestNeighbours(instance, m_kNN);
-    double [] distances = m_NNSearch.getDistances();
-    double [] distribution = makeDistribution( neighbours, distances );
-
-    return distribution;
   }
 
   /**
@@ -596,7 +788,7 @@ public class IBk
    */
   public Enumeration<Option> listOptions() {
 
-    Vector<Option> newVector = new Vector<Option>(7);
+    Vector<Option> newVector = new Vector<Option>(8);
 
     newVector.addElement(new Option(
 	      "\tWeight neighbours by the inverse of their distance\n"+
@@ -627,6 +819,11 @@ public class IBk
 	      "\tThe nearest neighbour search algorithm to use "+
           "(default: weka.core.neighboursearch.LinearNNSearch).\n",
 	      "A", 1, "-A"));
+    newVector.addElement(new Option(
+	      "\tNumber of execution slots for batch prediction.\n"+
+	      "\t(default 1 - i.e. no parallelism)\n"+
+	      "\t(use 0 to auto-detect number of cores)",
+	      "num-slots", 1, "-num-slots <num>"));
 
     newVector.addAll(Collections.list(super.listOptions()));
     
@@ -668,6 +865,11 @@ public class IBk
    *  The nearest neighbour search algorithm to use (default: weka.core.neighboursearch.LinearNNSearch).
    * </pre>
    * 
+   * <pre> -num-slots &lt;num&gt;
+   *  Number of execution slots for batch prediction.
+   *  (default 1 - i.e. no parallelism)
+   *  (use 0 to auto-detect number of cores)</pre>
+   * 
    <!-- options-end -->
    *
    * @param options the list of options as an array of strings
@@ -715,6 +917,13 @@ public class IBk
     }
     else 
       this.setNearestNeighbourSearchAlgorithm(new LinearNNSearch());
+
+    String slotsString = Utils.getOption("num-slots", options);
+    if (slotsString.length() != 0) {
+      setNumExecutionSlots(Integer.parseInt(slotsString));
+    } else {
+      setNumExecutionSlots(1);
+    }
     
     super.setOptions(options);
   }
@@ -743,6 +952,10 @@ public class IBk
 
     options.add("-A");
     options.add(m_NNSearch.getClass().getName()+" "+Utils.joinOptions(m_NNSearch.getOptions())); 
+    if (getNumExecutionSlots() != 1) {
+      options.add("-num-slots");
+      options.add("" + getNumExecutionSlots());
+    }
     
     Collections.addAll(options, super.getOptions());
     
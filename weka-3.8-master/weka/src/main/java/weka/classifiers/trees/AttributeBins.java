@@ -0,0 +1,167 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    AttributeBins.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.classifiers.trees;
+
+import java.util.Arrays;
+
+import weka.core.RevisionHandler;
+import weka.core.RevisionUtils;
+import weka.core.Utils;
+
+/**
+ * Quantises the values of a numeric attribute into at most 256 bins, for
+ * growing trees from histograms of the bins instead of the sorted values. The
+ * bins are separated by thresholds; a value falls into bin i if exactly i
+ * thresholds are less than or equal to it, so that it is in a bin below i if
+ * and only if it is less than threshold i - 1. A split that sends the bins
+ * below i to the left can therefore be stored as the split point "value &lt;
+ * threshold i - 1".
+ * <p/>
+ *
+ * If there are no more distinct values than bins, each value gets a bin of its
+ * own and the thresholds are the split points exact split search would
+ * consider. Otherwise the bins hold roughly equal weight.
+ *
+ * @version $Revision$
+ */
+public class AttributeBins implements RevisionHandler {
+
+  /** The maximum number of bins, so that bins fit into a byte. */
+  public static final int MAX_BINS = 256;
+
+  /**
+   * Computes the thresholds between the bins.
+   *
+   * @param values the values, may contain missing values
+   * @param weights the weights of the values, null for unit weights
+   * @param maxBins the maximum number of bins (2 to 256)
+   * @return the thresholds in ascending order, one less than the number of bins
+   */
+  public static double[] thresholds(double[] values, double[] weights,
+    int maxBins) {
+
+    if ((maxBins < 2) || (maxBins > MAX_BINS)) {
+      throw new IllegalArgumentException("Number of bins must be between 2 and "
+        + MAX_BINS + "!");
+    }
+
+    // Utils.sort() puts missing values last
+    int[] sorted = Utils.sort(values);
+    int numValues = 0;
+    int numDistinct = 0;
+    double totalWeight = 0;
+    for (int index : sorted) {
+      if (Utils.isMissingValue(values[index])) {
+        break;
+      }
+      if ((numValues == 0) || (values[index] > values[sorted[numValues - 1]])) {
+        numDistinct++;
+      }
+      totalWeight += (weights == null) ? 1 : weights[index];
+      numValues++;
+    }
+
+    double[] thresholds =
+      new double[Math.max(Math.min(numDistinct, maxBins) - 1, 0)];
+    int numThresholds = 0;
+    int quantile = 0;
+    double weight = 0;
+    for (int i = 0; (i < numValues - 1) && (numThresholds < thresholds.length); i++) {
+      double value = values[sorted[i]];
+      double next = values[sorted[i + 1]];
+      weight += (weights == null) ? 1 : weights[sorted[i]];
+      if (next > value) {
+
+        // Place a threshold at each change of value if every value gets a bin,
+        // otherwise once the weight so far reaches the next quantile
+        int currQuantile = (int) (weight * maxBins / totalWeight);
+        if ((numDistinct <= maxBins) || (currQuantile > quantile)) {
+          quantile = currQuantile;
+          double threshold = (value + next) / 2.0;
+
+          // Check for numeric precision problems
+          if (threshold <= value) {
+            threshold = next;
+          }
+          thresholds[numThresholds++] = threshold;
+        }
+      }
+    }
+
+    return Arrays.copyOf(thresholds, numThresholds);
+  }
+
+  /**
+   * Returns the bin of a value.
+   *
+   * @param value the value, must not be missing
+   * @param thresholds the thresholds between the bins
+   * @return the bin
+   */
+  public static int bin(double value, double[] thresholds) {
+
+    int index = Arrays.binarySearch(thresholds, value);
+    return (index >= 0) ? index + 1 : -(index + 1);
+  }
+
+  /**
+   * Returns the bins of the given values as bytes (to be read as unsigned).
+   *
+   * @param values the values; missing values are put into bin 0
+   * @param thresholds the thresholds between the bins
+   * @return the bins
+   */
+  public static byte[] bins(double[] values, double[] thresholds) {
+
+    byte[] bins = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      if (!Utils.isMissingValue(values[i])) {
+        bins[i] = (byte) bin(values[i], thresholds);
+      }
+    }
+    return bins;
+  }
+
+  /**
+   * Chooses the split point between two bins with data, with only empty bins
+   * between them: the threshold in the middle of the gap.
+   *
+   * @param last the last bin going to the left
+   * @param next the first bin going to the right
+   * @return the first bin going to the right according to the split point
+   *         (the split point is the threshold before it)
+   */
+  public static int splitBin(int last, int next) {
+
+    return (last + 1 + next) / 2;
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -0,0 +1,755 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    FlatTrees.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.classifiers.trees;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.trees.j48.BinC45Split;
+import weka.classifiers.trees.j48.C45Split;
+import weka.classifiers.trees.j48.ClassifierSplitModel;
+import weka.classifiers.trees.j48.ClassifierTree;
+import weka.classifiers.trees.j48.Distribution;
+import weka.classifiers.trees.j48.NoSplit;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.RevisionHandler;
+import weka.core.RevisionUtils;
+import weka.core.Utils;
+
+/**
+ * A trained RandomForest, RandomTree, REPTree or J48 compiled into flat
+ * arrays, for fast prediction. The nodes of all trees are stored in parallel
+ * arrays (type, attribute, split point, first child and so on), with the
+ * children of each node next to each other, and are evaluated by simple loops
+ * instead of walking the linked tree objects. Batches are predicted one tree
+ * at a time, reading the attribute values from columns of the batch.
+ * <p/>
+ *
+ * The predictions are exactly the same as the ones of the compiled
+ * classifier: the computations are done in the same order, including the
+ * splitting of instances with missing values.
+ *
+ * @version $Revision$
+ */
+public class FlatTrees implements Serializable, RevisionHandler {
+
+  /** for serialization */
+  private static final long serialVersionUID = -4384536150392650914L;
+
+  /** Node type: leaf. */
+  protected static final int LEAF = 0;
+
+  /** Node type: one branch per value of a nominal attribute. */
+  protected static final int NOMINAL = 1;
+
+  /** Node type: first branch if the value is less than the split point. */
+  protected static final int LESS = 2;
+
+  /**
+   * Node type: first branch if the value is less than or equal to the split
+   * point.
+   */
+  protected static final int LESS_OR_EQUAL = 3;
+
+  /** Node type: first branch if the nominal value is the split point. */
+  protected static final int EQUAL = 4;
+
+  /** The type of each node. */
+  protected int[] m_Type = new int[16];
+
+  /** The attribute tested at each node (-1 for leaves). */
+  protected int[] m_Attribute = new int[16];
+
+  /** The split point of each node. */
+  protected double[] m_SplitPoint = new double[16];
+
+  /** The index of the first child of each node. */
+  protected int[] m_FirstChild = new int[16];
+
+  /** The number of children of each node. */
+  protected int[] m_NumChildren = new int[16];
+
+  /** The weight of each node if the value tested at its parent is missing. */
+  protected double[] m_Weight = new double[16];
+
+  /**
+   * Whether a node is left out if the value tested at its parent is missing
+   * (empty subtrees of J48).
+   */
+  protected boolean[] m_Skip = new boolean[16];
+
+  /** The offset of the distribution of each node, -1 if it has none. */
+  protected int[] m_Distribution = new int[16];
+
+  /** The distributions of the nodes. */
+  protected double[] m_Distributions = new double[16];
+
+  /** The number of nodes. */
+  protected int m_NumNodes;
+
+  /** The number of distribution values. */
+  protected int m_NumValues;
+
+  /** The root of each tree. */
+  protected int[] m_Roots;
+
+  /** The number of classes (1 for a numeric class). */
+  protected int m_NumClasses;
+
+  /** Whether the predictions of the trees are combined as in bagging. */
+  protected boolean m_Bagged;
+
+  /**
+   * Whether the weights of instances with missing values are passed down the
+   * tree as in J48, rather than combining the distributions of the branches.
+   */
+  protected boolean m_C45;
+
+  /** The attributes tested by the trees. */
+  protected int[] m_UsedAttributes;
+
+  /**
+   * Compiles a trained classifier.
+   *
+   * @param classifier a trained RandomForest, RandomTree, REPTree or J48
+   * @return the compiled trees
+   * @throws Exception if the classifier is not supported or not built yet
+   */
+  public static FlatTrees compile(Classifier classifier) throws Exception {
+
+    if (classifier instanceof RandomForest) {
+      Classifier[] trees = ((RandomForest) classifier).getTrees();
+      if (trees == null) {
+        throw new Exception("Classifier has not been built yet!");
+      }
+      FlatTrees result = new FlatTrees(trees.length, true, false);
+      for (int i = 0; i < trees.length; i++) {
+        result.m_Roots[i] = result.add((RandomTree) trees[i]);
+      }
+      return result.finish();
+    } else if (classifier instanceof RandomTree) {
+      FlatTrees result = new FlatTrees(1, false, false);
+      result.m_Roots[0] = result.add((RandomTree) classifier);
+      return result.finish();
+    } else if (classifier instanceof REPTree) {
+      FlatTrees result = new FlatTrees(1, false, false);
+      result.m_Roots[0] = result.add((REPTree) classifier);
+      return result.finish();
+    } else if (classifier instanceof J48) {
+      J48 j48 = (J48) classifier;
+      if (j48.m_root == null) {
+        throw new Exception("Classifier has not been built yet!");
+      }
+      FlatTrees result = new FlatTrees(1, false, true);
+      result.m_Roots[0] = result.newNodes(1);
+      result.add(result.m_Roots[0], j48.m_root, j48.getUseLaplace());
+      return result.finish();
+    } else {
+      throw new IllegalArgumentException("Cannot compile "
+        + classifier.getClass().getName() + "!");
+    }
+  }
+
+  /**
+   * Initializes the compiled trees.
+   *
+   * @param numTrees the number of trees
+   * @param bagged whether the predictions are combined as in bagging
+   * @param c45 whether missing values are handled as in J48
+   */
+  protected FlatTrees(int numTrees, boolean bagged, boolean c45) {
+
+    m_Roots = new int[numTrees];
+    m_Bagged = bagged;
+    m_C45 = c45;
+  }
+
+  /**
+   * Allocates consecutive nodes.
+   *
+   * @param num the number of nodes
+   * @return the index of the first one
+   */
+  protected int newNodes(int num) {
+
+    int first = m_NumNodes;
+    m_NumNodes += num;
+    if (m_NumNodes > m_Type.length) {
+      int capacity = Math.max(m_NumNodes, 2 * m_Type.length);
+      m_Type = Arrays.copyOf(m_Type, capacity);
+      m_Attribute = Arrays.copyOf(m_Attribute, capacity);
+      m_SplitPoint = Arrays.copyOf(m_SplitPoint, capacity);
+      m_FirstChild = Arrays.copyOf(m_FirstChild, capacity);
+      m_NumChildren = Arrays.copyOf(m_NumChildren, capacity);
+      m_Weight = Arrays.copyOf(m_Weight, capacity);
+      m_Skip = Arrays.copyOf(m_Skip, capacity);
+      m_Distribution = Arrays.copyOf(m_Distribution, capacity);
+    }
+    for (int i = first; i < m_NumNodes; i++) {
+      m_Attribute[i] = -1;
+      m_Distribution[i] = -1;
+    }
+
+    return first;
+  }
+
+  /**
+   * Stores the distribution of a node.
+   *
+   * @param node the node
+   * @param dist the distribution, may be null
+   */
+  protected void setDistribution(int node, double[] dist) {
+
+    if (dist == null) {
+      m_Distribution[node] = -1;
+      return;
+    }
+    m_NumClasses = dist.length;
+    if (m_NumValues + dist.length > m_Distributions.length) {
+      m_Distributions =
+        Arrays.copyOf(m_Distributions,
+          Math.max(m_NumValues + dist.length, 2 * m_Distributions.length));
+    }
+    System.arraycopy(dist, 0, m_Distributions, m_NumValues, dist.length);
+    m_Distribution[node] = m_NumValues;
+    m_NumValues += dist.length;
+  }
+
+  /**
+   * Sets up a node that tests an attribute, allocating its children.
+   *
+   * @param node the node
+   * @param type the node type
+   * @param attribute the attribute index
+   * @param splitPoint the split point
+   * @param numChildren the number of children
+   * @return the index of the first child
+   */
+  protected int setSplit(int node, int type, int attribute,
+    double splitPoint, int numChildren) {
+
+    int first = newNodes(numChildren);
+    m_Type[node] = type;
+    m_Attribute[node] = attribute;
+    m_SplitPoint[node] = splitPoint;
+    m_FirstChild[node] = first;
+    m_NumChildren[node] = numChildren;
+
+    return first;
+  }
+
+  /**
+   * Adds a RandomTree.
+   *
+   * @param tree the tree
+   * @return the root node
+   * @throws Exception if the tree has not been built yet
+   */
+  protected int add(RandomTree tree) throws Exception {
+
+    int root = newNodes(1);
+    if (tree.m_zeroR != null) {
+      setDistribution(root, tree.m_zeroR.distributionForInstance(null));
+    } else if (tree.m_Tree != null) {
+      add(root, tree.m_Tree, tree.m_Info, tree.getAllowUnclassifiedInstances());
+    } else {
+      throw new Exception("Classifier has not been built yet!");
+    }
+
+    return root;
+  }
+
+  /**
+   * Adds a node of a RandomTree and its subtree.
+   *
+   * @param node the node to fill in
+   * @param tree the node of the tree
+   * @param info the structure of the training data
+   * @param allowUnclassified whether nodes without a distribution predict
+   *          zero probabilities (or a missing value)
+   */
+  protected void add(int node, RandomTree.Tree tree, Instances info,
+    boolean allowUnclassified) {
+
+    double[] dist = null;
+    if (tree.m_ClassDistribution != null) {
+      dist = tree.m_ClassDistribution.clone();
+      if (info.classAttribute().isNominal()) {
+        Utils.normalize(dist);
+      }
+    } else if (allowUnclassified) {
+      dist = new double[info.numClasses()];
+      if (info.classAttribute().isNumeric()) {
+        dist[0] = Utils.missingValue();
+      }
+    }
+    setDistribution(node, dist);
+    m_NumClasses = info.numClasses();
+
+    if (tree.m_Attribute > -1) {
+      int first =
+        setSplit(node, info.attribute(tree.m_Attribute).isNominal() ? NOMINAL
+          : LESS, tree.m_Attribute, tree.m_SplitPoint,
+          tree.m_Successors.length);
+      for (int i = 0; i < tree.m_Successors.length; i++) {
+        m_Weight[first + i] = tree.m_Prop[i];
+        add(first + i, tree.m_Successors[i], info, allowUnclassified);
+      }
+    }
+  }
+
+  /**
+   * Adds a REPTree.
+   *
+   * @param tree the tree
+   * @return the root node
+   * @throws Exception if the tree has not been built yet
+   */
+  protected int add(REPTree tree) throws Exception {
+
+    int root = newNodes(1);
+    if (tree.m_zeroR != null) {
+      setDistribution(root, tree.m_zeroR.distributionForInstance(null));
+    } else if (tree.m_Tree != null) {
+      add(root, tree.m_Tree);
+    } else {
+      throw new Exception("Classifier has not been built yet!");
+    }
+
+    return root;
+  }
+
+  /**
+   * Adds a node of a REPTree and its subtree.
+   *
+   * @param node the node to fill in
+   * @param tree the node of the tree
+   */
+  protected void add(int node, REPTree.Tree tree) {
+
+    Instances info = tree.m_Info;
+    setDistribution(node, tree.m_ClassProbs);
+    m_NumClasses = info.numClasses();
+
+    if (tree.m_Attribute > -1) {
+      int first =
+        setSplit(node, info.attribute(tree.m_Attribute).isNominal() ? NOMINAL
+          : LESS, tree.m_Attribute, tree.m_SplitPoint,
+          tree.m_Successors.length);
+      for (int i = 0; i < tree.m_Successors.length; i++) {
+        m_Weight[first + i] = tree.m_Prop[i];
+        add(first + i, tree.m_Successors[i]);
+      }
+    }
+  }
+
+  /**
+   * Adds a node of a J48 tree and its subtree. Empty subtrees become leaves
+   * with the distribution their parent predicts for them.
+   *
+   * @param node the node to fill in
+   * @param tree the node of the tree
+   * @param useLaplace whether Laplace estimates are used
+   * @throws Exception if the tree uses an unsupported split model
+   */
+  protected void add(int node, ClassifierTree tree, boolean useLaplace)
+    throws Exception {
+
+    ClassifierSplitModel model = tree.getLocalModel();
+    Instances info = tree.getTrainingData();
+    m_NumClasses = info.numClasses();
+
+    if (tree.isLeaf()) {
+      if (!(model instanceof NoSplit)) {
+        throw new IllegalArgumentException("Cannot compile leaf with "
+          + model.getClass().getName() + "!");
+      }
+      setDistribution(node, classProbs(model, -1, useLaplace));
+      return;
+    }
+
+    int type;
+    int attribute;
+    double splitPoint;
+    if (model instanceof C45Split) {
+      attribute = ((C45Split) model).attIndex();
+      splitPoint = ((C45Split) model).splitPoint();
+      type = info.attribute(attribute).isNominal() ? NOMINAL : LESS_OR_EQUAL;
+    } else if (model instanceof BinC45Split) {
+      attribute = ((BinC45Split) model).attIndex();
+      splitPoint = ((BinC45Split) model).splitPoint();
+      type = info.attribute(attribute).isNominal() ? EQUAL : LESS_OR_EQUAL;
+    } else {
+      throw new IllegalArgumentException("Cannot compile split model "
+        + model.getClass().getName() + "!");
+    }
+
+    ClassifierTree[] sons = tree.getSons();
+    Distribution distribution = model.distribution();
+    int first = setSplit(node, type, attribute, splitPoint, sons.length);
+    for (int i = 0; i < sons.length; i++) {
+      m_Weight[first + i] = distribution.perBag(i) / distribution.total();
+      if (sons[i].isEmpty()) {
+        m_Skip[first + i] = true;
+        setDistribution(first + i, classProbs(model, i, useLaplace));
+      } else {
+        add(first + i, sons[i], useLaplace);
+      }
+    }
+  }
+
+  /**
+   * Returns the class probabilities of a J48 split model for a subset.
+   *
+   * @param model the split model
+   * @param subset the subset, -1 for a leaf
+   * @param useLaplace whether Laplace estimates are used
+   * @return the class probabilities
+   * @throws Exception if the probabilities cannot be computed
+   */
+  protected double[] classProbs(ClassifierSplitModel model, int subset,
+    boolean useLaplace) throws Exception {
+
+    double[] probs = new double[model.distribution().numClasses()];
+    for (int j = 0; j < probs.length; j++) {
+      probs[j] =
+        useLaplace ? model.classProbLaplace(j, null, subset) : model
+          .classProb(j, null, subset);
+    }
+
+    return probs;
+  }
+
+  /**
+   * Trims the arrays and collects the attributes used.
+   *
+   * @return this object
+   */
+  protected FlatTrees finish() {
+
+    m_Type = Arrays.copyOf(m_Type, m_NumNodes);
+    m_Attribute = Arrays.copyOf(m_Attribute, m_NumNodes);
+    m_SplitPoint = Arrays.copyOf(m_SplitPoint, m_NumNodes);
+    m_FirstChild = Arrays.copyOf(m_FirstChild, m_NumNodes);
+    m_NumChildren = Arrays.copyOf(m_NumChildren, m_NumNodes);
+    m_Weight = Arrays.copyOf(m_Weight, m_NumNodes);
+    m_Skip = Arrays.copyOf(m_Skip, m_NumNodes);
+    m_Distribution = Arrays.copyOf(m_Distribution, m_NumNodes);
+    m_Distributions = Arrays.copyOf(m_Distributions, m_NumValues);
+
+    int numAttributes = 0;
+    for (int attribute : m_Attribute) {
+      numAttributes = Math.max(numAttributes, attribute + 1);
+    }
+    boolean[] used = new boolean[numAttributes];
+    int numUsed = 0;
+    for (int attribute : m_Attribute) {
+      if ((attribute >= 0) && !used[attribute]) {
+        used[attribute] = true;
+        numUsed++;
+      }
+    }
+    m_UsedAttributes = new int[numUsed];
+    numUsed = 0;
+    for (int i = 0; i < used.length; i++) {
+      if (used[i]) {
+        m_UsedAttributes[numUsed++] = i;
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * Returns the number of nodes of all trees.
+   *
+   * @return the number of nodes
+   */
+  public int numNodes() {
+    return m_NumNodes;
+  }
+
+  /**
+   * Returns the number of trees.
+   *
+   * @return the number of trees
+   */
+  public int numTrees() {
+    return m_Roots.length;
+  }
+
+  /**
+   * Computes the class distribution of an instance.
+   *
+   * @param instance the instance
+   * @return the distribution, the same as the one of the compiled classifier
+   * @throws Exception if a tree does not predict a distribution
+   */
+  public double[] distributionForInstance(Instance instance) throws Exception {
+
+    double[][] columns = new double[instance.numAttributes()][];
+    for (int attribute : m_UsedAttributes) {
+      columns[attribute] = new double[] { instance.value(attribute) };
+    }
+
+    return distributions(columns, 1, instance.classAttribute().isNumeric(),
+      instance.numClasses())[0];
+  }
+
+  /**
+   * Computes the class distributions of a batch of instances, evaluating one
+   * tree at a time on all of them.
+   *
+   * @param batch the instances
+   * @return the distributions, the same as the ones of the compiled classifier
+   * @throws Exception if a tree does not predict a distribution
+   */
+  public double[][] distributionsForInstances(Instances batch)
+    throws Exception {
+
+    double[][] columns = new double[batch.numAttributes()][];
+    for (int attribute : m_UsedAttributes) {
+      columns[attribute] = batch.attributeToDoubleArray(attribute);
+    }
+
+    return distributions(columns, batch.numInstances(), batch
+      .classAttribute().isNumeric(), batch.numClasses());
+  }
+
+  /**
+   * Computes the class distributions of rows given by attribute columns.
+   *
+   * @param columns the values of the attributes used, by attribute and row
+   * @param numRows the number of rows
+   * @param numericClass whether the class is numeric
+   * @param numClasses the number of classes
+   * @return the distributions
+   * @throws Exception if a tree does not predict a distribution
+   */
+  protected double[][] distributions(double[][] columns, int numRows,
+    boolean numericClass, int numClasses) throws Exception {
+
+    double[][] result = new double[numRows][];
+    double[] numPreds = null;
+    if (m_Bagged) {
+      for (int r = 0; r < numRows; r++) {
+        result[r] = new double[numClasses];
+      }
+      if (numericClass) {
+        numPreds = new double[numRows];
+      }
+    }
+
+    for (int root : m_Roots) {
+      for (int r = 0; r < numRows; r++) {
+
+        // Follow the branches as long as no value is missing
+        int node = root;
+        int deepest = m_Distribution[node];
+        while (m_Type[node] != LEAF) {
+          double value = columns[m_Attribute[node]][r];
+          if (Utils.isMissingValue(value)) {
+            break;
+          }
+          node = m_FirstChild[node] + branch(node, value);
+          if (m_Distribution[node] >= 0) {
+            deepest = m_Distribution[node];
+          }
+        }
+
+        double[] dist = null;
+        int offset = -1;
+        if (m_Type[node] != LEAF) {
+          dist = m_C45 ? c45Distribution(node, columns, r, 1) : distribution(
+            node, columns, r);
+          if ((dist == null) && !m_C45) {
+            offset = deepest;
+          }
+        } else {
+          offset = m_C45 ? m_Distribution[node] : deepest;
+        }
+
+        if (!m_Bagged) {
+          if ((dist == null) && (offset >= 0)) {
+            dist =
+              Arrays.copyOfRange(m_Distributions, offset, offset
+                + m_NumClasses);
+          }
+          result[r] = dist;
+        } else {
+          if ((dist == null) && (offset < 0)) {
+            throw new Exception("Null distribution predicted");
+          }
+          double[] values = (dist != null) ? dist : m_Distributions;
+          int start = (dist != null) ? 0 : offset;
+          if (numericClass) {
+            double pred = values[start];
+            if (!Utils.isMissingValue(pred)) {
+              result[r][0] += pred;
+              numPreds[r]++;
+            }
+          } else {
+            for (int j = 0; j < m_NumClasses; j++) {
+              result[r][j] += values[start + j];
+            }
+          }
+        }
+      }
+    }
+
+    // Combine the predictions of the trees as in bagging
+    if (m_Bagged) {
+      for (int r = 0; r < numRows; r++) {
+        double[] sums = result[r];
+        if (numericClass) {
+          if (numPreds[r] == 0) {
+            sums[0] = Utils.missingValue();
+          } else {
+            sums[0] /= numPreds[r];
+          }
+        } else if (!Utils.eq(Utils.sum(sums), 0)) {
+          Utils.normalize(sums);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the branch of a node a (non-missing) value goes down.
+   *
+   * @param node the node
+   * @param value the value of the attribute tested at the node
+   * @return the branch
+   */
+  protected int branch(int node, double value) {
+
+    switch (m_Type[node]) {
+    case NOMINAL:
+      return (int) value;
+    case LESS:
+      return (value < m_SplitPoint[node]) ? 0 : 1;
+    case LESS_OR_EQUAL:
+      return (value <= m_SplitPoint[node]) ? 0 : 1;
+    default:
+      return ((int) m_SplitPoint[node] == (int) value) ? 0 : 1;
+    }
+  }
+
+  /**
+   * Computes the distribution of a node of a RandomTree or REPTree, splitting
+   * the row up if the value tested is missing.
+   *
+   * @param node the node
+   * @param columns the attribute values, by attribute and row
+   * @param r the row
+   * @return the distribution, or null if the node and the branch taken have
+   *         none
+   */
+  protected double[] distribution(int node, double[][] columns, int r) {
+
+    double[] returnedDist = null;
+
+    if (m_Type[node] != LEAF) {
+      double value = columns[m_Attribute[node]][r];
+      if (Utils.isMissingValue(value)) {
+        returnedDist = new double[m_NumClasses];
+        for (int i = 0; i < m_NumChildren[node]; i++) {
+          int child = m_FirstChild[node] + i;
+          double[] help = distribution(child, columns, r);
+          if (help != null) {
+            for (int j = 0; j < help.length; j++) {
+              returnedDist[j] += m_Weight[child] * help[j];
+            }
+          }
+        }
+      } else {
+        returnedDist =
+          distribution(m_FirstChild[node] + branch(node, value), columns, r);
+      }
+    }
+
+    if ((returnedDist == null) && (m_Distribution[node] >= 0)) {
+      int offset = m_Distribution[node];
+      returnedDist =
+        Arrays.copyOfRange(m_Distributions, offset, offset + m_NumClasses);
+    }
+
+    return returnedDist;
+  }
+
+  /**
+   * Computes the weighted class probabilities of a node of a J48 tree,
+   * splitting the row up if the value tested is missing.
+   *
+   * @param node the node
+   * @param columns the attribute values, by attribute and row
+   * @param r the row
+   * @param weight the weight of the row at the node
+   * @return the weighted class probabilities
+   */
+  protected double[] c45Distribution(int node, double[][] columns, int r,
+    double weight) {
+
+    double[] probs = new double[m_NumClasses];
+
+    if (m_Type[node] == LEAF) {
+      int offset = m_Distribution[node];
+      for (int j = 0; j < probs.length; j++) {
+        probs[j] = weight * m_Distributions[offset + j];
+      }
+      return probs;
+    }
+
+    double value = columns[m_Attribute[node]][r];
+    if (Utils.isMissingValue(value)) {
+      for (int i = 0; i < m_NumChildren[node]; i++) {
+        int child = m_FirstChild[node] + i;
+        if (!m_Skip[child]) {
+          double[] help =
+            c45Distribution(child, columns, r, m_Weight[child] * weight);
+          for (int j = 0; j < probs.length; j++) {
+            probs[j] += help[j];
+          }
+        }
+      }
+      return probs;
+    }
+
+    return c45Distribution(m_FirstChild[node] + branch(node, value), columns,
+      r, weight);
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
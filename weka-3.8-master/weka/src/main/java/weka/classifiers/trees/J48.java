@@ -163,6 +163,9 @@ public class J48 extends AbstractClassifier implements OptionHandler, Drawable,
   /** The decision tree */
   protected ClassifierTree m_root;
 
+  /** The tree compiled for batch prediction, created when first needed */
+  protected transient FlatTrees m_FlatTrees;
+
   /** Unpruned tree? */
   protected boolean m_unpruned = false;
 
@@ -299,6 +302,7 @@ public class J48 extends AbstractClassifier implements OptionHandler, Drawable,
     }
     getCapabilities().testWithFail(instances);
 
+    m_FlatTrees = null;
     ModelSelection modSelection;
 
     if (m_binarySplits) {
@@ -350,6 +354,47 @@ public class J48 extends AbstractClassifier implements OptionHandler, Drawable,
     return m_root.distributionForInstance(instance, m_useLaplace);
   }
 
+  /**
+   * Returns true, as the tree is compiled into flat arrays for batch
+   * prediction.
+   * 
+   * @return true
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return true;
+  }
+
+  /**
+   * Computes the class distributions of a batch of instances with the tree
+   * compiled into flat arrays (see FlatTrees). The distributions are the same
+   * as the ones of distributionForInstance().
+   * 
+   * @param batch the instances to get predictions for
+   * @return the class distributions
+   * @throws Exception if the distributions can't be computed
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances batch)
+    throws Exception {
+
+    return getFlatTrees().distributionsForInstances(batch);
+  }
+
+  /**
+   * Returns the tree compiled into flat arrays, compiling it if necessary.
+   * 
+   * @return the compiled tree
+   * @throws Exception if the tree has not been built yet
+   */
+  protected synchronized FlatTrees getFlatTrees() throws Exception {
+
+    if (m_FlatTrees == null) {
+      m_FlatTrees = FlatTrees.compile(this);
+    }
+    return m_FlatTrees;
+  }
+
   /**
    * Returns the type of graph this classifier represents.
    * 
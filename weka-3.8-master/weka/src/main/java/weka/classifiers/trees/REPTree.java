@@ -92,6 +92,22 @@ import weka.core.WeightedInstancesHandler;
  *  Maximum tree depth (default -1, no maximum)
  * </pre>
  * 
+ * <pre>
+ * -I
+ *  Initial class value count (default 0)
+ * </pre>
+ * 
+ * <pre>
+ * -R
+ *  Spread initial count over all class values (i.e. don't use 1 per value)
+ * </pre>
+ * 
+ * <pre>
+ * -bins &lt;num&gt;
+ *  Number of bins for numeric attributes, 0 for exact split search.
+ *  (default 0, at most 256)
+ * </pre>
+ * 
  * <!-- options-end -->
  * 
  * @author Eibe Frank (eibe@cs.waikato.ac.nz)
@@ -717,6 +733,222 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
       }
     }
 
+    /**
+     * Recursively generates a tree from histograms of the bins (or nominal
+     * values) of the attributes, making the same choices as the other
+     * buildTree() method except that numeric attributes are only split between
+     * bins.
+     * 
+     * @param data the binned data to work with
+     * @param rows the rows of the instances at this node
+     * @param weights the weights of the instances at this node
+     * @param hists the histograms of the instances at this node, by attribute,
+     *          or null to compute them
+     * @param totalWeight the total weight of the instances
+     * @param classProbs the class probabilities
+     * @param header the header of the data
+     * @param minNum the minimum number of instances in a leaf
+     * @param minVariance the minimum variance for a split
+     * @param depth the current depth of the tree
+     * @param maxDepth the maximum allowed depth of the tree
+     * @throws Exception if generation fails
+     */
+    protected void buildTree(BinnedData data, int[] rows, double[] weights,
+      double[][][] hists, double totalWeight, double[] classProbs,
+      Instances header, double minNum, double minVariance, int depth,
+      int maxDepth) throws Exception {
+
+      boolean nominalClass = header.classAttribute().isNominal();
+
+      // Store structure of dataset, set minimum number of instances
+      // and make space for potential info from pruning data
+      m_Info = header;
+      if (!nominalClass) {
+        m_HoldOutDist = new double[2];
+      } else {
+        m_HoldOutDist = new double[header.numClasses()];
+      }
+
+      // Make leaf if there are no training instances
+      if (rows.length == 0) {
+        if (!nominalClass) {
+          m_Distribution = new double[2];
+        } else {
+          m_Distribution = new double[header.numClasses()];
+        }
+        m_ClassProbs = null;
+        return;
+      }
+
+      double priorVar = 0;
+      if (!nominalClass) {
+
+        // Compute prior variance
+        double totalSum = 0, totalSumSquared = 0, totalSumOfWeights = 0;
+        for (int i = 0; i < rows.length; i++) {
+          double classValue = data.m_ClassValues[rows[i]];
+          totalSum += classValue * weights[i];
+          totalSumSquared += classValue * classValue * weights[i];
+          totalSumOfWeights += weights[i];
+        }
+        priorVar = singleVariance(totalSum, totalSumSquared, totalSumOfWeights);
+      }
+
+      // Check if node doesn't contain enough instances, is pure
+      // or the maximum tree depth is reached
+      m_ClassProbs = new double[classProbs.length];
+      System.arraycopy(classProbs, 0, m_ClassProbs, 0, classProbs.length);
+      if ((totalWeight < (2 * minNum))
+        ||
+
+        // Nominal case
+        (nominalClass && Utils.eq(m_ClassProbs[Utils.maxIndex(m_ClassProbs)],
+          Utils.sum(m_ClassProbs)))
+        ||
+
+        // Numeric case
+        (!nominalClass && ((priorVar / totalWeight) < minVariance))
+        ||
+
+        // Check tree depth
+        ((m_MaxDepth >= 0) && (depth >= maxDepth))) {
+
+        // Make leaf
+        m_Attribute = -1;
+        if (nominalClass) {
+
+          // Nominal case
+          m_Distribution = new double[m_ClassProbs.length];
+          for (int i = 0; i < m_ClassProbs.length; i++) {
+            m_Distribution[i] = m_ClassProbs[i];
+          }
+          doSmoothing();
+          Utils.normalize(m_ClassProbs);
+        } else {
+
+          // Numeric case
+          m_Distribution = new double[2];
+          m_Distribution[0] = priorVar;
+          m_Distribution[1] = totalWeight;
+        }
+        return;
+      }
+
+      // Compute class distributions and value of splitting
+      // criterion for each attribute
+      if (hists == null) {
+        hists = data.histograms(rows, weights);
+      }
+      double[] vals = new double[header.numAttributes()];
+      double[][][] dists = new double[header.numAttributes()][0][0];
+      double[][] props = new double[header.numAttributes()][0];
+      double[][] totalSubsetWeights = new double[header.numAttributes()][0];
+      double[] splits = new double[header.numAttributes()];
+      for (int i = 0; i < header.numAttributes(); i++) {
+        if (i != header.classIndex()) {
+          if (nominalClass) {
+            splits[i] = binnedDistribution(props, dists, i, hists[i],
+              totalSubsetWeights, data);
+            vals[i] = gain(dists[i], priorVal(dists[i]));
+          } else {
+            splits[i] = binnedNumericDistribution(props, dists, i, hists[i],
+              totalSubsetWeights, data, vals);
+          }
+        }
+      }
+
+      // Find best attribute
+      m_Attribute = Utils.maxIndex(vals);
+      int numAttVals = dists[m_Attribute].length;
+
+      // Check if there are at least two subsets with
+      // required minimum number of instances
+      int count = 0;
+      for (int i = 0; i < numAttVals; i++) {
+        if (totalSubsetWeights[m_Attribute][i] >= minNum) {
+          count++;
+        }
+        if (count > 1) {
+          break;
+        }
+      }
+
+      // Any useful split found?
+      if (Utils.gr(vals[m_Attribute], 0) && (count > 1)) {
+
+        // Set split point, proportions, and temp arrays
+        m_SplitPoint = splits[m_Attribute];
+        m_Prop = props[m_Attribute];
+        double[][] attSubsetDists = dists[m_Attribute];
+        double[] attTotalSubsetWeights = totalSubsetWeights[m_Attribute];
+
+        // Release some memory before proceeding further
+        vals = null;
+        dists = null;
+        props = null;
+        totalSubsetWeights = null;
+        splits = null;
+
+        // Split data
+        int[][] subsetRows = new int[numAttVals][];
+        double[][] subsetWeights = new double[numAttVals][];
+        splitBinnedData(subsetRows, subsetWeights, m_Attribute, m_SplitPoint,
+          rows, weights, data);
+
+        // Scan all subsets but the largest one, whose histograms are those of
+        // this node minus the ones of the other subsets
+        int largest = 0;
+        for (int i = 1; i < numAttVals; i++) {
+          if (subsetRows[i].length > subsetRows[largest].length) {
+            largest = i;
+          }
+        }
+        double[][][][] subsetHists = new double[numAttVals][][][];
+        for (int i = 0; i < numAttVals; i++) {
+          if (i != largest) {
+            subsetHists[i] = data.histograms(subsetRows[i], subsetWeights[i]);
+          }
+        }
+        subsetHists[largest] = data.subtract(hists, subsetHists, largest);
+
+        // Release memory
+        hists = null;
+
+        // Build successors
+        m_Successors = new Tree[numAttVals];
+        for (int i = 0; i < numAttVals; i++) {
+          m_Successors[i] = new Tree();
+          m_Successors[i].buildTree(data, subsetRows[i], subsetWeights[i],
+            subsetHists[i], attTotalSubsetWeights[i], attSubsetDists[i],
+            header, minNum, minVariance, depth + 1, maxDepth);
+
+          // Release as much memory as we can
+          subsetRows[i] = null;
+          subsetWeights[i] = null;
+          subsetHists[i] = null;
+          attSubsetDists[i] = null;
+        }
+      } else {
+
+        // Make leaf
+        m_Attribute = -1;
+      }
+
+      // Normalize class counts
+      if (nominalClass) {
+        m_Distribution = new double[m_ClassProbs.length];
+        for (int i = 0; i < m_ClassProbs.length; i++) {
+          m_Distribution[i] = m_ClassProbs[i];
+        }
+        doSmoothing();
+        Utils.normalize(m_ClassProbs);
+      } else {
+        m_Distribution = new double[2];
+        m_Distribution[0] = priorVar;
+        m_Distribution[1] = totalWeight;
+      }
+    }
+
     /**
      * Smoothes class probabilities stored at node.
      */
@@ -1126,6 +1358,302 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
       return splitPoint;
     }
 
+    /**
+     * Splits the instances at a node into subsets, in histogram mode.
+     * 
+     * @param subsetRows the rows in each subset
+     * @param subsetWeights the weights in each subset
+     * @param att the attribute index
+     * @param splitPoint the split point for numeric attributes
+     * @param rows the rows of the whole set
+     * @param weights the weights of the whole set
+     * @param data the binned data to work with
+     */
+    protected void splitBinnedData(int[][] subsetRows,
+      double[][] subsetWeights, int att, double splitPoint, int[] rows,
+      double[] weights, BinnedData data) {
+
+      int[] values = data.m_Values[att];
+      boolean nominal = (data.m_Thresholds[att] == null);
+      int splitBin = nominal ? 0 : AttributeBins.bin(splitPoint,
+        data.m_Thresholds[att]);
+      int[] num = new int[subsetRows.length];
+      for (int k = 0; k < num.length; k++) {
+        subsetRows[k] = new int[rows.length];
+        subsetWeights[k] = new double[rows.length];
+      }
+      for (int j = 0; j < rows.length; j++) {
+        int value = values[rows[j]];
+        if (value < 0) {
+
+          // Split instance up
+          for (int k = 0; k < num.length; k++) {
+            if (m_Prop[k] > 0) {
+              subsetRows[k][num[k]] = rows[j];
+              subsetWeights[k][num[k]] = m_Prop[k] * weights[j];
+              num[k]++;
+            }
+          }
+        } else {
+          int subset = nominal ? value : (value < splitBin) ? 0 : 1;
+          subsetRows[subset][num[subset]] = rows[j];
+          subsetWeights[subset][num[subset]] = weights[j];
+          num[subset]++;
+        }
+      }
+
+      // Trim arrays
+      for (int k = 0; k < num.length; k++) {
+        int[] copy = new int[num[k]];
+        System.arraycopy(subsetRows[k], 0, copy, 0, num[k]);
+        subsetRows[k] = copy;
+        double[] copyWeights = new double[num[k]];
+        System.arraycopy(subsetWeights[k], 0, copyWeights, 0, num[k]);
+        subsetWeights[k] = copyWeights;
+      }
+    }
+
+    /**
+     * Computes class distribution for an attribute from its histogram.
+     * 
+     * @param props the proportions of the subsets, by attribute
+     * @param dists the distributions of the subsets, by attribute
+     * @param att the attribute index
+     * @param hist the histogram of the attribute, missing values last
+     * @param subsetWeights the weights of the subsets, by attribute
+     * @param data the binned data to work with
+     * @return the split point
+     */
+    protected double binnedDistribution(double[][] props, double[][][] dists,
+      int att, double[][] hist, double[][] subsetWeights, BinnedData data) {
+
+      double splitPoint = Double.NaN;
+      double[] thresholds = data.m_Thresholds[att];
+      int numValues = hist.length - 1;
+      double[][] dist = null;
+
+      if (thresholds == null) {
+
+        // For nominal attributes
+        dist = new double[numValues][];
+        for (int i = 0; i < numValues; i++) {
+          dist[i] = hist[i].clone();
+        }
+      } else {
+
+        // For numeric attributes
+        double[][] currDist = new double[2][hist[0].length];
+        dist = new double[2][hist[0].length];
+
+        // Move all bins into second subset
+        for (int b = 0; b < numValues; b++) {
+          for (int j = 0; j < hist[b].length; j++) {
+            currDist[1][j] += hist[b][j];
+          }
+        }
+        double priorVal = priorVal(currDist);
+        System.arraycopy(currDist[1], 0, dist[1], 0, dist[1].length);
+
+        // Try all split points between bins with data
+        int lastBin = -1;
+        double currVal, bestVal = -Double.MAX_VALUE;
+        for (int b = 0; b < numValues; b++) {
+          if (!(Utils.sum(hist[b]) > 0)) {
+            continue;
+          }
+          if (lastBin >= 0) {
+            currVal = gain(currDist, priorVal);
+            if (currVal > bestVal) {
+              bestVal = currVal;
+              splitPoint =
+                thresholds[AttributeBins.splitBin(lastBin, b) - 1];
+              for (int j = 0; j < currDist.length; j++) {
+                System.arraycopy(currDist[j], 0, dist[j], 0, dist[j].length);
+              }
+            }
+          }
+          lastBin = b;
+          for (int j = 0; j < hist[b].length; j++) {
+            currDist[0][j] += hist[b][j];
+            currDist[1][j] -= hist[b][j];
+          }
+        }
+      }
+
+      // Compute weights
+      props[att] = new double[dist.length];
+      for (int k = 0; k < props[att].length; k++) {
+        props[att][k] = Utils.sum(dist[k]);
+      }
+      if (!(Utils.sum(props[att]) > 0)) {
+        for (int k = 0; k < props[att].length; k++) {
+          props[att][k] = 1.0 / props[att].length;
+        }
+      } else {
+        Utils.normalize(props[att]);
+      }
+
+      // Distribute counts
+      double[] missing = hist[numValues];
+      for (int j = 0; j < dist.length; j++) {
+        for (int c = 0; c < missing.length; c++) {
+          dist[j][c] += props[att][j] * missing[c];
+        }
+      }
+
+      // Compute subset weights
+      subsetWeights[att] = new double[dist.length];
+      for (int j = 0; j < dist.length; j++) {
+        subsetWeights[att][j] += Utils.sum(dist[j]);
+      }
+
+      // Return distribution and split point
+      dists[att] = dist;
+      return splitPoint;
+    }
+
+    /**
+     * Computes numeric class distribution for an attribute from its
+     * histogram.
+     * 
+     * @param props the proportions of the subsets, by attribute
+     * @param dists the distributions of the subsets, by attribute
+     * @param att the attribute index
+     * @param hist the histogram of the attribute, missing values last
+     * @param subsetWeights the weights of the subsets, by attribute
+     * @param data the binned data to work with
+     * @param vals the variance gains, by attribute
+     * @return the split point
+     */
+    protected double binnedNumericDistribution(double[][] props,
+      double[][][] dists, int att, double[][] hist, double[][] subsetWeights,
+      BinnedData data, double[] vals) {
+
+      double splitPoint = Double.NaN;
+      double[] thresholds = data.m_Thresholds[att];
+      int numValues = hist.length - 1;
+      double[] sums = null;
+      double[] sumSquared = null;
+      double[] sumOfWeights = null;
+      double totalSum = 0, totalSumSquared = 0, totalSumOfWeights = 0;
+
+      if (thresholds == null) {
+
+        // For nominal attributes
+        sums = new double[numValues];
+        sumSquared = new double[numValues];
+        sumOfWeights = new double[numValues];
+        for (int i = 0; i < numValues; i++) {
+          sums[i] = hist[i][0];
+          sumSquared[i] = hist[i][1];
+          sumOfWeights[i] = hist[i][2];
+        }
+        totalSum = Utils.sum(sums);
+        totalSumSquared = Utils.sum(sumSquared);
+        totalSumOfWeights = Utils.sum(sumOfWeights);
+      } else {
+
+        // For numeric attributes
+        sums = new double[2];
+        sumSquared = new double[2];
+        sumOfWeights = new double[2];
+        double[] currSums = new double[2];
+        double[] currSumSquared = new double[2];
+        double[] currSumOfWeights = new double[2];
+
+        // Move all bins into second subset
+        for (int b = 0; b < numValues; b++) {
+          currSums[1] += hist[b][0];
+          currSumSquared[1] += hist[b][1];
+          currSumOfWeights[1] += hist[b][2];
+        }
+        totalSum = currSums[1];
+        totalSumSquared = currSumSquared[1];
+        totalSumOfWeights = currSumOfWeights[1];
+
+        sums[1] = currSums[1];
+        sumSquared[1] = currSumSquared[1];
+        sumOfWeights[1] = currSumOfWeights[1];
+
+        // Try all split points between bins with data
+        int lastBin = -1;
+        double currVal, bestVal = Double.MAX_VALUE;
+        for (int b = 0; b < numValues; b++) {
+          if (!(hist[b][2] > 0)) {
+            continue;
+          }
+          if (lastBin >= 0) {
+            currVal = variance(currSums, currSumSquared, currSumOfWeights);
+            if (currVal < bestVal) {
+              bestVal = currVal;
+              splitPoint =
+                thresholds[AttributeBins.splitBin(lastBin, b) - 1];
+              for (int j = 0; j < 2; j++) {
+                sums[j] = currSums[j];
+                sumSquared[j] = currSumSquared[j];
+                sumOfWeights[j] = currSumOfWeights[j];
+              }
+            }
+          }
+          lastBin = b;
+
+          currSums[0] += hist[b][0];
+          currSumSquared[0] += hist[b][1];
+          currSumOfWeights[0] += hist[b][2];
+
+          currSums[1] -= hist[b][0];
+          currSumSquared[1] -= hist[b][1];
+          currSumOfWeights[1] -= hist[b][2];
+        }
+      }
+
+      // Compute weights
+      props[att] = new double[sums.length];
+      for (int k = 0; k < props[att].length; k++) {
+        props[att][k] = sumOfWeights[k];
+      }
+      if (!(Utils.sum(props[att]) > 0)) {
+        for (int k = 0; k < props[att].length; k++) {
+          props[att][k] = 1.0 / props[att].length;
+        }
+      } else {
+        Utils.normalize(props[att]);
+      }
+
+      // Distribute counts for missing values
+      double[] missing = hist[numValues];
+      for (int j = 0; j < sums.length; j++) {
+        sums[j] += props[att][j] * missing[0];
+        sumSquared[j] += props[att][j] * missing[1];
+        sumOfWeights[j] += props[att][j] * missing[2];
+      }
+      totalSum += missing[0];
+      totalSumSquared += missing[1];
+      totalSumOfWeights += missing[2];
+
+      // Compute final distribution
+      double[][] dist = new double[sums.length][1];
+      for (int j = 0; j < sums.length; j++) {
+        if (sumOfWeights[j] > 0) {
+          dist[j][0] = sums[j] / sumOfWeights[j];
+        } else {
+          dist[j][0] = totalSum / totalSumOfWeights;
+        }
+      }
+
+      // Compute variance gain
+      double priorVar = singleVariance(totalSum, totalSumSquared,
+        totalSumOfWeights);
+      double var = variance(sums, sumSquared, sumOfWeights);
+      double gain = priorVar - var;
+
+      // Return distribution and split point
+      subsetWeights[att] = sumOfWeights;
+      dists[att] = dist;
+      vals[att] = gain;
+      return splitPoint;
+    }
+
     /**
      * Computes variance for subsets.
      * 
@@ -1358,9 +1886,151 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
     }
   }
 
+  /**
+   * The training data in histogram mode: the bin of each numeric value and
+   * the index of each nominal value, by attribute and row, from which the
+   * histograms of the instances at a node are computed.
+   */
+  protected static class BinnedData {
+
+    /** The structure of the data. */
+    protected Instances m_Header;
+
+    /**
+     * The bins (numeric attributes) or values (nominal attributes), by
+     * attribute and row; -1 for missing values, null for the class.
+     */
+    protected int[][] m_Values;
+
+    /** The thresholds between the bins of each numeric attribute. */
+    protected double[][] m_Thresholds;
+
+    /** The class values, by row. */
+    protected double[] m_ClassValues;
+
+    /**
+     * Bins the given data.
+     * 
+     * @param data the data, without missing class values
+     * @param numBins the number of bins for numeric attributes
+     */
+    protected BinnedData(Instances data, int numBins) {
+
+      m_Header = new Instances(data, 0);
+      m_Values = new int[data.numAttributes()][];
+      m_Thresholds = new double[data.numAttributes()][];
+      m_ClassValues = data.attributeToDoubleArray(data.classIndex());
+      double[] weights = new double[data.numInstances()];
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] = data.instance(i).weight();
+      }
+      for (int j = 0; j < data.numAttributes(); j++) {
+        if (j == data.classIndex()) {
+          continue;
+        }
+        double[] column = data.attributeToDoubleArray(j);
+        if (data.attribute(j).isNumeric()) {
+          m_Thresholds[j] = AttributeBins.thresholds(column, weights, numBins);
+        }
+        m_Values[j] = new int[column.length];
+        for (int i = 0; i < column.length; i++) {
+          if (Utils.isMissingValue(column[i])) {
+            m_Values[j][i] = -1;
+          } else if (m_Thresholds[j] != null) {
+            m_Values[j][i] = AttributeBins.bin(column[i], m_Thresholds[j]);
+          } else {
+            m_Values[j][i] = (int) column[i];
+          }
+        }
+      }
+    }
+
+    /**
+     * Computes the histograms of the given instances: for each bin or nominal
+     * value, and for missing values (last), the class distribution (nominal
+     * class) or the sums of class values, squared class values and weights
+     * (numeric class).
+     * 
+     * @param rows the rows of the instances
+     * @param weights the weights of the instances
+     * @return the histograms, by attribute (null for the class)
+     */
+    protected double[][][] histograms(int[] rows, double[] weights) {
+
+      boolean nominalClass = m_Header.classAttribute().isNominal();
+      double[][][] hists = new double[m_Values.length][][];
+      for (int j = 0; j < m_Values.length; j++) {
+        if (j == m_Header.classIndex()) {
+          continue;
+        }
+        int numValues =
+          (m_Thresholds[j] != null) ? m_Thresholds[j].length + 1 : m_Header
+            .attribute(j).numValues();
+        double[][] hist =
+          new double[numValues + 1][nominalClass ? m_Header.numClasses() : 3];
+        int[] values = m_Values[j];
+        for (int i = 0; i < rows.length; i++) {
+          int value = values[rows[i]];
+          double[] counts = hist[(value < 0) ? numValues : value];
+          double classValue = m_ClassValues[rows[i]];
+          if (nominalClass) {
+            counts[(int) classValue] += weights[i];
+          } else {
+            counts[0] += classValue * weights[i];
+            counts[1] += classValue * classValue * weights[i];
+            counts[2] += weights[i];
+          }
+        }
+        hists[j] = hist;
+      }
+
+      return hists;
+    }
+
+    /**
+     * Computes the histograms of one subset of a node by subtracting the
+     * histograms of the other subsets from the ones of the node. Values that
+     * only differ from 0 through rounding errors are set to 0.
+     * 
+     * @param hists the histograms of the node, which are overwritten
+     * @param subsetHists the histograms of the subsets
+     * @param subset the subset to compute the histograms for
+     * @return the histograms of the subset
+     */
+    protected double[][][] subtract(double[][][] hists,
+      double[][][][] subsetHists, int subset) {
+
+      for (int j = 0; j < hists.length; j++) {
+        if (hists[j] == null) {
+          continue;
+        }
+        for (int v = 0; v < hists[j].length; v++) {
+          double[] counts = hists[j][v];
+          for (int c = 0; c < counts.length; c++) {
+            double value = counts[c];
+            for (int k = 0; k < subsetHists.length; k++) {
+              if (k != subset) {
+                value -= subsetHists[k][j][v][c];
+              }
+            }
+            if (Math.abs(value) <= 1e-10 * Math.abs(counts[c])) {
+              value = 0;
+            }
+            counts[c] = value;
+          }
+        }
+      }
+
+      return hists;
+    }
+  }
+
   /** The Tree object */
   protected Tree m_Tree = null;
 
+  /** The tree compiled for batch prediction, created when first needed */
+  protected transient FlatTrees m_FlatTrees;
+
   /** Number of folds for reduced error pruning. */
   protected int m_NumFolds = 3;
 
@@ -1388,6 +2058,9 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
   /** Whether to spread initial count across all values */
   protected boolean m_SpreadInitialCount = false;
 
+  /** The number of bins for numeric attributes, 0 for exact split search */
+  protected int m_NumBins = 0;
+
   /**
    * Returns the tip text for this property
    * 
@@ -1633,6 +2306,39 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
     m_SpreadInitialCount = newSpreadInitialCount;
   }
 
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numBinsTipText() {
+    return "The number of bins (at most 256) numeric attributes are quantised "
+      + "into before growing the tree, 0 for exact split search. Splits are "
+      + "then found from histograms of the bins, which is much faster on "
+      + "large datasets.";
+  }
+
+  /**
+   * Get the value of NumBins.
+   * 
+   * @return Value of NumBins.
+   */
+  public int getNumBins() {
+
+    return m_NumBins;
+  }
+
+  /**
+   * Set the value of NumBins.
+   * 
+   * @param newNumBins Value to assign to NumBins.
+   */
+  public void setNumBins(int newNumBins) {
+
+    m_NumBins = newNumBins;
+  }
+
   /**
    * Lists the command-line options for this classifier.
    * 
@@ -1641,7 +2347,7 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
   @Override
   public Enumeration<Option> listOptions() {
 
-    Vector<Option> newVector = new Vector<Option>(8);
+    Vector<Option> newVector = new Vector<Option>(9);
 
     newVector.addElement(new Option(
       "\tSet minimum number of instances per leaf " + "(default 2).", "M", 1,
@@ -1663,6 +2369,9 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
     newVector.addElement(new Option(
       "\tSpread initial count over all class values (i.e."
         + " don't use 1 per value)", "R", 0, "-R"));
+    newVector.addElement(new Option(
+      "\tNumber of bins for numeric attributes, 0 for exact split search.\n"
+        + "\t(default 0, at most 256)", "bins", 1, "-bins <num>"));
 
     newVector.addAll(Collections.list(super.listOptions()));
 
@@ -1696,6 +2405,10 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
     if (getSpreadInitialCount()) {
       options.add("-R");
     }
+    if (getNumBins() > 0) {
+      options.add("-bins");
+      options.add("" + getNumBins());
+    }
 
     Collections.addAll(options, super.getOptions());
 
@@ -1740,6 +2453,22 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
    *  Maximum tree depth (default -1, no maximum)
    * </pre>
    * 
+   * <pre>
+   * -I
+   *  Initial class value count (default 0)
+   * </pre>
+   * 
+   * <pre>
+   * -R
+   *  Spread initial count over all class values (i.e. don't use 1 per value)
+   * </pre>
+   * 
+   * <pre>
+   * -bins &lt;num&gt;
+   *  Number of bins for numeric attributes, 0 for exact split search.
+   *  (default 0, at most 256)
+   * </pre>
+   * 
    * <!-- options-end -->
    * 
    * @param options the list of options as an array of strings
@@ -1786,6 +2515,12 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
       m_InitialCount = 0;
     }
     m_SpreadInitialCount = Utils.getFlag('R', options);
+    String numBinsString = Utils.getOption("bins", options);
+    if (numBinsString.length() != 0) {
+      m_NumBins = Integer.parseInt(numBinsString);
+    } else {
+      m_NumBins = 0;
+    }
 
     super.setOptions(options);
   }
@@ -1872,6 +2607,7 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
     data = new Instances(data);
     data.deleteWithMissingClass();
 
+    m_FlatTrees = null;
     Random random = new Random(m_Seed);
 
     m_zeroR = null;
@@ -1897,45 +2633,53 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
       train = data;
     }
 
-    // Create array of sorted indices and weights
-    int[][][] sortedIndices = new int[1][train.numAttributes()][0];
-    double[][][] weights = new double[1][train.numAttributes()][0];
-    double[] vals = new double[train.numInstances()];
-    for (int j = 0; j < train.numAttributes(); j++) {
-      if (j != train.classIndex()) {
-        weights[0][j] = new double[train.numInstances()];
-        if (train.attribute(j).isNominal()) {
-
-          // Handling nominal attributes. Putting indices of
-          // instances with missing values at the end.
-          sortedIndices[0][j] = new int[train.numInstances()];
-          int count = 0;
-          for (int i = 0; i < train.numInstances(); i++) {
-            Instance inst = train.instance(i);
-            if (!inst.isMissing(j)) {
-              sortedIndices[0][j][count] = i;
-              weights[0][j][count] = inst.weight();
-              count++;
+    // Create array of sorted indices and weights, or bin the data
+    int[][][] sortedIndices = null;
+    double[][][] weights = null;
+    BinnedData binned = null;
+    if (m_NumBins > 0) {
+      binned = new BinnedData(train, m_NumBins);
+    } else {
+      sortedIndices = new int[1][train.numAttributes()][0];
+      weights = new double[1][train.numAttributes()][0];
+      double[] vals = new double[train.numInstances()];
+      for (int j = 0; j < train.numAttributes(); j++) {
+        if (j != train.classIndex()) {
+          weights[0][j] = new double[train.numInstances()];
+          if (train.attribute(j).isNominal()) {
+
+            // Handling nominal attributes. Putting indices of
+            // instances with missing values at the end.
+            sortedIndices[0][j] = new int[train.numInstances()];
+            int count = 0;
+            for (int i = 0; i < train.numInstances(); i++) {
+              Instance inst = train.instance(i);
+              if (!inst.isMissing(j)) {
+                sortedIndices[0][j][count] = i;
+                weights[0][j][count] = inst.weight();
+                count++;
+              }
             }
-          }
-          for (int i = 0; i < train.numInstances(); i++) {
-            Instance inst = train.instance(i);
-            if (inst.isMissing(j)) {
-              sortedIndices[0][j][count] = i;
-              weights[0][j][count] = inst.weight();
-              count++;
+            for (int i = 0; i < train.numInstances(); i++) {
+              Instance inst = train.instance(i);
+              if (inst.isMissing(j)) {
+                sortedIndices[0][j][count] = i;
+                weights[0][j][count] = inst.weight();
+                count++;
+              }
             }
-          }
-        } else {
+          } else {
 
-          // Sorted indices are computed for numeric attributes
-          for (int i = 0; i < train.numInstances(); i++) {
-            Instance inst = train.instance(i);
-            vals[i] = inst.value(j);
-          }
-          sortedIndices[0][j] = Utils.sort(vals);
-          for (int i = 0; i < train.numInstances(); i++) {
-            weights[0][j][i] = train.instance(sortedIndices[0][j][i]).weight();
+            // Sorted indices are computed for numeric attributes
+            for (int i = 0; i < train.numInstances(); i++) {
+              Instance inst = train.instance(i);
+              vals[i] = inst.value(j);
+            }
+            sortedIndices[0][j] = Utils.sort(vals);
+            for (int i = 0; i < train.numInstances(); i++) {
+              weights[0][j][i] =
+                train.instance(sortedIndices[0][j][i]).weight();
+            }
           }
         }
       }
@@ -1965,9 +2709,21 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
     }
 
     // Build tree
-    m_Tree.buildTree(sortedIndices, weights, train, totalWeight, classProbs,
-      new Instances(train, 0), m_MinNum, m_MinVarianceProp * trainVariance, 0,
-      m_MaxDepth);
+    if (binned != null) {
+      int[] rows = new int[train.numInstances()];
+      double[] rowWeights = new double[train.numInstances()];
+      for (int i = 0; i < rows.length; i++) {
+        rows[i] = i;
+        rowWeights[i] = train.instance(i).weight();
+      }
+      m_Tree.buildTree(binned, rows, rowWeights, null, totalWeight,
+        classProbs, new Instances(train, 0), m_MinNum, m_MinVarianceProp
+          * trainVariance, 0, m_MaxDepth);
+    } else {
+      m_Tree.buildTree(sortedIndices, weights, train, totalWeight,
+        classProbs, new Instances(train, 0), m_MinNum, m_MinVarianceProp
+          * trainVariance, 0, m_MaxDepth);
+    }
 
     // Insert pruning data and perform reduced error pruning
     if (!m_NoPruning) {
@@ -1994,6 +2750,47 @@ public class REPTree extends AbstractClassifier implements OptionHandler,
     }
   }
 
+  /**
+   * Returns true, as the tree is compiled into flat arrays for batch
+   * prediction.
+   * 
+   * @return true
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return true;
+  }
+
+  /**
+   * Computes the class distributions of a batch of instances with the tree
+   * compiled into flat arrays (see FlatTrees). The distributions are the same
+   * as the ones of distributionForInstance().
+   * 
+   * @param batch the instances to get predictions for
+   * @return the class distributions
+   * @throws Exception if the distributions can't be computed
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances batch)
+    throws Exception {
+
+    return getFlatTrees().distributionsForInstances(batch);
+  }
+
+  /**
+   * Returns the tree compiled into flat arrays, compiling it if necessary.
+   * 
+   * @return the compiled tree
+   * @throws Exception if the tree has not been built yet
+   */
+  protected synchronized FlatTrees getFlatTrees() throws Exception {
+
+    if (m_FlatTrees == null) {
+      m_FlatTrees = FlatTrees.compile(this);
+    }
+    return m_FlatTrees;
+  }
+
   /**
    * For getting a unique ID when outputting the tree source (hashcode isn't
    * guaranteed unique)
@@ -25,6 +25,7 @@ import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.meta.Bagging;
 import weka.core.Capabilities;
+import weka.core.Instances;
 import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.RevisionUtils;
@@ -38,6 +39,7 @@ import weka.gui.ProgrammaticProperty;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Random;
 import java.util.Vector;
 
 /**
@@ -160,6 +162,12 @@ import java.util.Vector;
  * </pre>
  * 
  * <pre>
+ * -bins &lt;num&gt;
+ *  Number of bins for numeric attributes, 0 for exact split search.
+ *  (default 0, at most 256)
+ * </pre>
+ * 
+ * <pre>
  * -output-debug-info
  *  If set, classifier is run in debug mode and
  *  may output additional info to the console
@@ -194,6 +202,12 @@ public class RandomForest extends Bagging {
   /** True to compute attribute importance */
   protected boolean m_computeAttributeImportance;
 
+  /** The presorted data the trees are grown from, only set while building */
+  protected transient RandomTree.PresortedData m_PresortedData;
+
+  /** The forest compiled for batch prediction, created when first needed */
+  protected transient FlatTrees m_FlatTrees;
+
   /**
    * The default number of iterations to perform.
    */
@@ -414,6 +428,34 @@ public class RandomForest extends Bagging {
     ((RandomTree) getClassifier()).setMaxDepth(value);
   }
 
+  /**
+   * Returns the tip text for this property
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numBinsTipText() {
+    return ((RandomTree) getClassifier()).numBinsTipText();
+  }
+
+  /**
+   * Get the number of bins for numeric attributes, 0 for exact split search.
+   *
+   * @return the number of bins.
+   */
+  public int getNumBins() {
+    return ((RandomTree) getClassifier()).getNumBins();
+  }
+
+  /**
+   * Set the number of bins for numeric attributes, 0 for exact split search.
+   *
+   * @param value the number of bins.
+   */
+  public void setNumBins(int value) {
+    ((RandomTree) getClassifier()).setNumBins(value);
+  }
+
   /**
    * Returns the tip text for this property
    *
@@ -772,6 +814,12 @@ public class RandomForest extends Bagging {
    * </pre>
    * 
    * <pre>
+   * -bins &lt;num&gt;
+   *  Number of bins for numeric attributes, 0 for exact split search.
+   *  (default 0, at most 256)
+   * </pre>
+   * 
+   * <pre>
    * -output-debug-info
    *  If set, classifier is run in debug mode and
    *  may output additional info to the console
@@ -852,6 +900,154 @@ public class RandomForest extends Bagging {
     Utils.checkForRemainingOptions(options);
   }
 
+  /**
+   * Builds the forest. Unless the trees do backfitting, the data is sorted by
+   * each numeric attribute once (or binned, in histogram mode), and all trees
+   * are grown from that presorted data instead of sorting their bags at each
+   * node. Data with missing values, and a numeric class without binning, are
+   * handled by RandomTree's regular tree growing.
+   * 
+   * @param data the training data
+   * @throws Exception if the forest could not be built successfully
+   */
+  @Override
+  public void buildClassifier(Instances data) throws Exception {
+
+    // can classifier handle the data?
+    getCapabilities().testWithFail(data);
+
+    m_FlatTrees = null;
+    m_PresortedData = null;
+    if (getRepresentCopiesUsingWeights()
+      && ((RandomTree) m_Classifier).getNumFolds() <= 0) {
+      m_PresortedData =
+        RandomTree.PresortedData.create(data,
+          ((RandomTree) m_Classifier).getNumBins());
+    }
+
+    try {
+      super.buildClassifier(data);
+    } finally {
+      m_PresortedData = null;
+    }
+  }
+
+  /**
+   * Returns the trees of the forest.
+   * 
+   * @return the trees, null if the forest has not been built yet
+   */
+  protected Classifier[] getTrees() {
+    return m_Classifiers;
+  }
+
+  /**
+   * Finishes aggregating forests, and drops the compiled forest.
+   * 
+   * @throws Exception if the aggregation can't be finalized
+   */
+  @Override
+  public void finalizeAggregation() throws Exception {
+    super.finalizeAggregation();
+    m_FlatTrees = null;
+  }
+
+  /**
+   * Returns true, as the forest is compiled into flat arrays for batch
+   * prediction.
+   * 
+   * @return true
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return true;
+  }
+
+  /**
+   * Computes the class distributions of a batch of instances with the forest
+   * compiled into flat arrays (see FlatTrees). The distributions are the same
+   * as the ones of distributionForInstance().
+   * 
+   * @param batch the instances to get predictions for
+   * @return the class distributions
+   * @throws Exception if the distributions can't be computed
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances batch)
+    throws Exception {
+
+    return getFlatTrees().distributionsForInstances(batch);
+  }
+
+  /**
+   * Returns the forest compiled into flat arrays, compiling it if necessary.
+   * 
+   * @return the compiled forest
+   * @throws Exception if the forest has not been built yet
+   */
+  protected synchronized FlatTrees getFlatTrees() throws Exception {
+
+    if (m_FlatTrees == null) {
+      m_FlatTrees = FlatTrees.compile(this);
+    }
+    return m_FlatTrees;
+  }
+
+  /**
+   * Returns a training set for a particular iteration. Draws the same bag as
+   * Bagging does, and tells the tree which rows of the presorted data the bag
+   * is made of.
+   * 
+   * @param iteration the number of the iteration for the requested training
+   *          set.
+   * @return the training set for the supplied iteration number
+   * @throws Exception if something goes wrong when generating a training set.
+   */
+  @Override
+  protected synchronized Instances getTrainingSet(int iteration)
+    throws Exception {
+
+    if ((m_PresortedData == null) || !getRepresentCopiesUsingWeights()) {
+      return super.getTrainingSet(iteration);
+    }
+
+    Random r = new Random(m_Seed + iteration);
+    double[] weights = new double[m_data.numInstances()];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = m_data.instance(i).weight();
+    }
+    int[] drawn =
+      m_data.resampleIndicesWithWeights(r, weights, m_BagSizePercent);
+
+    // create the in-bag indicator array if necessary
+    if (m_CalcOutOfBag) {
+      m_inBag[iteration] = new boolean[m_data.numInstances()];
+      for (int index : drawn) {
+        m_inBag[iteration][index] = true;
+      }
+    }
+
+    // copies are always represented using weights
+    int[] counts = new int[m_data.numInstances()];
+    for (int index : drawn) {
+      counts[index]++;
+    }
+    Instances bag = new Instances(m_data, m_data.numInstances());
+    int[] rows = new int[m_data.numInstances()];
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] > 0) {
+        rows[bag.numInstances()] = i;
+        bag.add(m_data.instance(i));
+        bag.instance(bag.numInstances() - 1).setWeight(counts[i]);
+      }
+    }
+
+    ((RandomTree) m_Classifiers[iteration]).setPresortedData(m_PresortedData,
+      rows);
+
+    return bag;
+  }
+
   /**
    * Returns the revision string.
    * 
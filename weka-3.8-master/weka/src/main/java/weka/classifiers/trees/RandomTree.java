@@ -40,6 +40,7 @@ import weka.core.WeightedInstancesHandler;
 import weka.gui.ProgrammaticProperty;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedList;
@@ -104,6 +105,12 @@ import java.util.Vector;
  * </pre>
  * 
  * <pre>
+ * -bins &lt;num&gt;
+ *  Number of bins for numeric attributes, 0 for exact split search.
+ *  (default 0, at most 256)
+ * </pre>
+ * 
+ * <pre>
  * -output-debug-info
  *  If set, classifier is run in debug mode and
  *  may output additional info to the console
@@ -159,6 +166,9 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
   /** Whether to break ties randomly. */
   protected boolean m_BreakTiesRandomly = false;
 
+  /** The number of bins for numeric attributes (0 = exact split search) */
+  protected int m_NumBins = 0;
+
   /** a ZeroR model in case no model can be built from the data */
   protected Classifier m_zeroR;
 
@@ -177,6 +187,15 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
    */
   protected double[][] m_impurityDecreasees;
 
+  /** Presorted data to grow the next tree from, set by RandomForest */
+  protected transient PresortedData m_PresortedData;
+
+  /**
+   * The rows of the presorted data behind the instances of the next training
+   * set, set by RandomForest
+   */
+  protected transient int[] m_PresortedRows;
+
   /**
    * Returns a string describing classifier
    * 
@@ -375,6 +394,38 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
     m_MaxDepth = value;
   }
 
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numBinsTipText() {
+    return "The number of bins (at most 256) numeric attributes are quantised "
+      + "into before growing the tree, 0 for exact split search. Splits are "
+      + "then found from histograms of the bins, which is much faster on "
+      + "large datasets. Data with missing values always uses exact split "
+      + "search.";
+  }
+
+  /**
+   * Get the number of bins for numeric attributes, 0 for exact split search.
+   * 
+   * @return the number of bins.
+   */
+  public int getNumBins() {
+    return m_NumBins;
+  }
+
+  /**
+   * Set the number of bins for numeric attributes, 0 for exact split search.
+   * 
+   * @param value the number of bins.
+   */
+  public void setNumBins(int value) {
+    m_NumBins = value;
+  }
+
   /**
    * Returns the tip text for this property
    * 
@@ -505,6 +556,9 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
       "-U"));
     newVector.addElement(new Option("\t" + breakTiesRandomlyTipText(), "B", 0,
       "-B"));
+    newVector.addElement(new Option(
+      "\tNumber of bins for numeric attributes, 0 for exact split search.\n"
+        + "\t(default 0, at most 256)", "bins", 1, "-bins <num>"));
     newVector.addAll(Collections.list(super.listOptions()));
 
     return newVector.elements();
@@ -549,6 +603,11 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
       result.add("-B");
     }
 
+    if (getNumBins() > 0) {
+      result.add("-bins");
+      result.add("" + getNumBins());
+    }
+
     Collections.addAll(result, super.getOptions());
 
     return result.toArray(new String[result.size()]);
@@ -607,6 +666,12 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
    * </pre>
    * 
    * <pre>
+   * -bins &lt;num&gt;
+   *  Number of bins for numeric attributes, 0 for exact split search.
+   *  (default 0, at most 256)
+   * </pre>
+   * 
+   * <pre>
    * -output-debug-info
    *  If set, classifier is run in debug mode and
    *  may output additional info to the console
@@ -677,6 +742,13 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
 
     setBreakTiesRandomly(Utils.getFlag('B', options));
 
+    tmpStr = Utils.getOption("bins", options);
+    if (tmpStr.length() != 0) {
+      setNumBins(Integer.parseInt(tmpStr));
+    } else {
+      setNumBins(0);
+    }
+
     super.setOptions(options);
   }
 
@@ -728,6 +800,13 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
     // can classifier handle the data?
     getCapabilities().testWithFail(data);
 
+    // presorted data given by a forest?
+    PresortedData presorted = m_PresortedData;
+    int[] presortedRows = m_PresortedRows;
+    m_PresortedData = null;
+    m_PresortedRows = null;
+    Instances original = data;
+
     // remove instances with missing class
     data = new Instances(data);
     data.deleteWithMissingClass();
@@ -793,11 +872,31 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
       classProbs[0] /= totalWeight;
     }
 
+    // Grow the tree from presorted (or binned) columns if there is no data
+    // with missing values to split up
+    PresortedBuilder builder = null;
+    if (backfit == null) {
+      if ((presorted == null) || (presorted.getNumBins() != m_NumBins)
+        || !presorted.getHeader().equalHeaders(original)) {
+        presorted = PresortedData.create(train, m_NumBins);
+        presortedRows = null;
+        original = train;
+      }
+      if (presorted != null) {
+        builder = new PresortedBuilder(presorted, original, presortedRows);
+      }
+    }
+
     // Build tree
     m_Tree = new Tree();
     m_Info = new Instances(data, 0);
-    m_Tree.buildTree(train, classProbs, attIndicesWindow, totalWeight, rand, 0,
-      m_MinVarianceProp * trainVariance);
+    if (builder != null) {
+      builder.buildTree(m_Tree, classProbs, attIndicesWindow, totalWeight,
+        rand, m_MinVarianceProp * trainVariance);
+    } else {
+      m_Tree.buildTree(train, classProbs, attIndicesWindow, totalWeight, rand,
+        0, m_MinVarianceProp * trainVariance);
+    }
 
     // Backfit if required
     if (backfit != null) {
@@ -805,6 +904,22 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
     }
   }
 
+  /**
+   * Sets the presorted data the next call of buildClassifier() grows the tree
+   * from. Instance i of the training set passed to buildClassifier() has to be
+   * a copy of row rows[i] of the presorted data; copies of the same row are
+   * merged by adding up their weights. Only used for that one call, and only
+   * if no backfitting is done.
+   * 
+   * @param data the presorted data
+   * @param rows the rows behind the instances of the training set
+   */
+  protected void setPresortedData(PresortedData data, int[] rows) {
+
+    m_PresortedData = data;
+    m_PresortedRows = rows;
+  }
+
   /**
    * Computes class distribution of an instance using the tree.
    * 
@@ -2047,6 +2162,1311 @@ public class RandomTree extends AbstractClassifier implements OptionHandler,
     }
   }
 
+  /**
+   * The data of a training set in columns, with the rows of each numeric
+   * attribute sorted once, so that trees can be grown from it without sorting
+   * instances at each node. In histogram mode, the numeric attributes are
+   * quantised into bins instead, and only their bins are kept, one byte per
+   * value. A forest creates it once for all its trees. It also holds the
+   * scratch buffers of each thread that grows trees from it, so that they are
+   * only allocated once per thread.
+   */
+  protected static class PresortedData {
+
+    /** The structure of the data. */
+    protected Instances m_Header;
+
+    /**
+     * The attribute values, by attribute and row (null for binned
+     * attributes).
+     */
+    protected double[][] m_Columns;
+
+    /**
+     * The rows in ascending order of value, for each numeric attribute other
+     * than the class attribute (null for the other attributes, and in
+     * histogram mode).
+     */
+    protected int[][] m_Order;
+
+    /** The maximum number of bins, 0 if not in histogram mode. */
+    protected int m_NumBins;
+
+    /**
+     * The bins of the values, by attribute and row, for each numeric attribute
+     * other than the class attribute in histogram mode (null otherwise).
+     */
+    protected byte[][] m_Bins;
+
+    /** The thresholds between the bins of each binned attribute. */
+    protected double[][] m_Thresholds;
+
+    /** The scratch buffers of the threads growing trees. */
+    protected ThreadLocal<Scratch> m_Scratch = new ThreadLocal<Scratch>();
+
+    /**
+     * Creates the presorted data, if the data can be handled.
+     * 
+     * @param data the data, the class may be missing
+     * @return the presorted data, or null if an attribute other than the class
+     *         is neither nominal nor numeric or has missing values
+     */
+    public static PresortedData create(Instances data) {
+      return create(data, 0);
+    }
+
+    /**
+     * Creates the presorted data, if the data can be handled.
+     * 
+     * @param data the data, the class may be missing
+     * @param numBins the number of bins for numeric attributes, 0 or less for
+     *          sorting them instead
+     * @return the presorted data, or null if an attribute other than the class
+     *         is neither nominal nor numeric or has missing values, or if the
+     *         class is numeric and numeric attributes are not binned
+     */
+    public static PresortedData create(Instances data, int numBins) {
+
+      if (data.classIndex() < 0) {
+        return null;
+      }
+
+      // Sums of a numeric class would be taken in a different order than
+      // Tree.buildTree() does, which can break ties differently
+      if ((numBins <= 0) && data.classAttribute().isNumeric()) {
+        return null;
+      }
+
+      double[][] columns = new double[data.numAttributes()][];
+      int[][] order = new int[data.numAttributes()][];
+      byte[][] bins = null;
+      double[][] thresholds = null;
+      double[] weights = null;
+      if (numBins > 0) {
+        bins = new byte[data.numAttributes()][];
+        thresholds = new double[data.numAttributes()][];
+        weights = new double[data.numInstances()];
+        for (int i = 0; i < weights.length; i++) {
+          weights[i] = data.instance(i).weight();
+        }
+      }
+      for (int j = 0; j < data.numAttributes(); j++) {
+        Attribute attribute = data.attribute(j);
+        if (!attribute.isNominal() && !attribute.isNumeric()) {
+          return null;
+        }
+        columns[j] = data.attributeToDoubleArray(j);
+        if (j == data.classIndex()) {
+          continue;
+        }
+        for (double value : columns[j]) {
+          if (Utils.isMissingValue(value)) {
+            return null;
+          }
+        }
+        if (attribute.isNumeric()) {
+          if (numBins > 0) {
+            thresholds[j] =
+              AttributeBins.thresholds(columns[j], weights, numBins);
+            bins[j] = AttributeBins.bins(columns[j], thresholds[j]);
+            columns[j] = null;
+          } else {
+            order[j] = Utils.sortWithNoMissingValues(columns[j]);
+          }
+        }
+      }
+
+      PresortedData result = new PresortedData();
+      result.m_Header = new Instances(data, 0);
+      result.m_Columns = columns;
+      result.m_Order = order;
+      result.m_NumBins = Math.max(numBins, 0);
+      result.m_Bins = bins;
+      result.m_Thresholds = thresholds;
+      return result;
+    }
+
+    /**
+     * Returns the number of bins for numeric attributes.
+     * 
+     * @return the number of bins, 0 if the numeric attributes are sorted
+     */
+    public int getNumBins() {
+      return m_NumBins;
+    }
+
+    /**
+     * Returns the number of distinct values (or bins) of an attribute in
+     * histogram mode.
+     * 
+     * @param att the attribute index
+     * @return the number of values
+     */
+    protected int numValues(int att) {
+      return (m_Bins[att] != null) ? m_Thresholds[att].length + 1 : m_Header
+        .attribute(att).numValues();
+    }
+
+    /**
+     * Returns the structure of the data.
+     * 
+     * @return the header
+     */
+    public Instances getHeader() {
+      return m_Header;
+    }
+
+    /**
+     * Returns the number of rows.
+     * 
+     * @return the number of rows
+     */
+    public int numRows() {
+      return m_Columns[m_Header.classIndex()].length;
+    }
+
+    /**
+     * Returns the scratch buffers of the current thread.
+     * 
+     * @return the buffers
+     */
+    protected Scratch getScratch() {
+
+      Scratch scratch = m_Scratch.get();
+      if (scratch == null) {
+        scratch = new Scratch(this);
+        m_Scratch.set(scratch);
+      }
+      return scratch;
+    }
+  }
+
+  /**
+   * The buffers a thread needs to grow trees from presorted data. The arrays
+   * indexed by row are as long as the presorted data, the others are reused
+   * for evaluating the split on an attribute.
+   */
+  protected static class Scratch {
+
+    /** The tree being grown; rows are in the tree if marked with it. */
+    protected int m_Stamp;
+
+    /** The stamp of the tree each row was last used in. */
+    protected int[] m_Mark;
+
+    /** The weight of each row in the current tree. */
+    protected double[] m_Weights;
+
+    /** The branch each row of the node being split goes down. */
+    protected int[] m_Branch;
+
+    /** The rows of the tree, grouped by node. */
+    protected int[] m_Members;
+
+    /** The rows of the tree by numeric attribute, sorted within each node. */
+    protected int[][] m_Sorted;
+
+    /** Buffer for partitioning the rows of a node. */
+    protected int[] m_Tmp;
+
+    /** Class distributions (or sums) by attribute and subset. */
+    protected double[][][] m_Dists;
+
+    /** Subset proportions by attribute. */
+    protected double[][] m_Props;
+
+    /** Sums of class values by attribute and subset (numeric class). */
+    protected double[][] m_Sums;
+
+    /** Sums of squared class values by attribute and subset (numeric class). */
+    protected double[][] m_SumSquared;
+
+    /** Sums of weights by attribute and subset (numeric class). */
+    protected double[][] m_SumOfWeights;
+
+    /** Running class distribution for numeric attributes (nominal class). */
+    protected double[][] m_CurrDist;
+
+    /** The row of a histogram of only the bins with data, by bin. */
+    protected int[] m_BinSlots;
+
+    /** Flags for collecting the bins with data. */
+    protected boolean[] m_BinPresent;
+
+    /**
+     * Allocates the buffers.
+     * 
+     * @param data the presorted data
+     */
+    protected Scratch(PresortedData data) {
+
+      int numRows = data.numRows();
+      int numAttributes = data.m_Header.numAttributes();
+      int numClasses = data.m_Header.numClasses();
+      m_Mark = new int[numRows];
+      m_Weights = new double[numRows];
+      m_Branch = new int[numRows];
+      m_Members = new int[numRows];
+      m_Tmp = new int[numRows];
+      m_Sorted = new int[numAttributes][];
+      m_Dists = new double[numAttributes][][];
+      m_Props = new double[numAttributes][];
+      m_Sums = new double[numAttributes][];
+      m_SumSquared = new double[numAttributes][];
+      m_SumOfWeights = new double[numAttributes][];
+      m_CurrDist = new double[2][numClasses];
+      m_BinSlots = new int[AttributeBins.MAX_BINS];
+      m_BinPresent = new boolean[AttributeBins.MAX_BINS];
+      for (int j = 0; j < numAttributes; j++) {
+        if (data.m_Order[j] != null) {
+          m_Sorted[j] = new int[numRows];
+        }
+        if (j != data.m_Header.classIndex()) {
+          Attribute attribute = data.m_Header.attribute(j);
+          int numSubsets = attribute.isNominal() ? attribute.numValues() : 2;
+          m_Dists[j] = new double[numSubsets][numClasses];
+          m_Props[j] = new double[numSubsets];
+          m_Sums[j] = new double[numSubsets];
+          m_SumSquared[j] = new double[numSubsets];
+          m_SumOfWeights[j] = new double[numSubsets];
+        }
+      }
+    }
+
+    /**
+     * Starts a new tree.
+     */
+    protected void nextTree() {
+
+      if (++m_Stamp == Integer.MAX_VALUE) {
+        Arrays.fill(m_Mark, 0);
+        m_Stamp = 1;
+      }
+    }
+  }
+
+  /**
+   * The histogram of an attribute at a node, for growing trees in histogram
+   * mode.
+   */
+  protected static class Histogram {
+
+    /** The class distribution or sums, by bin or nominal value. */
+    protected double[][] m_Counts;
+
+    /**
+     * The bin of each row of the counts, if only the bins with data are
+     * included; null if there is a row for every bin or nominal value.
+     */
+    protected int[] m_Bins;
+
+    /**
+     * Returns the bin (or nominal value) of a row of the counts.
+     * 
+     * @param index the row of the counts
+     * @return the bin
+     */
+    protected int bin(int index) {
+      return (m_Bins != null) ? m_Bins[index] : index;
+    }
+  }
+
+  /**
+   * Grows a tree from presorted data, making the same choices as
+   * Tree.buildTree() does on the same training set. The instances at a node
+   * are a range of the member array and of the sorted array of each numeric
+   * attribute; splitting a node partitions these ranges in place, keeping the
+   * order of the rows within each branch, so nothing needs to be sorted again.
+   * Only handles data without missing values.
+   * <p/>
+   * 
+   * In histogram mode, splits are found from histograms of the bins (or
+   * nominal values) of the chosen attributes at each node. If the parent of a
+   * node has the histogram of an attribute, and the node has more rows than
+   * its siblings, the histogram is computed as the one of the parent minus the
+   * ones of the siblings, which only needs the rows of the siblings.
+   */
+  protected class PresortedBuilder {
+
+    /** The presorted data. */
+    protected PresortedData m_Data;
+
+    /** The buffers of the current thread. */
+    protected Scratch m_Scratch;
+
+    /** The class values by row. */
+    protected double[] m_ClassValues;
+
+    /** Whether the class is nominal. */
+    protected boolean m_NominalClass;
+
+    /** The number of rows in the tree. */
+    protected int m_NumMembers;
+
+    /** The gain of the split last evaluated by numericDistribution(). */
+    protected double m_VarianceGain;
+
+    /** Whether the numeric attributes are binned (histogram mode). */
+    protected boolean m_Binned;
+
+    /**
+     * Collects the rows of the training set and sorts them by each numeric
+     * attribute.
+     * 
+     * @param data the presorted data
+     * @param train the training set, instances with missing class are skipped
+     * @param rows the rows behind the instances of the training set, null if
+     *          instance i is row i
+     */
+    protected PresortedBuilder(PresortedData data, Instances train, int[] rows) {
+
+      m_Data = data;
+      m_Scratch = data.getScratch();
+      m_ClassValues = data.m_Columns[data.m_Header.classIndex()];
+      m_NominalClass = data.m_Header.classAttribute().isNominal();
+      m_Binned = (data.m_Bins != null);
+
+      Scratch scratch = m_Scratch;
+      scratch.nextTree();
+      int stamp = scratch.m_Stamp;
+      int[] mark = scratch.m_Mark;
+      double[] weights = scratch.m_Weights;
+      for (int i = 0; i < train.numInstances(); i++) {
+        Instance inst = train.instance(i);
+        if (inst.classIsMissing()) {
+          continue;
+        }
+        int row = (rows == null) ? i : rows[i];
+        if (mark[row] != stamp) {
+          mark[row] = stamp;
+          weights[row] = 0;
+        }
+        weights[row] += inst.weight();
+      }
+
+      int[] members = scratch.m_Members;
+      int numMembers = 0;
+      for (int row = 0; row < mark.length; row++) {
+        if (mark[row] == stamp) {
+          members[numMembers++] = row;
+        }
+      }
+      m_NumMembers = numMembers;
+
+      for (int j = 0; j < data.m_Order.length; j++) {
+        if (data.m_Order[j] != null) {
+          int[] order = data.m_Order[j];
+          int[] sorted = scratch.m_Sorted[j];
+          int n = 0;
+          for (int row : order) {
+            if (mark[row] == stamp) {
+              sorted[n++] = row;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Grows the tree.
+     * 
+     * @param tree the root of the tree
+     * @param classProbs the class distribution
+     * @param attIndicesWindow the attribute window to choose attributes from
+     * @param totalWeight the total weight of the training set
+     * @param random random number generator for choosing random attributes
+     * @param minVariance minimum variance for a split (numeric class)
+     * @throws Exception if generation fails
+     */
+    protected void buildTree(Tree tree, double[] classProbs,
+      int[] attIndicesWindow, double totalWeight, Random random,
+      double minVariance) throws Exception {
+
+      buildTree(tree, 0, m_NumMembers, classProbs, attIndicesWindow,
+        totalWeight, random, 0, minVariance, null, 0, 0);
+    }
+
+    /**
+     * Grows the subtree for the members in the given range. Mirrors
+     * Tree.buildTree().
+     * 
+     * @param node the node to grow
+     * @param start the first member of the node
+     * @param end the end of the members of the node (exclusive)
+     * @param classProbs the class distribution
+     * @param attIndicesWindow the attribute window to choose attributes from
+     * @param totalWeight the total weight (numeric class)
+     * @param random random number generator for choosing random attributes
+     * @param depth the current depth
+     * @param minVariance minimum variance for a split (numeric class)
+     * @param parentHists the histograms computed at the parent, by attribute
+     *          (histogram mode, null at the root)
+     * @param parentStart the first member of the parent
+     * @param parentEnd the end of the members of the parent (exclusive)
+     * @throws Exception if generation fails
+     */
+    protected void buildTree(Tree node, int start, int end,
+      double[] classProbs, int[] attIndicesWindow, double totalWeight,
+      Random random, int depth, double minVariance, Histogram[] parentHists,
+      int parentStart, int parentEnd) throws Exception {
+
+      int[] members = m_Scratch.m_Members;
+      double[] weights = m_Scratch.m_Weights;
+
+      // Make leaf if there are no training instances
+      if (start == end) {
+        node.m_Attribute = -1;
+        node.m_ClassDistribution = null;
+        node.m_Prop = null;
+
+        if (!m_NominalClass) {
+          node.m_Distribution = new double[2];
+        }
+        return;
+      }
+
+      double priorVar = 0;
+      if (!m_NominalClass) {
+
+        // Compute prior variance
+        double totalSum = 0, totalSumSquared = 0, totalSumOfWeights = 0;
+        for (int i = start; i < end; i++) {
+          int row = members[i];
+          double classValue = m_ClassValues[row];
+          totalSum += classValue * weights[row];
+          totalSumSquared += classValue * classValue * weights[row];
+          totalSumOfWeights += weights[row];
+        }
+        priorVar =
+          RandomTree.singleVariance(totalSum, totalSumSquared,
+            totalSumOfWeights);
+      }
+
+      // Check if node doesn't contain enough instances or is pure
+      // or maximum depth reached
+      if (m_NominalClass) {
+        totalWeight = Utils.sum(classProbs);
+      }
+      if (totalWeight < 2 * m_MinNum
+        || (m_NominalClass && Utils.eq(classProbs[Utils.maxIndex(classProbs)],
+          Utils.sum(classProbs)))
+        || (!m_NominalClass && priorVar / totalWeight < minVariance)
+        || ((getMaxDepth() > 0) && (depth >= getMaxDepth()))) {
+
+        // Make leaf
+        node.m_Attribute = -1;
+        node.m_ClassDistribution = classProbs.clone();
+        if (!m_NominalClass) {
+          node.m_Distribution = new double[2];
+          node.m_Distribution[0] = priorVar;
+          node.m_Distribution[1] = totalWeight;
+        }
+
+        node.m_Prop = null;
+        return;
+      }
+
+      // Compute class distributions and value of splitting
+      // criterion for each attribute
+      double val = -Double.MAX_VALUE;
+      double split = -Double.MAX_VALUE;
+      double[][] bestDists = null;
+      double[] bestProps = null;
+      double[] bestSubsetWeights = null;
+      int bestIndex = 0;
+      Histogram[] hists =
+        m_Binned ? new Histogram[m_Data.m_Header.numAttributes()] : null;
+
+      // Investigate K random attributes
+      int attIndex = 0;
+      int windowSize = attIndicesWindow.length;
+      int k = m_KValue;
+      boolean gainFound = false;
+      while ((windowSize > 0) && (k-- > 0 || !gainFound)) {
+
+        int chosenIndex = random.nextInt(windowSize);
+        attIndex = attIndicesWindow[chosenIndex];
+
+        // shift chosen attIndex out of window
+        attIndicesWindow[chosenIndex] = attIndicesWindow[windowSize - 1];
+        attIndicesWindow[windowSize - 1] = attIndex;
+        windowSize--;
+
+        double currSplit;
+        double currVal;
+        if (m_Binned) {
+          hists[attIndex] =
+            histogram(attIndex, start, end, parentHists, parentStart,
+              parentEnd);
+        }
+        if (m_Binned && m_NominalClass) {
+          currSplit = binnedDistribution(node, attIndex, hists[attIndex]);
+          double[][] dist = m_Scratch.m_Dists[attIndex];
+          currVal = node.gain(dist, node.priorVal(dist));
+        } else if (m_Binned) {
+          currSplit = binnedNumericDistribution(attIndex, hists[attIndex]);
+          currVal = m_VarianceGain;
+        } else if (m_NominalClass) {
+          currSplit = distribution(node, attIndex, start, end);
+          double[][] dist = m_Scratch.m_Dists[attIndex];
+          currVal = node.gain(dist, node.priorVal(dist));
+        } else {
+          currSplit = numericDistribution(attIndex, start, end);
+          currVal = m_VarianceGain;
+        }
+
+        if (Utils.gr(currVal, 0)) {
+          gainFound = true;
+        }
+
+        if ((currVal > val)
+          || ((!getBreakTiesRandomly()) && (currVal == val) && (attIndex < bestIndex))) {
+          val = currVal;
+          bestIndex = attIndex;
+          split = currSplit;
+
+          // Keep copies, the buffers are reused for the next attribute
+          bestProps = m_Scratch.m_Props[attIndex].clone();
+          double[][] dist = m_Scratch.m_Dists[attIndex];
+          bestDists = new double[dist.length][];
+          for (int i = 0; i < dist.length; i++) {
+            bestDists[i] = dist[i].clone();
+          }
+          if (!m_NominalClass) {
+            bestSubsetWeights = m_Scratch.m_SumOfWeights[attIndex].clone();
+          }
+        }
+      }
+
+      // Find best attribute
+      node.m_Attribute = bestIndex;
+
+      // Any useful split found?
+      if (Utils.gr(val, 0)) {
+        if (m_computeImpurityDecreases) {
+          m_impurityDecreasees[node.m_Attribute][0] += val;
+          m_impurityDecreasees[node.m_Attribute][1]++;
+        }
+
+        // Build subtrees
+        node.m_SplitPoint = split;
+        node.m_Prop = bestProps;
+        int[] bounds = partition(bestIndex, split, bestDists.length, start, end);
+        node.m_Successors = new Tree[bestDists.length];
+
+        for (int i = 0; i < bestDists.length; i++) {
+          node.m_Successors[i] = new Tree();
+          buildTree(node.m_Successors[i], bounds[i], bounds[i + 1],
+            bestDists[i], attIndicesWindow, m_NominalClass ? 0
+              : bestSubsetWeights[i], random, depth + 1, minVariance, hists,
+            start, end);
+        }
+
+        // If all successors are non-empty, we don't need to store the class
+        // distribution
+        boolean emptySuccessor = false;
+        for (int i = 0; i < bestDists.length; i++) {
+          if (node.m_Successors[i].m_ClassDistribution == null) {
+            emptySuccessor = true;
+            break;
+          }
+        }
+        if (emptySuccessor) {
+          node.m_ClassDistribution = classProbs.clone();
+        }
+      } else {
+
+        // Make leaf
+        node.m_Attribute = -1;
+        node.m_ClassDistribution = classProbs.clone();
+        if (!m_NominalClass) {
+          node.m_Distribution = new double[2];
+          node.m_Distribution[0] = priorVar;
+          node.m_Distribution[1] = totalWeight;
+        }
+      }
+    }
+
+    /**
+     * Computes the class distribution for an attribute and stores it, together
+     * with the subset proportions, in the scratch buffers for the attribute.
+     * Mirrors Tree.distribution().
+     * 
+     * @param node the node being grown
+     * @param att the attribute index
+     * @param start the first member of the node
+     * @param end the end of the members of the node (exclusive)
+     * @return the split point (numeric attribute)
+     */
+    protected double distribution(Tree node, int att, int start, int end) {
+
+      double splitPoint = Double.NaN;
+      double[] column = m_Data.m_Columns[att];
+      double[] weights = m_Scratch.m_Weights;
+      double[][] dist = m_Scratch.m_Dists[att];
+      for (double[] element : dist) {
+        Arrays.fill(element, 0);
+      }
+
+      if (m_Data.m_Order[att] == null) {
+
+        // For nominal attributes
+        int[] members = m_Scratch.m_Members;
+        for (int i = start; i < end; i++) {
+          int row = members[i];
+          dist[(int) column[row]][(int) m_ClassValues[row]] += weights[row];
+        }
+      } else {
+
+        // For numeric attributes
+        int[] sorted = m_Scratch.m_Sorted[att];
+        double[][] currDist = m_Scratch.m_CurrDist;
+        Arrays.fill(currDist[0], 0);
+        Arrays.fill(currDist[1], 0);
+
+        // Move all instances into second subset
+        for (int i = start; i < end; i++) {
+          int row = sorted[i];
+          currDist[1][(int) m_ClassValues[row]] += weights[row];
+        }
+
+        // Value before splitting
+        double priorVal = node.priorVal(currDist);
+
+        // Save initial distribution
+        for (int j = 0; j < currDist.length; j++) {
+          System.arraycopy(currDist[j], 0, dist[j], 0, dist[j].length);
+        }
+
+        // Try all possible split points
+        double currSplit = column[sorted[start]];
+        double currVal, bestVal = -Double.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+          int row = sorted[i];
+          double attVal = column[row];
+
+          // Can we place a sensible split point here?
+          if (attVal > currSplit) {
+
+            // Compute gain for split point
+            currVal = node.gain(currDist, priorVal);
+
+            // Is the current split point the best point so far?
+            if (currVal > bestVal) {
+
+              // Store value of current point
+              bestVal = currVal;
+
+              // Save split point
+              splitPoint = (attVal + currSplit) / 2.0;
+
+              // Check for numeric precision problems
+              if (splitPoint <= currSplit) {
+                splitPoint = attVal;
+              }
+
+              // Save distribution
+              for (int j = 0; j < currDist.length; j++) {
+                System.arraycopy(currDist[j], 0, dist[j], 0, dist[j].length);
+              }
+            }
+
+            // Update value
+            currSplit = attVal;
+          }
+
+          // Shift over the weight
+          int classVal = (int) m_ClassValues[row];
+          currDist[0][classVal] += weights[row];
+          currDist[1][classVal] -= weights[row];
+        }
+      }
+
+      // Compute weights for subsets
+      double[] props = m_Scratch.m_Props[att];
+      for (int k = 0; k < props.length; k++) {
+        props[k] = Utils.sum(dist[k]);
+      }
+      if (Utils.eq(Utils.sum(props), 0)) {
+        for (int k = 0; k < props.length; k++) {
+          props[k] = 1.0 / props.length;
+        }
+      } else {
+        Utils.normalize(props);
+      }
+
+      return splitPoint;
+    }
+
+    /**
+     * Computes the numeric class distribution for an attribute and stores it,
+     * together with the subset proportions and weights, in the scratch buffers
+     * for the attribute. The gain is left in m_VarianceGain. Mirrors
+     * Tree.numericDistribution().
+     * 
+     * @param att the attribute index
+     * @param start the first member of the node
+     * @param end the end of the members of the node (exclusive)
+     * @return the split point (numeric attribute)
+     */
+    protected double numericDistribution(int att, int start, int end) {
+
+      double splitPoint = Double.NaN;
+      double[] column = m_Data.m_Columns[att];
+      double[] weights = m_Scratch.m_Weights;
+      double[] sums = m_Scratch.m_Sums[att];
+      double[] sumSquared = m_Scratch.m_SumSquared[att];
+      double[] sumOfWeights = m_Scratch.m_SumOfWeights[att];
+      double totalSum = 0, totalSumSquared = 0, totalSumOfWeights = 0;
+      Arrays.fill(sums, 0);
+      Arrays.fill(sumSquared, 0);
+      Arrays.fill(sumOfWeights, 0);
+
+      if (m_Data.m_Order[att] == null) {
+
+        // For nominal attributes
+        int[] members = m_Scratch.m_Members;
+        for (int i = start; i < end; i++) {
+          int row = members[i];
+          int attVal = (int) column[row];
+          double classValue = m_ClassValues[row];
+          sums[attVal] += classValue * weights[row];
+          sumSquared[attVal] += classValue * classValue * weights[row];
+          sumOfWeights[attVal] += weights[row];
+        }
+
+        totalSum = Utils.sum(sums);
+        totalSumSquared = Utils.sum(sumSquared);
+        totalSumOfWeights = Utils.sum(sumOfWeights);
+      } else {
+
+        // For numeric attributes
+        int[] sorted = m_Scratch.m_Sorted[att];
+        double currSums0 = 0, currSumSquared0 = 0, currSumOfWeights0 = 0;
+        double currSums1 = 0, currSumSquared1 = 0, currSumOfWeights1 = 0;
+
+        // Move all instances into second subset
+        for (int i = start; i < end; i++) {
+          int row = sorted[i];
+          double classValue = m_ClassValues[row];
+          currSums1 += classValue * weights[row];
+          currSumSquared1 += classValue * classValue * weights[row];
+          currSumOfWeights1 += weights[row];
+        }
+
+        totalSum = currSums1;
+        totalSumSquared = currSumSquared1;
+        totalSumOfWeights = currSumOfWeights1;
+
+        sums[1] = currSums1;
+        sumSquared[1] = currSumSquared1;
+        sumOfWeights[1] = currSumOfWeights1;
+
+        // Try all possible split points
+        double currSplit = column[sorted[start]];
+        double currVal, bestVal = Double.MAX_VALUE;
+
+        for (int i = start; i < end; i++) {
+          int row = sorted[i];
+          double attVal = column[row];
+
+          if (attVal > currSplit) {
+            currVal = 0;
+            if (currSumOfWeights0 > 0) {
+              currVal +=
+                singleVariance(currSums0, currSumSquared0, currSumOfWeights0);
+            }
+            if (currSumOfWeights1 > 0) {
+              currVal +=
+                singleVariance(currSums1, currSumSquared1, currSumOfWeights1);
+            }
+            if (currVal < bestVal) {
+              bestVal = currVal;
+              splitPoint = (attVal + currSplit) / 2.0;
+
+              // Check for numeric precision problems
+              if (splitPoint <= currSplit) {
+                splitPoint = attVal;
+              }
+
+              sums[0] = currSums0;
+              sumSquared[0] = currSumSquared0;
+              sumOfWeights[0] = currSumOfWeights0;
+              sums[1] = currSums1;
+              sumSquared[1] = currSumSquared1;
+              sumOfWeights[1] = currSumOfWeights1;
+            }
+          }
+
+          currSplit = attVal;
+
+          double classVal = m_ClassValues[row] * weights[row];
+          double classValSquared = m_ClassValues[row] * classVal;
+
+          currSums0 += classVal;
+          currSumSquared0 += classValSquared;
+          currSumOfWeights0 += weights[row];
+
+          currSums1 -= classVal;
+          currSumSquared1 -= classValSquared;
+          currSumOfWeights1 -= weights[row];
+        }
+      }
+
+      // Compute weights
+      double[] props = m_Scratch.m_Props[att];
+      System.arraycopy(sumOfWeights, 0, props, 0, props.length);
+      if (!(Utils.sum(props) > 0)) {
+        for (int k = 0; k < props.length; k++) {
+          props[k] = 1.0 / props.length;
+        }
+      } else {
+        Utils.normalize(props);
+      }
+
+      // Compute final distribution
+      double[][] dist = m_Scratch.m_Dists[att];
+      for (int j = 0; j < sums.length; j++) {
+        if (sumOfWeights[j] > 0) {
+          dist[j][0] = sums[j] / sumOfWeights[j];
+        } else {
+          dist[j][0] = totalSum / totalSumOfWeights;
+        }
+      }
+
+      // Compute variance gain
+      double priorVar =
+        singleVariance(totalSum, totalSumSquared, totalSumOfWeights);
+      double var = variance(sums, sumSquared, sumOfWeights);
+      m_VarianceGain = priorVar - var;
+
+      return splitPoint;
+    }
+
+    /**
+     * Computes the histogram of an attribute at a node: the class
+     * distribution (nominal class) or the sums of class values, squared class
+     * values and weights (numeric class) for each bin or nominal value. Uses
+     * the histogram of the parent if the siblings have fewer rows. Numeric
+     * attributes get a histogram of only the bins with data if the node has
+     * fewer rows than there are bins.
+     * 
+     * @param att the attribute index
+     * @param start the first member of the node
+     * @param end the end of the members of the node (exclusive)
+     * @param parentHists the histograms of the parent, null at the root
+     * @param parentStart the first member of the parent
+     * @param parentEnd the end of the members of the parent (exclusive)
+     * @return the histogram
+     */
+    protected Histogram histogram(int att, int start, int end,
+      Histogram[] parentHists, int parentStart, int parentEnd) {
+
+      int width = m_NominalClass ? m_Data.m_Header.numClasses() : 3;
+      int numValues = m_Data.numValues(att);
+      Histogram histogram = new Histogram();
+
+      if ((m_Data.m_Bins[att] != null) && (end - start < numValues)) {
+        histogram.m_Bins = presentBins(att, start, end);
+        histogram.m_Counts = new double[histogram.m_Bins.length][width];
+        int[] slots = m_Scratch.m_BinSlots;
+        for (int i = 0; i < histogram.m_Bins.length; i++) {
+          slots[histogram.m_Bins[i]] = i;
+        }
+        addToHistogram(histogram.m_Counts, slots, att, start, end, 1);
+        return histogram;
+      }
+
+      double[][] hist = new double[numValues][width];
+      histogram.m_Counts = hist;
+      if ((parentHists != null) && (parentHists[att] != null)
+        && (parentHists[att].m_Bins == null)
+        && ((parentEnd - parentStart) - (end - start) < end - start)) {
+        double[][] parentHist = parentHists[att].m_Counts;
+        addToHistogram(hist, null, att, parentStart, start, -1);
+        addToHistogram(hist, null, att, end, parentEnd, -1);
+        for (int i = 0; i < hist.length; i++) {
+          for (int j = 0; j < hist[i].length; j++) {
+            double value = parentHist[i][j] + hist[i][j];
+
+            // Remove rounding errors left over from subtracting
+            if (Math.abs(value) <= 1e-10 * Math.abs(parentHist[i][j])) {
+              value = 0;
+            }
+            hist[i][j] = value;
+          }
+        }
+      } else {
+        addToHistogram(hist, null, att, start, end, 1);
+      }
+
+      return histogram;
+    }
+
+    /**
+     * Returns the bins of a binned attribute that hold rows of a node.
+     * 
+     * @param att the attribute index
+     * @param start the first member of the node
+     * @param end the end of the members of the node (exclusive)
+     * @return the bins with data, in ascending order
+     */
+    protected int[] presentBins(int att, int start, int end) {
+
+      int[] members = m_Scratch.m_Members;
+      byte[] bins = m_Data.m_Bins[att];
+      boolean[] present = m_Scratch.m_BinPresent;
+      int[] result = new int[Math.min(end - start, present.length)];
+      int num = 0;
+      for (int i = start; i < end; i++) {
+        int bin = bins[members[i]] & 0xFF;
+        if (!present[bin]) {
+          present[bin] = true;
+          result[num++] = bin;
+        }
+      }
+      for (int i = 0; i < num; i++) {
+        present[result[i]] = false;
+      }
+      result = Arrays.copyOf(result, num);
+      Arrays.sort(result);
+
+      return result;
+    }
+
+    /**
+     * Adds the members in the given range to a histogram.
+     * 
+     * @param hist the histogram
+     * @param slots the row of the histogram for each bin, null if the
+     *          histogram has a row for every bin or nominal value
+     * @param att the attribute index
+     * @param start the first member
+     * @param end the end of the members (exclusive)
+     * @param sign 1 to add, -1 to subtract the members
+     */
+    protected void addToHistogram(double[][] hist, int[] slots, int att,
+      int start, int end, double sign) {
+
+      int[] members = m_Scratch.m_Members;
+      double[] weights = m_Scratch.m_Weights;
+      double[] column = m_Data.m_Columns[att];
+      byte[] bins = m_Data.m_Bins[att];
+      for (int i = start; i < end; i++) {
+        int row = members[i];
+        int value = (bins != null) ? bins[row] & 0xFF : (int) column[row];
+        if (slots != null) {
+          value = slots[value];
+        }
+        double weight = sign * weights[row];
+        if (m_NominalClass) {
+          hist[value][(int) m_ClassValues[row]] += weight;
+        } else {
+          double classValue = m_ClassValues[row];
+          hist[value][0] += classValue * weight;
+          hist[value][1] += classValue * classValue * weight;
+          hist[value][2] += weight;
+        }
+      }
+    }
+
+    /**
+     * Computes the class distribution for an attribute from its histogram and
+     * stores it, together with the subset proportions, in the scratch buffers
+     * for the attribute. Split points of numeric attributes are only
+     * considered between bins.
+     * 
+     * @param node the node being grown
+     * @param att the attribute index
+     * @param histogram the histogram of the attribute
+     * @return the split point (numeric attribute)
+     */
+    protected double binnedDistribution(Tree node, int att,
+      Histogram histogram) {
+
+      double[][] hist = histogram.m_Counts;
+      double splitPoint = Double.NaN;
+      double[][] dist = m_Scratch.m_Dists[att];
+
+      if (m_Data.m_Bins[att] == null) {
+
+        // For nominal attributes
+        for (int i = 0; i < dist.length; i++) {
+          System.arraycopy(hist[i], 0, dist[i], 0, dist[i].length);
+        }
+      } else {
+
+        // For numeric attributes
+        double[][] currDist = m_Scratch.m_CurrDist;
+        Arrays.fill(currDist[0], 0);
+        Arrays.fill(currDist[1], 0);
+
+        // Move all bins into second subset
+        for (double[] binDist : hist) {
+          for (int j = 0; j < binDist.length; j++) {
+            currDist[1][j] += binDist[j];
+          }
+        }
+
+        // Value before splitting
+        double priorVal = node.priorVal(currDist);
+
+        // Save initial distribution
+        for (int j = 0; j < currDist.length; j++) {
+          System.arraycopy(currDist[j], 0, dist[j], 0, dist[j].length);
+        }
+
+        // Try all split points between bins with data
+        int lastBin = -1;
+        double currVal, bestVal = -Double.MAX_VALUE;
+        for (int b = 0; b < hist.length; b++) {
+          if (!(Utils.sum(hist[b]) > 0)) {
+            continue;
+          }
+          int bin = histogram.bin(b);
+          if (lastBin >= 0) {
+            currVal = node.gain(currDist, priorVal);
+            if (currVal > bestVal) {
+              bestVal = currVal;
+              splitPoint =
+                m_Data.m_Thresholds[att][AttributeBins.splitBin(lastBin, bin) - 1];
+              for (int j = 0; j < currDist.length; j++) {
+                System.arraycopy(currDist[j], 0, dist[j], 0, dist[j].length);
+              }
+            }
+          }
+          lastBin = bin;
+
+          // Shift over the bin
+          for (int j = 0; j < hist[b].length; j++) {
+            currDist[0][j] += hist[b][j];
+            currDist[1][j] -= hist[b][j];
+          }
+        }
+      }
+
+      // Compute weights for subsets
+      double[] props = m_Scratch.m_Props[att];
+      for (int k = 0; k < props.length; k++) {
+        props[k] = Utils.sum(dist[k]);
+      }
+      if (Utils.eq(Utils.sum(props), 0)) {
+        for (int k = 0; k < props.length; k++) {
+          props[k] = 1.0 / props.length;
+        }
+      } else {
+        Utils.normalize(props);
+      }
+
+      return splitPoint;
+    }
+
+    /**
+     * Computes the numeric class distribution for an attribute from its
+     * histogram and stores it, together with the subset proportions and
+     * weights, in the scratch buffers for the attribute. The gain is left in
+     * m_VarianceGain. Split points of numeric attributes are only considered
+     * between bins.
+     * 
+     * @param att the attribute index
+     * @param histogram the histogram of the attribute
+     * @return the split point (numeric attribute)
+     */
+    protected double binnedNumericDistribution(int att, Histogram histogram) {
+
+      double[][] hist = histogram.m_Counts;
+      double splitPoint = Double.NaN;
+      double[] sums = m_Scratch.m_Sums[att];
+      double[] sumSquared = m_Scratch.m_SumSquared[att];
+      double[] sumOfWeights = m_Scratch.m_SumOfWeights[att];
+      double totalSum = 0, totalSumSquared = 0, totalSumOfWeights = 0;
+
+      if (m_Data.m_Bins[att] == null) {
+
+        // For nominal attributes
+        for (int i = 0; i < sums.length; i++) {
+          sums[i] = hist[i][0];
+          sumSquared[i] = hist[i][1];
+          sumOfWeights[i] = hist[i][2];
+        }
+
+        totalSum = Utils.sum(sums);
+        totalSumSquared = Utils.sum(sumSquared);
+        totalSumOfWeights = Utils.sum(sumOfWeights);
+      } else {
+
+        // For numeric attributes
+        double currSums0 = 0, currSumSquared0 = 0, currSumOfWeights0 = 0;
+        double currSums1 = 0, currSumSquared1 = 0, currSumOfWeights1 = 0;
+
+        // Move all bins into second subset
+        for (double[] bin : hist) {
+          currSums1 += bin[0];
+          currSumSquared1 += bin[1];
+          currSumOfWeights1 += bin[2];
+        }
+
+        totalSum = currSums1;
+        totalSumSquared = currSumSquared1;
+        totalSumOfWeights = currSumOfWeights1;
+
+        sums[0] = 0;
+        sumSquared[0] = 0;
+        sumOfWeights[0] = 0;
+        sums[1] = currSums1;
+        sumSquared[1] = currSumSquared1;
+        sumOfWeights[1] = currSumOfWeights1;
+
+        // Try all split points between bins with data
+        int lastBin = -1;
+        double currVal, bestVal = Double.MAX_VALUE;
+        for (int b = 0; b < hist.length; b++) {
+          if (!(hist[b][2] > 0)) {
+            continue;
+          }
+          int bin = histogram.bin(b);
+          if (lastBin >= 0) {
+            currVal = 0;
+            if (currSumOfWeights0 > 0) {
+              currVal +=
+                singleVariance(currSums0, currSumSquared0, currSumOfWeights0);
+            }
+            if (currSumOfWeights1 > 0) {
+              currVal +=
+                singleVariance(currSums1, currSumSquared1, currSumOfWeights1);
+            }
+            if (currVal < bestVal) {
+              bestVal = currVal;
+              splitPoint =
+                m_Data.m_Thresholds[att][AttributeBins.splitBin(lastBin, bin) - 1];
+              sums[0] = currSums0;
+              sumSquared[0] = currSumSquared0;
+              sumOfWeights[0] = currSumOfWeights0;
+              sums[1] = currSums1;
+              sumSquared[1] = currSumSquared1;
+              sumOfWeights[1] = currSumOfWeights1;
+            }
+          }
+          lastBin = bin;
+
+          // Shift over the bin
+          currSums0 += hist[b][0];
+          currSumSquared0 += hist[b][1];
+          currSumOfWeights0 += hist[b][2];
+
+          currSums1 -= hist[b][0];
+          currSumSquared1 -= hist[b][1];
+          currSumOfWeights1 -= hist[b][2];
+        }
+      }
+
+      // Compute weights
+      double[] props = m_Scratch.m_Props[att];
+      System.arraycopy(sumOfWeights, 0, props, 0, props.length);
+      if (!(Utils.sum(props) > 0)) {
+        for (int k = 0; k < props.length; k++) {
+          props[k] = 1.0 / props.length;
+        }
+      } else {
+        Utils.normalize(props);
+      }
+
+      // Compute final distribution
+      double[][] dist = m_Scratch.m_Dists[att];
+      for (int j = 0; j < sums.length; j++) {
+        if (sumOfWeights[j] > 0) {
+          dist[j][0] = sums[j] / sumOfWeights[j];
+        } else {
+          dist[j][0] = totalSum / totalSumOfWeights;
+        }
+      }
+
+      // Compute variance gain
+      double priorVar =
+        singleVariance(totalSum, totalSumSquared, totalSumOfWeights);
+      double var = variance(sums, sumSquared, sumOfWeights);
+      m_VarianceGain = priorVar - var;
+
+      return splitPoint;
+    }
+
+    /**
+     * Partitions the members of a node, and their order by each numeric
+     * attribute, into the branches of the split. The order of the rows within
+     * each branch is kept.
+     * 
+     * @param att the attribute split on
+     * @param splitPoint the split point (numeric attribute)
+     * @param numBranches the number of branches
+     * @param start the first member of the node
+     * @param end the end of the members of the node (exclusive)
+     * @return the start of the members of each branch, followed by end
+     */
+    protected int[] partition(int att, double splitPoint, int numBranches,
+      int start, int end) {
+
+      double[] column = m_Data.m_Columns[att];
+      byte[] bins = m_Binned ? m_Data.m_Bins[att] : null;
+      boolean nominal = m_Data.m_Header.attribute(att).isNominal();
+      int splitBin =
+        (bins != null) ? AttributeBins.bin(splitPoint, m_Data.m_Thresholds[att])
+          : 0;
+      int[] members = m_Scratch.m_Members;
+      int[] branch = m_Scratch.m_Branch;
+
+      int[] bounds = new int[numBranches + 1];
+      for (int i = start; i < end; i++) {
+        int row = members[i];
+        int b;
+        if (nominal) {
+          b = (int) column[row];
+        } else if (bins != null) {
+          b = ((bins[row] & 0xFF) < splitBin) ? 0 : 1;
+        } else {
+          b = (column[row] < splitPoint) ? 0 : 1;
+        }
+        branch[row] = b;
+        bounds[b + 1]++;
+      }
+      bounds[0] = start;
+      for (int b = 1; b <= numBranches; b++) {
+        bounds[b] += bounds[b - 1];
+      }
+
+      int[] next = new int[numBranches];
+      partition(members, start, end, bounds, next);
+      for (int[] sorted : m_Scratch.m_Sorted) {
+        if (sorted != null) {
+          partition(sorted, start, end, bounds, next);
+        }
+      }
+
+      return bounds;
+    }
+
+    /**
+     * Stable partition of a range of rows by the branch they go down.
+     * 
+     * @param rows the rows
+     * @param start the start of the range
+     * @param end the end of the range (exclusive)
+     * @param bounds the start of each branch
+     * @param next buffer for the next position in each branch
+     */
+    protected void partition(int[] rows, int start, int end, int[] bounds,
+      int[] next) {
+
+      int[] branch = m_Scratch.m_Branch;
+      int[] tmp = m_Scratch.m_Tmp;
+      System.arraycopy(bounds, 0, next, 0, next.length);
+      for (int i = start; i < end; i++) {
+        int row = rows[i];
+        tmp[next[branch[row]]++] = row;
+      }
+      System.arraycopy(tmp, start, rows, start, end - start);
+    }
+  }
+
   /**
    * Computes variance for subsets.
    * 
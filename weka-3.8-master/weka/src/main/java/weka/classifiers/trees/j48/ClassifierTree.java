@@ -87,6 +87,10 @@ public class ClassifierTree implements Drawable, Serializable, RevisionHandler,
     return m_isLeaf;
   }
 
+  public boolean isEmpty() {
+    return m_isEmpty;
+  }
+
   public Instances getTrainingData() {
     return m_train;
   }
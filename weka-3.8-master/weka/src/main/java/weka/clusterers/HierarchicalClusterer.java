@@ -27,8 +27,16 @@ import java.util.Locale;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
@@ -37,6 +45,7 @@ import weka.core.Drawable;
 import weka.core.EuclideanDistance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.NormalizableDistance;
 import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.RevisionUtils;
@@ -47,6 +56,17 @@ import weka.core.Utils;
 /**
  * <!-- globalinfo-start --> Hierarchical clustering class. Implements a number
  * of classic hierarchical clustering methods. <!-- globalinfo-end -->
+ * <p/>
+ * Single link clustering uses the SLINK algorithm, which only needs memory
+ * linear in the number of instances. Complete and average link clustering
+ * use the nearest-neighbor chain algorithm on a condensed distance matrix.
+ * The distances can be computed in parallel for these link types. <br/>
+ * <br/>
+ * R. Sibson (1973). SLINK: an optimally efficient algorithm for the
+ * single-link cluster method. The Computer Journal, 16(1):30-34. <br/>
+ * <br/>
+ * D. Muellner (2011). Modern hierarchical, agglomerative clustering
+ * algorithms. arXiv:1109.2378.
  * 
  * <!-- options-start --> Valid options are:
  * <p/>
@@ -83,6 +103,13 @@ import weka.core.Utils;
  * \If set, distance is interpreted as branch length, otherwise it is node height.
  * </pre>
  * 
+ * <pre>
+ * -num-slots &lt;num&gt;
+ *  Number of execution slots for computing the distances.
+ *  (default 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)
+ * </pre>
+ * 
  * <!-- options-end -->
  * 
  * 
@@ -106,6 +133,15 @@ public class HierarchicalClusterer extends AbstractClusterer implements
   /** number of clusters desired in clustering **/
   int m_nNumClusters = 2;
 
+  /**
+   * the number of rows of distances SLINK keeps in memory at a time, in
+   * entries
+   **/
+  protected static final int SLINK_BLOCK_SIZE = 1 << 20;
+
+  /** number of threads used to compute the distances **/
+  protected int m_NumExecutionSlots = 1;
+
   public void setNumClusters(int nClusters) {
     m_nNumClusters = Math.max(1, nClusters);
   }
@@ -330,6 +366,11 @@ public class HierarchicalClusterer extends AbstractClusterer implements
     Node[] clusterNodes = new Node[nInstances];
     if (m_nLinkType == NEIGHBOR_JOINING) {
       neighborJoining(nClusters, nClusterID, clusterNodes);
+    } else if (m_nLinkType == SINGLE && !m_Debug) {
+      slinkClustering(nClusterID, clusterNodes);
+    } else if ((m_nLinkType == COMPLETE || m_nLinkType == AVERAGE)
+      && !m_Debug) {
+      nnChainClustering(nClusterID, clusterNodes);
     } else {
       doLinkClustering(nClusters, nClusterID, clusterNodes);
     }
@@ -584,6 +625,368 @@ public class HierarchicalClusterer extends AbstractClusterer implements
     }
   } // doLinkClustering
 
+  /**
+   * Perform single link clustering with the SLINK algorithm, which builds the
+   * pointer representation of the hierarchy one instance at a time. This runs
+   * in O(n^2) time, but only needs O(n) memory since the distances from an
+   * instance to the previous ones are computed when the instance is added. The
+   * distances are computed a block of instances at a time, which allows
+   * spreading them over several threads.
+   * 
+   * @param nClusterID
+   * @param clusterNodes
+   * @throws Exception if the distances cannot be computed
+   */
+  void slinkClustering(Vector<Integer>[] nClusterID, Node[] clusterNodes)
+    throws Exception {
+    int n = m_instances.numInstances();
+    // instance i joins the cluster of instance nPointer[i] > i at height
+    // fPointerHeight[i]
+    int[] nPointer = new int[n];
+    double[] fPointerHeight = new double[n];
+    ExecutorService executorPool = createExecutorPool();
+    try {
+      int iFirst = 0;
+      while (iFirst < n) {
+        int iLast = iFirst + 1;
+        while (iLast < n
+          && triangle(iLast + 1) - triangle(iFirst) <= SLINK_BLOCK_SIZE) {
+          iLast++;
+        }
+        double[] fRows = new double[(int) (triangle(iLast) - triangle(iFirst))];
+        computeDistances(fRows, iFirst, iLast, executorPool);
+
+        int iOffset = 0;
+        for (int i = iFirst; i < iLast; i++) {
+          nPointer[i] = i;
+          fPointerHeight[i] = Double.POSITIVE_INFINITY;
+          // fRows[iOffset + j] holds the distance between instances i and j,
+          // and is updated to the distance between i and the cluster j
+          // represents
+          for (int j = 0; j < i; j++) {
+            double fDist = fRows[iOffset + j];
+            int k = iOffset + nPointer[j];
+            if (fPointerHeight[j] >= fDist) {
+              fRows[k] = Math.min(fRows[k], fPointerHeight[j]);
+              fPointerHeight[j] = fDist;
+              nPointer[j] = i;
+            } else {
+              fRows[k] = Math.min(fRows[k], fDist);
+            }
+          }
+          for (int j = 0; j < i; j++) {
+            if (fPointerHeight[j] >= fPointerHeight[nPointer[j]]) {
+              nPointer[j] = i;
+            }
+          }
+          iOffset += i;
+        }
+        iFirst = iLast;
+      }
+    } finally {
+      if (executorPool != null) {
+        executorPool.shutdownNow();
+      }
+    }
+
+    int[] nMerge1 = new int[n - 1];
+    int[] nMerge2 = new int[n - 1];
+    double[] fHeights = new double[n - 1];
+    for (int i = 0; i < n - 1; i++) {
+      nMerge1[i] = i;
+      nMerge2[i] = nPointer[i];
+      fHeights[i] = fPointerHeight[i];
+    }
+    applyMerges(nMerge1, nMerge2, fHeights, nClusterID, clusterNodes);
+  } // slinkClustering
+
+  /**
+   * Perform complete or average link clustering with the nearest-neighbor
+   * chain algorithm. This follows a chain of nearest neighbors until it finds
+   * two clusters that are each other's nearest neighbor, which can be merged
+   * straight away for these link types. The distances between the clusters
+   * are kept in a condensed distance matrix and updated with the
+   * Lance-Williams formula after each merge, giving an O(n^2) algorithm that
+   * needs n(n-1)/2 doubles of memory.
+   * 
+   * @param nClusterID
+   * @param clusterNodes
+   * @throws Exception if there are too many instances for the distance matrix
+   *           or the distances cannot be computed
+   */
+  void nnChainClustering(Vector<Integer>[] nClusterID, Node[] clusterNodes)
+    throws Exception {
+    int n = m_instances.numInstances();
+    if (triangle(n) > Integer.MAX_VALUE - 8) {
+      throw new Exception("Too many instances (" + n
+        + ") to store the distance matrix!");
+    }
+    double[] fDistance = new double[(int) triangle(n)];
+    ExecutorService executorPool = createExecutorPool();
+    try {
+      computeDistances(fDistance, 0, n, executorPool);
+    } finally {
+      if (executorPool != null) {
+        executorPool.shutdownNow();
+      }
+    }
+
+    // a cluster is stored at the index of one of its instances, the size of
+    // the other indices is zero
+    int[] nSize = new int[n];
+    for (int i = 0; i < n; i++) {
+      nSize[i] = 1;
+    }
+    int[] nChain = new int[n];
+    int nChainLength = 0;
+    int iFirstActive = 0;
+    int[] nMerge1 = new int[n - 1];
+    int[] nMerge2 = new int[n - 1];
+    double[] fHeights = new double[n - 1];
+    int nMerges = 0;
+    while (nMerges < n - 1) {
+      if (nChainLength == 0) {
+        while (nSize[iFirstActive] == 0) {
+          iFirstActive++;
+        }
+        nChain[nChainLength++] = iFirstActive;
+      }
+      // find the nearest neighbor of the cluster at the end of the chain,
+      // preferring its predecessor in the chain on ties
+      int i1 = nChain[nChainLength - 1];
+      int i2 = -1;
+      double fMinDistance = Double.MAX_VALUE;
+      if (nChainLength > 1) {
+        i2 = nChain[nChainLength - 2];
+        fMinDistance = fDistance[index(i1, i2)];
+      }
+      for (int i = iFirstActive; i < n; i++) {
+        if (i != i1 && nSize[i] > 0) {
+          double fDist = fDistance[index(i1, i)];
+          if (i2 < 0 || fDist < fMinDistance) {
+            fMinDistance = fDist;
+            i2 = i;
+          }
+        }
+      }
+      if (nChainLength == 1 || i2 != nChain[nChainLength - 2]) {
+        nChain[nChainLength++] = i2;
+        continue;
+      }
+
+      // the last two clusters of the chain are reciprocal nearest neighbors
+      nChainLength -= 2;
+      if (i1 > i2) {
+        int h = i1;
+        i1 = i2;
+        i2 = h;
+      }
+      nMerge1[nMerges] = i1;
+      nMerge2[nMerges] = i2;
+      fHeights[nMerges] = fMinDistance;
+      nMerges++;
+      for (int i = iFirstActive; i < n; i++) {
+        if (i != i1 && i != i2 && nSize[i] > 0) {
+          int k1 = index(i1, i);
+          double fDist1 = fDistance[k1];
+          double fDist2 = fDistance[index(i2, i)];
+          if (m_nLinkType == COMPLETE) {
+            fDistance[k1] = Math.max(fDist1, fDist2);
+          } else {
+            fDistance[k1] = (nSize[i1] * fDist1 + nSize[i2] * fDist2)
+              / (nSize[i1] + nSize[i2]);
+          }
+        }
+      }
+      nSize[i1] += nSize[i2];
+      nSize[i2] = 0;
+    }
+    applyMerges(nMerge1, nMerge2, fHeights, nClusterID, clusterNodes);
+  } // nnChainClustering
+
+  /**
+   * Builds the hierarchy from a complete list of merges, taking them in order
+   * of increasing distance until the desired number of clusters is left.
+   * Merges at equal distances are taken in the order they are listed in.
+   * 
+   * @param nMerge1 an instance of the first cluster of each merge
+   * @param nMerge2 an instance of the second cluster of each merge
+   * @param fHeights the distance between the clusters of each merge
+   * @param nClusterID
+   * @param clusterNodes
+   */
+  void applyMerges(int[] nMerge1, int[] nMerge2, final double[] fHeights,
+    Vector<Integer>[] nClusterID, Node[] clusterNodes) {
+    int n = nClusterID.length;
+    Integer[] nOrder = new Integer[fHeights.length];
+    for (int i = 0; i < nOrder.length; i++) {
+      nOrder[i] = i;
+    }
+    Arrays.sort(nOrder, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return Double.compare(fHeights[o1], fHeights[o2]);
+      }
+    });
+
+    // union-find structure, the root of a cluster is its smallest instance
+    int[] nParent = new int[n];
+    for (int i = 0; i < n; i++) {
+      nParent[i] = i;
+    }
+    for (int i = 0; i < n - m_nNumClusters; i++) {
+      int k = nOrder[i];
+      int iMin1 = findRoot(nParent, nMerge1[k]);
+      int iMin2 = findRoot(nParent, nMerge2[k]);
+      if (iMin1 > iMin2) {
+        int h = iMin1;
+        iMin1 = iMin2;
+        iMin2 = h;
+      }
+      nParent[iMin2] = iMin1;
+      addNode(iMin1, iMin2, fHeights[k], fHeights[k], clusterNodes);
+    }
+
+    for (int i = 0; i < n; i++) {
+      nClusterID[i].removeAllElements();
+    }
+    for (int i = 0; i < n; i++) {
+      nClusterID[findRoot(nParent, i)].add(i);
+    }
+  } // applyMerges
+
+  /**
+   * finds the root of an instance in a union-find structure
+   * 
+   * @param nParent the parents of the instances, roots are their own parent
+   * @param i the instance
+   * @return the root
+   */
+  static int findRoot(int[] nParent, int i) {
+    while (nParent[i] != i) {
+      nParent[i] = nParent[nParent[i]];
+      i = nParent[i];
+    }
+    return i;
+  } // findRoot
+
+  /**
+   * returns the number of entries in the rows of a lower triangular distance
+   * matrix (without its diagonal) before row i
+   * 
+   * @param i the row
+   * @return the offset of row i
+   */
+  static long triangle(int i) {
+    return (long) i * (i - 1) / 2;
+  } // triangle
+
+  /**
+   * returns the index of the distance between two instances in a condensed
+   * distance matrix
+   * 
+   * @param i1 the first instance
+   * @param i2 the second instance, different from the first
+   * @return the index
+   */
+  static int index(int i1, int i2) {
+    if (i1 > i2) {
+      return (int) triangle(i1) + i2;
+    }
+    return (int) triangle(i2) + i1;
+  } // index
+
+  /**
+   * creates the threads to compute the distances with, if more than one
+   * execution slot is used and the distance function can be shared between
+   * threads
+   * 
+   * @return the threads, null if the distances are computed sequentially
+   * @throws Exception if the number of execution slots is invalid
+   */
+  ExecutorService createExecutorPool() throws Exception {
+    if (m_NumExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
+    int numSlots = (m_NumExecutionSlots == 0) ? Runtime.getRuntime()
+      .availableProcessors() : m_NumExecutionSlots;
+    if (numSlots == 1 || m_instances.numInstances() < 2
+      || !(m_DistanceFunction instanceof NormalizableDistance)) {
+      return null;
+    }
+    // make sure the distance function is initialized before it is shared
+    m_DistanceFunction.distance(m_instances.instance(0),
+      m_instances.instance(1));
+    return Executors.newFixedThreadPool(numSlots);
+  } // createExecutorPool
+
+  /**
+   * computes the distances from the instances i in [iFirst, iLast) to the
+   * instances j < i, storing them row by row: the distance between i and j
+   * goes to fDistance[triangle(i) - triangle(iFirst) + j]. The rows are
+   * spread over the threads, if any.
+   * 
+   * @param fDistance the array to store the distances in
+   * @param iFirst the first row
+   * @param iLast the row after the last one
+   * @param executorPool the threads, null to compute the distances
+   *          sequentially
+   * @throws Exception if the distances cannot be computed
+   */
+  void computeDistances(final double[] fDistance, final int iFirst,
+    final int iLast, ExecutorService executorPool) throws Exception {
+    if (executorPool == null || iLast - iFirst < 2) {
+      computeDistances(fDistance, iFirst, iLast, iFirst, 1);
+      return;
+    }
+    int numSlots = (m_NumExecutionSlots == 0) ? Runtime.getRuntime()
+      .availableProcessors() : m_NumExecutionSlots;
+    final int nStep = Math.min(numSlots, iLast - iFirst);
+    List<Future<Void>> results = new ArrayList<Future<Void>>();
+    for (int t = 0; t < nStep; t++) {
+      final int iStart = iFirst + t;
+      results.add(executorPool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          computeDistances(fDistance, iFirst, iLast, iStart, nStep);
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> future : results) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      }
+    }
+  } // computeDistances
+
+  /**
+   * computes every nStep-th row of distances, starting with row iStart
+   * 
+   * @param fDistance the array to store the distances in
+   * @param iFirst the first row stored in the array
+   * @param iLast the row after the last one
+   * @param iStart the first row to compute
+   * @param nStep the step between the rows to compute
+   */
+  void computeDistances(double[] fDistance, int iFirst, int iLast,
+    int iStart, int nStep) {
+    long nOffset = triangle(iFirst);
+    for (int i = iStart; i < iLast; i += nStep) {
+      Instance instance = m_instances.instance(i);
+      int k = (int) (triangle(i) - nOffset);
+      for (int j = 0; j < i; j++) {
+        fDistance[k + j] = m_DistanceFunction.distance(m_instances.instance(j),
+          instance);
+      }
+    }
+  } // computeDistances
+
   void merge(int iMin1, int iMin2, double fDist1, double fDist2,
     Vector<Integer>[] nClusterID, Node[] clusterNodes) {
     if (m_Debug) {
@@ -601,7 +1004,21 @@ public class HierarchicalClusterer extends AbstractClusterer implements
     nClusterID[iMin1].addAll(nClusterID[iMin2]);
     nClusterID[iMin2].removeAllElements();
 
-    // track hierarchy
+    addNode(iMin1, iMin2, fDist1, fDist2, clusterNodes);
+  } // merge
+
+  /**
+   * track hierarchy: joins the nodes of two clusters into a new node, which
+   * replaces the node of the first cluster
+   * 
+   * @param iMin1 index of the first cluster, smaller than iMin2
+   * @param iMin2 index of the second cluster
+   * @param fDist1 distance (height or branch length) of the first cluster
+   * @param fDist2 distance (height or branch length) of the second cluster
+   * @param clusterNodes the nodes of the clusters
+   */
+  void addNode(int iMin1, int iMin2, double fDist1, double fDist2,
+    Node[] clusterNodes) {
     Node node = new Node();
     if (clusterNodes[iMin1] == null) {
       node.m_iLeftInstance = iMin1;
@@ -621,7 +1038,7 @@ public class HierarchicalClusterer extends AbstractClusterer implements
       node.setHeight(fDist1, fDist2);
     }
     clusterNodes[iMin1] = node;
-  } // merge
+  } // addNode
 
   /** calculate distance the first time when setting up the distance matrix **/
   double getDistance0(Vector<Integer> cluster1, Vector<Integer> cluster2) {
@@ -911,6 +1328,11 @@ public class HierarchicalClusterer extends AbstractClusterer implements
     newVector.add(new Option("\tDistance function to use.\n"
       + "\t(default: weka.core.EuclideanDistance)", "A", 1,
       "-A <classname and options>"));
+    newVector.addElement(new Option(
+      "\tNumber of execution slots for computing the distances.\n"
+        + "\t(default 1 - i.e. no parallelism)\n"
+        + "\t(use 0 to auto-detect number of cores)", "num-slots", 1,
+      "-num-slots <num>"));
 
     newVector.addAll(Collections.list(super.listOptions()));
 
@@ -985,6 +1407,13 @@ public class HierarchicalClusterer extends AbstractClusterer implements
       setDistanceFunction(new EuclideanDistance());
     }
 
+    String slotsString = Utils.getOption("num-slots", options);
+    if (slotsString.length() != 0) {
+      setNumExecutionSlots(Integer.parseInt(slotsString));
+    } else {
+      setNumExecutionSlots(1);
+    }
+
     super.setOptions(options);
   }
 
@@ -1039,6 +1468,11 @@ public class HierarchicalClusterer extends AbstractClusterer implements
     options.add((m_DistanceFunction.getClass().getName() + " " + Utils
       .joinOptions(m_DistanceFunction.getOptions())).trim());
 
+    if (getNumExecutionSlots() != 1) {
+      options.add("-num-slots");
+      options.add("" + getNumExecutionSlots());
+    }
+
     Collections.addAll(options, super.getOptions());
 
     return options.toArray(new String[0]);
@@ -1121,6 +1555,35 @@ public class HierarchicalClusterer extends AbstractClusterer implements
       + "depending on the Link type).";
   }
 
+  /**
+   * Gets the number of execution slots.
+   * 
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+    return m_NumExecutionSlots;
+  }
+
+  /**
+   * Sets the number of execution slots.
+   * 
+   * @param numSlots the number of execution slots (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_NumExecutionSlots = numSlots;
+  }
+
+  /**
+   * @return a string to describe the number of execution slots
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for computing the "
+      + "distances between the instances (0 to use one per core). This is "
+      + "only used for SINGLE, COMPLETE and AVERAGE link types with a "
+      + "distance function that can be shared between threads, such as "
+      + "EuclideanDistance.";
+  }
+
   /**
    * @return a string to describe the Link type
    */
@@ -642,12 +642,6 @@ public class SimpleKMeans extends RandomizableClusterer implements
 
     m_DistanceFunction.setInstances(instances);
 
-    Random RandomO = new Random(getSeed());
-    int instIndex;
-    HashMap<DecisionTableHashKey, Integer> initC =
-      new HashMap<DecisionTableHashKey, Integer>();
-    DecisionTableHashKey hk = null;
-
     Instances initInstances = null;
     if (m_PreserveOrder) {
       initInstances = new Instances(instances);
@@ -672,38 +666,7 @@ public class SimpleKMeans extends RandomizableClusterer implements
       m_dataPointCanopyAssignments = new ArrayList<long[]>();
     }
 
-    if (m_initializationMethod == KMEANS_PLUS_PLUS) {
-      kMeansPlusPlusInit(initInstances);
-
-      m_initialStartPoints = new Instances(m_ClusterCentroids);
-    } else if (m_initializationMethod == CANOPY) {
-      canopyInit(initInstances);
-
-      m_initialStartPoints = new Instances(m_canopyClusters.getCanopies());
-    } else if (m_initializationMethod == FARTHEST_FIRST) {
-      farthestFirstInit(initInstances);
-
-      m_initialStartPoints = new Instances(m_ClusterCentroids);
-    } else {
-      // random
-      for (int j = initInstances.numInstances() - 1; j >= 0; j--) {
-        instIndex = RandomO.nextInt(j + 1);
-        hk =
-          new DecisionTableHashKey(initInstances.instance(instIndex),
-            initInstances.numAttributes(), true);
-        if (!initC.containsKey(hk)) {
-          m_ClusterCentroids.add(initInstances.instance(instIndex));
-          initC.put(hk, null);
-        }
-        initInstances.swap(j, instIndex);
-
-        if (m_ClusterCentroids.numInstances() == m_NumClusters) {
-          break;
-        }
-      }
-
-      m_initialStartPoints = new Instances(m_ClusterCentroids);
-    }
+    initializeCentroids(initInstances);
 
     if (m_speedUpDistanceCompWithCanopies) {
       // assign canopies to training data
@@ -845,6 +808,52 @@ public class SimpleKMeans extends RandomizableClusterer implements
     m_DistanceFunction.clean();
   }
 
+  /**
+   * Chooses the initial cluster centroids with the initialization method,
+   * and the initial starting points reported by toString(). Subclasses can
+   * override this to refine the centroids.
+   * 
+   * @param initInstances the training data, which may be reordered
+   * @throws Exception if a problem occurs
+   */
+  protected void initializeCentroids(Instances initInstances) throws Exception {
+    if (m_initializationMethod == KMEANS_PLUS_PLUS) {
+      kMeansPlusPlusInit(initInstances);
+
+      m_initialStartPoints = new Instances(m_ClusterCentroids);
+    } else if (m_initializationMethod == CANOPY) {
+      canopyInit(initInstances);
+
+      m_initialStartPoints = new Instances(m_canopyClusters.getCanopies());
+    } else if (m_initializationMethod == FARTHEST_FIRST) {
+      farthestFirstInit(initInstances);
+
+      m_initialStartPoints = new Instances(m_ClusterCentroids);
+    } else {
+      // random
+      Random RandomO = new Random(getSeed());
+      HashMap<DecisionTableHashKey, Integer> initC =
+        new HashMap<DecisionTableHashKey, Integer>();
+      for (int j = initInstances.numInstances() - 1; j >= 0; j--) {
+        int instIndex = RandomO.nextInt(j + 1);
+        DecisionTableHashKey hk =
+          new DecisionTableHashKey(initInstances.instance(instIndex),
+            initInstances.numAttributes(), true);
+        if (!initC.containsKey(hk)) {
+          m_ClusterCentroids.add(initInstances.instance(instIndex));
+          initC.put(hk, null);
+        }
+        initInstances.swap(j, instIndex);
+
+        if (m_ClusterCentroids.numInstances() == m_NumClusters) {
+          break;
+        }
+      }
+
+      m_initialStartPoints = new Instances(m_ClusterCentroids);
+    }
+  }
+
   /**
    * Initialize with the canopy centers of the Canopy clustering method
    * 
@@ -1994,6 +2003,24 @@ public class SimpleKMeans extends RandomizableClusterer implements
     return result.toArray(new String[result.size()]);
   }
 
+  /**
+   * Describes how the initial starting points were chosen, for toString().
+   * 
+   * @return the description
+   */
+  protected String initialStartPointsDescription() {
+    switch (m_initializationMethod) {
+    case FARTHEST_FIRST:
+      return "farthest first";
+    case KMEANS_PLUS_PLUS:
+      return "k-means++";
+    case CANOPY:
+      return "canopy";
+    default:
+      return "random";
+    }
+  }
+
   /**
    * return a string describing this clusterer.
    * 
@@ -2113,19 +2140,7 @@ public class SimpleKMeans extends RandomizableClusterer implements
     }
 
     temp.append("\n\nInitial starting points (");
-    switch (m_initializationMethod) {
-    case FARTHEST_FIRST:
-      temp.append("farthest first");
-      break;
-    case KMEANS_PLUS_PLUS:
-      temp.append("k-means++");
-      break;
-    case CANOPY:
-      temp.append("canopy");
-      break;
-    default:
-      temp.append("random");
-    }
+    temp.append(initialStartPointsDescription());
     temp.append("):\n");
     if (m_initializationMethod != CANOPY) {
       temp.append("\n");
@@ -8,13 +8,16 @@ import java.util.List;
 import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.Locale;
 
 import weka.classifiers.rules.DecisionTableHashKey;
 import weka.core.Attribute;
+import weka.core.BatchPredictor;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.DenseInstance;
@@ -23,9 +26,11 @@ import weka.core.EuclideanDistance;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.ManhattanDistance;
+import weka.core.NormalizableDistance;
 import weka.core.Option;
 import weka.core.RevisionUtils;
 import weka.core.SelectedTag;
+import weka.core.SerializedObject;
 import weka.core.Tag;
 import weka.core.TechnicalInformation;
 import weka.core.TechnicalInformation.Field;
@@ -36,12 +41,16 @@ import weka.core.WeightedInstancesHandler;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.ReplaceMissingValues;
 
-import weka.clusterers.Y_means.SilhouetteIndex;
-import weka.clusterers.Y_means.GraphPlotter;
+import weka.clusterers.ymeans.ParallelSilhouetteIndex;
+import weka.clusterers.ymeans.SampledSilhouetteIndex;
+import weka.clusterers.ymeans.SilhouetteIndex;
+import weka.clusterers.ymeans.SplitMergeKMeans;
+import weka.clusterers.ymeans.GraphPlotter;
 
 
 public class Y_means extends RandomizableClusterer implements
-  NumberOfClustersRequestable, WeightedInstancesHandler {
+  NumberOfClustersRequestable, UpdateableClusterer, WeightedInstancesHandler,
+  BatchPredictor {
 
 	/** Serialization */
 	static final long serialVersionUID = -206633168493633341L;
@@ -91,6 +100,12 @@ public class Y_means extends RandomizableClusterer implements
 	/** Cascade. */
 	protected boolean m_cascade = false;
 
+	/** Split/merge: finds K in a single run instead of trying every K. */
+	protected boolean m_splitMerge = false;
+
+	/** Split/merge critical value of the normality test. */
+	protected double m_criticalValue = SplitMergeKMeans.DEFAULT_CRITICAL_VALUE;
+
 	/** SilhouetteIndex. */
 	protected ArrayList<SilhouetteIndex> m_silhouetteIdx;
 
@@ -103,6 +118,66 @@ public class Y_means extends RandomizableClusterer implements
 	/** Show graph?. */
 	protected boolean m_showGraph = false;
 
+	/** Instances sampled per cluster by the Silhouette Index, 0 = all. */
+	protected int m_silhouetteSampleSize = 0;
+
+	/** Number of K built at the same time in cascade mode. */
+	protected int m_executionSlots = 1;
+
+	/** For parallel execution mode */
+	protected transient ExecutorService m_executorPool;
+
+	/** Clusters holding less than this fraction of the instances are abnormal. */
+	protected double m_abnormalThreshold = 0.05;
+
+	/** Clusters spreading more than this many times the mean distance are abnormal. */
+	protected double m_abnormalSpread = 3.0;
+
+	/** Sum of the (weighted) distances of the instances to their centroid. */
+	protected double[] m_clusterDistances = null;
+
+	/** Size of each cluster, kept up to date by the updates. */
+	protected double[] m_clusterSizes = null;
+
+	/** Centroids, kept up to date by the updates. */
+	protected Instances m_clusterCentroids = null;
+
+	/** Values of the centroids, shared with m_clusterCentroids and moved in place by the updates. */
+	protected double[][] m_centroidValues = null;
+
+	/** Counts of the nominal values of each cluster, kept up to date by the updates. */
+	protected double[][][] m_clusterNominalCounts = null;
+
+	/** Preferred batch size for batch prediction. */
+	protected String m_batchSize = "100";
+
+	/** Minimum number of instances scored by each thread. */
+	protected static final int MIN_SCORING_CHUNK = 1000;
+
+	/** Maximum number of instances kept for the re-validation of K. */
+	protected int m_updateBufferSize = 10000;
+
+	/** Re-validates K every this many updates, 0 = never. */
+	protected int m_revalidationInterval = 0;
+
+	/** Reservoir sample of the instances seen so far. */
+	protected Instances m_updateBuffer = null;
+
+	/** Number of instances seen so far (training + updates). */
+	protected long m_numSeen = 0;
+
+	/** Number of updates since the last re-validation. */
+	protected int m_numUpdates = 0;
+
+	/** Random number generator for the reservoir. */
+	protected Random m_updateRandom = null;
+
+	/** Background re-validation of K. */
+	protected transient ExecutorService m_revalidationPool;
+
+	/** Pending re-validation, if any. */
+	protected transient Future<Y_means> m_revalidation;
+
 	/** Default constructor. */
 	public Y_means() {
 		super();
@@ -142,6 +217,118 @@ public class Y_means extends RandomizableClusterer implements
 		return result;
 	}
 
+	/**
+	 * Start the pool of execution threads
+	 */
+	protected void startExecutorPool() {
+		if (m_executorPool != null)
+			m_executorPool.shutdownNow();
+
+		m_executorPool = Executors.newFixedThreadPool(m_executionSlots);
+	}
+
+	/**
+	 * Builds (and validates) the SimpleKMeans model for a single K. Each
+	 * model gets its own copy of the distance function, so that several
+	 * K can be built at the same time without sharing state.
+	 *
+	 * @param data set of instances serving as training data
+	 * @param k number of clusters
+	 * @param silhouette where to store the Silhouette Index, or null
+	 * @return the trained model
+	 * @throws Exception if the model could not be built
+	 */
+	protected SimpleKMeans buildKMeans(Instances data, int k,
+		SilhouetteIndex silhouette) throws Exception {
+
+		SimpleKMeans skmeans;
+
+		if (m_splitMerge == true) {
+			SplitMergeKMeans smkmeans = new SplitMergeKMeans();
+			smkmeans.setMinimumK(m_minimumK);
+			smkmeans.setMaximumK(m_maximumK);
+			smkmeans.setCriticalValue(m_criticalValue);
+			skmeans = smkmeans;
+		}
+		else
+			skmeans = new SimpleKMeans();
+
+		/* Setup the configs. */
+		skmeans.setInitializationMethod(new SelectedTag(m_initializationMethod,
+			weka.clusterers.SimpleKMeans.TAGS_SELECTION));
+
+		/* Set seed. */
+		skmeans.setSeed(getSeed());
+
+		/* Num clusters. */
+		skmeans.setNumClusters(k);
+
+		/* Distance function. */
+		skmeans.setDistanceFunction((DistanceFunction)
+			new SerializedObject(m_distanceFunction).getObject());
+
+		/* Max iterations. */
+		skmeans.setMaxIterations(m_maxInteration);
+
+		/* Build clusterer. */
+		skmeans.buildClusterer(data);
+
+		/* Silhouette, if requested. */
+		if (silhouette != null)
+			silhouette.evaluate(skmeans, skmeans.getClusterCentroids(),
+				data, skmeans.getDistanceFunction());
+
+		return skmeans;
+	}
+
+	/**
+	 * Builds all the K between start and end at the same time, using
+	 * m_executionSlots threads.
+	 *
+	 * @param data set of instances serving as training data
+	 * @param start the first K
+	 * @param models where to store the model of each K
+	 * @param silhouettes where to store the Silhouette of each K, or null
+	 * @throws Exception if one of the models could not be built
+	 */
+	protected void launchCascade(final Instances data, final int start,
+		final SimpleKMeans[] models, final SilhouetteIndex[] silhouettes)
+		throws Exception {
+
+		List<Future<SimpleKMeans>> results = new ArrayList<Future<SimpleKMeans>>();
+
+		startExecutorPool();
+		try {
+			for (int i = 0; i < models.length; i++) {
+				final int k = start + i;
+				final SilhouetteIndex si = (silhouettes != null) ? silhouettes[i] : null;
+
+				results.add(m_executorPool.submit(new Callable<SimpleKMeans>() {
+					@Override
+					public SimpleKMeans call() throws Exception {
+						return buildKMeans(data, k, si);
+					}
+				}));
+			}
+
+			/* Results are collected in K order, keeps everything deterministic. */
+			for (int i = 0; i < models.length; i++) {
+				try {
+					models[i] = results.get(i).get();
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+			}
+		}
+		finally {
+			m_executorPool.shutdownNow();
+			m_executorPool = null;
+		}
+	}
+
 	/**
 	 * Generates a clusterer.
 	 * 
@@ -152,9 +339,25 @@ public class Y_means extends RandomizableClusterer implements
 	public void buildClusterer(Instances data) throws Exception {
 		int start   = m_numClusters;
 		int end     = m_numClusters;
+
+		checkOptions();
 		m_instances = data;
 
-		if (m_cascade == true) {
+		/* Forgets any previous update. */
+		stopRevalidation();
+		m_updateBuffer = null;
+		m_numSeen      = 0;
+		m_numUpdates   = 0;
+
+		/* No data yet: the instances given by updateClusterer are
+		   kept until there are enough to build the model. */
+		if (data.numInstances() == 0) {
+			m_instances = new Instances(data, 0);
+			m_skmeans   = null;
+			return;
+		}
+
+		if (m_cascade == true || m_splitMerge == true) {
 			
 			if (m_minimumK >= m_maximumK || m_minimumK < 2 || m_maximumK < 3)
 				throw new Exception
@@ -164,100 +367,831 @@ public class Y_means extends RandomizableClusterer implements
 			end   = m_maximumK;
 		}
 
+		/* Split/merge starts from the minimum K and finds K by itself. */
+		if (m_splitMerge == true)
+			end = start;
+
 		m_silhouetteIdx = new ArrayList<SilhouetteIndex>();
 		m_elbow = new ArrayList<Double>();
 
+		SimpleKMeans[] models = new SimpleKMeans[end - start + 1];
+		SilhouetteIndex[] silhouettes = null;
+
+		if (m_validationMethod == SILHOUETTE_INDEX) {
+
+			/* Slots are used by the K themselves when there are several. */
+			int threads = (models.length > 1) ? 1 : m_executionSlots;
+
+			silhouettes = new SilhouetteIndex[models.length];
+			for (int i = 0; i < silhouettes.length; i++)
+				silhouettes[i] = (m_silhouetteSampleSize > 0)
+					? new SampledSilhouetteIndex(m_silhouetteSampleSize, getSeed())
+					: new ParallelSilhouetteIndex(threads);
+		}
+
 		/* Cascade k-Means. */
-		for (int i = start; i <= end; i++) {
+		if (m_executionSlots > 1 && models.length > 1)
+			launchCascade(data, start, models, silhouettes);
+		else {
+			for (int i = start; i <= end; i++)
+				models[i - start] = buildKMeans(data, i,
+					(silhouettes != null) ? silhouettes[i - start] : null);
+		}
 
-			m_skmeans = new SimpleKMeans();
+		/* Gets the validation, Silhouette or something else. */
+		for (int i = 0; i < models.length; i++) {
+			if (m_validationMethod == SILHOUETTE_INDEX)
+				m_silhouetteIdx.add(silhouettes[i]);
 
-			/* Setup the configs. */
-			m_skmeans.setInitializationMethod(new SelectedTag(m_initializationMethod,
-				weka.clusterers.SimpleKMeans.TAGS_SELECTION));
+			/* The SSE is summed per cluster by the fit itself, kept for every K. */
+			m_elbow.add( models[i].getSquaredError() );
+		}
+
+		m_skmeans = models[0];
+
+		if (m_splitMerge == true) {
+			m_bestK = m_skmeans.numberOfClusters();
+			setNumClusters(m_bestK);
+		}
+
+		/* Gets the 'best' K if cascade enable. */
+		else if (m_cascade == true) {
+			
+			m_bestK = 0;
+			if (m_validationMethod == SILHOUETTE_INDEX) {
+				double si = 0;
+				for (int i = 0; i < m_silhouetteIdx.size(); i++) {
+					if (m_silhouetteIdx.get(i).getGlobalSilhouette() > si) {
+						si  = m_silhouetteIdx.get(i).getGlobalSilhouette();
+						m_bestK = i;
+					}
+				}
+			}
+			else if (m_validationMethod == ELBOW_METHOD)
+				m_bestK = kneeIndex(m_elbow);
+
+			/* Keeps the model already built for the best K. */
+			m_skmeans = models[m_bestK];
+			m_bestK += start;
+			setNumClusters(m_bestK);
+		}
+
+		/* The updates work on copies, the model keeps the statistics of the build. */
+		m_clusterSizes         = m_skmeans.getClusterSizes().clone();
+		m_clusterNominalCounts = copy(m_skmeans.getClusterNominalCounts());
+		copyCentroids(m_skmeans.getClusterCentroids());
+
+		/* Spread of each cluster, for the abnormal labels and scores. */
+		int[] clusters = new int[data.numInstances()];
+		double[] distances = new double[data.numInstances()];
+
+		score(data, clusters, distances);
+
+		m_clusterDistances = new double[m_skmeans.numberOfClusters()];
+		for (int i = 0; i < clusters.length; i++)
+			m_clusterDistances[ clusters[i] ] += data.instance(i).weight() * distances[i];
+	}
+
+	/**
+	 * Rejects the options that can't be used together.
+	 *
+	 * @throws Exception if split/merge is combined with cascade or with
+	 *         the canopy initialization.
+	 */
+	protected void checkOptions() throws Exception {
+		if (m_splitMerge == true && m_cascade == true)
+			throw new Exception
+				("Cascade and split/merge can't be used together, split/merge finds K by itself!");
+
+		if (m_splitMerge == true && m_initializationMethod == SimpleKMeans.CANOPY)
+			throw new Exception("Split/merge can't start from canopies!");
+	}
+
+	/**
+	 * Classifies a given instance.
+	 * 
+	 * @param instance the instance to be assigned to a cluster
+	 * @return the number of the assigned cluster if the class is
+	 *         enumerated, otherwise the predicted value.
+	 * @throws Exception if the instance could not be classified successfully.
+	 */
+	@Override
+	public int clusterInstance(Instance instance) throws Exception {
+		int[] cluster = new int[1];
+		closestCentroid(instance, cluster, new double[1]);
+
+		return cluster[0];
+	}
+
+	/**
+	 * Finds the closest centroid of a single instance.
+	 *
+	 * @param instance the instance.
+	 * @param cluster where to store the cluster of the instance.
+	 * @param distance where to store the distance to the centroid.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	protected void closestCentroid(Instance instance, int[] cluster,
+		double[] distance) throws Exception {
+
+		if (m_skmeans == null)
+			throw new Exception("The clusterer was not build yet!");
+
+		Instances batch = new Instances(m_clusterCentroids, 1);
+		batch.add(instance);
+		score(batch, cluster, distance);
+	}
+
+	/**
+	 * Copies the centroids of a model into m_clusterCentroids, backed by
+	 * m_centroidValues so the updates can move them in place.
+	 *
+	 * @param centroids the centroids of the model.
+	 */
+	protected void copyCentroids(Instances centroids) {
+		m_clusterCentroids = new Instances(centroids, centroids.numInstances());
+		m_centroidValues   = new double[centroids.numInstances()][];
+
+		for (int i = 0; i < centroids.numInstances(); i++) {
+			m_centroidValues[i] = centroids.instance(i).toDoubleArray();
+
+			/* The copy added by Instances.add shares the values. */
+			m_clusterCentroids.add(new DenseInstance(centroids.instance(i).weight(),
+				m_centroidValues[i]));
+		}
+	}
+
+	/**
+	 * Number of instances to build the model from when the clusterer was
+	 * built from an empty dataset: the largest K that may be tried.
+	 *
+	 * @return the number of instances.
+	 */
+	protected int bootstrapSize() {
+		return (m_cascade == true || m_splitMerge == true) ? m_maximumK : m_numClusters;
+	}
+
+	/**
+	 * Deep copy of the nominal counts of a model.
+	 *
+	 * @param counts the counts, may be null.
+	 * @return the copy, or null.
+	 */
+	protected static double[][][] copy(double[][][] counts) {
+		if (counts == null)
+			return null;
+
+		double[][][] result = new double[counts.length][][];
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == null)
+				continue;
+
+			result[i] = new double[counts[i].length][];
+			for (int j = 0; j < counts[i].length; j++)
+				if (counts[i][j] != null)
+					result[i][j] = counts[i][j].clone();
+		}
+		return result;
+	}
+
+	/**
+	 * Adds an instance to the clusterer: the closest centroid is moved
+	 * towards the instance (sequential k-Means) and the cluster sizes are
+	 * updated, so the normal/abnormal labels follow the stream. Every
+	 * m_revalidationInterval updates, K is re-validated in background over
+	 * a reservoir sample of the instances seen so far.
+	 * The SimpleKMeans model, and the ranges the distances are normalized
+	 * with, stay the ones of the last build until the next re-validation.
+	 * When the clusterer was built from an empty dataset, the instances are
+	 * kept until there are as many as the largest K, the model is built from
+	 * them and the following instances update it.
+	 *
+	 * @param instance the instance to be added
+	 * @throws Exception if the clusterer was not built yet
+	 */
+	@Override
+	public void updateClusterer(Instance instance) throws Exception {
+		if (m_skmeans == null && m_instances == null)
+			throw new Exception("The clusterer was not build yet!");
+
+		/* Built from an empty dataset, waits for enough instances. */
+		if (m_skmeans == null) {
+			m_instances.add(instance);
+			if (m_instances.numInstances() >= bootstrapSize())
+				buildClusterer(m_instances);
+			return;
+		}
+
+		/* Adopts a finished re-validation, if any. */
+		if (m_revalidation != null && m_revalidation.isDone())
+			adoptRevalidation();
+
+		int[] cluster = new int[1];
+		double[] distance = new double[1];
+		closestCentroid(instance, cluster, distance);
+
+		int c = cluster[0];
+		double weight = instance.weight();
+		double[] sizes = m_clusterSizes;
+		double[][][] nominalCounts = m_clusterNominalCounts;
+		double[] values = m_centroidValues[c];
+
+		sizes[c] += weight;
+		if (m_clusterDistances != null)
+			m_clusterDistances[c] += weight * distance[0];
+
+		for (int i = 0; i < values.length; i++) {
+			if (instance.isMissing(i))
+				continue;
+
+			if (instance.attribute(i).isNumeric())
+				values[i] += weight * (instance.value(i) - values[i]) / sizes[c];
+
+			else if (instance.attribute(i).isNominal() && nominalCounts != null
+				&& nominalCounts[c][i] != null && nominalCounts[c][i].length > 0) {
+
+				/* Keeps the mode. */
+				double[] counts = nominalCounts[c][i];
+				int value = (int) instance.value(i);
+
+				counts[value] += weight;
+				if (Utils.isMissingValue(values[i]) || counts[value] > counts[(int) values[i]])
+					values[i] = value;
+			}
+		}
+
+		/* Keeps a reservoir sample for the re-validation. */
+		if (m_revalidationInterval > 0) {
+			addToBuffer(instance);
+
+			if (++m_numUpdates >= m_revalidationInterval && m_revalidation == null) {
+				m_numUpdates = 0;
+				startRevalidation();
+			}
+		}
+	}
+
+	/**
+	 * Signals the end of the updating: builds the model if the clusterer
+	 * was built from an empty dataset and was given fewer instances than
+	 * the largest K, otherwise waits for a pending re-validation and
+	 * adopts it.
+	 *
+	 * @throws RuntimeException if the model could not be built, or the
+	 *         re-validation failed.
+	 */
+	@Override
+	public void updateFinished() {
+		try {
+			if (m_skmeans == null && m_instances != null && m_instances.numInstances() > 0)
+				buildClusterer(m_instances);
+			else if (m_revalidation != null)
+				adoptRevalidation();
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		finally {
+			stopRevalidation();
+		}
+	}
+
+	/**
+	 * Adds an instance to the reservoir sample.
+	 *
+	 * @param instance the instance to add.
+	 */
+	protected void addToBuffer(Instance instance) {
+		if (m_updateBuffer == null) {
+			m_updateRandom = new Random(getSeed());
+			m_updateBuffer = new Instances(m_instances, m_updateBufferSize);
+			m_numSeen = 0;
+
+			for (int i = 0; i < m_instances.numInstances(); i++)
+				addToReservoir(m_instances.instance(i));
+		}
+		addToReservoir(instance);
+	}
+
+	/**
+	 * Reservoir sampling (algorithm R).
+	 *
+	 * @param instance the instance to add.
+	 */
+	protected void addToReservoir(Instance instance) {
+		m_numSeen++;
+
+		if (m_updateBuffer.numInstances() < m_updateBufferSize)
+			m_updateBuffer.add(instance);
+		else {
+			long r = (long) (m_updateRandom.nextDouble() * m_numSeen);
+			if (r < m_updateBufferSize)
+				m_updateBuffer.set((int) r, instance);
+		}
+	}
+
+	/**
+	 * Starts the re-validation of K, in background, over a copy of the
+	 * reservoir sample.
+	 *
+	 * @throws Exception if the copy could not be configured.
+	 */
+	protected void startRevalidation() throws Exception {
+		final Instances data = new Instances(m_updateBuffer);
+		final Y_means copy = new Y_means();
+
+		copy.setOptions(getOptions());
+		copy.setRevalidationInterval(0);
+		copy.setShowGraph(false);
+
+		/* A daemon thread, so a stream that is never finished does not
+		   keep the JVM alive. */
+		if (m_revalidationPool == null)
+			m_revalidationPool = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Y_means re-validation");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+		m_revalidation = m_revalidationPool.submit(new Callable<Y_means>() {
+			@Override
+			public Y_means call() throws Exception {
+				copy.buildClusterer(data);
+				return copy;
+			}
+		});
+	}
+
+	/**
+	 * Replaces the current model by the re-validated one.
+	 *
+	 * @throws Exception if the re-validation failed.
+	 */
+	protected void adoptRevalidation() throws Exception {
+		Future<Y_means> revalidation = m_revalidation;
+		m_revalidation = null;
+
+		Y_means result;
+		try {
+			result = revalidation.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+
+		m_skmeans       = result.m_skmeans;
+		m_numClusters   = result.m_numClusters;
+		m_bestK         = result.m_bestK;
+		m_silhouetteIdx = result.m_silhouetteIdx;
+		m_elbow         = result.m_elbow;
+
+		m_clusterDistances     = result.m_clusterDistances;
+		m_clusterSizes         = result.m_clusterSizes;
+		m_clusterCentroids     = result.m_clusterCentroids;
+		m_centroidValues       = result.m_centroidValues;
+		m_clusterNominalCounts = result.m_clusterNominalCounts;
+	}
+
+	/**
+	 * Cancels any pending re-validation and stops its thread.
+	 */
+	protected void stopRevalidation() {
+		if (m_revalidation != null)
+			m_revalidation.cancel(true);
+		m_revalidation = null;
+
+		if (m_revalidationPool != null)
+			m_revalidationPool.shutdownNow();
+		m_revalidationPool = null;
+	}
+
+	/**
+	 * Finds the knee of a decreasing curve, as Kneedle (Satopaa et al.,
+	 * 2011) does: both axes are normalized to [0, 1] and the knee is the
+	 * point farthest below the line joining the first and last points.
+	 *
+	 * @param curve the curve, one value per K.
+	 * @return the index of the knee, 0 if the curve has none.
+	 */
+	protected static int kneeIndex(List<Double> curve) {
+		int n = curve.size();
+		if (n < 3)
+			return 0;
+
+		double first = curve.get(0);
+		double last  = curve.get(n - 1);
+		if (!(first > last))
+			return 0;
+
+		int knee = 0;
+		double maxDiff = 0;
+
+		for (int i = 1; i < n - 1; i++) {
+			double x = (double) i / (n - 1);
+			double y = (curve.get(i) - last) / (first - last);
+			double diff = (1 - x) - y;
+
+			if (diff > maxDiff) {
+				maxDiff = diff;
+				knee = i;
+			}
+		}
+		return knee;
+	}
+
+	/**
+	 * Returns the SSE curve of the last build, i.e: the within cluster sum
+	 * of squared errors of each K built. It is kept whatever the
+	 * validation method.
+	 *
+	 * @return one {K, SSE} pair per K, in increasing K order.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	public double[][] getSSECurve() throws Exception {
+		if (m_skmeans == null || m_elbow == null)
+			throw new Exception("The clusterer was not build yet!");
+
+		int start = (m_cascade == true && m_splitMerge == false)
+			? m_minimumK : m_skmeans.numberOfClusters();
+		double[][] curve = new double[m_elbow.size()][];
+
+		for (int i = 0; i < curve.length; i++)
+			curve[i] = new double[] { start + i, m_elbow.get(i) };
+
+		return curve;
+	}
+
+	/**
+	 * Returns the K found by the last build, in cascade or split/merge
+	 * mode.
+	 *
+	 * @return the best K, 0 if none was searched.
+	 */
+	public int getBestK() {
+		return m_bestK;
+	}
+
+	/**
+	 * Tells whether a cluster is abnormal, see getAbnormalClusters.
+	 *
+	 * @param cluster the cluster index.
+	 * @return true if the cluster is abnormal.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	public boolean isAbnormalCluster(int cluster) throws Exception {
+		return getAbnormalClusters()[cluster];
+	}
+
+	/**
+	 * Labels every cluster as normal (false) or abnormal (true), by size
+	 * and density: a cluster is abnormal if it holds less than
+	 * m_abnormalThreshold of the instances seen so far, or if its mean
+	 * distance to the centroid is more than m_abnormalSpread times the
+	 * mean distance over all the clusters.
+	 *
+	 * @return the label of each cluster.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	public boolean[] getAbnormalClusters() throws Exception {
+		if (m_skmeans == null)
+			throw new Exception("The clusterer was not build yet!");
+
+		return abnormalClusters();
+	}
+
+	/**
+	 * Labels each cluster of the model as normal or abnormal, see
+	 * getAbnormalClusters.
+	 *
+	 * @return the label of each cluster.
+	 */
+	protected boolean[] abnormalClusters() {
+		double[] sizes = m_clusterSizes;
+		double total = Utils.sum(sizes);
+		double spread = (m_clusterDistances != null && total > 0)
+			? Utils.sum(m_clusterDistances) / total : 0;
+		boolean[] abnormal = new boolean[sizes.length];
+
+		for (int i = 0; i < sizes.length; i++) {
+			abnormal[i] = (total > 0) && (sizes[i] / total < m_abnormalThreshold);
+
+			/* Sparse cluster. */
+			if (m_abnormalSpread > 0 && spread > 0 && sizes[i] > 0
+				&& m_clusterDistances[i] / sizes[i] > m_abnormalSpread * spread)
+				abnormal[i] = true;
+		}
+
+		return abnormal;
+	}
+
+	/**
+	 * Returns the mean distance of the instances of each cluster to its
+	 * centroid.
+	 *
+	 * @return the mean distance of each cluster.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	public double[] getClusterSpreads() throws Exception {
+		if (m_skmeans == null)
+			throw new Exception("The clusterer was not build yet!");
+
+		return clusterSpreads();
+	}
+
+	/**
+	 * Returns the mean distance of the instances of each cluster of the
+	 * model to its centroid, see getClusterSpreads.
+	 *
+	 * @return the mean distance of each cluster.
+	 */
+	protected double[] clusterSpreads() {
+		double[] sizes = m_clusterSizes;
+		double[] spreads = new double[sizes.length];
+
+		for (int i = 0; i < sizes.length && m_clusterDistances != null; i++)
+			spreads[i] = (sizes[i] > 0) ? m_clusterDistances[i] / sizes[i] : 0;
+
+		return spreads;
+	}
+
+	/**
+	 * Assigns a whole batch of instances to their clusters.
+	 *
+	 * @param insts the instances to be assigned.
+	 * @return the cluster of each instance.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	public int[] clusterInstances(Instances insts) throws Exception {
+		int[] clusters = new int[insts.numInstances()];
+		score(insts, clusters, new double[clusters.length]);
+
+		return clusters;
+	}
+
+	/**
+	 * Scores a whole batch of instances: the distance of each instance to
+	 * its centroid, divided by the mean distance of that cluster. A score
+	 * around 1 is typical, the higher the more abnormal.
+	 *
+	 * @param insts the instances to be scored.
+	 * @return the score of each instance.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	public double[] abnormalScores(Instances insts) throws Exception {
+		int[] clusters = new int[insts.numInstances()];
+		double[] scores = new double[clusters.length];
+
+		score(insts, clusters, scores);
+		normalizeScores(clusters, scores);
+
+		return scores;
+	}
+
+	/**
+	 * Flags a whole batch of instances: an instance is abnormal if it falls
+	 * in an abnormal cluster, or if its score is above maxScore.
+	 *
+	 * @param insts the instances to be flagged.
+	 * @param maxScore highest score of a normal instance, see abnormalScores.
+	 * @return true for each abnormal instance.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	public boolean[] abnormalInstances(Instances insts, double maxScore) throws Exception {
+		int[] clusters = new int[insts.numInstances()];
+		double[] scores = new double[clusters.length];
+		boolean[] abnormalClusters = getAbnormalClusters();
+		boolean[] abnormal = new boolean[clusters.length];
+
+		score(insts, clusters, scores);
+		normalizeScores(clusters, scores);
+
+		for (int i = 0; i < abnormal.length; i++)
+			abnormal[i] = abnormalClusters[ clusters[i] ] || scores[i] > maxScore;
+
+		return abnormal;
+	}
+
+	/**
+	 * Batch version of distributionForInstance.
+	 *
+	 * @param insts the instances to get predictions for.
+	 * @return the cluster membership of each instance.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances insts) throws Exception {
+		int[] clusters = clusterInstances(insts);
+		double[][] dists = new double[clusters.length][m_skmeans.numberOfClusters()];
+
+		for (int i = 0; i < clusters.length; i++)
+			dists[i][ clusters[i] ] = 1.0;
+
+		return dists;
+	}
+
+	/**
+	 * Batch prediction skips the per instance filtering and runs in
+	 * parallel, so it is more efficient.
+	 *
+	 * @return true.
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return true;
+	}
+
+	/**
+	 * Finds the cluster of each instance and its distance to the centroid.
+	 * Large batches are split across m_executionSlots threads.
+	 *
+	 * @param insts the instances.
+	 * @param clusters where to store the cluster of each instance.
+	 * @param distances where to store the distance to the centroid.
+	 * @throws Exception if the clusterer was not built yet.
+	 */
+	protected void score(Instances insts, final int[] clusters,
+		final double[] distances) throws Exception {
+
+		if (m_skmeans == null)
+			throw new Exception("The clusterer was not build yet!");
 
-			/* Set seed. */
-			m_skmeans.setSeed(m_SeedDefault);
+		final Instances data = insts;
+		final Instance[] replaced = replaceMissingValues(insts);
+		int n = data.numInstances();
+		int threads = Math.min(m_executionSlots, n / MIN_SCORING_CHUNK);
 
-			/* Num clusters. */
-			m_skmeans.setNumClusters(i);
-			
-			/* Distance function. */
-			m_skmeans.setDistanceFunction(m_distanceFunction);
-			
-			/* Max iterations. */
-			m_skmeans.setMaxIterations(m_maxInteration);
+		if (threads <= 1) {
+			scoreRange(data, replaced, 0, n, clusters, distances);
+			return;
+		}
 
-			/* Build clusterer. */
-			m_skmeans.buildClusterer(data);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		int chunk = (n + threads - 1) / threads;
 
-			/* Gets the validation, Silhouette or something else. */
-			if (m_validationMethod == SILHOUETTE_INDEX) {
+		try {
+			for (int t = 0; t < threads; t++) {
+				final int from = t * chunk;
+				final int to   = Math.min(n, from + chunk);
 
-				m_silhouetteIdx.add(new SilhouetteIndex());
-				
-				m_silhouetteIdx.get(i - start).evaluate(m_skmeans, m_skmeans.getClusterCentroids(),
-					m_instances, m_distanceFunction);
+				results.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						scoreRange(data, replaced, from, to, clusters, distances);
+						return null;
+					}
+				}));
 			}
-			else if (m_validationMethod == ELBOW_METHOD) {
 
-				m_elbow.add( m_skmeans.getSquaredError() );
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
 			}
 		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
 
-		/* Gets the 'best' K if cascade enable. */
-		if (m_cascade == true) {
-			
-			if (m_validationMethod == SILHOUETTE_INDEX) {
-				double si = 0;
-				for (int i = 0; i < m_silhouetteIdx.size(); i++) {
-					if (m_silhouetteIdx.get(i).getGlobalSilhouette() > si) {
-						si  = m_silhouetteIdx.get(i).getGlobalSilhouette();
-						m_bestK = i;
+	/**
+	 * Finds the closest centroid of a range of instances, the same way
+	 * SimpleKMeans does. With a Euclidean or Manhattan distance over
+	 * numeric attributes, each instance is normalized once and compared
+	 * to a block of normalized centroids, giving the same distances.
+	 *
+	 * @throws Exception if the ranges of the distance function are not set.
+	 */
+	protected void scoreRange(Instances data, Instance[] replaced, int from, int to,
+		int[] clusters, double[] distances) throws Exception {
+
+		DistanceFunction df = m_skmeans.getDistanceFunction();
+		Instances centroids = m_clusterCentroids;
+		int k = centroids.numInstances();
+
+		/* Fast path: normalized centroids, copied once. */
+		int[] attributes = ParallelSilhouetteIndex.numericAttributes(df, data);
+		boolean euclidean = (df.getClass() == EuclideanDistance.class);
+		double[][] ranges = null;
+		double[] block = null;
+		double[] row = null;
+
+		for (int c = 0; c < k && attributes != null; c++)
+			if (ParallelSilhouetteIndex.hasMissing(centroids.instance(c), attributes))
+				attributes = null;
+
+		if (attributes != null) {
+			NormalizableDistance nd = (NormalizableDistance) df;
+			int d = attributes.length;
+
+			ranges = nd.getDontNormalize() ? null : nd.getRanges();
+			block  = new double[k * d];
+			row    = new double[d];
+
+			for (int c = 0; c < k; c++)
+				ParallelSilhouetteIndex.copy(centroids.instance(c), attributes, ranges,
+					block, c * d);
+		}
+
+		for (int i = from; i < to; i++) {
+			Instance inst = (replaced != null && replaced[i] != null)
+				? replaced[i] : data.instance(i);
+			double minDist = Double.MAX_VALUE;
+			int best = 0;
+
+			if (attributes != null && !ParallelSilhouetteIndex.hasMissing(inst, attributes)) {
+				int d = attributes.length;
+				ParallelSilhouetteIndex.copy(inst, attributes, ranges, row, 0);
+
+				for (int c = 0; c < k; c++) {
+					double dist = euclidean
+						? ParallelSilhouetteIndex.squaredEuclidean(row, 0, block, c * d, d)
+						: ParallelSilhouetteIndex.manhattan(row, 0, block, c * d, d);
+					if (dist < minDist) {
+						minDist = dist;
+						best = c;
 					}
 				}
+
+				clusters[i]  = best;
+				distances[i] = euclidean ? Math.sqrt(minDist) : minDist;
+				continue;
 			}
-			else if (m_validationMethod == ELBOW_METHOD) {
-				double elb = 0.0;
-				for (int i = 0; i < m_elbow.size(); i++) {
-					if (m_elbow.get(i) > elb) {
-						elb = m_elbow.get(i);
-						m_bestK = i;
-					}
+
+			for (int c = 0; c < k; c++) {
+				double dist = df.distance(inst, centroids.instance(c), minDist);
+				if (dist < minDist) {
+					minDist = dist;
+					best = c;
 				}
 			}
 
-			/* Repeats the clustering for the best K. */
-			m_bestK += start;
-			m_skmeans = new SimpleKMeans();
-			
-			/* Initialize and run k-Means again. */
-			m_skmeans.setInitializationMethod(new SelectedTag(m_initializationMethod,
-				weka.clusterers.SimpleKMeans.TAGS_SELECTION));
-			
-			m_skmeans.setSeed(m_SeedDefault);
-			m_skmeans.setNumClusters(m_bestK);
-			m_skmeans.setDistanceFunction(m_distanceFunction);
-			m_skmeans.setMaxIterations(m_maxInteration);
-			m_skmeans.buildClusterer(data);
-			setNumClusters(m_bestK);
+			clusters[i]  = best;
+			distances[i] = df.distance(inst, centroids.instance(best));
 		}
 	}
 
 	/**
-	 * Classifies a given instance.
-	 * 
-	 * @param instance the instance to be assigned to a cluster
-	 * @return the number of the assigned cluster if the class is
-	 *         enumerated, otherwise the predicted value.
-	 * @throws Exception if the instance could not be classified successfully.
+	 * Replaces the missing values of a batch with the filter of the model.
+	 * Only the instances with missing values go through the filter, in a
+	 * single pass.
+	 *
+	 * @param insts the instances.
+	 * @return the filtered instance at the index of each instance with
+	 *         missing values, or null if there is none.
+	 * @throws Exception if the filter fails.
 	 */
-	@Override
-	public int clusterInstance(Instance instance) throws Exception {
-		if (m_skmeans == null)
-			throw new Exception("The clusterer was not build yet!");
-		else
-			return m_skmeans.clusterInstance(instance);
+	protected Instance[] replaceMissingValues(Instances insts) throws Exception {
+		if (m_skmeans.getDontReplaceMissingValues()
+			|| m_skmeans.m_ReplaceMissingFilter == null)
+			return null;
+
+		Instances missing = new Instances(insts, 0);
+		for (int i = 0; i < insts.numInstances(); i++)
+			if (insts.instance(i).hasMissingValue())
+				missing.add(insts.instance(i));
+
+		if (missing.numInstances() == 0)
+			return null;
+
+		/* The filter keeps its state between batches. */
+		synchronized (m_skmeans) {
+			missing = Filter.useFilter(missing, m_skmeans.m_ReplaceMissingFilter);
+		}
+
+		Instance[] replaced = new Instance[insts.numInstances()];
+		for (int i = 0, j = 0; i < insts.numInstances(); i++)
+			if (insts.instance(i).hasMissingValue())
+				replaced[i] = missing.instance(j++);
+
+		return replaced;
+	}
+
+	/**
+	 * Divides the distances by the mean distance of their cluster.
+	 */
+	protected void normalizeScores(int[] clusters, double[] distances) throws Exception {
+		double[] spreads = clusterSpreads();
+		double[] sizes = m_clusterSizes;
+		double total = Utils.sum(sizes);
+		double spread = (m_clusterDistances != null && total > 0)
+			? Utils.sum(m_clusterDistances) / total : 0;
+
+		for (int i = 0; i < distances.length; i++) {
+			double s = (spreads[ clusters[i] ] > 0) ? spreads[ clusters[i] ] : spread;
+			if (s > 0)
+				distances[i] /= s;
+		}
 	}
 
 	/**
@@ -319,6 +1253,38 @@ public class Y_means extends RandomizableClusterer implements
 		}
 	}
 
+	/**
+	 * Gets the tip text for this property.
+	 *
+	 * @return Property tip text.
+	 */
+	public String silhouetteSampleSizeTipText() {
+		return "Number of instances sampled per cluster to estimate the Silhouette Index, "
+			+ "0 computes the exact (and O(n^2)) index";
+	}
+
+	/**
+	 * Gets the number of instances sampled per cluster by the Silhouette Index.
+	 *
+	 * @return the sample size, 0 if the exact index is used.
+	 */
+	public int getSilhouetteSampleSize() {
+		return m_silhouetteSampleSize;
+	}
+
+	/**
+	 * Sets the number of instances sampled per cluster by the Silhouette Index.
+	 *
+	 * @param size the sample size, 0 to use the exact index.
+	 * @throws Exception if the size is negative or 1.
+	 */
+	public void setSilhouetteSampleSize(int size) throws Exception {
+		if (size < 0 || size == 1)
+			throw new Exception("Silhouette sample size should be 0 (exact) or >= 2");
+
+		m_silhouetteSampleSize = size;
+	}
+
 	/**
 	 * Returns the number of clusters.
 	 * 
@@ -511,6 +1477,70 @@ public class Y_means extends RandomizableClusterer implements
 		m_cascade = cascade;
 	}
 
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String splitMergeTipText() {
+		return "Split/merge: finds K in a single run, splitting non-Gaussian clusters and "
+			+ "merging overlapping ones, between the minimum/maximum K values, starting "
+			+ "from the centroids of the initialization method (not canopy). Can't be "
+			+ "used with cascade";
+	}
+
+	/**
+	 * Returns the split/merge option selected.
+	 *
+	 * @return true if the split/merge option is enabled, false otherwise.
+	 */
+	public boolean getSplitMerge() {
+		return m_splitMerge;
+	}
+
+	/**
+	 * Enables/Disables the split/merge option.
+	 *
+	 * @param splitMerge Enables/Disables the split/merge mode.
+	 */
+	public void setSplitMerge(boolean splitMerge) {
+		m_splitMerge = splitMerge;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String criticalValueTipText() {
+		return "Split/merge: critical value of the Anderson-Darling normality test, "
+			+ "the higher the fewer clusters (1.8692 for alpha = 0.0001)";
+	}
+
+	/**
+	 * Returns the split/merge critical value.
+	 *
+	 * @return the critical value of the normality test.
+	 */
+	public double getCriticalValue() {
+		return m_criticalValue;
+	}
+
+	/**
+	 * Sets the split/merge critical value.
+	 *
+	 * @param criticalValue the critical value of the normality test.
+	 * @throws Exception if the critical value is not positive.
+	 */
+	public void setCriticalValue(double criticalValue) throws Exception {
+		if (criticalValue <= 0)
+			throw new Exception("Critical value should be > 0");
+
+		m_criticalValue = criticalValue;
+	}
+
 	/**
 	 * Returns the tip text for this property.
 	 * 
@@ -539,6 +1569,194 @@ public class Y_means extends RandomizableClusterer implements
 		m_showGraph = showGraph;
 	}
 
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String numExecutionSlotsTipText() {
+		return "The number of execution slots (threads) to use when in cascade mode, "
+			+ "each slot builds one K at a time. Set equal to the number of available cpu/cores";
+	}
+
+	/**
+	 * Sets the degree of parallelism to use.
+	 *
+	 * @param slots the number of K to build in parallel.
+	 */
+	public void setNumExecutionSlots(int slots) {
+		m_executionSlots = slots;
+	}
+
+	/**
+	 * Gets the degree of parallelism to use.
+	 *
+	 * @return the number of K to build in parallel.
+	 */
+	public int getNumExecutionSlots() {
+		return m_executionSlots;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String abnormalThresholdTipText() {
+		return "Clusters holding less than this fraction of the instances are labelled abnormal";
+	}
+
+	/**
+	 * Gets the abnormal cluster threshold.
+	 *
+	 * @return the fraction of instances under which a cluster is abnormal.
+	 */
+	public double getAbnormalThreshold() {
+		return m_abnormalThreshold;
+	}
+
+	/**
+	 * Sets the abnormal cluster threshold.
+	 *
+	 * @param threshold fraction of instances under which a cluster is abnormal.
+	 * @throws Exception if the threshold is not between 0 and 1.
+	 */
+	public void setAbnormalThreshold(double threshold) throws Exception {
+		if (threshold < 0 || threshold > 1)
+			throw new Exception("Abnormal threshold should be between 0 and 1");
+
+		m_abnormalThreshold = threshold;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String abnormalSpreadTipText() {
+		return "Clusters whose mean distance to the centroid is more than this many times "
+			+ "the overall mean distance are labelled abnormal (0 = size only)";
+	}
+
+	/**
+	 * Gets the abnormal cluster spread.
+	 *
+	 * @return how many times the mean distance a cluster can spread.
+	 */
+	public double getAbnormalSpread() {
+		return m_abnormalSpread;
+	}
+
+	/**
+	 * Sets the abnormal cluster spread.
+	 *
+	 * @param spread how many times the mean distance a cluster can spread.
+	 * @throws Exception if the spread is negative.
+	 */
+	public void setAbnormalSpread(double spread) throws Exception {
+		if (spread < 0)
+			throw new Exception("Abnormal spread should be >= 0");
+
+		m_abnormalSpread = spread;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String batchSizeTipText() {
+		return "The preferred number of instances to process if batch prediction is being performed";
+	}
+
+	/**
+	 * Set the preferred batch size for batch prediction.
+	 *
+	 * @param size the batch size to use
+	 */
+	@Override
+	public void setBatchSize(String size) {
+		m_batchSize = size;
+	}
+
+	/**
+	 * Get the preferred batch size for batch prediction.
+	 *
+	 * @return the preferred batch size
+	 */
+	@Override
+	public String getBatchSize() {
+		return m_batchSize;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String updateBufferSizeTipText() {
+		return "Number of instances (reservoir sample) kept to re-validate K while updating";
+	}
+
+	/**
+	 * Gets the size of the update buffer.
+	 *
+	 * @return the maximum number of instances kept.
+	 */
+	public int getUpdateBufferSize() {
+		return m_updateBufferSize;
+	}
+
+	/**
+	 * Sets the size of the update buffer.
+	 *
+	 * @param size the maximum number of instances kept.
+	 * @throws Exception if the size is < 1.
+	 */
+	public void setUpdateBufferSize(int size) throws Exception {
+		if (size < 1)
+			throw new Exception("Update buffer size should be >= 1");
+
+		m_updateBufferSize = size;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 * 
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String revalidationIntervalTipText() {
+		return "Re-validates K, in background, every this many updates (0 = never)";
+	}
+
+	/**
+	 * Gets the re-validation interval.
+	 *
+	 * @return the number of updates between re-validations, 0 if never.
+	 */
+	public int getRevalidationInterval() {
+		return m_revalidationInterval;
+	}
+
+	/**
+	 * Sets the re-validation interval.
+	 *
+	 * @param interval the number of updates between re-validations, 0 = never.
+	 * @throws Exception if the interval is negative.
+	 */
+	public void setRevalidationInterval(int interval) throws Exception {
+		if (interval < 0)
+			throw new Exception("Re-validation interval should be >= 0");
+
+		m_revalidationInterval = interval;
+	}
+
 	@Override
 	public String[] getOptions() {
 
@@ -560,10 +1778,21 @@ public class Y_means extends RandomizableClusterer implements
 		result.add("-validation");
 		result.add("" + getValidationMethod().getSelectedTag().getID());
 
-		if (m_cascade) {
+		result.add("-silhouette-sample");
+		result.add("" + getSilhouetteSampleSize());
 
+		if (m_cascade)
 			result.add("-cascade");
 
+		if (m_splitMerge) {
+			result.add("-split-merge");
+
+			result.add("-critical");
+			result.add("" + getCriticalValue());
+		}
+
+		if (m_cascade || m_splitMerge) {
+
 			result.add("-minK");
 			result.add("" + getMinimumK());
 
@@ -574,6 +1803,24 @@ public class Y_means extends RandomizableClusterer implements
 		if (m_showGraph)
 			result.add("-show-graph");
 
+		result.add("-num-slots");
+		result.add("" + getNumExecutionSlots());
+
+		result.add("-abnormal");
+		result.add("" + getAbnormalThreshold());
+
+		result.add("-abnormal-spread");
+		result.add("" + getAbnormalSpread());
+
+		result.add("-batch-size");
+		result.add("" + getBatchSize());
+
+		result.add("-update-buffer");
+		result.add("" + getUpdateBufferSize());
+
+		result.add("-revalidate");
+		result.add("" + getRevalidationInterval());
+
 		Collections.addAll(result, super.getOptions());
 
 		return result.toArray(new String[result.size()]);
@@ -627,8 +1874,21 @@ public class Y_means extends RandomizableClusterer implements
 			setValidationMethod(new SelectedTag(Integer.parseInt(temp),
 				VALIDATION_SELECTION));
 
+		/* Silhouette sample size. */
+		temp = Utils.getOption("silhouette-sample", options);
+		if (temp.length() > 0)
+			setSilhouetteSampleSize(Integer.parseInt(temp));
+
+		/* Split/merge. */
+		if ( (m_splitMerge = Utils.getFlag("split-merge", options)) == true ) {
+
+			temp = Utils.getOption("critical", options);
+			if (temp.length() > 0)
+				setCriticalValue(Double.parseDouble(temp));
+		}
+
 		/* Tries to find the best K or not. */
-		if ( (m_cascade = Utils.getFlag("cascade", options)) == true ) {
+		if ( (m_cascade = Utils.getFlag("cascade", options)) == true || m_splitMerge ) {
 			
 			temp = Utils.getOption("minK", options);
 			if (temp.length() > 0)
@@ -642,8 +1902,38 @@ public class Y_means extends RandomizableClusterer implements
 		/* Show graph option. */
 		m_showGraph = Utils.getFlag("show-graph", options);
 
+		/* Execution slots. */
+		temp = Utils.getOption("num-slots", options);
+		if (temp.length() > 0)
+			setNumExecutionSlots(Integer.parseInt(temp));
+
+		/* Abnormal clusters. */
+		temp = Utils.getOption("abnormal", options);
+		if (temp.length() > 0)
+			setAbnormalThreshold(Double.parseDouble(temp));
+
+		temp = Utils.getOption("abnormal-spread", options);
+		if (temp.length() > 0)
+			setAbnormalSpread(Double.parseDouble(temp));
+
+		/* Batch prediction. */
+		temp = Utils.getOption("batch-size", options);
+		if (temp.length() > 0)
+			setBatchSize(temp);
+
+		/* Updates. */
+		temp = Utils.getOption("update-buffer", options);
+		if (temp.length() > 0)
+			setUpdateBufferSize(Integer.parseInt(temp));
+
+		temp = Utils.getOption("revalidate", options);
+		if (temp.length() > 0)
+			setRevalidationInterval(Integer.parseInt(temp));
+
 		super.setOptions(options);
 		Utils.checkForRemainingOptions(options);
+
+		checkOptions();
 	}
 
 	/**
@@ -666,13 +1956,16 @@ public class Y_means extends RandomizableClusterer implements
 		int start   = m_numClusters;
 		int end     = m_numClusters;
 
-		if (m_cascade == true) {
+		if (m_cascade == true && m_splitMerge == false) {
 			start = m_minimumK;
 			end   = m_maximumK;
 		}
 
 		description.append("\n");
 
+		if (m_splitMerge == true)
+			description.append("\n~~ K found by split/merge: " + m_bestK + " ~~\n");
+
 		if (m_validationMethod == SILHOUETTE_INDEX) {
 
 			for (int i = start; i <= end; i++) {
@@ -680,7 +1973,7 @@ public class Y_means extends RandomizableClusterer implements
 				description.append( m_silhouetteIdx.get(i - start).toString() + "\n");
 			}
 
-			if (m_cascade == true) {
+			if (m_cascade == true && m_splitMerge == false) {
 				description.append("\n~~ Best K: " + m_bestK + " ~~");
 				description.append(
 					"\nPlease manually check your dataset to figure out if this is really the best K");
@@ -706,8 +1999,9 @@ public class Y_means extends RandomizableClusterer implements
 				description.append("SSE: " + m_elbow.get(i - start) + "\n");
 			}
 
-			if (m_cascade == true) {
-			
+			if (m_cascade == true && m_splitMerge == false) {
+				description.append("\n~~ Best K (knee of the SSE curve): " + m_bestK + " ~~");
+
 				/* Show the graph. */
 				ArrayList<Double> dataSet = new ArrayList<Double>();
 				for (int i = 0; i < m_elbow.size(); i++)
@@ -722,11 +2016,22 @@ public class Y_means extends RandomizableClusterer implements
 				}
 				else {
 					description.append(
-					"\nPlease enable the showGraph option to visually figure out the best K");
+					"\nPlease enable the showGraph option to visually check the best K");
 				}
 			}			
 		}
 		
+		/* Normal/abnormal clusters. */
+		boolean[] abnormal = abnormalClusters();
+		double[] spreads = clusterSpreads();
+		double[] sizes = m_clusterSizes;
+
+		description.append("\n\n=== Abnormal clusters ===\n");
+		for (int i = 0; i < abnormal.length; i++)
+			description.append("\n   Cluster " + i + ": " + (abnormal[i] ? "abnormal" : "normal")
+				+ ", size: " + Utils.doubleToString(sizes[i], 2)
+				+ ", mean distance: " + Utils.doubleToString(spreads[i], 4));
+
 		description.append("\n\n");
 		description.append( m_skmeans.toString() );
 
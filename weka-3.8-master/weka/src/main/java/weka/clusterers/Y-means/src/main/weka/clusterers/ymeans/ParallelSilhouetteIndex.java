@@ -0,0 +1,387 @@
+package weka.clusterers.ymeans;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import weka.core.DistanceFunction;
+import weka.core.EuclideanDistance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.ManhattanDistance;
+import weka.core.NormalizableDistance;
+import weka.core.Range;
+import weka.clusterers.AbstractClusterer;
+
+/**
+ * Exact Silhouette Index, computed in parallel. Each cluster is copied
+ * once into a contiguous double[] block of normalized values and the
+ * pairwise distances are computed in a tight loop, split across a
+ * fork/join pool.
+ *
+ * Point silhouettes are summed in the same order as SilhouetteIndex
+ * does, so the results are the same. Only the Euclidean and Manhattan
+ * distances over numeric attributes without missing values take the
+ * fast path, anything else falls back to SilhouetteIndex.
+ */
+public class ParallelSilhouetteIndex extends SilhouetteIndex {
+
+	static final long serialVersionUID = -305533168492651332L;
+
+	/** Minimum number of points handled by a single task. */
+	protected static final int MIN_TASK_SIZE = 16;
+
+	/** Number of threads, 0 = number of available processors. */
+	protected int m_numThreads;
+
+	public ParallelSilhouetteIndex() {
+		this(0);
+	}
+
+	/**
+	 * Creates a new parallel silhouette.
+	 *
+	 * @param numThreads number of threads, 0 uses every available processor.
+	 */
+	public ParallelSilhouetteIndex(int numThreads) {
+		super();
+		m_numThreads = numThreads;
+	}
+
+	/**
+	 * Returns the number of threads used.
+	 *
+	 * @return the number of threads, 0 if every available processor.
+	 */
+	public int getNumThreads() {
+		return m_numThreads;
+	}
+
+	@Override
+	public void evaluate(AbstractClusterer clusterer, Instances centroids,
+		Instances instances, DistanceFunction distanceFunction) throws Exception {
+
+		if (clusterer == null || instances == null)
+			throw new Exception("SilhouetteIndex: the clusterer or instances are null!");
+
+		int[] attributes = activeAttributes(instances, centroids, distanceFunction);
+		if (attributes == null) {
+			super.evaluate(clusterer, centroids, instances, distanceFunction);
+			return;
+		}
+
+		NormalizableDistance nd = (NormalizableDistance) distanceFunction;
+		double[][] ranges = nd.getDontNormalize() ? null : nd.getRanges();
+		boolean euclidean = (distanceFunction.getClass() == EuclideanDistance.class);
+		int numClusters = centroids.size();
+		int d = attributes.length;
+
+		/* Cluster of each instance, keeping the instance order. */
+		int[] assignments = new int[instances.size()];
+		int[] sizes = new int[numClusters];
+
+		for (int i = 0; i < instances.size(); i++) {
+			assignments[i] = clusterer.clusterInstance( instances.get(i) );
+			sizes[ assignments[i] ]++;
+		}
+
+		/* Copies each cluster into its own block, once. */
+		double[][] blocks = new double[numClusters][];
+		int[] fill = new int[numClusters];
+
+		for (int c = 0; c < numClusters; c++)
+			blocks[c] = new double[sizes[c] * d];
+
+		for (int i = 0; i < assignments.length; i++) {
+			int c = assignments[i];
+			copy(instances.get(i), attributes, ranges, blocks[c], fill[c]++ * d);
+		}
+
+		double[] centroidBlock = new double[numClusters * d];
+		for (int c = 0; c < numClusters; c++)
+			copy(centroids.get(c), attributes, ranges, centroidBlock, c * d);
+
+		/* Silhouette of each point, cluster by cluster. */
+		int[] offsets = new int[numClusters + 1];
+		for (int c = 0; c < numClusters; c++)
+			offsets[c + 1] = offsets[c] + sizes[c];
+
+		double[] silhouettes = new double[offsets[numClusters]];
+		PointsTask task = new PointsTask(blocks, centroidBlock, offsets, d,
+			euclidean, silhouettes, 0, silhouettes.length,
+			Math.max(MIN_TASK_SIZE, silhouettes.length / (numThreads() * 8)));
+
+		if (numThreads() > 1) {
+			ForkJoinPool pool = new ForkJoinPool(numThreads());
+			try {
+				pool.invoke(task);
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+		else
+			task.compute();
+
+		/* Sums in the same order as SilhouetteIndex. */
+		for (int i = 0; i < numClusters; i++) {
+			double centroidSilhouetteIndex = 0.0;
+
+			for (int j = offsets[i]; j < offsets[i + 1]; j++)
+				centroidSilhouetteIndex += silhouettes[j];
+
+			centroidSilhouetteIndex /= (sizes[i] - 1);
+			m_globalSilhouette += centroidSilhouetteIndex;
+
+			m_clustersSilhouette.add( centroidSilhouetteIndex );
+		}
+
+		m_globalSilhouette /= m_clustersSilhouette.size();
+	}
+
+	/**
+	 * Returns the number of threads to use.
+	 *
+	 * @return the number of threads.
+	 */
+	protected int numThreads() {
+		return (m_numThreads > 0) ? m_numThreads
+			: Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the attributes used by the distance function, or null if the
+	 * fast path cannot reproduce its distances.
+	 *
+	 * @param instances the instances to evaluate.
+	 * @param centroids the cluster centroids.
+	 * @param distanceFunction the distance function.
+	 * @return the active attribute indexes, or null.
+	 */
+	protected int[] activeAttributes(Instances instances, Instances centroids,
+		DistanceFunction distanceFunction) {
+
+		int[] attributes = numericAttributes(distanceFunction, instances);
+		if (attributes == null)
+			return null;
+
+		/* The distance function has its own rules for missing values. */
+		for (int i = 0; i < instances.size(); i++)
+			if (hasMissing(instances.get(i), attributes))
+				return null;
+
+		for (int i = 0; i < centroids.size(); i++)
+			if (hasMissing(centroids.get(i), attributes))
+				return null;
+
+		return attributes;
+	}
+
+	/**
+	 * Returns the attributes used by a Euclidean or Manhattan distance
+	 * function, or null if they are not all numeric.
+	 *
+	 * @param distanceFunction the distance function.
+	 * @param instances the instances to compare.
+	 * @return the active attribute indexes, or null.
+	 */
+	public static int[] numericAttributes(DistanceFunction distanceFunction,
+		Instances instances) {
+
+		if (distanceFunction.getClass() != EuclideanDistance.class
+			&& distanceFunction.getClass() != ManhattanDistance.class)
+			return null;
+
+		Instances header = distanceFunction.getInstances();
+		if (header == null || header.numAttributes() != instances.numAttributes())
+			return null;
+
+		Range range = new Range(distanceFunction.getAttributeIndices());
+		range.setInvert(distanceFunction.getInvertSelection());
+		range.setUpper(header.numAttributes() - 1);
+
+		int count = 0;
+		int[] attributes = new int[header.numAttributes()];
+
+		for (int i = 0; i < header.numAttributes(); i++) {
+			if (i == header.classIndex() || !range.isInRange(i))
+				continue;
+
+			if (!header.attribute(i).isNumeric())
+				return null;
+
+			attributes[count++] = i;
+		}
+
+		int[] result = new int[count];
+		System.arraycopy(attributes, 0, result, 0, count);
+
+		return result;
+	}
+
+	/**
+	 * Checks the given attributes for missing values.
+	 */
+	public static boolean hasMissing(Instance inst, int[] attributes) {
+		for (int i = 0; i < attributes.length; i++)
+			if (inst.isMissing(attributes[i]))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Copies (and normalizes) an instance into a block.
+	 */
+	public static void copy(Instance inst, int[] attributes, double[][] ranges,
+		double[] block, int offset) {
+
+		for (int i = 0; i < attributes.length; i++) {
+			int att = attributes[i];
+			double value = inst.value(att);
+
+			if (ranges != null) {
+				double width = ranges[att][NormalizableDistance.R_WIDTH];
+				value = (width == 0.0) ? 0
+					: (value - ranges[att][NormalizableDistance.R_MIN]) / width;
+			}
+			block[offset + i] = value;
+		}
+	}
+
+	/**
+	 * Euclidean distance between two rows.
+	 */
+	public static double euclidean(double[] a, int offA, double[] b, int offB, int d) {
+		return Math.sqrt(squaredEuclidean(a, offA, b, offB, d));
+	}
+
+	/**
+	 * Squared Euclidean distance between two rows.
+	 */
+	public static double squaredEuclidean(double[] a, int offA, double[] b, int offB, int d) {
+		double sum = 0;
+		for (int i = 0; i < d; i++) {
+			double diff = a[offA + i] - b[offB + i];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Manhattan distance between two rows.
+	 */
+	public static double manhattan(double[] a, int offA, double[] b, int offB, int d) {
+		double sum = 0;
+		for (int i = 0; i < d; i++)
+			sum += Math.abs(a[offA + i] - b[offB + i]);
+		return sum;
+	}
+
+	/**
+	 * Computes the silhouette of a range of points (in cluster order).
+	 */
+	protected static class PointsTask extends RecursiveAction {
+
+		static final long serialVersionUID = -305533168492651333L;
+
+		protected final double[][] m_blocks;
+		protected final double[] m_centroids;
+		protected final int[] m_offsets;
+		protected final int m_d;
+		protected final boolean m_euclidean;
+		protected final double[] m_result;
+		protected final int m_start;
+		protected final int m_end;
+		protected final int m_taskSize;
+
+		public PointsTask(double[][] blocks, double[] centroids, int[] offsets,
+			int d, boolean euclidean, double[] result, int start, int end, int taskSize) {
+
+			m_blocks    = blocks;
+			m_centroids = centroids;
+			m_offsets   = offsets;
+			m_d         = d;
+			m_euclidean = euclidean;
+			m_result    = result;
+			m_start     = start;
+			m_end       = end;
+			m_taskSize  = taskSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_end - m_start > m_taskSize) {
+				int middle = (m_start + m_end) >>> 1;
+				invokeAll(
+					new PointsTask(m_blocks, m_centroids, m_offsets, m_d, m_euclidean,
+						m_result, m_start, middle, m_taskSize),
+					new PointsTask(m_blocks, m_centroids, m_offsets, m_d, m_euclidean,
+						m_result, middle, m_end, m_taskSize));
+				return;
+			}
+
+			/* Finds the cluster of the first point. */
+			int c = 0;
+			while (m_offsets[c + 1] <= m_start)
+				c++;
+
+			for (int p = m_start; p < m_end; p++) {
+				while (m_offsets[c + 1] <= p)
+					c++;
+
+				m_result[p] = pointSilhouette(c, p - m_offsets[c]);
+			}
+		}
+
+		/**
+		 * Silhouette of the j-th point of cluster i.
+		 */
+		protected double pointSilhouette(int i, int j) {
+			double[] same = m_blocks[i];
+			int sizeI = m_offsets[i + 1] - m_offsets[i];
+			int row = j * m_d;
+			double meanDistSameC  = 0.0;
+			double meanDistOtherC = 0.0;
+
+			for (int k = 0; k < sizeI; k++) {
+				if (k == j)
+					continue;
+
+				meanDistSameC += m_euclidean ? euclidean(same, row, same, k * m_d, m_d)
+					: manhattan(same, row, same, k * m_d, m_d);
+			}
+
+			meanDistSameC /= (sizeI - 1);
+
+			/* Neighbour cluster: closest other centroid. */
+			double minDistance = Double.MAX_VALUE;
+			int minCentroid = 0;
+
+			for (int k = 0; k < m_blocks.length; k++) {
+				if (k == i)
+					continue;
+
+				double distance = m_euclidean
+					? euclidean(same, row, m_centroids, k * m_d, m_d)
+					: manhattan(same, row, m_centroids, k * m_d, m_d);
+
+				if (distance < minDistance) {
+					minDistance = distance;
+					minCentroid = k;
+				}
+			}
+
+			double[] other = m_blocks[minCentroid];
+			int sizeM = m_offsets[minCentroid + 1] - m_offsets[minCentroid];
+
+			for (int k = 0; k < sizeM; k++)
+				meanDistOtherC += m_euclidean ? euclidean(same, row, other, k * m_d, m_d)
+					: manhattan(same, row, other, k * m_d, m_d);
+
+			meanDistOtherC /= (sizeM - 1);
+
+			return (meanDistOtherC - meanDistSameC) /
+				Math.max( meanDistSameC, meanDistOtherC );
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package weka.clusterers.ymeans;
+
+import java.util.Locale;
+import java.util.Random;
+
+import weka.core.DistanceFunction;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.clusterers.AbstractClusterer;
+
+/**
+ * Approximate Silhouette Index. Instead of comparing every pair of
+ * instances, a stratified sample of at most m_sampleSize instances is
+ * drawn from each cluster and the silhouette is estimated inside the
+ * samples only, i.e: O((k * sampleSize)^2) distances instead of O(n^2).
+ *
+ * The estimator is the same one used by SilhouetteIndex, so when every
+ * cluster fits in the sample the results are exactly the same. A
+ * confidence bound (normal approximation, with finite population
+ * correction) is reported for the global silhouette.
+ */
+public class SampledSilhouetteIndex extends SilhouetteIndex {
+
+	static final long serialVersionUID = -305533168492651331L;
+
+	/** Default number of instances sampled per cluster. */
+	public static final int DEFAULT_SAMPLE_SIZE = 500;
+
+	/** z value for the confidence bound (95%). */
+	protected static final double Z_95 = 1.959963984540054;
+
+	/** Number of instances sampled per cluster. */
+	protected int m_sampleSize;
+
+	/** Seed used for sampling. */
+	protected int m_seed;
+
+	/** Standard error of the global silhouette. */
+	protected double m_globalStdError;
+
+	/** Number of instances actually used. */
+	protected int m_numSampled;
+
+	/** Number of instances evaluated. */
+	protected int m_numInstances;
+
+	public SampledSilhouetteIndex() {
+		this(DEFAULT_SAMPLE_SIZE, 1);
+	}
+
+	/**
+	 * Creates a new sampled silhouette.
+	 *
+	 * @param sampleSize maximum number of instances sampled per cluster.
+	 * @param seed seed for the random sampling.
+	 */
+	public SampledSilhouetteIndex(int sampleSize, int seed) {
+		super();
+		m_sampleSize = Math.max(2, sampleSize);
+		m_seed = seed;
+	}
+
+	@Override
+	public void evaluate(AbstractClusterer clusterer, Instances centroids,
+		Instances instances, DistanceFunction distanceFunction) throws Exception {
+
+		if (clusterer == null || instances == null)
+			throw new Exception("SilhouetteIndex: the clusterer or instances are null!");
+
+		int numClusters = centroids.size();
+
+		/* Cluster of each instance, and size of each cluster. */
+		int[] assignments = new int[instances.size()];
+		int[] sizes = new int[numClusters];
+
+		for (int i = 0; i < instances.size(); i++) {
+			assignments[i] = clusterer.clusterInstance( instances.get(i) );
+			sizes[ assignments[i] ]++;
+		}
+
+		/* Indexes of the instances of each cluster. */
+		int[][] members = new int[numClusters][];
+		int[] fill = new int[numClusters];
+
+		for (int c = 0; c < numClusters; c++)
+			members[c] = new int[sizes[c]];
+
+		for (int i = 0; i < assignments.length; i++)
+			members[ assignments[i] ][ fill[assignments[i]]++ ] = i;
+
+		/* Stratified sample: partial Fisher-Yates shuffle per cluster. */
+		Random random = new Random(m_seed);
+		Instance[][] samples = new Instance[numClusters][];
+
+		m_numSampled = 0;
+		m_numInstances = instances.size();
+
+		for (int c = 0; c < numClusters; c++) {
+			int n = Math.min(m_sampleSize, sizes[c]);
+			samples[c] = new Instance[n];
+
+			for (int j = 0; j < n; j++) {
+				int r = j + random.nextInt(sizes[c] - j);
+				int tmp = members[c][j];
+				members[c][j] = members[c][r];
+				members[c][r] = tmp;
+				samples[c][j] = instances.get( members[c][j] );
+			}
+			m_numSampled += n;
+		}
+
+		/* Silhouette of each sampled instance. */
+		double variance = 0.0;
+
+		for (int i = 0; i < numClusters; i++) {
+			double sum   = 0.0;
+			double sumSq = 0.0;
+
+			for (int j = 0; j < samples[i].length; j++) {
+				Instance i1 = samples[i][j];
+				double meanDistSameC  = 0.0;
+				double meanDistOtherC = 0.0;
+
+				for (int k = 0; k < samples[i].length; k++) {
+					if (k == j)
+						continue;
+
+					meanDistSameC += distanceFunction.distance(i1, samples[i][k]);
+				}
+
+				meanDistSameC /= (samples[i].length - 1);
+
+				/* Neighbour cluster: closest other centroid. */
+				double minDistance = Double.MAX_VALUE;
+				int minCentroid = 0;
+
+				for (int k = 0; k < numClusters; k++) {
+					if (k == i)
+						continue;
+
+					double distance = distanceFunction.distance(i1, centroids.get(k));
+					if (distance < minDistance) {
+						minDistance = distance;
+						minCentroid = k;
+					}
+				}
+
+				for (int k = 0; k < samples[minCentroid].length; k++)
+					meanDistOtherC += distanceFunction.distance(i1, samples[minCentroid][k]);
+
+				/* Sample mean, scaled the same way SilhouetteIndex does. */
+				meanDistOtherC = meanDistOtherC / samples[minCentroid].length
+					* sizes[minCentroid] / (sizes[minCentroid] - 1);
+
+				double pointSilhouetteIndex = (meanDistOtherC - meanDistSameC) /
+					Math.max( meanDistSameC, meanDistOtherC );
+
+				sum   += pointSilhouetteIndex;
+				sumSq += pointSilhouetteIndex * pointSilhouetteIndex;
+			}
+
+			int n = samples[i].length;
+			int N = sizes[i];
+			double scale = (double) N / (N - 1);
+			double mean  = sum / n;
+
+			m_clustersSilhouette.add( mean * scale );
+			m_globalSilhouette += mean * scale;
+
+			/* Variance of the cluster mean, finite population corrected. */
+			if (n > 1 && n < N) {
+				double s2 = Math.max(0.0, (sumSq - n * mean * mean) / (n - 1));
+				variance += s2 / n * (N - n) / (N - 1) * scale * scale;
+			}
+		}
+
+		m_globalSilhouette /= m_clustersSilhouette.size();
+		m_globalStdError = Math.sqrt(variance) / m_clustersSilhouette.size();
+	}
+
+	/**
+	 * Returns the standard error of the global silhouette.
+	 *
+	 * @return the standard error, 0 if every instance was used.
+	 */
+	public double getGlobalStdError() {
+		return m_globalStdError;
+	}
+
+	/**
+	 * Returns the half width of the 95% confidence interval of the
+	 * global silhouette.
+	 *
+	 * @return the confidence bound.
+	 */
+	public double getConfidenceBound() {
+		return Z_95 * m_globalStdError;
+	}
+
+	/**
+	 * Returns the number of instances sampled per cluster.
+	 *
+	 * @return the sample size.
+	 */
+	public int getSampleSize() {
+		return m_sampleSize;
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer description = new StringBuffer(super.toString());
+
+		description.append("\n   Confidence (95%): +/- "
+			+ String.format(Locale.US, "%.4f", getConfidenceBound())
+			+ ", sampled " + m_numSampled + " of " + m_numInstances + " instances");
+
+		return description.toString();
+	}
+}
@@ -0,0 +1,590 @@
+package weka.clusterers.ymeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import weka.clusterers.SimpleKMeans;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.Statistics;
+import weka.core.Utils;
+
+/**
+ * SimpleKMeans whose starting points come from the Y-means split/merge
+ * engine, i.e: the number of clusters is found while clustering instead
+ * of trying every K.
+ *
+ * Starting from the numClusters centroids of the initialization method
+ * (k-means++ by default, canopies are not supported), the engine
+ * alternates k-means iterations (reusing the previous assignments) with:
+ * <ul>
+ * <li>split phase: the farthest instance of a cluster and the instance
+ * farthest from it seed a local 2-means over the cluster. The split is kept
+ * if the cluster does not look Gaussian along the axis joining the two
+ * halves. Repeated until no cluster splits or maximumK is reached.</li>
+ * <li>merge phase: the closest pair of clusters whose union looks Gaussian
+ * along the axis joining their centroids is merged. Repeated until no pair
+ * qualifies or minimumK is reached.</li>
+ * </ul>
+ * The normality test is Anderson-Darling, as in G-means (Hamerly and
+ * Elkan, 2003). Both phases use the same test, so a merge does not simply
+ * undo a split.
+ *
+ * The resulting centroids are then refined by the regular SimpleKMeans
+ * loop, so all the usual statistics are available.
+ */
+public class SplitMergeKMeans extends SimpleKMeans {
+
+	static final long serialVersionUID = -305533168492651334L;
+
+	/** Default critical value of the normality test, alpha = 0.0001. */
+	public static final double DEFAULT_CRITICAL_VALUE = 1.8692;
+
+	/** Smallest cluster the normality test is run on. */
+	protected static final int MIN_TEST_SIZE = 8;
+
+	/** Minimum number of clusters. */
+	protected int m_minimumK = 2;
+
+	/** Maximum number of clusters. */
+	protected int m_maximumK = 10;
+
+	/** Critical value of the Anderson-Darling normality test. */
+	protected double m_criticalValue = DEFAULT_CRITICAL_VALUE;
+
+	/** Number of splits performed in the last build. */
+	protected int m_numSplits;
+
+	/** Number of merges performed in the last build. */
+	protected int m_numMerges;
+
+	public SplitMergeKMeans() {
+		super();
+		setInitializationMethod(new SelectedTag(KMEANS_PLUS_PLUS, TAGS_SELECTION));
+	}
+
+	/**
+	 * Returns the minimum number of clusters.
+	 *
+	 * @return the minimum K.
+	 */
+	public int getMinimumK() {
+		return m_minimumK;
+	}
+
+	/**
+	 * Sets the minimum number of clusters, merges stop there.
+	 *
+	 * @param minimumK the minimum K.
+	 */
+	public void setMinimumK(int minimumK) {
+		m_minimumK = minimumK;
+	}
+
+	/**
+	 * Returns the maximum number of clusters.
+	 *
+	 * @return the maximum K.
+	 */
+	public int getMaximumK() {
+		return m_maximumK;
+	}
+
+	/**
+	 * Sets the maximum number of clusters, splits stop there.
+	 *
+	 * @param maximumK the maximum K.
+	 */
+	public void setMaximumK(int maximumK) {
+		m_maximumK = maximumK;
+	}
+
+	/**
+	 * Returns the critical value of the normality test.
+	 *
+	 * @return the critical value.
+	 */
+	public double getCriticalValue() {
+		return m_criticalValue;
+	}
+
+	/**
+	 * Sets the critical value of the normality test, the higher the fewer
+	 * splits.
+	 *
+	 * @param criticalValue the critical value.
+	 */
+	public void setCriticalValue(double criticalValue) {
+		m_criticalValue = criticalValue;
+	}
+
+	/**
+	 * Returns the number of splits performed in the last build.
+	 *
+	 * @return the number of splits.
+	 */
+	public int getNumSplits() {
+		return m_numSplits;
+	}
+
+	/**
+	 * Returns the number of merges performed in the last build.
+	 *
+	 * @return the number of merges.
+	 */
+	public int getNumMerges() {
+		return m_numMerges;
+	}
+
+	/**
+	 * Runs the split/merge engine from the centroids of the initialization
+	 * method.
+	 *
+	 * @param data the training data, missing values already replaced.
+	 * @throws Exception if the initialization method is canopy, or a
+	 *         problem occurs
+	 */
+	@Override
+	protected void initializeCentroids(Instances data) throws Exception {
+		if (m_initializationMethod == CANOPY)
+			throw new Exception("Split/merge can't start from canopies!");
+
+		m_numSplits = 0;
+		m_numMerges = 0;
+
+		super.initializeCentroids(data);
+
+		List<Instance> centroids = new ArrayList<Instance>();
+		for (int i = 0; i < m_ClusterCentroids.numInstances(); i++)
+			centroids.add(m_ClusterCentroids.instance(i));
+
+		int[] assignments = new int[data.numInstances()];
+		double[] distances = new double[data.numInstances()];
+
+		assign(data, centroids, assignments, distances);
+
+		/* Split phase. */
+		do {
+			lloyd(data, centroids, assignments, distances);
+		} while (centroids.size() < m_maximumK
+			&& split(data, centroids, assignments, distances));
+
+		/* Merge phase. */
+		do {
+			lloyd(data, centroids, assignments, distances);
+		} while (centroids.size() > m_minimumK
+			&& merge(data, centroids, assignments, distances));
+
+		m_ClusterCentroids = new Instances(data, centroids.size());
+		for (Instance c : centroids)
+			m_ClusterCentroids.add(c);
+
+		m_initialStartPoints = new Instances(m_ClusterCentroids);
+	}
+
+	/**
+	 * k-Means iterations, starting from the current assignments. Empty
+	 * clusters are removed.
+	 */
+	protected void lloyd(Instances data, List<Instance> centroids,
+		int[] assignments, double[] distances) throws Exception {
+
+		for (int it = 0; it < m_MaxIterations; it++) {
+			move(data, centroids, assignments);
+			if (!assign(data, centroids, assignments, distances))
+				break;
+		}
+		removeEmpty(data, centroids, assignments);
+	}
+
+	/**
+	 * Assigns each instance to its closest centroid.
+	 *
+	 * @return true if some assignment changed.
+	 */
+	protected boolean assign(Instances data, List<Instance> centroids,
+		int[] assignments, double[] distances) {
+
+		boolean changed = false;
+
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance inst = data.instance(i);
+			double minDist = Double.MAX_VALUE;
+			int best = 0;
+
+			for (int c = 0; c < centroids.size(); c++) {
+				double dist = m_DistanceFunction.distance(inst, centroids.get(c), minDist);
+				if (dist < minDist) {
+					minDist = dist;
+					best = c;
+				}
+			}
+
+			if (best != assignments[i])
+				changed = true;
+
+			assignments[i] = best;
+			distances[i] = m_DistanceFunction.distance(inst, centroids.get(best));
+		}
+		return changed;
+	}
+
+	/**
+	 * Moves each centroid to the mean (mode for nominal attributes) of
+	 * its instances.
+	 */
+	protected void move(Instances data, List<Instance> centroids, int[] assignments) {
+		int k = centroids.size();
+		int numAtts = data.numAttributes();
+		double[][] sums = new double[k][numAtts];
+		double[][][] counts = new double[k][numAtts][];
+		double[] weights = new double[k];
+
+		for (int c = 0; c < k; c++)
+			for (int j = 0; j < numAtts; j++)
+				if (data.attribute(j).isNominal())
+					counts[c][j] = new double[data.attribute(j).numValues()];
+
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance inst = data.instance(i);
+			int c = assignments[i];
+			double w = inst.weight();
+
+			weights[c] += w;
+			for (int j = 0; j < numAtts; j++) {
+				if (counts[c][j] != null)
+					counts[c][j][(int) inst.value(j)] += w;
+				else
+					sums[c][j] += w * inst.value(j);
+			}
+		}
+
+		for (int c = 0; c < k; c++) {
+			if (weights[c] == 0)
+				continue;
+
+			for (int j = 0; j < numAtts; j++) {
+				if (counts[c][j] != null)
+					sums[c][j] = Utils.maxIndex(counts[c][j]);
+				else
+					sums[c][j] /= weights[c];
+			}
+			centroids.set(c, centroid(data, sums[c]));
+		}
+	}
+
+	/**
+	 * Removes the clusters without instances, keeping the assignments.
+	 */
+	protected void removeEmpty(Instances data, List<Instance> centroids,
+		int[] assignments) {
+
+		int[] sizes = new int[centroids.size()];
+		for (int a : assignments)
+			sizes[a]++;
+
+		int[] map = new int[centroids.size()];
+		List<Instance> kept = new ArrayList<Instance>();
+
+		for (int c = 0; c < centroids.size(); c++) {
+			map[c] = kept.size();
+			if (sizes[c] > 0)
+				kept.add(centroids.get(c));
+		}
+
+		if (kept.size() == centroids.size())
+			return;
+
+		for (int i = 0; i < assignments.length; i++)
+			assignments[i] = map[ assignments[i] ];
+
+		centroids.clear();
+		centroids.addAll(kept);
+	}
+
+	/**
+	 * Tries to split every cluster in two.
+	 *
+	 * @return true if some cluster was split.
+	 */
+	protected boolean split(Instances data, List<Instance> centroids,
+		int[] assignments, double[] distances) {
+
+		int k = centroids.size();
+		boolean split = false;
+
+		for (int c = 0; c < k && centroids.size() < m_maximumK; c++) {
+			if (trySplit(data, c, centroids, assignments, distances)) {
+				m_numSplits++;
+				split = true;
+			}
+		}
+		return split;
+	}
+
+	/**
+	 * Splits a cluster: its farthest instance and the instance farthest
+	 * from it seed a local 2-means over the members of the cluster. The
+	 * split is kept only if the members, projected on the axis joining the
+	 * two halves, are not normally distributed.
+	 *
+	 * @return true if the cluster was split.
+	 */
+	protected boolean trySplit(Instances data, int c, List<Instance> centroids,
+		int[] assignments, double[] distances) {
+
+		/* Members of the cluster, and its farthest instance. */
+		int[] members = new int[assignments.length];
+		int size = 0;
+		int farthest = -1;
+
+		for (int i = 0; i < assignments.length; i++) {
+			if (assignments[i] != c)
+				continue;
+
+			members[size++] = i;
+			if (farthest < 0 || distances[i] > distances[farthest])
+				farthest = i;
+		}
+
+		if (size < MIN_TEST_SIZE)
+			return false;
+
+		/* Second seed: the member farthest from the first one. */
+		Instance c1 = data.instance(farthest);
+		Instance c2 = null;
+		double maxDist = 0;
+
+		for (int m = 0; m < size; m++) {
+			double dist = m_DistanceFunction.distance(c1, data.instance(members[m]));
+			if (dist > maxDist) {
+				maxDist = dist;
+				c2 = data.instance(members[m]);
+			}
+		}
+
+		if (c2 == null)
+			return false;
+
+		/* Local 2-means. */
+		int[] side = new int[size];
+
+		for (int it = 0; it < m_MaxIterations; it++) {
+			boolean changed = false;
+			int first = 0;
+
+			for (int m = 0; m < size; m++) {
+				Instance inst = data.instance(members[m]);
+				int s = (m_DistanceFunction.distance(inst, c1)
+					<= m_DistanceFunction.distance(inst, c2)) ? 0 : 1;
+
+				if (s != side[m])
+					changed = true;
+
+				side[m] = s;
+				if (s == 0)
+					first++;
+			}
+
+			if (first == 0 || first == size)
+				return false;
+
+			if (!changed && it > 0)
+				break;
+
+			c1 = centroidOf(data, members, side, 0);
+			c2 = centroidOf(data, members, side, 1);
+		}
+
+		if (isGaussian(data, members, size, c1, c2))
+			return false;
+
+		int newCluster = centroids.size();
+		centroids.set(c, c1);
+		centroids.add(c2);
+
+		for (int m = 0; m < size; m++)
+			if (side[m] == 1)
+				assignments[ members[m] ] = newCluster;
+
+		return true;
+	}
+
+	/**
+	 * Merges the closest pair of clusters whose union, projected on the
+	 * axis joining their centroids, is normally distributed.
+	 *
+	 * @return true if two clusters were merged.
+	 */
+	protected boolean merge(Instances data, List<Instance> centroids,
+		int[] assignments, double[] distances) {
+
+		int k = centroids.size();
+		int[] members = new int[assignments.length];
+		double best = Double.MAX_VALUE;
+		int bestI = -1;
+		int bestJ = -1;
+
+		for (int i = 0; i < k; i++) {
+			for (int j = i + 1; j < k; j++) {
+				double dist = m_DistanceFunction.distance(centroids.get(i), centroids.get(j));
+				if (dist >= best)
+					continue;
+
+				int size = 0;
+				for (int m = 0; m < assignments.length; m++)
+					if (assignments[m] == i || assignments[m] == j)
+						members[size++] = m;
+
+				if (isGaussian(data, members, size, centroids.get(i), centroids.get(j))) {
+					best  = dist;
+					bestI = i;
+					bestJ = j;
+				}
+			}
+		}
+
+		if (bestI < 0)
+			return false;
+
+		/* Reuses the assignments: j joins i, the last cluster takes j's place. */
+		int last = k - 1;
+		for (int i = 0; i < assignments.length; i++) {
+			if (assignments[i] == bestJ)
+				assignments[i] = bestI;
+			else if (assignments[i] == last)
+				assignments[i] = bestJ;
+		}
+		centroids.set(bestJ, centroids.get(last));
+		centroids.remove(last);
+
+		m_numMerges++;
+		return true;
+	}
+
+	/**
+	 * Anderson-Darling test of the members projected on the axis joining
+	 * two centroids. The projection only needs distances, i.e: x = (d(x,
+	 * c2)^2 - d(x, c1)^2) / (2 * d(c1, c2)), so it is done in the space of
+	 * the distance function.
+	 *
+	 * @param data the training data.
+	 * @param members indexes of the members.
+	 * @param size number of members.
+	 * @param c1 first centroid.
+	 * @param c2 second centroid.
+	 * @return true if the projection looks normally distributed.
+	 */
+	protected boolean isGaussian(Instances data, int[] members, int size,
+		Instance c1, Instance c2) {
+
+		double axis = m_DistanceFunction.distance(c1, c2);
+		if (size < MIN_TEST_SIZE || axis == 0)
+			return true;
+
+		double[] x = new double[size];
+		double mean = 0;
+
+		for (int m = 0; m < size; m++) {
+			Instance inst = data.instance(members[m]);
+			double d1 = m_DistanceFunction.distance(inst, c1);
+			double d2 = m_DistanceFunction.distance(inst, c2);
+
+			x[m] = (d2 * d2 - d1 * d1) / (2 * axis);
+			mean += x[m];
+		}
+		mean /= size;
+
+		double var = 0;
+		for (int m = 0; m < size; m++)
+			var += (x[m] - mean) * (x[m] - mean);
+
+		double std = Math.sqrt(var / (size - 1));
+		if (std == 0)
+			return true;
+
+		Arrays.sort(x);
+
+		double a2 = 0;
+		for (int m = 0; m < size; m++) {
+			double lo = cdf((x[m] - mean) / std);
+			double hi = cdf((x[size - 1 - m] - mean) / std);
+
+			a2 += (2 * m + 1) * (Math.log(lo) + Math.log(1 - hi));
+		}
+		a2 = -size - a2 / size;
+
+		/* Correction for estimated mean and variance. */
+		a2 *= 1 + 4.0 / size - 25.0 / ((double) size * size);
+
+		return a2 <= m_criticalValue;
+	}
+
+	/**
+	 * Standard normal CDF, kept away from 0 and 1.
+	 */
+	protected static double cdf(double z) {
+		return Math.min(1 - 1e-12, Math.max(1e-12, Statistics.normalProbability(z)));
+	}
+
+	/**
+	 * Mean (mode for nominal attributes) of the members on the given side.
+	 */
+	protected static Instance centroidOf(Instances data, int[] members, int[] side,
+		int which) {
+
+		int numAtts = data.numAttributes();
+		double[] values = new double[numAtts];
+		double[][] counts = new double[numAtts][];
+		double weight = 0;
+
+		for (int j = 0; j < numAtts; j++)
+			if (data.attribute(j).isNominal())
+				counts[j] = new double[data.attribute(j).numValues()];
+
+		for (int m = 0; m < side.length; m++) {
+			if (side[m] != which)
+				continue;
+
+			Instance inst = data.instance(members[m]);
+			double w = inst.weight();
+
+			weight += w;
+			for (int j = 0; j < numAtts; j++) {
+				if (counts[j] != null)
+					counts[j][(int) inst.value(j)] += w;
+				else
+					values[j] += w * inst.value(j);
+			}
+		}
+
+		for (int j = 0; j < numAtts; j++)
+			values[j] = (counts[j] != null) ? Utils.maxIndex(counts[j]) : values[j] / weight;
+
+		return centroid(data, values);
+	}
+
+	/**
+	 * Creates a centroid instance.
+	 */
+	protected static Instance centroid(Instances data, double[] values) {
+		Instance inst = new DenseInstance(1.0, values);
+		inst.setDataset(data);
+		return inst;
+	}
+
+	/**
+	 * Describes the starting points: the ones found by the split/merge
+	 * engine, from the centroids of the initialization method.
+	 *
+	 * @return the description.
+	 */
+	@Override
+	protected String initialStartPointsDescription() {
+		return "split/merge from " + super.initialStartPointsDescription() + ": "
+			+ m_numSplits + " splits, " + m_numMerges + " merges";
+	}
+}
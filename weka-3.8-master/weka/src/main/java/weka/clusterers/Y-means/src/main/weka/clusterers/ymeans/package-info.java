@@ -1,2 +1,2 @@
 
-package weka.clusterers.Y_means;
+package weka.clusterers.ymeans;
@@ -1,24 +1,561 @@
-
 package weka.clusterers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import weka.clusterers.AbstractClustererTest;
 import weka.clusterers.Clusterer;
+import weka.clusterers.ymeans.SplitMergeKMeans;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.DistanceFunction;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.TestInstances;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
 
-public class Y_meansTest 
+public class Y_meansTest
 	extends AbstractClustererTest {
 
-	public Y_meansTest(String name) { 
-		super(name);  
+	public Y_meansTest(String name) {
+		super(name);
 	}
 
 	public Clusterer getClusterer() {
 		return new Y_means();
 	}
 
+	/**
+	 * Generates 150 instances with 4 numeric attributes and no class.
+	 */
+	protected Instances getData() throws Exception {
+		TestInstances test = new TestInstances();
+		test.setNumNominal(0);
+		test.setNumNumeric(4);
+		test.setNoClass(true);
+		test.setNumInstances(150);
+		test.setSeed(1);
+
+		return test.generate();
+	}
+
+	/**
+	 * Returns the cluster of each instance.
+	 */
+	protected int[] clusters(Clusterer clusterer, Instances data) throws Exception {
+		int[] clusters = new int[data.numInstances()];
+		for (int i = 0; i < clusters.length; i++)
+			clusters[i] = clusterer.clusterInstance(data.instance(i));
+
+		return clusters;
+	}
+
+	/**
+	 * Builds from an empty dataset and updates: the model is built once
+	 * there are K instances, then updated by the following ones, so the
+	 * instances can be clustered before updateFinished.
+	 */
+	public void testUpdatesFromEmptyDataset() throws Exception {
+		Instances data = getData();
+
+		Y_means incremental = new Y_means();
+		incremental.setNumClusters(3);
+		incremental.buildClusterer(new Instances(data, 0));
+		for (int i = 0; i < 2; i++)
+			incremental.updateClusterer(data.instance(i));
+		try {
+			incremental.clusterInstance(data.instance(0));
+			fail("clustered with fewer instances than K");
+		}
+		catch (Exception e) {
+			// expected
+		}
+		incremental.updateClusterer(data.instance(2));
+
+		Y_means batch = new Y_means();
+		batch.setNumClusters(3);
+		batch.buildClusterer(new Instances(data, 0, 3));
+		assertTrue("bootstrap clusters differ", Arrays.equals(clusters(batch, data), clusters(incremental, data)));
+
+		for (int i = 3; i < data.numInstances(); i++) {
+			batch.updateClusterer(data.instance(i));
+			incremental.updateClusterer(data.instance(i));
+		}
+		batch.updateFinished();
+		incremental.updateFinished();
+
+		assertEquals("number of clusters", 3, incremental.numberOfClusters());
+		assertTrue("clusters differ", Arrays.equals(clusters(batch, data), clusters(incremental, data)));
+	}
+
+	/**
+	 * Builds from an empty dataset in cascade mode: the model waits for as
+	 * many instances as the maximum K, or is built by updateFinished from
+	 * fewer instances.
+	 */
+	public void testCascadeUpdatesFromEmptyDataset() throws Exception {
+		Instances data = getData();
+
+		Y_means incremental = new Y_means();
+		incremental.setCascade(true);
+		incremental.setMinimumK(2);
+		incremental.setMaximumK(5);
+		incremental.buildClusterer(new Instances(data, 0));
+		for (int i = 0; i < 4; i++)
+			incremental.updateClusterer(data.instance(i));
+		assertNull("built with fewer instances than the maximum K", incremental.m_skmeans);
+		incremental.updateClusterer(data.instance(4));
+		assertNotNull("not built with the maximum K instances", incremental.m_skmeans);
+
+		Y_means finished = new Y_means();
+		finished.setOptions(incremental.getOptions());
+		finished.buildClusterer(new Instances(data, 0));
+		for (int i = 0; i < 4; i++)
+			finished.updateClusterer(data.instance(i));
+		finished.updateFinished();
+
+		Y_means batch = new Y_means();
+		batch.setOptions(incremental.getOptions());
+		batch.buildClusterer(new Instances(data, 0, 4));
+		assertEquals("number of clusters", batch.numberOfClusters(), finished.numberOfClusters());
+		assertTrue("clusters differ", Arrays.equals(clusters(batch, data), clusters(finished, data)));
+	}
+
+	/**
+	 * Updates a built model: each centroid is the mean of the instances it
+	 * was built from plus the instances added to it, and the statistics of
+	 * the SimpleKMeans model are left alone.
+	 */
+	public void testUpdatesFollowMeans() throws Exception {
+		Instances data = getData();
+		Instances train = new Instances(data, 0, 100);
+
+		Y_means clusterer = new Y_means();
+		clusterer.setNumClusters(3);
+		clusterer.buildClusterer(train);
+
+		int k = clusterer.numberOfClusters();
+		int d = data.numAttributes();
+		double[][] sums = new double[k][d];
+		double[] sizes = new double[k];
+		double[] builtSizes = clusterer.m_skmeans.getClusterSizes().clone();
+		String builtModel = clusterer.m_skmeans.toString();
+
+		for (int i = 0; i < train.numInstances(); i++) {
+			int c = clusterer.clusterInstance(train.instance(i));
+			sizes[c]++;
+			for (int j = 0; j < d; j++)
+				sums[c][j] += train.instance(i).value(j);
+		}
+
+		for (int i = train.numInstances(); i < data.numInstances(); i++) {
+			int c = clusterer.clusterInstance(data.instance(i));
+			clusterer.updateClusterer(data.instance(i));
+
+			sizes[c]++;
+			for (int j = 0; j < d; j++)
+				sums[c][j] += data.instance(i).value(j);
+			for (int j = 0; j < d; j++)
+				assertEquals("centroid " + c + ", attribute " + j, sums[c][j] / sizes[c],
+					clusterer.m_clusterCentroids.instance(c).value(j), 1e-9);
+		}
+		clusterer.updateFinished();
+
+		assertTrue("cluster sizes differ", Arrays.equals(sizes, clusterer.m_clusterSizes));
+		assertTrue("model sizes changed", Arrays.equals(builtSizes, clusterer.m_skmeans.getClusterSizes()));
+		assertEquals("model changed", builtModel, clusterer.m_skmeans.toString());
+	}
+
+	/**
+	 * Re-validates K once every instance has been seen: the adopted model
+	 * is the one built in batch over all the instances.
+	 */
+	public void testRevalidation() throws Exception {
+		Instances data = getData();
+		Instances train = new Instances(data, 0, 50);
+
+		Y_means batch = new Y_means();
+		batch.setCascade(true);
+		batch.setMaximumK(6);
+		batch.buildClusterer(data);
+
+		Y_means incremental = new Y_means();
+		incremental.setOptions(batch.getOptions());
+		incremental.setRevalidationInterval(data.numInstances() - train.numInstances());
+		incremental.buildClusterer(train);
+		SimpleKMeans built = incremental.m_skmeans;
+
+		for (int i = train.numInstances(); i < data.numInstances(); i++)
+			incremental.updateClusterer(data.instance(i));
+		incremental.updateFinished();
+
+		assertNotSame("re-validation not adopted", built, incremental.m_skmeans);
+		assertEquals("number of clusters", batch.numberOfClusters(), incremental.numberOfClusters());
+		assertTrue("clusters differ", Arrays.equals(clusters(batch, data), clusters(incremental, data)));
+	}
+
+	/**
+	 * Sets every option to a value other than its default and checks that
+	 * they survive getOptions/setOptions.
+	 */
+	public void testOptionsRoundTrip() throws Exception {
+		Y_means clusterer = new Y_means();
+		clusterer.setSplitMerge(true);
+		clusterer.setCriticalValue(2.5);
+		clusterer.setMinimumK(3);
+		clusterer.setMaximumK(7);
+		clusterer.setSilhouetteSampleSize(20);
+		clusterer.setNumExecutionSlots(3);
+		clusterer.setAbnormalThreshold(0.1);
+		clusterer.setAbnormalSpread(2.0);
+		clusterer.setBatchSize("50");
+		clusterer.setUpdateBufferSize(500);
+		clusterer.setRevalidationInterval(200);
+
+		String[] options = clusterer.getOptions();
+		Y_means copy = new Y_means();
+		copy.setOptions(options.clone());
+
+		assertTrue("options differ", Arrays.equals(options, copy.getOptions()));
+		assertTrue("split/merge", copy.getSplitMerge());
+		assertEquals("critical value", 2.5, copy.getCriticalValue(), 0);
+		assertEquals("minimum K", 3, copy.getMinimumK());
+		assertEquals("maximum K", 7, copy.getMaximumK());
+		assertEquals("silhouette sample", 20, copy.getSilhouetteSampleSize());
+		assertEquals("execution slots", 3, copy.getNumExecutionSlots());
+		assertEquals("abnormal threshold", 0.1, copy.getAbnormalThreshold(), 0);
+		assertEquals("abnormal spread", 2.0, copy.getAbnormalSpread(), 0);
+		assertEquals("batch size", "50", copy.getBatchSize());
+		assertEquals("update buffer", 500, copy.getUpdateBufferSize());
+		assertEquals("revalidation interval", 200, copy.getRevalidationInterval());
+	}
+
+	/**
+	 * Split/merge starts from the centroids of the initialization method
+	 * and reports how many splits and merges it made.
+	 */
+	public void testSplitMergeInitialization() throws Exception {
+		Instances data = getData();
+
+		for (int method : new int[] { SimpleKMeans.RANDOM,
+			SimpleKMeans.KMEANS_PLUS_PLUS, SimpleKMeans.FARTHEST_FIRST }) {
+
+			Y_means clusterer = new Y_means();
+			clusterer.setSplitMerge(true);
+			clusterer.setMinimumK(2);
+			clusterer.setMaximumK(6);
+			clusterer.setInitializationMethod(new SelectedTag(method, SimpleKMeans.TAGS_SELECTION));
+			clusterer.buildClusterer(data);
+
+			SplitMergeKMeans engine = (SplitMergeKMeans) clusterer.m_skmeans;
+			String name = new SelectedTag(method, SimpleKMeans.TAGS_SELECTION)
+				.getSelectedTag().getReadable();
+			assertEquals("initialization method of " + name, method,
+				engine.getInitializationMethod().getSelectedTag().getID());
+			assertTrue("starting points of " + name, engine.toString().contains(
+				"Initial starting points (split/merge from " + name.toLowerCase() + ": "
+				+ engine.getNumSplits() + " splits, " + engine.getNumMerges() + " merges)"));
+		}
+	}
+
+	/**
+	 * Split/merge can't be combined with cascade or with the canopy
+	 * initialization.
+	 */
+	public void testConflictingOptions() throws Exception {
+		Instances data = getData();
+
+		Y_means clusterer = new Y_means();
+		clusterer.setSplitMerge(true);
+		clusterer.setCascade(true);
+		try {
+			clusterer.buildClusterer(data);
+			fail("split/merge built with cascade");
+		}
+		catch (Exception e) {
+			// expected
+		}
+
+		clusterer.setCascade(false);
+		clusterer.setInitializationMethod(new SelectedTag(SimpleKMeans.CANOPY, SimpleKMeans.TAGS_SELECTION));
+		try {
+			clusterer.buildClusterer(data);
+			fail("split/merge built from canopies");
+		}
+		catch (Exception e) {
+			// expected
+		}
+
+		try {
+			new Y_means().setOptions(new String[] { "-split-merge", "-cascade" });
+			fail("split/merge and cascade options accepted");
+		}
+		catch (Exception e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Scores a batch and compares each instance with k-Means and with the
+	 * instance scored on its own.
+	 *
+	 * @param data the instances, the model is built from them.
+	 * @param slots the number of execution slots.
+	 */
+	protected void checkBatchScores(Instances data, int slots) throws Exception {
+		Y_means clusterer = new Y_means();
+		clusterer.setNumClusters(4);
+		clusterer.setNumExecutionSlots(slots);
+		clusterer.buildClusterer(data);
+
+		int[] clusters = new int[data.numInstances()];
+		double[] distances = new double[data.numInstances()];
+		clusterer.score(data, clusters, distances);
+		double[] scores = clusterer.abnormalScores(data);
+
+		SimpleKMeans skmeans = clusterer.m_skmeans;
+		DistanceFunction df = skmeans.getDistanceFunction();
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance inst = data.instance(i);
+			String name = "instance " + i + ", " + slots + " slots";
+
+			/* k-Means, with the instance filtered on its own. */
+			skmeans.m_ReplaceMissingFilter.input(inst);
+			skmeans.m_ReplaceMissingFilter.batchFinished();
+			Instance replaced = skmeans.m_ReplaceMissingFilter.output();
+			assertEquals("cluster of " + name, skmeans.clusterInstance(inst), clusters[i]);
+			assertEquals("distance of " + name, df.distance(replaced,
+				skmeans.getClusterCentroids().instance(clusters[i])), distances[i], 1e-12);
+
+			/* The instance scored on its own. */
+			int[] cluster = new int[1];
+			double[] distance = new double[1];
+			clusterer.closestCentroid(inst, cluster, distance);
+			assertEquals("single cluster of " + name, cluster[0], clusters[i]);
+			assertEquals("single distance of " + name, distance[0], distances[i], 0);
+
+			Instances single = new Instances(data, 0);
+			single.add(inst);
+			assertEquals("single score of " + name, clusterer.abnormalScores(single)[0],
+				scores[i], 0);
+		}
+	}
+
+	/**
+	 * Sets about 10% of the values to missing.
+	 */
+	protected void addMissing(Instances data) {
+		Random random = new Random(1);
+		for (int i = 0; i < data.numInstances(); i++)
+			for (int j = 0; j < data.numAttributes(); j++)
+				if (random.nextDouble() < 0.1)
+					data.instance(i).setMissing(j);
+	}
+
+	/**
+	 * Batch scoring of numeric data, with and without missing values, in
+	 * one and several threads, matches per-instance scoring.
+	 */
+	public void testBatchScores() throws Exception {
+		TestInstances test = new TestInstances();
+		test.setNumNominal(0);
+		test.setNumNumeric(4);
+		test.setNoClass(true);
+		test.setNumInstances(3 * Y_means.MIN_SCORING_CHUNK);
+		test.setSeed(1);
+		Instances data = test.generate();
+
+		checkBatchScores(data, 1);
+		checkBatchScores(data, 3);
+
+		addMissing(data);
+		checkBatchScores(data, 1);
+		checkBatchScores(data, 3);
+	}
+
+	/**
+	 * Batch scoring of data with nominal attributes, which does not take
+	 * the fast path, matches per-instance scoring.
+	 */
+	public void testBatchScoresNominal() throws Exception {
+		TestInstances test = new TestInstances();
+		test.setNumNominal(2);
+		test.setNumNumeric(3);
+		test.setNoClass(true);
+		test.setNumInstances(300);
+		test.setSeed(2);
+		Instances data = test.generate();
+		addMissing(data);
+
+		checkBatchScores(data, 1);
+	}
+
+	/**
+	 * Generates three well separated Gaussian blobs of 50 instances.
+	 */
+	protected Instances getBlobs() {
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("x"));
+		attributes.add(new Attribute("y"));
+		Instances data = new Instances("blobs", attributes, 150);
+
+		double[][] centers = { { 0, 0 }, { 10, 0 }, { 0, 10 } };
+		Random random = new Random(1);
+		for (int i = 0; i < 150; i++) {
+			double[] center = centers[i % centers.length];
+			data.add(new DenseInstance(1.0, new double[] {
+				center[0] + random.nextGaussian(), center[1] + random.nextGaussian() }));
+		}
+
+		return data;
+	}
+
+	/**
+	 * Returns a list holding the given values.
+	 */
+	protected static List<Double> curve(double... values) {
+		List<Double> curve = new ArrayList<Double>();
+		for (double value : values)
+			curve.add(value);
+
+		return curve;
+	}
+
+	/**
+	 * The knee of a curve with a known elbow, and of curves without one.
+	 */
+	public void testKneeIndex() throws Exception {
+		assertEquals("elbow", 2, Y_means.kneeIndex(curve(1000, 400, 100, 90, 80, 70, 60)));
+		assertEquals("early elbow", 1, Y_means.kneeIndex(curve(100, 10, 9, 8, 7)));
+		assertEquals("late elbow", 3, Y_means.kneeIndex(curve(100, 70, 40, 10, 9, 8)));
+
+		assertEquals("straight line", 0, Y_means.kneeIndex(curve(50, 40, 30, 20, 10)));
+		assertEquals("concave", 0, Y_means.kneeIndex(curve(100, 99, 97, 90, 50)));
+		assertEquals("increasing", 0, Y_means.kneeIndex(curve(10, 20, 30, 40)));
+		assertEquals("flat", 0, Y_means.kneeIndex(curve(5, 5, 5, 5)));
+		assertEquals("2 points", 0, Y_means.kneeIndex(curve(100, 10)));
+		assertEquals("1 point", 0, Y_means.kneeIndex(curve(100)));
+		assertEquals("empty", 0, Y_means.kneeIndex(curve()));
+	}
+
+	/**
+	 * In cascade mode with the elbow method, the SSE curve holds the SSE
+	 * of every K and the best K is at its knee.
+	 */
+	public void testSSECurve() throws Exception {
+		Instances data = getBlobs();
+
+		Y_means clusterer = new Y_means();
+		clusterer.setCascade(true);
+		clusterer.setMinimumK(2);
+		clusterer.setMaximumK(8);
+		clusterer.setValidationMethod(new SelectedTag(Y_means.ELBOW_METHOD, Y_means.VALIDATION_SELECTION));
+		clusterer.buildClusterer(data);
+
+		double[][] curve = clusterer.getSSECurve();
+		List<Double> sse = new ArrayList<Double>();
+		assertEquals("number of K", 7, curve.length);
+		for (int i = 0; i < curve.length; i++) {
+			int k = 2 + i;
+			assertEquals("K", k, curve[i][0], 0);
+			assertEquals("SSE for K = " + k, clusterer.buildKMeans(data, k, null).getSquaredError(),
+				curve[i][1], 0);
+			sse.add(curve[i][1]);
+		}
+
+		assertEquals("best K", 2 + Y_means.kneeIndex(sse), clusterer.getBestK());
+		assertEquals("best K of the blobs", 3, clusterer.getBestK());
+		assertEquals("number of clusters", 3, clusterer.numberOfClusters());
+	}
+
+	/**
+	 * Without cascade, the SSE curve has the single K built and no best K
+	 * is searched.
+	 */
+	public void testSSECurveSingleK() throws Exception {
+		Y_means clusterer = new Y_means();
+		try {
+			clusterer.getSSECurve();
+			fail("SSE curve before building");
+		}
+		catch (Exception e) {
+			// expected
+		}
+
+		clusterer.setNumClusters(4);
+		clusterer.buildClusterer(getBlobs());
+
+		double[][] curve = clusterer.getSSECurve();
+		assertEquals("number of K", 1, curve.length);
+		assertEquals("K", 4, curve[0][0], 0);
+		assertEquals("SSE", clusterer.m_skmeans.getSquaredError(), curve[0][1], 0);
+		assertEquals("best K", 0, clusterer.getBestK());
+	}
+
+	/**
+	 * Builds in cascade mode with one and with several execution slots,
+	 * and checks that both find the same K and the same model.
+	 *
+	 * @param data the data.
+	 * @param validation the validation method.
+	 * @param sampleSize the Silhouette sample size, 0 = all.
+	 */
+	protected void checkParallelCascade(Instances data, int validation, int sampleSize)
+		throws Exception {
+
+		Y_means sequential = new Y_means();
+		sequential.setCascade(true);
+		sequential.setMinimumK(2);
+		sequential.setMaximumK(7);
+		sequential.setValidationMethod(new SelectedTag(validation, Y_means.VALIDATION_SELECTION));
+		sequential.setSilhouetteSampleSize(sampleSize);
+		sequential.buildClusterer(data);
+
+		for (int slots : new int[] { 2, 4 }) {
+			Y_means parallel = new Y_means();
+			parallel.setOptions(sequential.getOptions());
+			parallel.setNumExecutionSlots(slots);
+			parallel.buildClusterer(data);
+
+			String name = "validation " + validation + ", sample " + sampleSize
+				+ ", " + slots + " slots";
+			assertEquals("best K, " + name, sequential.getBestK(), parallel.getBestK());
+			assertEquals("number of clusters, " + name, sequential.numberOfClusters(),
+				parallel.numberOfClusters());
+			assertEquals("model, " + name, sequential.m_skmeans.toString(),
+				parallel.m_skmeans.toString());
+			assertTrue("clusters, " + name, Arrays.equals(clusters(sequential, data),
+				clusters(parallel, data)));
+			assertTrue("SSE curve, " + name, Arrays.deepEquals(sequential.getSSECurve(),
+				parallel.getSSECurve()));
+
+			if (validation == Y_means.SILHOUETTE_INDEX) {
+				for (int i = 0; i < sequential.m_silhouetteIdx.size(); i++)
+					assertEquals("silhouette of K = " + (2 + i) + ", " + name,
+						sequential.m_silhouetteIdx.get(i).getGlobalSilhouette(),
+						parallel.m_silhouetteIdx.get(i).getGlobalSilhouette(), 0);
+			}
+		}
+	}
+
+	/**
+	 * The cascade K built in parallel give the same K and model as built
+	 * one after the other, whatever the validation method.
+	 */
+	public void testParallelCascade() throws Exception {
+		checkParallelCascade(getData(), Y_means.SILHOUETTE_INDEX, 0);
+		checkParallelCascade(getData(), Y_means.SILHOUETTE_INDEX, 20);
+		checkParallelCascade(getData(), Y_means.ELBOW_METHOD, 0);
+		checkParallelCascade(getBlobs(), Y_means.SILHOUETTE_INDEX, 0);
+		checkParallelCascade(getBlobs(), Y_means.ELBOW_METHOD, 0);
+	}
+
 	public static Test suite() {
 		return new TestSuite(Y_meansTest.class);
 	}
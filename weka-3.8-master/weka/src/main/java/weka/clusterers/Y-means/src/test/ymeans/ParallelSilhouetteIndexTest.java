@@ -0,0 +1,155 @@
+package weka.clusterers.ymeans;
+
+import java.util.Random;
+
+import weka.clusterers.SimpleKMeans;
+import weka.core.DistanceFunction;
+import weka.core.EuclideanDistance;
+import weka.core.Instances;
+import weka.core.ManhattanDistance;
+import weka.core.TestInstances;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+
+/**
+ * Checks that ParallelSilhouetteIndex gives the same results as
+ * SilhouetteIndex, on the fast path and on the fallback path.
+ */
+public class ParallelSilhouetteIndexTest
+	extends TestCase {
+
+	/** Thread counts tried, 0 = every available processor. */
+	protected static final int[] THREADS = { 1, 2, 3, 0 };
+
+	public ParallelSilhouetteIndexTest(String name) {
+		super(name);
+	}
+
+	/**
+	 * Generates a dataset without class, its instances shuffled so that
+	 * the clusters are not contiguous.
+	 *
+	 * @param numInstances the number of instances.
+	 * @param numNumeric the number of numeric attributes.
+	 * @param numNominal the number of nominal attributes.
+	 * @param seed the seed of the data and of the shuffling.
+	 * @return the dataset.
+	 */
+	protected Instances getData(int numInstances, int numNumeric, int numNominal,
+		int seed) throws Exception {
+
+		TestInstances test = new TestInstances();
+		test.setNumNumeric(numNumeric);
+		test.setNumNominal(numNominal);
+		test.setNoClass(true);
+		test.setNumInstances(numInstances);
+		test.setSeed(seed);
+
+		Instances data = test.generate();
+		data.randomize(new Random(seed));
+
+		return data;
+	}
+
+	/**
+	 * Clusters the data and compares both Silhouette Indexes, with every
+	 * thread count.
+	 *
+	 * @param data the data.
+	 * @param k the number of clusters.
+	 * @param distanceFunction the distance function of k-Means.
+	 * @param fastPath whether the fast path is expected to be taken.
+	 */
+	protected void checkSilhouette(Instances data, int k,
+		DistanceFunction distanceFunction, boolean fastPath) throws Exception {
+
+		SimpleKMeans skmeans = new SimpleKMeans();
+		skmeans.setNumClusters(k);
+		skmeans.setDistanceFunction(distanceFunction);
+		skmeans.buildClusterer(data);
+
+		Instances centroids = skmeans.getClusterCentroids();
+		DistanceFunction df = skmeans.getDistanceFunction();
+
+		SilhouetteIndex expected = new SilhouetteIndex();
+		expected.evaluate(skmeans, centroids, data, df);
+
+		for (int threads : THREADS) {
+			ParallelSilhouetteIndex actual = new ParallelSilhouetteIndex(threads);
+			String name = data.numInstances() + " instances, k = " + k + ", "
+				+ threads + " threads";
+
+			assertEquals("fast path, " + name, fastPath,
+				actual.activeAttributes(data, centroids, df) != null);
+
+			actual.evaluate(skmeans, centroids, data, df);
+			assertEquals("global, " + name, expected.getGlobalSilhouette(),
+				actual.getGlobalSilhouette(), 0);
+			assertEquals("clusters, " + name, expected.getClustersSilhouette().size(),
+				actual.getClustersSilhouette().size());
+			for (int c = 0; c < expected.getClustersSilhouette().size(); c++)
+				assertEquals("cluster " + c + ", " + name,
+					expected.getClustersSilhouette().get(c),
+					actual.getClustersSilhouette().get(c), 0);
+		}
+	}
+
+	/**
+	 * Numeric data and Euclidean distance: the fast path.
+	 */
+	public void testEuclidean() throws Exception {
+		checkSilhouette(getData(150, 4, 0, 1), 3, new EuclideanDistance(), true);
+		checkSilhouette(getData(500, 10, 0, 2), 7, new EuclideanDistance(), true);
+		checkSilhouette(getData(40, 2, 0, 3), 2, new EuclideanDistance(), true);
+	}
+
+	/**
+	 * Numeric data and Manhattan distance: the fast path.
+	 */
+	public void testManhattan() throws Exception {
+		checkSilhouette(getData(150, 4, 0, 4), 3, new ManhattanDistance(), true);
+		checkSilhouette(getData(300, 6, 0, 5), 5, new ManhattanDistance(), true);
+	}
+
+	/**
+	 * Distances that are not normalized: the fast path.
+	 */
+	public void testDontNormalize() throws Exception {
+		EuclideanDistance distance = new EuclideanDistance();
+		distance.setDontNormalize(true);
+
+		checkSilhouette(getData(200, 5, 0, 6), 4, distance, true);
+	}
+
+	/**
+	 * Nominal attributes: falls back to SilhouetteIndex.
+	 */
+	public void testNominalFallback() throws Exception {
+		checkSilhouette(getData(150, 3, 2, 7), 3, new EuclideanDistance(), false);
+	}
+
+	/**
+	 * Missing values: falls back to SilhouetteIndex.
+	 */
+	public void testMissingFallback() throws Exception {
+		Instances data = getData(150, 4, 0, 8);
+		Random random = new Random(8);
+		for (int i = 0; i < data.numInstances(); i++)
+			for (int j = 0; j < data.numAttributes(); j++)
+				if (random.nextDouble() < 0.05)
+					data.instance(i).setMissing(j);
+
+		checkSilhouette(data, 3, new EuclideanDistance(), false);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ParallelSilhouetteIndexTest.class);
+	}
+
+	public static void main(String[] args){
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -0,0 +1,153 @@
+package weka.clusterers.ymeans;
+
+import weka.clusterers.SimpleKMeans;
+import weka.core.Instances;
+import weka.core.TestInstances;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+
+/**
+ * Checks SampledSilhouetteIndex: a sample holding every instance gives
+ * the exact Silhouette Index, and each cluster is sampled on its own.
+ */
+public class SampledSilhouetteIndexTest
+	extends TestCase {
+
+	/** The data. */
+	protected Instances m_data;
+
+	/** k-Means built on the data. */
+	protected SimpleKMeans m_skmeans;
+
+	public SampledSilhouetteIndexTest(String name) {
+		super(name);
+	}
+
+	/**
+	 * Generates 300 instances with 4 numeric attributes and clusters them
+	 * in 4.
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		TestInstances test = new TestInstances();
+		test.setNumNominal(0);
+		test.setNumNumeric(4);
+		test.setNoClass(true);
+		test.setNumInstances(300);
+		test.setSeed(1);
+		m_data = test.generate();
+
+		m_skmeans = new SimpleKMeans();
+		m_skmeans.setNumClusters(4);
+		m_skmeans.buildClusterer(m_data);
+	}
+
+	@Override
+	protected void tearDown() {
+		m_data    = null;
+		m_skmeans = null;
+	}
+
+	/**
+	 * Returns the size of each cluster.
+	 */
+	protected int[] clusterSizes() throws Exception {
+		int[] sizes = new int[m_skmeans.numberOfClusters()];
+		for (int i = 0; i < m_data.numInstances(); i++)
+			sizes[ m_skmeans.clusterInstance(m_data.instance(i)) ]++;
+
+		return sizes;
+	}
+
+	/**
+	 * Evaluates a sampled Silhouette Index on the data.
+	 */
+	protected SampledSilhouetteIndex evaluate(int sampleSize, int seed) throws Exception {
+		SampledSilhouetteIndex index = new SampledSilhouetteIndex(sampleSize, seed);
+		index.evaluate(m_skmeans, m_skmeans.getClusterCentroids(), m_data,
+			m_skmeans.getDistanceFunction());
+
+		return index;
+	}
+
+	/**
+	 * A sample as large as the population gives the exact value, with a
+	 * confidence interval of width 0, whatever the seed.
+	 */
+	public void testFullSample() throws Exception {
+		SilhouetteIndex exact = new SilhouetteIndex();
+		exact.evaluate(m_skmeans, m_skmeans.getClusterCentroids(), m_data,
+			m_skmeans.getDistanceFunction());
+
+		for (int sampleSize : new int[] { m_data.numInstances(), 10 * m_data.numInstances() }) {
+			for (int seed = 1; seed <= 3; seed++) {
+				SampledSilhouetteIndex sampled = evaluate(sampleSize, seed);
+				String name = "sample of " + sampleSize + ", seed " + seed;
+
+				assertEquals("global, " + name, exact.getGlobalSilhouette(),
+					sampled.getGlobalSilhouette(), 1e-12);
+				for (int c = 0; c < exact.getClustersSilhouette().size(); c++)
+					assertEquals("cluster " + c + ", " + name,
+						exact.getClustersSilhouette().get(c),
+						sampled.getClustersSilhouette().get(c), 1e-12);
+
+				assertEquals("standard error, " + name, 0, sampled.getGlobalStdError(), 0);
+				assertEquals("confidence bound, " + name, 0, sampled.getConfidenceBound(), 0);
+				assertEquals("sampled, " + name, m_data.numInstances(), sampled.m_numSampled);
+			}
+		}
+	}
+
+	/**
+	 * Each cluster is sampled on its own: the clusters smaller than the
+	 * sample size are taken whole, the others contribute the sample size.
+	 * Only then is the interval wider than 0.
+	 */
+	public void testStratumAllocation() throws Exception {
+		int[] sizes = clusterSizes();
+		int smallest = Integer.MAX_VALUE;
+		int largest  = 0;
+		for (int size : sizes) {
+			smallest = Math.min(smallest, size);
+			largest  = Math.max(largest, size);
+		}
+		assertTrue("clusters of the same size", smallest < largest);
+
+		for (int sampleSize : new int[] { 2, 10, smallest, (smallest + largest) / 2, largest }) {
+			int expected = 0;
+			boolean partial = false;
+			for (int size : sizes) {
+				expected += Math.min(sampleSize, size);
+				partial  |= (size > sampleSize);
+			}
+
+			SampledSilhouetteIndex sampled = evaluate(sampleSize, 1);
+			String name = "sample of " + sampleSize;
+
+			assertEquals("sampled, " + name, expected, sampled.m_numSampled);
+			assertEquals("instances, " + name, m_data.numInstances(), sampled.m_numInstances);
+			assertEquals("clusters, " + name, sizes.length, sampled.getClustersSilhouette().size());
+			assertEquals("interval, " + name, partial, sampled.getConfidenceBound() > 0);
+		}
+	}
+
+	/**
+	 * Sample sizes below 2 are raised to 2, the smallest sample a
+	 * silhouette can be computed on.
+	 */
+	public void testMinimumSampleSize() throws Exception {
+		assertEquals("sample size", 2, new SampledSilhouetteIndex(0, 1).getSampleSize());
+		assertEquals("sampled", 2 * m_skmeans.numberOfClusters(), evaluate(1, 1).m_numSampled);
+	}
+
+	public static Test suite() {
+		return new TestSuite(SampledSilhouetteIndexTest.class);
+	}
+
+	public static void main(String[] args){
+		junit.textui.TestRunner.run(suite());
+	}
+}
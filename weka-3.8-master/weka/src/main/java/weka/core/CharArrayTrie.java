@@ -0,0 +1,211 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CharArrayTrie.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * An immutable trie of strings, stored in arrays. Every node stores its
+ * parent and its character, and the child of a node with a given character
+ * is found through an open addressing hash table keyed by parent and
+ * character. Unlike {@link Trie}, lookups work on arbitrary character
+ * sequences and ranges of them, and do not create any objects, so that
+ * tokens can be looked up without turning them into strings first.
+ *
+ * @version $Revision$
+ */
+public class CharArrayTrie implements Serializable, RevisionHandler {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 3506126286484405712L;
+
+  /** The parent of each node; node 0 is the root. */
+  protected int[] m_Parent;
+
+  /** The character of each node. */
+  protected char[] m_Chars;
+
+  /** Whether the path to a node spells one of the strings. */
+  protected boolean[] m_IsWord;
+
+  /** Hash table of the nodes (other than the root) plus one, 0 is empty. */
+  protected int[] m_Children;
+
+  /** The number of nodes, including the root. */
+  protected int m_NumNodes;
+
+  /** The number of strings. */
+  protected int m_Size;
+
+  /**
+   * Builds the trie.
+   *
+   * @param words the strings to store
+   */
+  public CharArrayTrie(Collection<String> words) {
+    int maxNodes = 1;
+    for (String word : words) {
+      maxNodes += word.length();
+    }
+    m_Parent = new int[maxNodes];
+    m_Chars = new char[maxNodes];
+    m_IsWord = new boolean[maxNodes];
+    int tableSize = 2;
+    while (tableSize < 2 * maxNodes) {
+      tableSize *= 2;
+    }
+    m_Children = new int[tableSize];
+    m_Parent[0] = -1;
+    m_NumNodes = 1;
+
+    for (String word : words) {
+      int node = 0;
+      for (int i = 0; i < word.length(); i++) {
+        int child = getChild(node, word.charAt(i));
+        if (child < 0) {
+          child = m_NumNodes++;
+          m_Parent[child] = node;
+          m_Chars[child] = word.charAt(i);
+          int mask = m_Children.length - 1;
+          int s = slot(node, word.charAt(i));
+          while (m_Children[s] != 0) {
+            s = (s + 1) & mask;
+          }
+          m_Children[s] = child + 1;
+        }
+        node = child;
+      }
+      if (!m_IsWord[node]) {
+        m_IsWord[node] = true;
+        m_Size++;
+      }
+    }
+
+    m_Parent = Arrays.copyOf(m_Parent, m_NumNodes);
+    m_Chars = Arrays.copyOf(m_Chars, m_NumNodes);
+    m_IsWord = Arrays.copyOf(m_IsWord, m_NumNodes);
+  }
+
+  /**
+   * Returns the slot of the hash table to start looking for a child in.
+   *
+   * @param parent the parent node
+   * @param c the character of the child
+   * @return the slot
+   */
+  protected int slot(int parent, char c) {
+    int h = (parent * 0x9E3779B9) ^ (c * 0x85EBCA6B);
+    return (h ^ (h >>> 15)) & (m_Children.length - 1);
+  }
+
+  /**
+   * Returns the child of a node with the given character.
+   *
+   * @param parent the node, 0 for the root
+   * @param c the character
+   * @return the child, -1 if there is none
+   */
+  public int getChild(int parent, char c) {
+    int mask = m_Children.length - 1;
+    for (int s = slot(parent, c);; s = (s + 1) & mask) {
+      int node = m_Children[s] - 1;
+      if (node < 0) {
+        return -1;
+      }
+      if (m_Parent[node] == parent && m_Chars[node] == c) {
+        return node;
+      }
+    }
+  }
+
+  /**
+   * Returns whether a range of a character sequence is one of the strings.
+   *
+   * @param s the character sequence
+   * @param start the start of the range
+   * @param end the end of the range (exclusive)
+   * @param asciiLowerCase whether to convert upper case ASCII letters to
+   *          lower case before looking them up
+   * @return true if the range is contained
+   */
+  public boolean contains(CharSequence s, int start, int end,
+    boolean asciiLowerCase) {
+    int node = 0;
+    for (int i = start; i < end && node >= 0; i++) {
+      char c = s.charAt(i);
+      if (asciiLowerCase && c >= 'A' && c <= 'Z') {
+        c = (char) (c + ('a' - 'A'));
+      }
+      node = getChild(node, c);
+    }
+    return node >= 0 && m_IsWord[node];
+  }
+
+  /**
+   * Returns whether a character sequence is one of the strings.
+   *
+   * @param s the character sequence
+   * @return true if it is contained
+   */
+  public boolean contains(CharSequence s) {
+    return contains(s, 0, s.length(), false);
+  }
+
+  /**
+   * Returns whether the path to a node spells one of the strings.
+   *
+   * @param node the node
+   * @return true if the node ends a string
+   */
+  public boolean isWord(int node) {
+    return m_IsWord[node];
+  }
+
+  /**
+   * Returns the number of strings.
+   *
+   * @return the number of strings
+   */
+  public int size() {
+    return m_Size;
+  }
+
+  /**
+   * Returns the number of nodes, including the root.
+   *
+   * @return the number of nodes
+   */
+  public int numNodes() {
+    return m_NumNodes;
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ColumnarInstance.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.core;
+
+/**
+ * View on a row of a ColumnarInstances set. The values are read from and
+ * written to the columns of the set, only the weight is held by the view.
+ * <p>
+ *
+ * Changing a value only affects this instance: copies (copy(), new
+ * DenseInstance(instance), Instances.add()) are regular DenseInstance
+ * objects. If the structure of the view has to change on its own (e.g.
+ * deleteAttributeAt() without a dataset), its values are first copied out of
+ * the columns.
+ *
+ * @version $Revision$
+ * @see ColumnarInstances
+ */
+public class ColumnarInstance extends AbstractInstance {
+
+  /** for serialization */
+  private static final long serialVersionUID = 6393938557012744537L;
+
+  /** The columns holding the values, null once detached. */
+  protected ColumnarInstances.Store m_Store;
+
+  /** The row of the instance in the columns. */
+  protected int m_Row;
+
+  /**
+   * Creates a view on a row.
+   *
+   * @param store the columns
+   * @param row the row
+   * @param weight the instance's weight
+   */
+  protected ColumnarInstance(ColumnarInstances.Store store, int row,
+    double weight) {
+
+    m_Store = store;
+    m_Row = row;
+    m_Weight = weight;
+    m_Dataset = null;
+  }
+
+  /**
+   * Produces a copy of this instance, as a DenseInstance. The copy has access
+   * to the same dataset.
+   *
+   * @return the copy
+   */
+  @Override
+  public Object copy() {
+
+    DenseInstance result = new DenseInstance(m_Weight, toDoubleArray());
+    result.m_Dataset = m_Dataset;
+    return result;
+  }
+
+  /**
+   * Copies the instance but fills up its values based on the given array of
+   * doubles. The copy is a DenseInstance with access to the same dataset.
+   *
+   * @param values the array with new values
+   * @return the new instance
+   */
+  @Override
+  public Instance copy(double[] values) {
+
+    DenseInstance result = new DenseInstance(m_Weight, values);
+    result.m_Dataset = m_Dataset;
+    return result;
+  }
+
+  /**
+   * Returns the index of the attribute stored at the given position. Just
+   * returns the given value.
+   *
+   * @param position the position
+   * @return the index of the attribute stored at the given position
+   */
+  @Override
+  public int index(int position) {
+
+    return position;
+  }
+
+  /**
+   * Merges this instance with the given instance and returns the result, as
+   * a DenseInstance. Dataset is set to null.
+   *
+   * @param inst the instance to be merged with this one
+   * @return the merged instances
+   */
+  @Override
+  public Instance mergeInstance(Instance inst) {
+
+    return new DenseInstance(this).mergeInstance(inst);
+  }
+
+  /**
+   * Returns the number of attributes.
+   *
+   * @return the number of attributes as an integer
+   */
+  @Override
+  public int numAttributes() {
+
+    return (m_Store != null) ? m_Store.m_NumColumns : m_AttValues.length;
+  }
+
+  /**
+   * Returns the number of values present. Always the same as numAttributes().
+   *
+   * @return the number of values
+   */
+  @Override
+  public int numValues() {
+
+    return numAttributes();
+  }
+
+  /**
+   * Replaces all missing values in the instance with the values contained in
+   * the given array.
+   *
+   * @param array containing the means and modes
+   * @throws IllegalArgumentException if numbers of attributes are unequal
+   */
+  @Override
+  public void replaceMissingValues(double[] array) {
+
+    if ((array == null) || (array.length != numAttributes())) {
+      throw new IllegalArgumentException("Unequal number of attributes!");
+    }
+    for (int i = 0; i < array.length; i++) {
+      if (isMissing(i)) {
+        setValue(i, array[i]);
+      }
+    }
+  }
+
+  /**
+   * Sets a specific value in the instance to the given value (internal
+   * floating-point format).
+   *
+   * @param attIndex the attribute's index
+   * @param value the new attribute value (If the corresponding attribute is
+   *          nominal (or a string) then this is the new value's index as a
+   *          double).
+   */
+  @Override
+  public void setValue(int attIndex, double value) {
+
+    if (m_Store != null) {
+      m_Store.set(m_Row, attIndex, value);
+    } else {
+      m_AttValues[attIndex] = value;
+    }
+  }
+
+  /**
+   * Sets a specific value in the instance to the given value (internal
+   * floating-point format). Does exactly the same thing as setValue().
+   *
+   * @param indexOfIndex the index of the attribute's index
+   * @param value the new attribute value (If the corresponding attribute is
+   *          nominal (or a string) then this is the new value's index as a
+   *          double).
+   */
+  @Override
+  public void setValueSparse(int indexOfIndex, double value) {
+
+    setValue(indexOfIndex, value);
+  }
+
+  /**
+   * Returns the values of each attribute as an array of doubles. Creates a
+   * fresh array object for this.
+   *
+   * @return an array containing all the instance attribute values
+   */
+  @Override
+  public double[] toDoubleArray() {
+
+    if (m_Store == null) {
+      return m_AttValues.clone();
+    }
+
+    double[] values = new double[m_Store.m_NumColumns];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = m_Store.get(m_Row, i);
+    }
+    return values;
+  }
+
+  /**
+   * Returns the description of one instance (without weight appended).
+   *
+   * @return the instance's description as a string
+   */
+  @Override
+  public String toStringNoWeight() {
+    return toStringNoWeight(AbstractInstance.s_numericAfterDecimalPoint);
+  }
+
+  /**
+   * Returns the description of one instance (without weight appended).
+   *
+   * @param afterDecimalPoint maximum number of digits after the decimal point
+   *          for numeric values
+   * @return the instance's description as a string
+   */
+  @Override
+  public String toStringNoWeight(int afterDecimalPoint) {
+    StringBuffer text = new StringBuffer();
+
+    for (int i = 0; i < numAttributes(); i++) {
+      if (i > 0) {
+        text.append(",");
+      }
+      text.append(toString(i, afterDecimalPoint));
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Returns an instance's attribute value in internal format.
+   *
+   * @param attIndex the attribute's index
+   * @return the specified value as a double (If the corresponding attribute is
+   *         nominal (or a string) then it returns the value's index as a
+   *         double).
+   */
+  @Override
+  public double value(int attIndex) {
+
+    return (m_Store != null) ? m_Store.get(m_Row, attIndex)
+      : m_AttValues[attIndex];
+  }
+
+  /**
+   * Returns an instance's attribute value in internal format, given an index
+   * in the sparse representation. Same as value(int).
+   *
+   * @param indexOfIndex the index of the attribute's index
+   * @return the specified value as a double
+   */
+  @Override
+  public double valueSparse(int indexOfIndex) {
+
+    return value(indexOfIndex);
+  }
+
+  /**
+   * Deletes an attribute at the given position (0 to numAttributes() - 1).
+   * The values are copied out of the columns first.
+   *
+   * @param position the attribute's position
+   */
+  @Override
+  protected void forceDeleteAttributeAt(int position) {
+
+    detach();
+
+    double[] newValues = new double[m_AttValues.length - 1];
+    System.arraycopy(m_AttValues, 0, newValues, 0, position);
+    System.arraycopy(m_AttValues, position + 1, newValues, position,
+      m_AttValues.length - (position + 1));
+    m_AttValues = newValues;
+  }
+
+  /**
+   * Inserts an attribute at the given position (0 to numAttributes()) and sets
+   * its value to be missing. The values are copied out of the columns first.
+   *
+   * @param position the attribute's position
+   */
+  @Override
+  protected void forceInsertAttributeAt(int position) {
+
+    detach();
+
+    double[] newValues = new double[m_AttValues.length + 1];
+    System.arraycopy(m_AttValues, 0, newValues, 0, position);
+    newValues[position] = Utils.missingValue();
+    System.arraycopy(m_AttValues, position, newValues, position + 1,
+      m_AttValues.length - position);
+    m_AttValues = newValues;
+  }
+
+  /**
+   * Copies the values out of the columns, the instance no longer reads or
+   * writes them.
+   */
+  protected void detach() {
+
+    if (m_Store != null) {
+      m_AttValues = toDoubleArray();
+      m_Store = null;
+    }
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -0,0 +1,664 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ColumnarInstances.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Set of instances whose attribute values are stored column by column: one
+ * primitive array per attribute, either on the Java heap or off-heap (direct
+ * buffers). The instances held by the set are lightweight views
+ * (ColumnarInstance) on a row of the columns, so a table of n instances and m
+ * attributes costs n * m doubles plus one small object per instance, instead
+ * of one double[] per instance.
+ * <p>
+ *
+ * Since the views are regular Instance objects, classifiers and filters work
+ * unchanged. Scan-heavy code can read a whole attribute at once with
+ * column(int) or attributeToDoubleArray(int).
+ * <p>
+ *
+ * Typical usage:
+ * <p>
+ *
+ * <code>
+ * Instances data = new ColumnarInstances(DataSource.read("big.arff"), true);
+ * </code>
+ * <p>
+ *
+ * Copies made by Instances (e.g. new Instances(data), add() to another set)
+ * are regular DenseInstance objects. Deleting or reordering instances leaves
+ * the rows where they are, compact() lays the rows out in the current order
+ * again. This happens automatically once more rows are unused than used (and
+ * at least MIN_FREE_ROWS). Instances removed from the set get their own copy
+ * of their values, so they stay valid when the columns change.
+ *
+ * @version $Revision$
+ * @see ColumnarInstance
+ */
+public class ColumnarInstances extends Instances {
+
+  /** for serialization */
+  private static final long serialVersionUID = -3227532140297512466L;
+
+  /** The smallest number of unused rows that are reclaimed automatically. */
+  protected static final int MIN_FREE_ROWS = 1024;
+
+  /** The columns holding the values of the instances. */
+  protected Store m_Store;
+
+  /**
+   * Creates a columnar copy of the given set of instances, stored on the
+   * heap.
+   *
+   * @param dataset the set to be copied
+   */
+  public ColumnarInstances(Instances dataset) {
+    this(dataset, false);
+  }
+
+  /**
+   * Creates a columnar copy of the given set of instances.
+   *
+   * @param dataset the set to be copied
+   * @param offHeap whether to store the columns off the Java heap
+   */
+  public ColumnarInstances(Instances dataset, boolean offHeap) {
+    this(dataset, dataset.numInstances(), offHeap);
+
+    for (int i = 0; i < dataset.numInstances(); i++) {
+      add(dataset.instance(i));
+    }
+  }
+
+  /**
+   * Creates an empty set of instances with the header information of the
+   * given set.
+   *
+   * @param dataset the instances from which the header information is taken
+   * @param capacity the number of rows to reserve
+   * @param offHeap whether to store the columns off the Java heap
+   */
+  public ColumnarInstances(Instances dataset, int capacity, boolean offHeap) {
+    super(dataset, capacity);
+
+    m_Store = new Store(numAttributes(), capacity, offHeap);
+  }
+
+  /**
+   * Returns whether the columns are stored off the Java heap.
+   *
+   * @return true if the columns are off-heap
+   */
+  public boolean isOffHeap() {
+    return m_Store.m_OffHeap;
+  }
+
+  /**
+   * Adds one instance to the end of the set. Its values are copied into the
+   * columns. Note: String or relational values are not transferred.
+   *
+   * @param instance the instance to be added
+   */
+  @Override
+  public boolean add(Instance instance) {
+
+    m_Instances.add(newView(instance));
+
+    return true;
+  }
+
+  /**
+   * Adds one instance at the given position in the list. Its values are
+   * copied into the columns. Note: String or relational values are not
+   * transferred.
+   *
+   * @param index position where instance is to be inserted
+   * @param instance the instance to be added
+   */
+  @Override
+  public void add(int index, Instance instance) {
+
+    m_Instances.add(index, newView(instance));
+  }
+
+  /**
+   * Replaces the instance at the given position. The values of the replaced
+   * instance are copied out of the columns first, so it stays valid.
+   *
+   * @param index position where instance is to be inserted
+   * @param instance the instance to be inserted
+   * @return the instance previously at that position
+   */
+  @Override
+  public Instance set(int index, Instance instance) {
+
+    Instance oldInstance = m_Instances.get(index);
+    detach(oldInstance);
+
+    m_Instances.set(index, newView(instance));
+    reclaimRows();
+
+    return oldInstance;
+  }
+
+  /**
+   * Removes an instance at the given position from the set. The values of
+   * the removed instance are copied out of the columns.
+   *
+   * @param index the instance's position (index starts with 0)
+   */
+  @Override
+  public void delete(int index) {
+
+    remove(index);
+  }
+
+  /**
+   * Removes the instance at the given position. Its values are copied out of
+   * the columns first, so it stays valid.
+   *
+   * @param index the instance's index (index starts with 0)
+   * @return the instance at the given position
+   */
+  @Override
+  public Instance remove(int index) {
+
+    Instance oldInstance = m_Instances.remove(index);
+    detach(oldInstance);
+    reclaimRows();
+
+    return oldInstance;
+  }
+
+  /**
+   * Removes all instances with missing values for a particular attribute from
+   * the dataset. The values of the removed instances are copied out of the
+   * columns.
+   *
+   * @param attIndex the attribute's index (index starts with 0)
+   */
+  @Override
+  public void deleteWithMissing(int attIndex) {
+
+    for (int i = 0; i < numInstances(); i++) {
+      if (instance(i).isMissing(attIndex)) {
+        detach(instance(i));
+      }
+    }
+    super.deleteWithMissing(attIndex);
+    reclaimRows();
+  }
+
+  /**
+   * Removes all instances from the set.
+   */
+  @Override
+  public void delete() {
+
+    super.delete();
+    m_Store = new Store(numAttributes(), 0, m_Store.m_OffHeap);
+  }
+
+  /**
+   * Compactifies the set of instances: the rows are laid out in the current
+   * order of the instances and the unused capacity is released.
+   */
+  @Override
+  public void compactify() {
+
+    super.compactify();
+    compact();
+  }
+
+  /**
+   * Returns the value of an attribute for the instance at the given position.
+   *
+   * @param index the instance's index
+   * @param attIndex the attribute's index
+   * @return the value in internal format
+   */
+  public double value(int index, int attIndex) {
+
+    return m_Instances.get(index).value(attIndex);
+  }
+
+  /**
+   * Returns a read-only view on the values of an attribute, in the order of
+   * the instances. The rows are compacted first if needed, and the view is
+   * only valid until the next change of the set.
+   *
+   * @param attIndex the attribute's index
+   * @return the values of the attribute, one per instance
+   */
+  public DoubleBuffer column(int attIndex) {
+
+    if (!isCompact()) {
+      compact();
+    }
+
+    DoubleBuffer column = m_Store.column(attIndex).asReadOnlyBuffer();
+    column.position(0);
+    column.limit(numInstances());
+
+    return column.slice();
+  }
+
+  /**
+   * Gets the value of all instances in this dataset for a particular
+   * attribute. Copied straight from the column when the rows are in order.
+   *
+   * @param index the index of the attribute
+   * @return an array containing the value of the desired attribute for each
+   *         instance in the dataset
+   */
+  @Override
+  public double[] attributeToDoubleArray(int index) {
+
+    if (!isCompact()) {
+      return super.attributeToDoubleArray(index);
+    }
+
+    double[] result = new double[numInstances()];
+    DoubleBuffer column = m_Store.column(index).duplicate();
+    column.position(0);
+    column.get(result);
+
+    return result;
+  }
+
+  /**
+   * Deletes an attribute at the given position, see
+   * Instances.deleteAttributeAt(int).
+   *
+   * @param position the attribute's position
+   */
+  @Override
+  public void deleteAttributeAt(int position) {
+
+    deleteAttributeFromHeader(position);
+    m_Store.deleteColumn(position);
+  }
+
+  /**
+   * Inserts an attribute at the given position, all its values are missing.
+   * See Instances.insertAttributeAt(Attribute, int).
+   *
+   * @param att the attribute to be inserted
+   * @param position the attribute's position
+   */
+  @Override
+  public void insertAttributeAt(Attribute att, int position) {
+
+    insertAttributeIntoHeader(att, position);
+    m_Store.insertColumn(position);
+  }
+
+  /**
+   * Replaces the attribute at the given position, all its values are set to
+   * missing. See Instances.replaceAttributeAt(Attribute, int).
+   *
+   * @param att the attribute to be inserted
+   * @param position the attribute's position
+   */
+  @Override
+  public void replaceAttributeAt(Attribute att, int position) {
+
+    replaceAttributeInHeader(att, position);
+    m_Store.fillMissing(position);
+  }
+
+  /**
+   * Lays the rows out in the current order of the instances, dropping the
+   * rows of deleted instances. Views that are no longer part of the set keep
+   * the old columns.
+   */
+  public void compact() {
+
+    Store store = new Store(numAttributes(), numInstances(), m_Store.m_OffHeap);
+
+    for (int i = 0; i < numInstances(); i++) {
+      Instance inst = m_Instances.get(i);
+
+      if (inst instanceof ColumnarInstance
+        && ((ColumnarInstance) inst).m_Store == m_Store) {
+        ColumnarInstance view = (ColumnarInstance) inst;
+        view.m_Row = store.addRow(m_Store, view.m_Row);
+        view.m_Store = store;
+      } else {
+        m_Instances.set(i, newView(store, inst));
+      }
+    }
+    m_Store = store;
+  }
+
+  /**
+   * Compacts the rows if more of them are unused than used, and at least
+   * MIN_FREE_ROWS are unused.
+   */
+  protected void reclaimRows() {
+
+    int free = m_Store.m_NumRows - numInstances();
+    if (free >= MIN_FREE_ROWS && free > numInstances()) {
+      compact();
+    }
+  }
+
+  /**
+   * Tells whether the i-th instance sits in the i-th row of the columns.
+   *
+   * @return true if the rows are in the order of the instances
+   */
+  protected boolean isCompact() {
+
+    if (m_Store.m_NumRows != numInstances()) {
+      return false;
+    }
+
+    for (int i = 0; i < numInstances(); i++) {
+      Instance inst = m_Instances.get(i);
+      if (!(inst instanceof ColumnarInstance)
+        || ((ColumnarInstance) inst).m_Store != m_Store
+        || ((ColumnarInstance) inst).m_Row != i) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copies the values of an instance that leaves the set out of the columns,
+   * if it is a view.
+   *
+   * @param instance the instance leaving the set
+   */
+  protected void detach(Instance instance) {
+
+    if (instance instanceof ColumnarInstance) {
+      ((ColumnarInstance) instance).detach();
+    }
+  }
+
+  /**
+   * Copies an instance into a new row and returns its view.
+   *
+   * @param instance the instance to copy
+   * @return the view on the new row
+   */
+  protected ColumnarInstance newView(Instance instance) {
+    return newView(m_Store, instance);
+  }
+
+  /**
+   * Copies an instance into a new row of the given columns and returns its
+   * view.
+   */
+  protected ColumnarInstance newView(Store store, Instance instance) {
+
+    ColumnarInstance view =
+      new ColumnarInstance(store, store.addRow(instance), instance.weight());
+    view.setDataset(this);
+
+    return view;
+  }
+
+  /**
+   * The columns: one primitive array (or direct buffer) per attribute.
+   */
+  protected static class Store implements Serializable {
+
+    /** for serialization */
+    private static final long serialVersionUID = 2871553018815562284L;
+
+    /** On-heap columns, null if off-heap. */
+    protected double[][] m_Columns;
+
+    /** Off-heap columns, null if on-heap. */
+    protected transient DoubleBuffer[] m_Buffers;
+
+    /** Whether the columns are off-heap. */
+    protected boolean m_OffHeap;
+
+    /** Number of rows used. */
+    protected int m_NumRows;
+
+    /** Number of rows allocated. */
+    protected int m_Capacity;
+
+    /** Number of columns. */
+    protected int m_NumColumns;
+
+    /**
+     * Allocates the columns.
+     *
+     * @param numColumns the number of columns
+     * @param capacity the number of rows to reserve
+     * @param offHeap whether to allocate the columns off-heap
+     */
+    protected Store(int numColumns, int capacity, boolean offHeap) {
+      m_NumColumns = numColumns;
+      m_OffHeap = offHeap;
+      allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * Returns a value.
+     */
+    protected final double get(int row, int column) {
+      return m_OffHeap ? m_Buffers[column].get(row) : m_Columns[column][row];
+    }
+
+    /**
+     * Sets a value.
+     */
+    protected final void set(int row, int column, double value) {
+      if (m_OffHeap) {
+        m_Buffers[column].put(row, value);
+      } else {
+        m_Columns[column][row] = value;
+      }
+    }
+
+    /**
+     * Returns a buffer on a whole column, with the capacity of the store.
+     */
+    protected DoubleBuffer column(int column) {
+      return m_OffHeap ? m_Buffers[column] : DoubleBuffer.wrap(m_Columns[column]);
+    }
+
+    /**
+     * Appends the values of an instance.
+     *
+     * @param instance the instance
+     * @return the new row
+     */
+    protected int addRow(Instance instance) {
+      int row = newRow();
+
+      for (int j = 0; j < m_NumColumns; j++) {
+        set(row, j, instance.value(j));
+      }
+      return row;
+    }
+
+    /**
+     * Appends a row of another store.
+     *
+     * @param source the store to copy from
+     * @param sourceRow the row to copy
+     * @return the new row
+     */
+    protected int addRow(Store source, int sourceRow) {
+      int row = newRow();
+
+      for (int j = 0; j < m_NumColumns; j++) {
+        set(row, j, source.get(sourceRow, j));
+      }
+      return row;
+    }
+
+    /**
+     * Reserves a new row, growing the columns if needed.
+     */
+    protected int newRow() {
+      if (m_NumRows == m_Capacity) {
+        allocate(Math.max(16, m_Capacity + (m_Capacity >> 1)));
+      }
+      return m_NumRows++;
+    }
+
+    /**
+     * Deletes a column.
+     */
+    protected void deleteColumn(int column) {
+      m_NumColumns--;
+
+      if (m_OffHeap) {
+        DoubleBuffer[] buffers = new DoubleBuffer[m_NumColumns];
+        System.arraycopy(m_Buffers, 0, buffers, 0, column);
+        System.arraycopy(m_Buffers, column + 1, buffers, column, m_NumColumns - column);
+        m_Buffers = buffers;
+      } else {
+        double[][] columns = new double[m_NumColumns][];
+        System.arraycopy(m_Columns, 0, columns, 0, column);
+        System.arraycopy(m_Columns, column + 1, columns, column, m_NumColumns - column);
+        m_Columns = columns;
+      }
+    }
+
+    /**
+     * Inserts a column of missing values.
+     */
+    protected void insertColumn(int column) {
+      m_NumColumns++;
+
+      if (m_OffHeap) {
+        DoubleBuffer[] buffers = new DoubleBuffer[m_NumColumns];
+        System.arraycopy(m_Buffers, 0, buffers, 0, column);
+        System.arraycopy(m_Buffers, column, buffers, column + 1, m_NumColumns - column - 1);
+        buffers[column] = allocateDirect(m_Capacity);
+        m_Buffers = buffers;
+      } else {
+        double[][] columns = new double[m_NumColumns][];
+        System.arraycopy(m_Columns, 0, columns, 0, column);
+        System.arraycopy(m_Columns, column, columns, column + 1, m_NumColumns - column - 1);
+        columns[column] = new double[m_Capacity];
+        m_Columns = columns;
+      }
+      fillMissing(column);
+    }
+
+    /**
+     * Sets a whole column to missing.
+     */
+    protected void fillMissing(int column) {
+      for (int i = 0; i < m_NumRows; i++) {
+        set(i, column, Utils.missingValue());
+      }
+    }
+
+    /**
+     * (Re)allocates the columns, keeping the rows used.
+     */
+    protected void allocate(int capacity) {
+      if (m_OffHeap) {
+        DoubleBuffer[] buffers = new DoubleBuffer[m_NumColumns];
+        for (int j = 0; j < m_NumColumns; j++) {
+          buffers[j] = allocateDirect(capacity);
+          if (m_Buffers != null) {
+            DoubleBuffer old = m_Buffers[j].duplicate();
+            old.position(0);
+            old.limit(m_NumRows);
+            buffers[j].put(old);
+            buffers[j].clear();
+          }
+        }
+        m_Buffers = buffers;
+      } else {
+        double[][] columns = new double[m_NumColumns][capacity];
+        for (int j = 0; j < m_NumColumns && m_Columns != null; j++) {
+          System.arraycopy(m_Columns[j], 0, columns[j], 0, m_NumRows);
+        }
+        m_Columns = columns;
+      }
+      m_Capacity = capacity;
+    }
+
+    /**
+     * Allocates an off-heap column.
+     */
+    protected static DoubleBuffer allocateDirect(int capacity) {
+      return ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder())
+        .asDoubleBuffer();
+    }
+
+    /**
+     * Off-heap columns are written as arrays.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+
+      if (m_OffHeap) {
+        for (int j = 0; j < m_NumColumns; j++) {
+          double[] values = new double[m_NumRows];
+          DoubleBuffer column = m_Buffers[j].duplicate();
+          column.position(0);
+          column.get(values);
+          out.writeObject(values);
+        }
+      }
+    }
+
+    /**
+     * Off-heap columns are read back into direct buffers.
+     */
+    private void readObject(ObjectInputStream in) throws IOException,
+      ClassNotFoundException {
+      in.defaultReadObject();
+
+      if (m_OffHeap) {
+        m_Buffers = new DoubleBuffer[m_NumColumns];
+        for (int j = 0; j < m_NumColumns; j++) {
+          m_Buffers[j] = allocateDirect(m_Capacity);
+          m_Buffers[j].put((double[]) in.readObject());
+          m_Buffers[j].clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CountMinSketch.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core;
+
+import java.io.Serializable;
+
+/**
+ * A count-min sketch: approximate counts of a stream of keys in a fixed
+ * amount of memory. The sketch has a number of rows of counters; every key
+ * is mapped to one counter per row by a different hash function, and the
+ * estimate of its count is the minimum of these counters. Estimates never
+ * fall below the true count. Keys are given as 64 bit hash values, so that
+ * the caller can hash its objects once and reuse the hash.
+ * <p/>
+ * For more information see:
+ * <p/>
+ * Graham Cormode, S. Muthukrishnan: An improved data stream summary: the
+ * count-min sketch and its applications. Journal of Algorithms.
+ * 55(1):58-75, 2005.
+ *
+ * @version $Revision$
+ */
+public class CountMinSketch implements Serializable, RevisionHandler {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -6529467165328371127L;
+
+  /** The number of counters per row. */
+  protected int m_Width;
+
+  /** The counters, one row per hash function. */
+  protected int[][] m_Counts;
+
+  /**
+   * Initializes the sketch.
+   *
+   * @param width the number of counters per row
+   * @param depth the number of rows
+   */
+  public CountMinSketch(int width, int depth) {
+    if (width < 1 || depth < 1) {
+      throw new IllegalArgumentException(
+        "Width and depth of the sketch need to be at least 1!");
+    }
+    m_Width = width;
+    m_Counts = new int[depth][width];
+  }
+
+  /**
+   * Mixes the bits of a 64 bit value (the finalizer of MurmurHash3).
+   *
+   * @param h the value
+   * @return the mixed value
+   */
+  public static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Returns the counter of a key in a row.
+   *
+   * @param key the hash of the key
+   * @param row the row
+   * @return the index of the counter
+   */
+  protected int index(long key, int row) {
+    long h = mix(key + (row + 1) * 0x9E3779B97F4A7C15L);
+    return (int) ((h >>> 1) % m_Width);
+  }
+
+  /**
+   * Adds one occurrence of a key.
+   *
+   * @param key the hash of the key
+   */
+  public void add(long key) {
+    for (int i = 0; i < m_Counts.length; i++) {
+      m_Counts[i][index(key, i)]++;
+    }
+  }
+
+  /**
+   * Returns the estimated number of occurrences of a key.
+   *
+   * @param key the hash of the key
+   * @return the estimate, at least the true count
+   */
+  public int estimate(long key) {
+    int result = Integer.MAX_VALUE;
+    for (int i = 0; i < m_Counts.length; i++) {
+      result = Math.min(result, m_Counts[i][index(key, i)]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of counters per row.
+   *
+   * @return the width
+   */
+  public int getWidth() {
+    return m_Width;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return the depth
+   */
+  public int getDepth() {
+    return m_Counts.length;
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -47,11 +47,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import weka.core.stemmers.NullStemmer;
 import weka.core.stemmers.Stemmer;
+import weka.core.stopwords.AbstractStopwords;
 import weka.core.stopwords.Null;
 import weka.core.stopwords.StopwordsHandler;
+import weka.core.tokenizers.Token;
 import weka.core.tokenizers.Tokenizer;
 import weka.core.tokenizers.WordTokenizer;
 import weka.gui.ProgrammaticProperty;
@@ -176,6 +183,9 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
   /** True if the input data contains string attributes to convert */
   protected boolean m_inputContainsStringAttributes;
 
+  /** The number of threads to use when processing a batch of instances */
+  protected int m_numExecutionSlots = 1;
+
   /**
    * Set the average document length to use when normalizing
    *
@@ -742,6 +752,37 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
     return "The tokenizing algorithm to use on the strings.";
   }
 
+  /**
+   * Returns the tip text for this property.
+   * 
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for building the "
+      + "dictionary from, and vectorizing, a batch of instances (0 to use one "
+      + "per core). When the dictionary is pruned periodically, each thread "
+      + "prunes the dictionary of its own part of the batch.";
+  }
+
+  /**
+   * Set the number of execution slots.
+   * 
+   * @param numSlots the number of execution slots (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_numExecutionSlots = numSlots;
+  }
+
+  /**
+   * Get the number of execution slots.
+   * 
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+    return m_numExecutionSlots;
+  }
+
   /**
    * Returns an enumeration describing the available options.
    * 
@@ -823,6 +864,12 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
         + "\t(default: " + WordTokenizer.class.getName() + ")", "tokenizer", 1,
       "-tokenizer <spec>"));
 
+    result.addElement(new Option(
+      "\tNumber of execution slots for processing batches.\n"
+        + "\t(default 1 - i.e. no parallelism)\n"
+        + "\t(use 0 to auto-detect number of cores)", "num-slots", 1,
+      "-num-slots <num>"));
+
     return result.elements();
   }
 
@@ -910,6 +957,11 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
 
     result.add(spec.trim());
 
+    if (getNumExecutionSlots() != 1) {
+      result.add("-num-slots");
+      result.add("" + getNumExecutionSlots());
+    }
+
     return result.toArray(new String[result.size()]);
   }
 
@@ -1009,6 +1061,13 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
    *  (default: weka.core.tokenizers.WordTokenizer)
    * </pre>
    *
+   * <pre>
+   * -num-slots &lt;num&gt;
+   *  Number of execution slots for processing batches.
+   *  (default 1 - i.e. no parallelism)
+   *  (use 0 to auto-detect number of cores)
+   * </pre>
+   *
    * <!-- options-end -->
    *
    * @param options the list of options as an array of strings
@@ -1117,6 +1176,13 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
       setTokenizer(tokenizer);
     }
 
+    value = Utils.getOption("num-slots", options);
+    if (value.length() != 0) {
+      setNumExecutionSlots(Integer.parseInt(value));
+    } else {
+      setNumExecutionSlots(1);
+    }
+
     Utils.checkForRemainingOptions(options);
   }
 
@@ -1133,18 +1199,30 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
     m_numClasses =
       !m_doNotOperateOnPerClassBasis && m_inputFormat.classIndex() >= 0 && m_inputFormat.classAttribute().isNominal() ?
               m_inputFormat.numClasses() : 1;
-    m_dictsPerClass =
+    m_dictsPerClass = newDictionaries();
+    m_classIndex = m_inputFormat.classIndex();
+
+    determineSelectedRange(inputFormat);
+  }
+
+  /**
+   * Creates a set of empty dictionaries, one per class.
+   *
+   * @return the dictionaries
+   */
+  @SuppressWarnings("unchecked")
+  protected Map<String, int[]>[] newDictionaries() {
+    Map<String, int[]>[] result =
       m_sortDictionary ? new TreeMap[m_numClasses]
         : new LinkedHashMap[m_numClasses];
-    m_classIndex = m_inputFormat.classIndex();
 
     for (int i = 0; i < m_numClasses; i++) {
-      m_dictsPerClass[i] =
+      result[i] =
         m_sortDictionary ? new TreeMap<String, int[]>()
           : new LinkedHashMap<String, int[]>();
     }
 
-    determineSelectedRange(inputFormat);
+    return result;
   }
 
   /**
@@ -1306,10 +1384,19 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
 
     if (batch.numInstances() > 0) {
       int[] offsetHolder = new int[1];
-      vectorized.add(vectorizeInstance(batch.instance(0), offsetHolder, true));
-      for (int i = 1; i < batch.numInstances(); i++) {
+      int numSlots = getNumSlots();
+      if (numSlots > 1 && batch.numInstances() > 1
+        && !retainsStringOrRelationalAttributes()) {
+        for (Instance inst : vectorizeBatch(batch, offsetHolder, numSlots)) {
+          vectorized.add(inst);
+        }
+      } else {
         vectorized
-          .add(vectorizeInstance(batch.instance(i), offsetHolder, true));
+          .add(vectorizeInstance(batch.instance(0), offsetHolder, true));
+        for (int i = 1; i < batch.numInstances(); i++) {
+          vectorized
+            .add(vectorizeInstance(batch.instance(i), offsetHolder, true));
+        }
       }
 
       if (setAvgDocLength) {
@@ -1340,6 +1427,115 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
     return vectorized;
   }
 
+  /**
+   * Converts a batch of instances with several threads, each with its own
+   * copy of the tokenizer and stemmer. The batch is split into contiguous
+   * chunks, one per thread.
+   *
+   * @param batch the batch to convert
+   * @param offsetHolder holds the index of the first dictionary attribute
+   *          on return
+   * @param numSlots the number of threads
+   * @return the converted instances, in the order of the batch
+   * @throws Exception if a problem occurs
+   */
+  protected Instance[] vectorizeBatch(final Instances batch,
+    final int[] offsetHolder, int numSlots) throws Exception {
+
+    final Instance[] result = new Instance[batch.numInstances()];
+    int chunkSize = (batch.numInstances() + numSlots - 1) / numSlots;
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int start = 0; start < batch.numInstances(); start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(start + chunkSize, batch.numInstances());
+      final Tokenizer tokenizer =
+        (Tokenizer) new SerializedObject(m_tokenizer).getObject();
+      final Stemmer stemmer =
+        (Stemmer) new SerializedObject(m_stemmer).getObject();
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          int[] offset = new int[1];
+          for (int i = from; i < to; i++) {
+            result[i] = vectorizeInstance(batch.instance(i), offset, true,
+              tokenizer, stemmer);
+          }
+          if (from == 0) {
+            offsetHolder[0] = offset[0];
+          }
+          return null;
+        }
+      });
+    }
+    runTasks(tasks, numSlots);
+
+    return result;
+  }
+
+  /**
+   * Returns true if there are string or relational attributes that are not
+   * converted. Their values are added to the output format when vectorizing,
+   * which cannot be done by several threads at the same time.
+   *
+   * @return true if such attributes are present
+   */
+  protected boolean retainsStringOrRelationalAttributes() {
+    for (int i = 0; i < m_inputFormat.numAttributes(); i++) {
+      if (!m_selectedRange.isInRange(i)
+        && (m_inputFormat.attribute(i).isString() || m_inputFormat
+          .attribute(i).isRelationValued())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of threads to use.
+   *
+   * @return the number of threads
+   * @throws Exception if the number of execution slots is negative
+   */
+  protected int getNumSlots() throws Exception {
+    if (m_numExecutionSlots < 0) {
+      throw new Exception("Number of execution slots needs to be >= 0!");
+    }
+    return (m_numExecutionSlots == 0) ? Runtime.getRuntime()
+      .availableProcessors() : m_numExecutionSlots;
+  }
+
+  /**
+   * Runs the given tasks with a pool of threads and waits for them to finish.
+   *
+   * @param tasks the tasks to run
+   * @param numSlots the number of threads
+   * @throws Exception if a task fails
+   */
+  protected void runTasks(List<Callable<Void>> tasks, int numSlots)
+    throws Exception {
+
+    ExecutorService executorPool =
+      Executors.newFixedThreadPool(Math.min(numSlots, tasks.size()));
+    try {
+      List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (Callable<Void> task : tasks) {
+        results.add(executorPool.submit(task));
+      }
+      for (Future<Void> future : results) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    } finally {
+      executorPool.shutdownNow();
+    }
+  }
+
   /**
    * Convert an input instance. Any string attributes not being vectorized do
    * not have their values retained in memory (i.e. only the string values for
@@ -1371,6 +1567,13 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
 
   private Instance vectorizeInstance(Instance input, int[] offsetHolder,
     boolean retainStringAttValuesInMemory) throws Exception {
+    return vectorizeInstance(input, offsetHolder,
+      retainStringAttValuesInMemory, m_tokenizer, m_stemmer);
+  }
+
+  private Instance vectorizeInstance(Instance input, int[] offsetHolder,
+    boolean retainStringAttValuesInMemory, Tokenizer tokenizer,
+    Stemmer stemmer) throws Exception {
 
     if (!m_inputContainsStringAttributes) {
       return input;
@@ -1435,14 +1638,14 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
     // dictionary entries
     for (int i = 0; i < m_inputFormat.numAttributes(); i++) {
       if (m_selectedRange.isInRange(i) && !input.isMissing(i)) {
-        m_tokenizer.tokenize(input.stringValue(i));
+        tokenizer.tokenize(input.stringValue(i));
 
-        while (m_tokenizer.hasMoreElements()) {
-          String word = m_tokenizer.nextElement();
+        Token token;
+        while ((token = tokenizer.nextToken()) != null) {
           if (m_lowerCaseTokens) {
-            word = word.toLowerCase();
+            token.toLowerCase();
           }
-          word = m_stemmer.stem(word);
+          String word = stemmer.stem(token.toString());
 
           int[] idxAndDocCount = m_consolidatedDict.get(word);
           if (idxAndDocCount != null) {
@@ -1585,15 +1788,24 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
       if (m_selectedRange.isInRange(j) && !inst.isMissing(j)) {
         m_tokenizer.tokenize(inst.stringValue(j));
 
-        while (m_tokenizer.hasMoreElements()) {
-          String word = m_tokenizer.nextElement();
-
+        Token token;
+        while ((token = m_tokenizer.nextToken()) != null) {
           if (m_lowerCaseTokens) {
-            word = word.toLowerCase();
+            token.toLowerCase();
           }
-          word = m_stemmer.stem(word);
-          if (m_stopwordsHandler.isStopword(word)) {
-            continue;
+
+          // without a stemmer, stopwords are dropped before creating a string
+          String word;
+          if (m_stemmer instanceof NullStemmer) {
+            if (AbstractStopwords.isStopword(m_stopwordsHandler, token)) {
+              continue;
+            }
+            word = token.toString();
+          } else {
+            word = m_stemmer.stem(token.toString());
+            if (m_stopwordsHandler.isStopword(word)) {
+              continue;
+            }
           }
 
           int[] counts = m_inputVector.get(word);
@@ -1634,6 +1846,83 @@ public class DictionaryBuilder implements Aggregateable<DictionaryBuilder>,
     pruneDictionary();
   }
 
+  /**
+   * Process a batch of instances by tokenizing string attributes and updating
+   * the dictionary. If more than one execution slot is to be used, the batch
+   * is split into contiguous chunks that are processed by separate copies of
+   * this DictionaryBuilder, each with its own tokenizer, stemmer and
+   * stopwords handler. Their dictionaries are then aggregated in the order of
+   * the chunks, so that the result does not depend on the number of threads
+   * (unless the dictionary is pruned periodically).
+   * 
+   * @param batch the instances to process
+   * @throws Exception if a problem occurs
+   */
+  public void processBatch(final Instances batch) throws Exception {
+
+    if (!m_inputContainsStringAttributes) {
+      return;
+    }
+
+    int numSlots = getNumSlots();
+    if (numSlots <= 1 || batch.numInstances() < 2) {
+      for (int i = 0; i < batch.numInstances(); i++) {
+        processInstance(batch.instance(i));
+      }
+      return;
+    }
+
+    int chunkSize = (batch.numInstances() + numSlots - 1) / numSlots;
+    List<DictionaryBuilder> partials = new ArrayList<DictionaryBuilder>();
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int start = 0; start < batch.numInstances(); start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(start + chunkSize, batch.numInstances());
+      final DictionaryBuilder partial = makePartialBuilder();
+      partials.add(partial);
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = from; i < to; i++) {
+            partial.processInstance(batch.instance(i));
+          }
+          return null;
+        }
+      });
+    }
+    runTasks(tasks, numSlots);
+
+    for (DictionaryBuilder partial : partials) {
+      aggregate(partial);
+    }
+  }
+
+  /**
+   * Creates a copy of this DictionaryBuilder with empty dictionaries, for
+   * processing part of a batch. The tokenizer, stemmer and stopwords handler
+   * are deep copies.
+   * 
+   * @return the copy
+   * @throws Exception if the copy cannot be made
+   */
+  protected DictionaryBuilder makePartialBuilder() throws Exception {
+
+    // don't copy the dictionaries compiled so far
+    Map<String, int[]>[] dicts = m_dictsPerClass;
+    DictionaryBuilder result;
+    m_dictsPerClass = null;
+    try {
+      result = (DictionaryBuilder) new SerializedObject(this).getObject();
+    } finally {
+      m_dictsPerClass = dicts;
+    }
+    result.m_dictsPerClass = result.newDictionaries();
+    result.m_count = 0;
+    result.m_docLengthSum = 0;
+
+    return result;
+  }
+
   /**
    * Prunes the dictionary of low frequency terms
    */
@@ -543,6 +543,24 @@ RevisionHandler {
   // @ requires position != classIndex();
   public void deleteAttributeAt(int position) {
 
+    deleteAttributeFromHeader(position);
+    for (int i = 0; i < numInstances(); i++) {
+      instance(i).setDataset(null);
+      instance(i).deleteAttributeAt(position);
+      instance(i).setDataset(this);
+    }
+  }
+
+  /**
+   * Deletes an attribute at the given position from the header information
+   * only, see deleteAttributeAt(int). The instances are not changed.
+   * 
+   * @param position the attribute's position (position starts with 0)
+   * @throws IllegalArgumentException if the given index is out of range or the
+   *           class attribute is being deleted
+   */
+  protected void deleteAttributeFromHeader(int position) {
+
     if ((position < 0) || (position >= m_Attributes.size())) {
       throw new IllegalArgumentException("Cannot delete attribute: index out of range");
     }
@@ -569,11 +587,6 @@ RevisionHandler {
     if (m_ClassIndex > position) {
       m_ClassIndex--;
     }
-    for (int i = 0; i < numInstances(); i++) {
-      instance(i).setDataset(null);
-      instance(i).deleteAttributeAt(position);
-      instance(i).setDataset(this);
-    }
   }
 
   /**
@@ -756,6 +769,25 @@ RevisionHandler {
   // @ requires position <= numAttributes();
   public void insertAttributeAt(/* @non_null@ */Attribute att, int position) {
 
+    insertAttributeIntoHeader(att, position);
+    for (int i = 0; i < numInstances(); i++) {
+      instance(i).setDataset(null);
+      instance(i).insertAttributeAt(position);
+      instance(i).setDataset(this);
+    }
+  }
+
+  /**
+   * Inserts an attribute at the given position into the header information
+   * only, see insertAttributeAt(Attribute, int). The instances are not
+   * changed.
+   * 
+   * @param att the attribute to be inserted
+   * @param position the attribute's position (position starts with 0)
+   * @throws IllegalArgumentException if the given index is out of range
+   */
+  protected void insertAttributeIntoHeader(Attribute att, int position) {
+
     if ((position < 0) || (position > m_Attributes.size())) {
       throw new IllegalArgumentException("Cannot insert attribute: index out of range");
     }
@@ -785,11 +817,6 @@ RevisionHandler {
     m_Attributes = newList;
     m_NamesToAttributeIndices = newMap;
 
-    for (int i = 0; i < numInstances(); i++) {
-      instance(i).setDataset(null);
-      instance(i).insertAttributeAt(position);
-      instance(i).setDataset(this);
-    }
     if (m_ClassIndex >= position) {
       m_ClassIndex++;
     }
@@ -1074,6 +1101,25 @@ RevisionHandler {
   // @ requires position <= numAttributes();
   public void replaceAttributeAt(/* @non_null@ */Attribute att, int position) {
 
+    replaceAttributeInHeader(att, position);
+    for (int i = 0; i < numInstances(); i++) {
+      instance(i).setDataset(null);
+      instance(i).setMissing(position);
+      instance(i).setDataset(this);
+    }
+  }
+
+  /**
+   * Replaces the attribute at the given position in the header information
+   * only, see replaceAttributeAt(Attribute, int). The instances are not
+   * changed.
+   * 
+   * @param att the attribute to be inserted
+   * @param position the attribute's position (position starts with 0)
+   * @throws IllegalArgumentException if the given index is out of range
+   */
+  protected void replaceAttributeInHeader(Attribute att, int position) {
+
     if ((position < 0) || (position >= m_Attributes.size())) {
       throw new IllegalArgumentException("Cannot replace attribute: index out of range");
     }
@@ -1106,12 +1152,6 @@ RevisionHandler {
     }
     m_Attributes = newList;
     m_NamesToAttributeIndices = newMap;
-
-    for (int i = 0; i < numInstances(); i++) {
-      instance(i).setDataset(null);
-      instance(i).setMissing(position);
-      instance(i).setDataset(this);
-    }
   }
 
   /**
@@ -1457,6 +1497,55 @@ RevisionHandler {
   public Instances resampleWithWeights(Random random, double[] weights,
     boolean[] sampled, boolean representUsingWeights, double sampleSize) {
 
+    int[] drawn = resampleIndicesWithWeights(random, weights, sampleSize);
+
+    Instances newData = new Instances(this, numInstances());
+    if (representUsingWeights) {
+
+      // Add data based on counts if weights should represent numbers of copies.
+      int[] counts = new int[numInstances()];
+      for (int index : drawn) {
+        counts[index]++;
+      }
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] > 0) {
+          newData.add(instance(i));
+          newData.instance(newData.numInstances() - 1).setWeight(counts[i]);
+        }
+      }
+    } else {
+      for (int index : drawn) {
+        newData.add(instance(index));
+        newData.instance(newData.numInstances() - 1).setWeight(1);
+      }
+    }
+    if (sampled != null) {
+      for (int index : drawn) {
+        sampled[index] = true;
+      }
+    }
+
+    return newData;
+  }
+
+  /**
+   * Draws a sample with replacement according to the given weight vector and
+   * returns the indices of the drawn instances, in the order in which they
+   * were drawn. Uses the same procedure and the same random numbers as
+   * resampleWithWeights(Random, double[], boolean[], boolean, double), so
+   * learners can get hold of the rows behind a resampled dataset.
+   * 
+   * @param random a random number generator
+   * @param weights the weight vector
+   * @param sampleSize size of the sample as a percentage of the size of this
+   *          dataset
+   * @return the indices of the drawn instances
+   * @throws IllegalArgumentException if the weights array is of the wrong
+   *           length or contains negative weights.
+   */
+  public int[] resampleIndicesWithWeights(Random random, double[] weights,
+    double sampleSize) {
+
     if (weights.length != numInstances()) {
       throw new IllegalArgumentException("weights.length != numInstances.");
     }
@@ -1465,9 +1554,8 @@ RevisionHandler {
       throw new IllegalArgumentException("Sample size must be a percentage.");
     }
 
-    Instances newData = new Instances(this, numInstances());
     if (numInstances() == 0) {
-      return newData;
+      return new int[0];
     }
 
     // Walker's method, see pp. 232 of "Stochastic Simulation" by B.D. Ripley
@@ -1511,13 +1599,8 @@ RevisionHandler {
       Q[I] += I;
     }
 
-    // Do we need to keep track of how many copies to use?
-    int[] counts = null;
-    if (representUsingWeights) {
-      counts = new int[M];
-    }
-
     int numToBeSampled = (int) (numInstances() * (sampleSize / 100.0));
+    int[] drawn = new int[numToBeSampled];
 
     for (int i = 0; i < numToBeSampled; i++) {
       int ALRV;
@@ -1528,30 +1611,10 @@ RevisionHandler {
       } else {
         ALRV = A[I];
       }
-      if (representUsingWeights) {
-        counts[ALRV]++;
-      } else {
-        newData.add(instance(ALRV));
-      }
-      if (sampled != null) {
-        sampled[ALRV] = true;
-      }
-      if (!representUsingWeights) {
-        newData.instance(newData.numInstances() - 1).setWeight(1);
-      }
+      drawn[i] = ALRV;
     }
 
-    // Add data based on counts if weights should represent numbers of copies.
-    if (representUsingWeights) {
-      for (int i = 0; i < counts.length; i++) {
-        if (counts[i] > 0) {
-          newData.add(instance(i));
-          newData.instance(newData.numInstances() - 1).setWeight(counts[i]);
-        }
-      }
-    }
-
-    return newData;
+    return drawn;
   }
 
   /**
@@ -0,0 +1,309 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    LBFGSOptimization.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.core;
+
+import java.util.Arrays;
+
+import weka.core.TechnicalInformation.Field;
+import weka.core.TechnicalInformation.Type;
+
+/**
+ * This subclass of Optimization.java implements limited-memory BFGS (L-BFGS)
+ * rather than BFGS updates, by overriding findArgmin(), with the same tests for
+ * convergence, and applies the same line search code. Note that constraints are
+ * NOT actually supported.
+ *
+ * Instead of a dense approximation of the Hessian, which takes memory
+ * quadratic in the number of parameters, only the changes in the variables and
+ * in the gradient from the most recent iterations are kept, and the search
+ * direction is computed from them with the two-loop recursion. Memory and time
+ * per iteration are linear in the number of parameters, so using this class
+ * instead of Optimization.java is worthwhile when there are many parameters.
+ *
+ * @version $Revision$
+ */
+public abstract class LBFGSOptimization extends Optimization implements
+  RevisionHandler {
+
+  /** The number of corrections (pairs of changes) that are kept. */
+  protected int m_NumCorrections = 10;
+
+  /**
+   * Returns an instance of a TechnicalInformation object, containing detailed
+   * information about the technical background of this class, e.g., paper
+   * reference or book this class is based on.
+   *
+   * @return the technical information about this class
+   */
+  @Override
+  public TechnicalInformation getTechnicalInformation() {
+    TechnicalInformation result;
+    result = new TechnicalInformation(Type.ARTICLE);
+    result.setValue(Field.AUTHOR, "D.C. Liu and J. Nocedal");
+    result.setValue(Field.YEAR, "1989");
+    result.setValue(Field.TITLE,
+      "On the limited memory BFGS method for large scale optimization");
+    result.setValue(Field.JOURNAL, "Mathematical Programming");
+    result.setValue(Field.VOLUME, "45");
+    result.setValue(Field.PAGES, "503-528");
+
+    result.add(Type.ARTICLE);
+    result.setValue(Field.AUTHOR, "J. Nocedal");
+    result.setValue(Field.YEAR, "1980");
+    result.setValue(Field.TITLE,
+      "Updating quasi-Newton matrices with limited storage");
+    result.setValue(Field.JOURNAL, "Mathematics of Computation");
+    result.setValue(Field.VOLUME, "35");
+    result.setValue(Field.PAGES, "773-782");
+
+    return result;
+  }
+
+  /**
+   * Constructor that sets MAXITS to 2000 by default, as L-BFGS needs more
+   * iterations than BFGS and loses the curvature information it has gathered
+   * when the search is restarted.
+   */
+  public LBFGSOptimization() {
+    setMaxIteration(2000);
+  }
+
+  /**
+   * Sets the number of corrections that are kept to approximate the Hessian.
+   *
+   * @param numCorrections the number of corrections, at least 1
+   */
+  public void setNumCorrections(int numCorrections) {
+    m_NumCorrections = numCorrections;
+  }
+
+  /**
+   * Gets the number of corrections that are kept to approximate the Hessian.
+   *
+   * @return the number of corrections
+   */
+  public int getNumCorrections() {
+    return m_NumCorrections;
+  }
+
+  /**
+   * Main algorithm. NOTE: constraints are not actually supported.
+   *
+   * @param initX initial point of x, assuming no value's on the bound!
+   * @param constraints both arrays must contain Double.NaN
+   * @return the solution of x, null if number of iterations not enough
+   * @throws Exception if an error occurs
+   */
+  @Override
+  public double[] findArgmin(double[] initX, double[][] constraints)
+    throws Exception {
+
+    if (m_NumCorrections < 1) {
+      throw new Exception("Number of corrections needs to be >= 1!");
+    }
+
+    int l = initX.length;
+
+    // Initial value of obj. function and gradient
+    m_f = objectiveFunction(initX);
+    if (Double.isNaN(m_f)) {
+      throw new Exception("Objective function value is NaN!");
+    }
+
+    // Get gradient at initial point
+    double[] grad = evaluateGradient(initX), oldGrad, oldX, direct = new double[l], x = new double[l];
+
+    // Turn gradient into direction and calculate squared length
+    double sum = 0;
+    for (int i = 0; i < grad.length; i++) {
+      direct[i] = -grad[i];
+      sum += grad[i] * grad[i];
+    }
+
+    // Same as in Optimization.java
+    double stpmax = m_STPMX * Math.max(Math.sqrt(sum), l);
+
+    boolean[] isFixed = new boolean[initX.length];
+    DynamicIntArray wsBdsIndx = new DynamicIntArray(initX.length);
+    for (int i = 0; i < initX.length; i++) {
+      if (!Double.isNaN(constraints[0][i])
+        || (!Double.isNaN(constraints[1][i]))) {
+        throw new Exception("Cannot deal with constraints, sorry.");
+      }
+      x[i] = initX[i];
+    }
+
+    // The corrections, stored in a ring buffer: deltaX, deltaGrad and
+    // 1/(deltaGrad'*deltaX) of each of the most recent iterations
+    int m = Math.min(m_NumCorrections, l);
+    double[][] s = new double[m][l];
+    double[][] y = new double[m][l];
+    double[] rho = new double[m];
+    double[] alpha = new double[m];
+    int newest = -1, numStored = 0;
+
+    boolean finished = false;
+    for (int step = 0; step < m_MAXITS; step++) {
+
+      if (m_Debug) {
+        System.err.println("\nIteration # " + step + ":");
+      }
+
+      oldX = x;
+      oldGrad = grad;
+
+      // Make a copy of direction vector because it may get modified in lnsrch
+      double[] directB = Arrays.copyOf(direct, direct.length);
+
+      // Perform a line search based on new direction
+      m_IsZeroStep = false;
+      x = lnsrch(x, grad, directB, stpmax, isFixed, constraints, wsBdsIndx);
+      if (m_IsZeroStep) {
+        throw new Exception("Exiting due to zero step.");
+      }
+
+      // Check converge on x, and keep deltaX in the next slot of the buffer
+      int next = (newest + 1) % m;
+      double[] deltaX = s[next];
+      double test = 0.0;
+      for (int h = 0; h < x.length; h++) {
+        deltaX[h] = x[h] - oldX[h];
+        double tmp = Math.abs(deltaX[h]) / Math.max(Math.abs(x[h]), 1.0);
+        if (tmp > test) {
+          test = tmp;
+        }
+      }
+      if (test < m_Zero) {
+        if (m_Debug) {
+          System.err.println("\nDeltaX converged: " + test);
+        }
+        finished = true;
+        break;
+      }
+
+      // Check zero gradient
+      grad = evaluateGradient(x);
+      test = 0.0;
+      for (int g = 0; g < l; g++) {
+        double tmp = Math.abs(grad[g]) * Math.max(Math.abs(directB[g]), 1.0)
+          / Math.max(Math.abs(m_f), 1.0);
+        if (tmp > test) {
+          test = tmp;
+        }
+      }
+
+      if (test < m_Zero) {
+        if (m_Debug) {
+          System.err.println("Gradient converged: " + test);
+        }
+        finished = true;
+        break;
+      }
+
+      // Keep the correction if it preserves positive definiteness, using the
+      // same test as Optimization.java
+      double[] deltaGrad = y[next];
+      double denom = 0.0, dxSq = 0.0, dgSq = 0.0;
+      for (int i = 0; i < l; i++) {
+        deltaGrad[i] = grad[i] - oldGrad[i];
+        denom += deltaX[i] * deltaGrad[i];
+        dxSq += deltaX[i] * deltaX[i];
+        dgSq += deltaGrad[i] * deltaGrad[i];
+      }
+      if (denom < Math.max(m_Zero * Math.sqrt(dxSq) * Math.sqrt(dgSq),
+        m_Zero)) {
+        if (m_Debug) {
+          System.err.println("dg'*dx negative!");
+        }
+        if (numStored == m) {
+          numStored--; // The oldest correction has been overwritten
+        }
+      } else {
+        rho[next] = 1.0 / denom;
+        newest = next;
+        numStored = Math.min(numStored + 1, m);
+      }
+
+      // Find new direction with the two-loop recursion
+      for (int i = 0; i < l; i++) {
+        direct[i] = -grad[i];
+      }
+      for (int k = 0; k < numStored; k++) {
+        int j = (newest - k + m) % m;
+        double dot = 0;
+        for (int i = 0; i < l; i++) {
+          dot += s[j][i] * direct[i];
+        }
+        alpha[j] = rho[j] * dot;
+        for (int i = 0; i < l; i++) {
+          direct[i] -= alpha[j] * y[j][i];
+        }
+      }
+      if (numStored > 0) {
+        // Scale by deltaGrad'*deltaX/(deltaGrad'*deltaGrad) of the newest
+        // correction, the initial approximation of the inverse Hessian
+        double yy = 0;
+        for (int i = 0; i < l; i++) {
+          yy += y[newest][i] * y[newest][i];
+        }
+        double gamma = 1.0 / (rho[newest] * yy);
+        for (int i = 0; i < l; i++) {
+          direct[i] *= gamma;
+        }
+      }
+      for (int k = numStored - 1; k >= 0; k--) {
+        int j = (newest - k + m) % m;
+        double dot = 0;
+        for (int i = 0; i < l; i++) {
+          dot += y[j][i] * direct[i];
+        }
+        double beta = rho[j] * dot;
+        for (int i = 0; i < l; i++) {
+          direct[i] += (alpha[j] - beta) * s[j][i];
+        }
+      }
+
+      for (double element : direct) {
+        if (Double.isNaN(element)) {
+          throw new Exception("direct is NaN!");
+        }
+      }
+    }
+
+    if (finished) {
+      if (m_Debug) {
+        System.err.println("Minimum found.");
+      }
+      m_f = objectiveFunction(x);
+      if (Double.isNaN(m_f)) {
+        throw new Exception("Objective function value is NaN!");
+      }
+      return x;
+    }
+
+    if (m_Debug) {
+      System.err.println("Cannot find minimum -- too many iterations!");
+    }
+    m_X = x;
+    return null;
+  }
+}
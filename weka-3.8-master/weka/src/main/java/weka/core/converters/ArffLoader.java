@@ -79,6 +79,12 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter,
    */
   protected boolean m_retainStringVals;
 
+  /** The number of threads for parsing the data of a file in batch mode */
+  protected int m_numExecutionSlots = 1;
+
+  /** The source file if it can be memory-mapped, null otherwise. */
+  protected transient File m_mappableFile = null;
+
   /**
    * Reads data from an ARFF file, either in incremental or batch mode.
    * <p/>
@@ -1100,6 +1106,40 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter,
     return m_retainStringVals;
   }
 
+  /**
+   * Tool tip text for this property
+   * 
+   * @return the tool tip for this property
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of threads to use for parsing the data of an "
+      + "uncompressed file in batch mode (0 = number of available "
+      + "processors). With more than one thread, the file is memory-mapped "
+      + "and parsed in chunks; data that cannot be parsed this way is read "
+      + "with a single thread.";
+  }
+
+  /**
+   * Set the number of threads to use for parsing the data of a file in batch
+   * mode.
+   * 
+   * @param numSlots the number of threads, 0 for the number of available
+   *          processors
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_numExecutionSlots = numSlots;
+  }
+
+  /**
+   * Get the number of threads to use for parsing the data of a file in batch
+   * mode.
+   * 
+   * @return the number of threads
+   */
+  public int getNumExecutionSlots() {
+    return m_numExecutionSlots;
+  }
+
   /**
    * Get the file extension used for arff files
    * 
@@ -1189,6 +1229,32 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter,
     setSource(file);
   }
 
+  /**
+   * Resets the Loader object and sets the source of the data set to be the
+   * supplied File object. Uncompressed files are memory-mapped when the data
+   * is read in batch mode.
+   * 
+   * @param file the source file.
+   * @throws IOException if an error occurs
+   */
+  @Override
+  public void setSource(File file) throws IOException {
+    super.setSource(file);
+
+    String fName = file.getPath();
+    try {
+      if (m_env != null) {
+        fName = m_env.substitute(fName);
+      }
+    } catch (Exception e) {
+      // the file was opened without substitution
+    }
+    File resolved = new File(fName);
+    if (resolved.isFile() && !fName.endsWith(FILE_EXTENSION_COMPRESSED)) {
+      m_mappableFile = resolved;
+    }
+  }
+
   /**
    * Set the url to load from
    * 
@@ -1222,6 +1288,7 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter,
   public void setSource(InputStream in) throws IOException {
     m_File = (new File(System.getProperty("user.dir"))).getAbsolutePath();
     m_URL = "http://";
+    m_mappableFile = null;
 
     m_sourceReader = new BufferedReader(new InputStreamReader(in));
   }
@@ -1280,11 +1347,18 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter,
         getStructure();
       }
 
-      // Read all instances
-      insts = new Instances(m_structure, 0);
-      Instance inst;
-      while ((inst = m_ArffReader.readInstance(m_structure)) != null) {
-        insts.add(inst);
+      // Read all instances, from the mapped file in parallel if requested
+      if ((m_mappableFile != null) && (m_numExecutionSlots != 1)) {
+        insts =
+          new MappedArffReader(m_mappableFile, m_structure,
+            m_numExecutionSlots).readData();
+      }
+      if (insts == null) {
+        insts = new Instances(m_structure, 0);
+        Instance inst;
+        while ((inst = m_ArffReader.readInstance(m_structure)) != null) {
+          insts.add(inst);
+        }
       }
 
       // Instances readIn = new Instances(m_structure);
@@ -0,0 +1,866 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    MappedArffReader.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.core.converters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.RevisionHandler;
+import weka.core.RevisionUtils;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Reads the data section of an ARFF file by memory-mapping it. The section is
+ * split into chunks at line boundaries and the chunks are parsed in parallel,
+ * with numbers and nominal values being read straight from the mapped bytes.
+ * <p/>
+ *
+ * Only numeric and nominal attributes are handled, in dense or sparse rows with
+ * optional instance weights. Whenever something else is encountered (string,
+ * date or relational attributes, quoted values with escapes, values that are
+ * not declared or cannot be parsed), <code>readData()</code> returns null
+ * and the data has to be read with the regular
+ * <code>ArffLoader.ArffReader</code>, which also reports any errors.
+ * <p/>
+ *
+ * Typical code:
+ *
+ * <pre>
+ * Instances data = new MappedArffReader(file, structure, 8).readData();
+ * if (data == null) {
+ *   // read the data with ArffLoader.ArffReader
+ * }
+ * </pre>
+ *
+ * @version $Revision$
+ * @see ArffLoader.ArffReader
+ */
+public class MappedArffReader implements RevisionHandler {
+
+  /** the token type for the end of a line */
+  protected static final int TT_EOL = -1;
+
+  /** the token type for a word */
+  protected static final int TT_WORD = -2;
+
+  /** the largest chunk of the data section that is parsed at once */
+  protected static final int MAX_CHUNK_SIZE = 1 << 26;
+
+  /** the smallest chunk the data section is split into for several threads */
+  protected static final int MIN_CHUNK_SIZE = 1 << 20;
+
+  /** the number of chunks per thread, to even out the load */
+  protected static final int CHUNKS_PER_THREAD = 4;
+
+  /** the maximum number of digits that are read exactly into a long */
+  protected static final int MAX_EXACT_DIGITS = 15;
+
+  /** the powers of ten that are exactly representable as doubles */
+  protected static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+    1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+    1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  /** the ARFF file */
+  protected File m_File;
+
+  /** the header of the data */
+  protected Instances m_Structure;
+
+  /** the number of threads to parse with */
+  protected int m_NumThreads;
+
+  /** the encoded values of the nominal attributes */
+  protected byte[][][] m_NominalValues;
+
+  /** the hash tables (value index + 1) of the nominal attributes */
+  protected int[][] m_NominalTables;
+
+  /** whether parsing of a chunk failed */
+  protected volatile boolean m_Failed;
+
+  /**
+   * Initializes the reader.
+   *
+   * @param file the ARFF file
+   * @param structure the header of the data, as read from the file
+   * @param numThreads the number of threads to parse with, 0 for the number of
+   *          available processors
+   */
+  public MappedArffReader(File file, Instances structure, int numThreads) {
+    m_File = file;
+    m_Structure = structure;
+    m_NumThreads =
+      (numThreads == 0) ? Runtime.getRuntime().availableProcessors()
+        : numThreads;
+  }
+
+  /**
+   * Returns whether data with the given structure can be read by this reader.
+   *
+   * @param structure the header of the data
+   * @return true if only numeric and nominal attributes are present
+   */
+  public static boolean canRead(Instances structure) {
+    CharsetEncoder encoder = Charset.defaultCharset().newEncoder();
+
+    for (int i = 0; i < structure.numAttributes(); i++) {
+      Attribute att = structure.attribute(i);
+      if (att.isNominal()) {
+        for (int j = 0; j < att.numValues(); j++) {
+          if (!encoder.canEncode(att.value(j))) {
+            return false;
+          }
+        }
+      } else if (!att.isNumeric() || att.isDate()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads the data section of the file.
+   *
+   * @return the data, or null if the file cannot be read by this reader
+   * @throws IOException if reading the file fails
+   */
+  public Instances readData() throws IOException {
+    if (!canRead(m_Structure)) {
+      return null;
+    }
+    initNominalValues();
+    m_Failed = false;
+
+    RandomAccessFile file = new RandomAccessFile(m_File, "r");
+    try {
+      FileChannel channel = file.getChannel();
+      long start = findData(channel);
+      if (start < 0) {
+        return null;
+      }
+      long[] bounds = splitData(channel, start);
+      if (bounds == null) {
+        return null;
+      }
+
+      List<List<Instance>> chunks = new ArrayList<List<Instance>>();
+      if ((m_NumThreads <= 1) || (bounds.length <= 2)) {
+        for (int i = 0; i < bounds.length - 1; i++) {
+          List<Instance> chunk = parseChunk(channel, bounds[i], bounds[i + 1]);
+          if (chunk == null) {
+            return null;
+          }
+          chunks.add(chunk);
+        }
+      } else {
+        chunks = parseChunks(channel, bounds);
+        if (chunks == null) {
+          return null;
+        }
+      }
+
+      int numInstances = 0;
+      for (List<Instance> chunk : chunks) {
+        numInstances += chunk.size();
+      }
+      Instances result = new Instances(m_Structure, numInstances);
+      for (int i = 0; i < chunks.size(); i++) {
+        for (Instance inst : chunks.get(i)) {
+          result.add(inst);
+        }
+        chunks.set(i, null);
+      }
+
+      return result;
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Parses the chunks on a pool of threads.
+   *
+   * @param channel the file
+   * @param bounds the offsets of the chunks
+   * @return the instances of the chunks, null if a chunk could not be parsed
+   * @throws IOException if reading the file fails
+   */
+  protected List<List<Instance>> parseChunks(final FileChannel channel,
+    long[] bounds) throws IOException {
+
+    List<Future<List<Instance>>> futures =
+      new ArrayList<Future<List<Instance>>>();
+    ExecutorService executorPool =
+      Executors.newFixedThreadPool(Math.min(m_NumThreads, bounds.length - 1));
+    try {
+      for (int i = 0; i < bounds.length - 1; i++) {
+        final long start = bounds[i];
+        final long end = bounds[i + 1];
+        futures.add(executorPool.submit(new Callable<List<Instance>>() {
+          @Override
+          public List<Instance> call() throws Exception {
+            return parseChunk(channel, start, end);
+          }
+        }));
+      }
+
+      List<List<Instance>> result = new ArrayList<List<Instance>>();
+      for (Future<List<Instance>> future : futures) {
+        List<Instance> chunk = future.get();
+        if (chunk == null) {
+          return null;
+        }
+        result.add(chunk);
+      }
+
+      return result;
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      executorPool.shutdownNow();
+    }
+  }
+
+  /**
+   * Encodes the values of the nominal attributes and sets up their hash
+   * tables.
+   */
+  protected void initNominalValues() {
+    Charset charset = Charset.defaultCharset();
+
+    m_NominalValues = new byte[m_Structure.numAttributes()][][];
+    m_NominalTables = new int[m_Structure.numAttributes()][];
+    for (int i = 0; i < m_Structure.numAttributes(); i++) {
+      Attribute att = m_Structure.attribute(i);
+      if (!att.isNominal()) {
+        continue;
+      }
+
+      int size = 2;
+      while (size < 2 * att.numValues()) {
+        size *= 2;
+      }
+      m_NominalValues[i] = new byte[att.numValues()][];
+      m_NominalTables[i] = new int[size];
+      for (int j = 0; j < att.numValues(); j++) {
+        byte[] value = att.value(j).getBytes(charset);
+        m_NominalValues[i][j] = value;
+        int slot = hash(value, 0, value.length) & (size - 1);
+        while (m_NominalTables[i][slot] != 0) {
+          slot = (slot + 1) & (size - 1);
+        }
+        m_NominalTables[i][slot] = j + 1;
+      }
+    }
+  }
+
+  /**
+   * Computes the hash of a range of bytes.
+   *
+   * @param bytes the bytes
+   * @param start the first byte
+   * @param end the end of the range (exclusive)
+   * @return the hash
+   */
+  protected static int hash(byte[] bytes, int start, int end) {
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      result = 31 * result + bytes[i];
+    }
+    return result ^ (result >>> 16);
+  }
+
+  /**
+   * Locates the data section, i.e., the position right after the
+   * <code>@data</code> keyword.
+   *
+   * @param channel the file
+   * @return the offset of the data section, -1 if not found
+   * @throws IOException if reading the file fails
+   */
+  protected long findData(FileChannel channel) throws IOException {
+    byte[] keyword = Instances.ARFF_DATA.toLowerCase().getBytes("US-ASCII");
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    long offset = 0;
+    int matched = 0;
+    boolean lineStart = true;
+    int read;
+
+    while ((read = channel.read(buffer, offset)) > 0) {
+      for (int i = 0; i < read; i++) {
+        int b = buffer.get(i) & 0xFF;
+        if (matched == keyword.length) {
+          if ((b <= ' ') || (b == ',') || (b == '%')) {
+            return offset + i;
+          }
+          matched = 0;
+          lineStart = false;
+        }
+        if ((b == '\n') || (b == '\r')) {
+          lineStart = true;
+          matched = 0;
+        } else if (lineStart && (matched == 0) && (b <= ' ')) {
+          continue;
+        } else if (lineStart && (Character.toLowerCase(b) == keyword[matched])) {
+          matched++;
+        } else {
+          lineStart = false;
+          matched = 0;
+        }
+      }
+      offset += read;
+      buffer.clear();
+    }
+
+    return (matched == keyword.length) ? offset : -1;
+  }
+
+  /**
+   * Splits the data section into chunks that end at line boundaries.
+   *
+   * @param channel the file
+   * @param start the offset of the data section
+   * @return the offsets of the chunks, including the end of the file, or null
+   *         if a line is too long to be mapped
+   * @throws IOException if reading the file fails
+   */
+  protected long[] splitData(FileChannel channel, long start)
+    throws IOException {
+    long size = channel.size();
+    long target = MAX_CHUNK_SIZE;
+    if (m_NumThreads > 1) {
+      target = (size - start) / ((long) m_NumThreads * CHUNKS_PER_THREAD);
+      target = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, target));
+    }
+
+    List<Long> bounds = new ArrayList<Long>();
+    bounds.add(start);
+    long current = start;
+    while (current < size) {
+      long next = (size - current <= target) ? size
+        : nextLine(channel, current + target);
+      if (next - current > Integer.MAX_VALUE) {
+        return null;
+      }
+      bounds.add(next);
+      current = next;
+    }
+
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = bounds.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the offset of the line following the given position.
+   *
+   * @param channel the file
+   * @param offset the position
+   * @return the start of the next line, or the end of the file
+   * @throws IOException if reading the file fails
+   */
+  protected long nextLine(FileChannel channel, long offset) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    int read;
+
+    while ((read = channel.read(buffer, offset)) > 0) {
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return offset + i + 1;
+        }
+      }
+      offset += read;
+      buffer.clear();
+    }
+
+    return channel.size();
+  }
+
+  /**
+   * Maps and parses a chunk of the data section.
+   *
+   * @param channel the file
+   * @param start the offset of the chunk
+   * @param end the end of the chunk (exclusive)
+   * @return the instances, or null if the chunk could not be parsed
+   * @throws IOException if mapping the chunk fails
+   */
+  protected List<Instance> parseChunk(FileChannel channel, long start, long end)
+    throws IOException {
+    ByteBuffer buffer =
+      channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    List<Instance> result = new ChunkParser(buffer).parse();
+    if (result == null) {
+      m_Failed = true;
+    }
+    return result;
+  }
+
+  /**
+   * Parses the rows of one chunk.
+   */
+  protected class ChunkParser {
+
+    /** the bytes of the chunk */
+    protected ByteBuffer m_Buffer;
+
+    /** the current position */
+    protected int m_Pos;
+
+    /** the start of the current word */
+    protected int m_WordStart;
+
+    /** the end of the current word (exclusive) */
+    protected int m_WordEnd;
+
+    /** whether the current word was quoted */
+    protected boolean m_Quoted;
+
+    /** the last value parsed */
+    protected double m_Value;
+
+    /** buffer for the values of sparse rows */
+    protected double[] m_ValueBuffer;
+
+    /** buffer for the indices of sparse rows */
+    protected int[] m_IndicesBuffer;
+
+    /** buffer for bytes that are looked up or parsed by the JDK */
+    protected byte[] m_Bytes = new byte[64];
+
+    /**
+     * Initializes the parser.
+     *
+     * @param buffer the bytes of the chunk
+     */
+    protected ChunkParser(ByteBuffer buffer) {
+      m_Buffer = buffer;
+      m_ValueBuffer = new double[m_Structure.numAttributes()];
+      m_IndicesBuffer = new int[m_Structure.numAttributes()];
+    }
+
+    /**
+     * Parses all the rows of the chunk.
+     *
+     * @return the instances, null if a row could not be parsed
+     */
+    protected List<Instance> parse() {
+      List<Instance> result = new ArrayList<Instance>();
+      int limit = m_Buffer.limit();
+
+      while (m_Pos < limit) {
+        if (m_Failed) {
+          return null;
+        }
+        int token = nextToken();
+        if (token == TT_EOL) {
+          m_Pos++;
+          continue;
+        }
+        Instance inst = (token == '{') ? readSparse() : readDense(token);
+        if (inst == null) {
+          return null;
+        }
+        result.add(inst);
+      }
+
+      return result;
+    }
+
+    /**
+     * Reads the next token, without consuming the end of a line.
+     *
+     * @return the token type: TT_EOL, TT_WORD or the special character
+     */
+    protected int nextToken() {
+      int limit = m_Buffer.limit();
+
+      while (m_Pos < limit) {
+        int b = m_Buffer.get(m_Pos) & 0xFF;
+        if ((b == '\n') || (b == '\r')) {
+          return TT_EOL;
+        } else if ((b <= ' ') || (b == ',')) {
+          m_Pos++;
+        } else if (b == '%') {
+          while ((m_Pos < limit) && (m_Buffer.get(m_Pos) != '\n')
+            && (m_Buffer.get(m_Pos) != '\r')) {
+            m_Pos++;
+          }
+          return TT_EOL;
+        } else if ((b == '\'') || (b == '"')) {
+          return readQuoted(b);
+        } else if ((b == '{') || (b == '}')) {
+          m_Pos++;
+          return b;
+        } else {
+          m_Quoted = false;
+          m_WordStart = m_Pos;
+          while ((m_Pos < limit) && isWordByte(m_Buffer.get(m_Pos) & 0xFF)) {
+            m_Pos++;
+          }
+          m_WordEnd = m_Pos;
+          return TT_WORD;
+        }
+      }
+
+      return TT_EOL;
+    }
+
+    /**
+     * Reads a quoted word. Words containing escapes or not being closed on the
+     * same line are left to the regular reader.
+     *
+     * @param quote the quote character
+     * @return TT_WORD, or the quote character if the word cannot be read
+     */
+    protected int readQuoted(int quote) {
+      int limit = m_Buffer.limit();
+      int end = m_Pos + 1;
+
+      while (end < limit) {
+        int b = m_Buffer.get(end) & 0xFF;
+        if (b == quote) {
+          m_Quoted = true;
+          m_WordStart = m_Pos + 1;
+          m_WordEnd = end;
+          m_Pos = end + 1;
+          return TT_WORD;
+        } else if ((b == '\\') || (b == '\n') || (b == '\r')) {
+          break;
+        }
+        end++;
+      }
+      m_Pos++;
+
+      return quote;
+    }
+
+    /**
+     * Returns whether the byte can be part of a word.
+     *
+     * @param b the byte
+     * @return true if part of a word
+     */
+    protected boolean isWordByte(int b) {
+      return (b > ' ') && (b != ',') && (b != '%') && (b != '{') && (b != '}')
+        && (b != '\'') && (b != '"');
+    }
+
+    /**
+     * Reads a dense row.
+     *
+     * @param token the first token of the row
+     * @return the instance, null if the row could not be parsed
+     */
+    protected Instance readDense(int token) {
+      double[] values = new double[m_Structure.numAttributes()];
+
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) {
+          token = nextToken();
+        }
+        if ((token != TT_WORD) || !parseValue(i)) {
+          return null;
+        }
+        values[i] = m_Value;
+      }
+      if (!readWeight()) {
+        return null;
+      }
+
+      return new DenseInstance(m_Value, values);
+    }
+
+    /**
+     * Reads a sparse row, after the opening brace.
+     *
+     * @return the instance, null if the row could not be parsed
+     */
+    protected Instance readSparse() {
+      int numValues = 0;
+      int maxIndex = -1;
+
+      while (true) {
+        int token = nextToken();
+        if (token == '}') {
+          break;
+        }
+        if ((token != TT_WORD) || !parseIndex() || (m_Value <= maxIndex)
+          || (m_Value >= m_Structure.numAttributes())) {
+          return null;
+        }
+        int index = (int) m_Value;
+        if ((nextToken() != TT_WORD) || !parseValue(index)) {
+          return null;
+        }
+        m_IndicesBuffer[numValues] = index;
+        m_ValueBuffer[numValues] = m_Value;
+        maxIndex = index;
+        numValues++;
+      }
+      if (!readWeight()) {
+        return null;
+      }
+
+      double[] values = new double[numValues];
+      int[] indices = new int[numValues];
+      System.arraycopy(m_ValueBuffer, 0, values, 0, numValues);
+      System.arraycopy(m_IndicesBuffer, 0, indices, 0, numValues);
+      return new SparseInstance(m_Value, values, indices,
+        m_Structure.numAttributes());
+    }
+
+    /**
+     * Reads the optional weight at the end of a row, and the end of the line.
+     *
+     * @return true if successful, the weight is stored in m_Value
+     */
+    protected boolean readWeight() {
+      int token = nextToken();
+      if (token == '{') {
+        if ((nextToken() != TT_WORD) || !parseNumber(m_WordStart, m_WordEnd)
+          || (nextToken() != '}')) {
+          return false;
+        }
+        token = nextToken();
+      } else {
+        m_Value = 1.0;
+      }
+      if (token != TT_EOL) {
+        return false;
+      }
+      if (m_Pos < m_Buffer.limit()) {
+        m_Pos++;
+      }
+
+      return true;
+    }
+
+    /**
+     * Parses the current word as an attribute index.
+     *
+     * @return true if successful, the index is stored in m_Value
+     */
+    protected boolean parseIndex() {
+      if (m_WordEnd - m_WordStart > 9) {
+        return false;
+      }
+      int index = 0;
+      for (int i = m_WordStart; i < m_WordEnd; i++) {
+        int d = m_Buffer.get(i) - '0';
+        if ((d < 0) || (d > 9)) {
+          return false;
+        }
+        index = index * 10 + d;
+      }
+      m_Value = index;
+
+      return true;
+    }
+
+    /**
+     * Parses the current word as value of the given attribute.
+     *
+     * @param att the index of the attribute
+     * @return true if successful, the value is stored in m_Value
+     */
+    protected boolean parseValue(int att) {
+      if (!m_Quoted && (m_WordEnd - m_WordStart == 1)
+        && (m_Buffer.get(m_WordStart) == '?')) {
+        m_Value = Utils.missingValue();
+        return true;
+      }
+      if (m_NominalTables[att] == null) {
+        return parseNumber(m_WordStart, m_WordEnd);
+      }
+
+      int[] table = m_NominalTables[att];
+      int length = m_WordEnd - m_WordStart;
+      if (length > m_Bytes.length) {
+        m_Bytes = new byte[Math.max(length, 2 * m_Bytes.length)];
+      }
+      for (int i = 0; i < length; i++) {
+        m_Bytes[i] = m_Buffer.get(m_WordStart + i);
+      }
+      int slot = hash(m_Bytes, 0, length) & (table.length - 1);
+      while (table[slot] != 0) {
+        byte[] value = m_NominalValues[att][table[slot] - 1];
+        if (value.length == length) {
+          int i = 0;
+          while ((i < length) && (value[i] == m_Bytes[i])) {
+            i++;
+          }
+          if (i == length) {
+            m_Value = table[slot] - 1;
+            return true;
+          }
+        }
+        slot = (slot + 1) & (table.length - 1);
+      }
+
+      return false;
+    }
+
+    /**
+     * Parses a number, with the same result as Double.parseDouble(String).
+     * Decimal numbers with up to 15 significant digits and a small exponent
+     * are computed exactly from the bytes; everything else is handed to the
+     * JDK.
+     *
+     * @param start the first byte of the number
+     * @param end the end of the number (exclusive)
+     * @return true if successful, the number is stored in m_Value
+     */
+    protected boolean parseNumber(int start, int end) {
+      int pos = start;
+      boolean negative = false;
+      byte b = m_Buffer.get(pos);
+      if ((b == '-') || (b == '+')) {
+        negative = (b == '-');
+        pos++;
+      }
+
+      long mantissa = 0;
+      int digits = 0;
+      int exponent = 0;
+      boolean sawDigit = false;
+      boolean fraction = false;
+      for (; pos < end; pos++) {
+        b = m_Buffer.get(pos);
+        if ((b >= '0') && (b <= '9')) {
+          sawDigit = true;
+          if ((mantissa != 0) || (b != '0')) {
+            if (digits == MAX_EXACT_DIGITS) {
+              return parseNumberSlow(start, end);
+            }
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+          }
+          if (fraction) {
+            exponent--;
+          }
+        } else if ((b == '.') && !fraction) {
+          fraction = true;
+        } else {
+          break;
+        }
+      }
+      if (!sawDigit) {
+        return parseNumberSlow(start, end);
+      }
+
+      if ((pos < end) && ((b == 'e') || (b == 'E'))) {
+        pos++;
+        boolean negativeExponent = false;
+        if ((pos < end)
+          && ((m_Buffer.get(pos) == '-') || (m_Buffer.get(pos) == '+'))) {
+          negativeExponent = (m_Buffer.get(pos) == '-');
+          pos++;
+        }
+        if ((pos == end) || (end - pos > 3)) {
+          return parseNumberSlow(start, end);
+        }
+        int exp = 0;
+        for (; pos < end; pos++) {
+          int d = m_Buffer.get(pos) - '0';
+          if ((d < 0) || (d > 9)) {
+            return parseNumberSlow(start, end);
+          }
+          exp = exp * 10 + d;
+        }
+        exponent += negativeExponent ? -exp : exp;
+      }
+      if (pos < end) {
+        return parseNumberSlow(start, end);
+      }
+
+      double value;
+      if (mantissa == 0) {
+        value = 0.0;
+      } else if ((exponent >= 0) && (exponent < POWERS_OF_TEN.length)) {
+        value = mantissa * POWERS_OF_TEN[exponent];
+      } else if ((exponent < 0) && (-exponent < POWERS_OF_TEN.length)) {
+        value = mantissa / POWERS_OF_TEN[-exponent];
+      } else {
+        return parseNumberSlow(start, end);
+      }
+      m_Value = negative ? -value : value;
+
+      return true;
+    }
+
+    /**
+     * Parses a number with Double.parseDouble(String).
+     *
+     * @param start the first byte of the number
+     * @param end the end of the number (exclusive)
+     * @return true if successful, the number is stored in m_Value
+     */
+    protected boolean parseNumberSlow(int start, int end) {
+      char[] chars = new char[end - start];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = (char) (m_Buffer.get(start + i) & 0xFF);
+      }
+      try {
+        m_Value = Double.parseDouble(new String(chars));
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
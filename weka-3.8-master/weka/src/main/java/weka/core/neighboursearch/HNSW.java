@@ -0,0 +1,1183 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * HNSW.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core.neighboursearch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.Vector;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.NormalizableDistance;
+import weka.core.Option;
+import weka.core.RevisionHandler;
+import weka.core.RevisionUtils;
+import weka.core.TechnicalInformation;
+import weka.core.TechnicalInformation.Field;
+import weka.core.TechnicalInformation.Type;
+import weka.core.TechnicalInformationHandler;
+import weka.core.Utils;
+
+/**
+ <!-- globalinfo-start -->
+ * Class implementing approximate nearest neighbour search with a hierarchical navigable small world (HNSW) graph. Each instance is a node of the graph and is linked to a small number of its nearest neighbours on its layer and all layers below; the higher layers hold exponentially fewer instances. A query descends greedily through the upper layers and then runs a best-first search on the bottom layer. Unlike tree-based searches, the number of distances computed per query stays small for high-dimensional data, at the cost of occasionally missing a true neighbour. The recall is recorded when performance statistics are calculated.<br/>
+ * <br/>
+ * For more information see:<br/>
+ * <br/>
+ * Yu. A. Malkov, D. A. Yashunin (2020). Efficient and Robust Approximate Nearest Neighbor Search Using Hierarchical Navigable Small World Graphs. IEEE Transactions on Pattern Analysis and Machine Intelligence. 42(4):824-836.
+ * <p/>
+ <!-- globalinfo-end -->
+ *
+ <!-- technical-bibtex-start -->
+ * BibTeX:
+ * <pre>
+ * &#64;article{Malkov2020,
+ *    author = {Yu. A. Malkov and D. A. Yashunin},
+ *    journal = {IEEE Transactions on Pattern Analysis and Machine Intelligence},
+ *    number = {4},
+ *    pages = {824-836},
+ *    title = {Efficient and Robust Approximate Nearest Neighbor Search Using Hierarchical Navigable Small World Graphs},
+ *    volume = {42},
+ *    year = {2020}
+ * }
+ * </pre>
+ * <p/>
+ <!-- technical-bibtex-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p/>
+ *
+ * <pre> -M &lt;num&gt;
+ *  The maximum number of links per node on the upper layers,
+ *  twice that on the bottom layer.
+ *  (default 16)</pre>
+ *
+ * <pre> -C &lt;num&gt;
+ *  The number of candidates considered when inserting a node.
+ *  (default 100)</pre>
+ *
+ * <pre> -E &lt;num&gt;
+ *  The number of candidates considered when answering a query,
+ *  at least the number of neighbours asked for.
+ *  (default 50)</pre>
+ *
+ * <pre> -S &lt;num&gt;
+ *  The seed for choosing the layers of the nodes.
+ *  (default 1)</pre>
+ *
+ * <pre> -A &lt;classname and options&gt;
+ *  Distance function to use.
+ *  (default: weka.core.EuclideanDistance)</pre>
+ *
+ * <pre> -P
+ *  Calculate performance statistics.</pre>
+ *
+ <!-- options-end -->
+ *
+ * @version $Revision$
+ */
+public class HNSW
+  extends NearestNeighbourSearch
+  implements TechnicalInformationHandler {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -2712618254398240196L;
+
+  /**
+   * A binary heap of nodes ordered by their distance, either with the
+   * largest or with the smallest distance on top.
+   */
+  protected static class DistanceHeap implements RevisionHandler {
+
+    /** The nodes. */
+    protected int[] m_Nodes = new int[16];
+
+    /** The distances of the nodes. */
+    protected double[] m_Dists = new double[16];
+
+    /** The number of nodes in the heap. */
+    protected int m_Size;
+
+    /** Whether the node with the largest distance is on top. */
+    protected boolean m_Max;
+
+    /**
+     * Initializes the heap.
+     *
+     * @param max whether the node with the largest distance is on top
+     */
+    public DistanceHeap(boolean max) {
+      m_Max = max;
+    }
+
+    /**
+     * Removes all nodes.
+     */
+    public void clear() {
+      m_Size = 0;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+      return m_Size;
+    }
+
+    /**
+     * Returns the node on top.
+     *
+     * @return the node
+     */
+    public int topNode() {
+      return m_Nodes[0];
+    }
+
+    /**
+     * Returns the distance of the node on top.
+     *
+     * @return the distance
+     */
+    public double topDistance() {
+      return m_Dists[0];
+    }
+
+    /**
+     * Returns whether a node with the first distance belongs above a node
+     * with the second one.
+     *
+     * @param d1 the first distance
+     * @param d2 the second distance
+     * @return true if the first distance belongs above the second
+     */
+    protected boolean above(double d1, double d2) {
+      return m_Max ? (d1 > d2) : (d1 < d2);
+    }
+
+    /**
+     * Adds a node.
+     *
+     * @param node the node
+     * @param dist the distance of the node
+     */
+    public void push(int node, double dist) {
+      if (m_Size == m_Nodes.length) {
+        m_Nodes = Arrays.copyOf(m_Nodes, 2 * m_Size);
+        m_Dists = Arrays.copyOf(m_Dists, 2 * m_Size);
+      }
+      int i = m_Size++;
+      while (i > 0) {
+        int parent = (i - 1) / 2;
+        if (!above(dist, m_Dists[parent])) {
+          break;
+        }
+        m_Nodes[i] = m_Nodes[parent];
+        m_Dists[i] = m_Dists[parent];
+        i = parent;
+      }
+      m_Nodes[i] = node;
+      m_Dists[i] = dist;
+    }
+
+    /**
+     * Removes the node on top.
+     */
+    public void pop() {
+      m_Size--;
+      int node = m_Nodes[m_Size];
+      double dist = m_Dists[m_Size];
+      int i = 0;
+      while (2 * i + 1 < m_Size) {
+        int child = 2 * i + 1;
+        if ((child + 1 < m_Size) && above(m_Dists[child + 1], m_Dists[child])) {
+          child++;
+        }
+        if (!above(m_Dists[child], dist)) {
+          break;
+        }
+        m_Nodes[i] = m_Nodes[child];
+        m_Dists[i] = m_Dists[child];
+        i = child;
+      }
+      m_Nodes[i] = node;
+      m_Dists[i] = dist;
+    }
+
+    /**
+     * Returns the revision string.
+     *
+     * @return the revision
+     */
+    @Override
+    public String getRevision() {
+      return RevisionUtils.extract("$Revision$");
+    }
+  }
+
+  /** The maximum number of links per node on the upper layers. */
+  protected int m_MaxConnections = 16;
+
+  /** The number of candidates considered when inserting a node. */
+  protected int m_EfConstruction = 100;
+
+  /** The number of candidates considered when answering a query. */
+  protected int m_EfSearch = 50;
+
+  /** The seed for choosing the layers of the nodes. */
+  protected int m_Seed = 1;
+
+  /** The performance statistics including the recall, if calculated. */
+  protected RecallPerformanceStats m_RecallStats = null;
+
+  /** The number of instances inserted into the graph. */
+  protected int m_NumNodes;
+
+  /**
+   * The links of the nodes: m_Links[node][layer] holds the number of links
+   * of the node on the layer, followed by the linked nodes.
+   */
+  protected int[][][] m_Links;
+
+  /** The node the searches start from, on the top layer. */
+  protected int m_EntryPoint;
+
+  /** The top layer. */
+  protected int m_TopLayer;
+
+  /** The random number generator for choosing the layers of the nodes. */
+  protected Random m_Random;
+
+  /** The distances of the neighbours found by the last query. */
+  protected double[] m_Distances;
+
+  /** The search pass that visited each node last. */
+  protected transient int[] m_Visited;
+
+  /** The current search pass. */
+  protected transient int m_Pass;
+
+  /** The candidates still to be expanded by a search. */
+  protected transient DistanceHeap m_Candidates;
+
+  /** The nearest nodes found by a search. */
+  protected transient DistanceHeap m_Results;
+
+  /**
+   * Constructor. Needs setInstances(Instances) to be called before the class
+   * is usable.
+   */
+  public HNSW() {
+    super();
+    if (getMeasurePerformance())
+      m_Stats = m_RecallStats = new RecallPerformanceStats();
+  }
+
+  /**
+   * Constructor that builds the graph on the supplied set of instances.
+   *
+   * @param insts the instances to use
+   * @throws Exception if the graph cannot be built
+   */
+  public HNSW(Instances insts) throws Exception {
+    this();
+    setInstances(insts);
+  }
+
+  /**
+   * Returns a string describing this nearest neighbour search algorithm.
+   *
+   * @return a description of the algorithm for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String globalInfo() {
+    return "Class implementing approximate nearest neighbour search with a "
+      + "hierarchical navigable small world (HNSW) graph. Each instance is a "
+      + "node of the graph and is linked to a small number of its nearest "
+      + "neighbours on its layer and all layers below; the higher layers "
+      + "hold exponentially fewer instances. A query descends greedily "
+      + "through the upper layers and then runs a best-first search on the "
+      + "bottom layer. Unlike tree-based searches, the number of distances "
+      + "computed per query stays small for high-dimensional data, at the "
+      + "cost of occasionally missing a true neighbour. The recall is "
+      + "recorded when performance statistics are calculated.\n\n"
+      + "For more information see:\n\n"
+      + getTechnicalInformation().toString();
+  }
+
+  /**
+   * Returns an instance of a TechnicalInformation object, containing detailed
+   * information about the technical background of this class, e.g., paper
+   * reference or book this class is based on.
+   *
+   * @return the technical information about this class
+   */
+  public TechnicalInformation getTechnicalInformation() {
+    TechnicalInformation result;
+
+    result = new TechnicalInformation(Type.ARTICLE);
+    result.setValue(Field.AUTHOR, "Yu. A. Malkov and D. A. Yashunin");
+    result.setValue(Field.TITLE, "Efficient and Robust Approximate Nearest "
+      + "Neighbor Search Using Hierarchical Navigable Small World Graphs");
+    result.setValue(Field.JOURNAL,
+      "IEEE Transactions on Pattern Analysis and Machine Intelligence");
+    result.setValue(Field.VOLUME, "42");
+    result.setValue(Field.NUMBER, "4");
+    result.setValue(Field.PAGES, "824-836");
+    result.setValue(Field.YEAR, "2020");
+
+    return result;
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  public Enumeration<Option> listOptions() {
+    Vector<Option> newVector = new Vector<Option>();
+
+    newVector.addElement(new Option(
+      "\tThe maximum number of links per node on the upper layers,\n"
+        + "\ttwice that on the bottom layer.\n"
+        + "\t(default 16)", "M", 1, "-M <num>"));
+    newVector.addElement(new Option(
+      "\tThe number of candidates considered when inserting a node.\n"
+        + "\t(default 100)", "C", 1, "-C <num>"));
+    newVector.addElement(new Option(
+      "\tThe number of candidates considered when answering a query,\n"
+        + "\tat least the number of neighbours asked for.\n"
+        + "\t(default 50)", "E", 1, "-E <num>"));
+    newVector.addElement(new Option(
+      "\tThe seed for choosing the layers of the nodes.\n"
+        + "\t(default 1)", "S", 1, "-S <num>"));
+
+    newVector.addAll(Collections.list(super.listOptions()));
+
+    return newVector.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   * <p/>
+   *
+   <!-- options-start -->
+   * Valid options are: <p/>
+   *
+   * <pre> -M &lt;num&gt;
+   *  The maximum number of links per node on the upper layers,
+   *  twice that on the bottom layer.
+   *  (default 16)</pre>
+   *
+   * <pre> -C &lt;num&gt;
+   *  The number of candidates considered when inserting a node.
+   *  (default 100)</pre>
+   *
+   * <pre> -E &lt;num&gt;
+   *  The number of candidates considered when answering a query,
+   *  at least the number of neighbours asked for.
+   *  (default 50)</pre>
+   *
+   * <pre> -S &lt;num&gt;
+   *  The seed for choosing the layers of the nodes.
+   *  (default 1)</pre>
+   *
+   * <pre> -A &lt;classname and options&gt;
+   *  Distance function to use.
+   *  (default: weka.core.EuclideanDistance)</pre>
+   *
+   * <pre> -P
+   *  Calculate performance statistics.</pre>
+   *
+   <!-- options-end -->
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  public void setOptions(String[] options) throws Exception {
+
+    super.setOptions(options);
+
+    String optionString = Utils.getOption('M', options);
+    if (optionString.length() != 0) {
+      setMaxConnections(Integer.parseInt(optionString));
+    } else {
+      setMaxConnections(16);
+    }
+
+    optionString = Utils.getOption('C', options);
+    if (optionString.length() != 0) {
+      setEfConstruction(Integer.parseInt(optionString));
+    } else {
+      setEfConstruction(100);
+    }
+
+    optionString = Utils.getOption('E', options);
+    if (optionString.length() != 0) {
+      setEfSearch(Integer.parseInt(optionString));
+    } else {
+      setEfSearch(50);
+    }
+
+    optionString = Utils.getOption('S', options);
+    if (optionString.length() != 0) {
+      setSeed(Integer.parseInt(optionString));
+    } else {
+      setSeed(1);
+    }
+
+    Utils.checkForRemainingOptions(options);
+  }
+
+  /**
+   * Gets the current settings.
+   *
+   * @return an array of strings suitable for passing to setOptions()
+   */
+  public String[] getOptions() {
+    Vector<String> result = new Vector<String>();
+
+    result.add("-M");
+    result.add("" + getMaxConnections());
+    result.add("-C");
+    result.add("" + getEfConstruction());
+    result.add("-E");
+    result.add("" + getEfSearch());
+    result.add("-S");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[result.size()]);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String maxConnectionsTipText() {
+    return "The maximum number of links per node on the upper layers of the "
+      + "graph, twice that on the bottom layer. More links give higher "
+      + "recall at the cost of memory and insertion time.";
+  }
+
+  /**
+   * Gets the maximum number of links per node on the upper layers.
+   *
+   * @return the maximum number of links
+   */
+  public int getMaxConnections() {
+    return m_MaxConnections;
+  }
+
+  /**
+   * Sets the maximum number of links per node on the upper layers.
+   *
+   * @param value the maximum number of links (at least 2)
+   * @throws IllegalArgumentException if the value is less than 2
+   */
+  public void setMaxConnections(int value) {
+    if (value < 2) {
+      throw new IllegalArgumentException(
+        "Maximum number of links must be at least 2!");
+    }
+    m_MaxConnections = value;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String efConstructionTipText() {
+    return "The number of candidates considered when inserting a node into "
+      + "the graph. More candidates give a better graph at the cost of "
+      + "insertion time.";
+  }
+
+  /**
+   * Gets the number of candidates considered when inserting a node.
+   *
+   * @return the number of candidates
+   */
+  public int getEfConstruction() {
+    return m_EfConstruction;
+  }
+
+  /**
+   * Sets the number of candidates considered when inserting a node.
+   *
+   * @param value the number of candidates (at least 1)
+   * @throws IllegalArgumentException if the value is less than 1
+   */
+  public void setEfConstruction(int value) {
+    if (value < 1) {
+      throw new IllegalArgumentException(
+        "Number of candidates must be at least 1!");
+    }
+    m_EfConstruction = value;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String efSearchTipText() {
+    return "The number of candidates considered when answering a query, at "
+      + "least the number of neighbours asked for. More candidates give "
+      + "higher recall at the cost of query time.";
+  }
+
+  /**
+   * Gets the number of candidates considered when answering a query.
+   *
+   * @return the number of candidates
+   */
+  public int getEfSearch() {
+    return m_EfSearch;
+  }
+
+  /**
+   * Sets the number of candidates considered when answering a query. Takes
+   * effect immediately, without rebuilding the graph.
+   *
+   * @param value the number of candidates (at least 1)
+   * @throws IllegalArgumentException if the value is less than 1
+   */
+  public void setEfSearch(int value) {
+    if (value < 1) {
+      throw new IllegalArgumentException(
+        "Number of candidates must be at least 1!");
+    }
+    m_EfSearch = value;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for choosing the layers of the nodes.";
+  }
+
+  /**
+   * Gets the seed for choosing the layers of the nodes.
+   *
+   * @return the seed
+   */
+  public int getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Sets the seed for choosing the layers of the nodes.
+   *
+   * @param value the seed
+   */
+  public void setSeed(int value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Sets whether to calculate the performance statistics or not. The
+   * statistics include the recall of the queries, which is determined by
+   * comparing with a linear search, so this slows down the queries a lot.
+   *
+   * @param measurePerformance Should be true if performance statistics are
+   *          to be measured.
+   */
+  public void setMeasurePerformance(boolean measurePerformance) {
+    m_MeasurePerformance = measurePerformance;
+    if (m_MeasurePerformance) {
+      if (m_Stats == null)
+        m_Stats = m_RecallStats = new RecallPerformanceStats();
+    } else
+      m_Stats = m_RecallStats = null;
+  }
+
+  /**
+   * Returns the maximum number of links of a node on a layer.
+   *
+   * @param layer the layer
+   * @return the maximum number of links
+   */
+  protected int maxLinks(int layer) {
+    return (layer == 0) ? 2 * m_MaxConnections : m_MaxConnections;
+  }
+
+  /**
+   * Returns the distance between an instance and a node, or rather the value
+   * the distance function compares, before postprocessing.
+   *
+   * @param inst the instance
+   * @param node the node
+   * @param stats the statistics to update, null if none
+   * @return the distance
+   */
+  protected double distance(Instance inst, int node, PerformanceStats stats) {
+    if (stats != null)
+      stats.incrPointCount();
+    return m_DistanceFunction.distance(inst, m_Instances.instance(node),
+      Double.POSITIVE_INFINITY, stats);
+  }
+
+  /**
+   * Starts a new search pass, which has not visited any nodes yet.
+   */
+  protected void newPass() {
+    if ((m_Visited == null) || (m_Visited.length < m_Links.length)) {
+      m_Visited = new int[m_Links.length];
+      m_Pass = 0;
+      m_Candidates = new DistanceHeap(false);
+      m_Results = new DistanceHeap(true);
+    }
+    if (++m_Pass == Integer.MAX_VALUE) {
+      Arrays.fill(m_Visited, 0);
+      m_Pass = 1;
+    }
+  }
+
+  /**
+   * Moves greedily from the given node towards the instance on the given
+   * layer, to the closest node that has no closer neighbour.
+   *
+   * @param inst the instance
+   * @param node the node to start from
+   * @param dist the distance of the node
+   * @param layer the layer
+   * @param stats the statistics to update, null if none
+   * @return the closest node found, with its distance in m_Results
+   */
+  protected int searchGreedy(Instance inst, int node, double dist, int layer,
+    PerformanceStats stats) {
+
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      int[] links = m_Links[node][layer];
+      for (int i = 1; i <= links[0]; i++) {
+        double d = distance(inst, links[i], stats);
+        if (d < dist) {
+          dist = d;
+          node = links[i];
+          changed = true;
+        }
+      }
+    }
+
+    m_Results.clear();
+    m_Results.push(node, dist);
+    return node;
+  }
+
+  /**
+   * Runs a best-first search for the nearest nodes to the instance on the
+   * given layer, starting from the nodes in m_Results. Afterwards m_Results
+   * holds the nearest nodes found, at most the given number of them.
+   *
+   * @param inst the instance
+   * @param layer the layer
+   * @param ef the number of nearest nodes to keep
+   * @param stats the statistics to update, null if none
+   */
+  protected void searchLayer(Instance inst, int layer, int ef,
+    PerformanceStats stats) {
+
+    newPass();
+    m_Candidates.clear();
+    for (int i = 0; i < m_Results.size(); i++) {
+      m_Candidates.push(m_Results.m_Nodes[i], m_Results.m_Dists[i]);
+      m_Visited[m_Results.m_Nodes[i]] = m_Pass;
+    }
+
+    while (m_Candidates.size() > 0) {
+      int node = m_Candidates.topNode();
+      if ((m_Results.size() >= ef)
+        && (m_Candidates.topDistance() > m_Results.topDistance())) {
+        break;
+      }
+      m_Candidates.pop();
+
+      int[] links = m_Links[node][layer];
+      for (int i = 1; i <= links[0]; i++) {
+        int next = links[i];
+        if (m_Visited[next] == m_Pass) {
+          continue;
+        }
+        m_Visited[next] = m_Pass;
+        double d = distance(inst, next, stats);
+        if ((m_Results.size() < ef) || (d < m_Results.topDistance())) {
+          m_Candidates.push(next, d);
+          m_Results.push(next, d);
+          if (m_Results.size() > ef) {
+            m_Results.pop();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Empties a max-heap into arrays, sorted by increasing distance.
+   *
+   * @param heap the heap
+   * @param nodes the array for the nodes
+   * @param dists the array for the distances
+   * @return the number of nodes
+   */
+  protected static int drain(DistanceHeap heap, int[] nodes, double[] dists) {
+    int size = heap.size();
+    for (int i = size - 1; i >= 0; i--) {
+      nodes[i] = heap.topNode();
+      dists[i] = heap.topDistance();
+      heap.pop();
+    }
+    return size;
+  }
+
+  /**
+   * Selects the nodes to link a node to from the given candidates, with the
+   * heuristic of the HNSW paper: a candidate is only linked if it is closer
+   * to the node than to all candidates selected so far, so that the links
+   * point into different directions. Remaining places are filled with the
+   * nearest of the candidates left out.
+   *
+   * @param nodes the candidates, sorted by increasing distance to the node
+   * @param dists the distances of the candidates to the node
+   * @param num the number of candidates
+   * @param max the maximum number of nodes to select
+   * @param links the array to store the number of selected nodes in at
+   *          index 0, followed by the selected nodes
+   */
+  protected void selectLinks(int[] nodes, double[] dists, int num, int max,
+    int[] links) {
+
+    boolean[] selected = new boolean[num];
+    int count = 0;
+    for (int i = 0; (i < num) && (count < max); i++) {
+      Instance candidate = m_Instances.instance(nodes[i]);
+      boolean good = true;
+      for (int j = 1; good && (j <= count); j++) {
+        good = distance(candidate, links[j], null) >= dists[i];
+      }
+      if (good) {
+        links[++count] = nodes[i];
+        selected[i] = true;
+      }
+    }
+    for (int i = 0; (i < num) && (count < max); i++) {
+      if (!selected[i]) {
+        links[++count] = nodes[i];
+      }
+    }
+    links[0] = count;
+  }
+
+  /**
+   * Inserts the next instance into the graph.
+   */
+  protected void insertNode() {
+
+    int node = m_NumNodes++;
+    if (node == m_Links.length) {
+      m_Links = Arrays.copyOf(m_Links, Math.max(2 * node, 16));
+    }
+
+    double levelFactor = 1.0 / Math.log(m_MaxConnections);
+    int level =
+      (int) (-Math.log(1.0 - m_Random.nextDouble()) * levelFactor);
+    m_Links[node] = new int[level + 1][];
+    for (int i = 0; i <= level; i++) {
+      m_Links[node][i] = new int[maxLinks(i) + 1];
+    }
+    if (node == 0) {
+      m_EntryPoint = 0;
+      m_TopLayer = level;
+      return;
+    }
+
+    Instance inst = m_Instances.instance(node);
+    newPass();
+    int entry = m_EntryPoint;
+    double dist = distance(inst, entry, null);
+    for (int i = m_TopLayer; i > level; i--) {
+      entry = searchGreedy(inst, entry, dist, i, null);
+      dist = m_Results.topDistance();
+    }
+    if (level >= m_TopLayer) {
+      m_Results.clear();
+      m_Results.push(entry, dist);
+    }
+
+    int[] nodes = new int[m_EfConstruction + 1];
+    double[] dists = new double[m_EfConstruction + 1];
+    for (int i = Math.min(level, m_TopLayer); i >= 0; i--) {
+      searchLayer(inst, i, m_EfConstruction, null);
+      int num = drain(m_Results, nodes, dists);
+      selectLinks(nodes, dists, num, m_MaxConnections, m_Links[node][i]);
+      int[] links = m_Links[node][i];
+      for (int j = 1; j <= links[0]; j++) {
+        addLink(links[j], node, i);
+      }
+
+      // the candidates found are the entry points for the layer below
+      for (int j = 0; j < num; j++) {
+        m_Results.push(nodes[j], dists[j]);
+      }
+    }
+
+    if (level > m_TopLayer) {
+      m_EntryPoint = node;
+      m_TopLayer = level;
+    }
+  }
+
+  /**
+   * Links a node to another one on the given layer. If the node has too many
+   * links afterwards, its links are selected anew from the old ones and the
+   * new one.
+   *
+   * @param node the node to add the link to
+   * @param other the node to link to
+   * @param layer the layer
+   */
+  protected void addLink(int node, int other, int layer) {
+
+    int[] links = m_Links[node][layer];
+    if (links[0] < links.length - 1) {
+      links[++links[0]] = other;
+      return;
+    }
+
+    Instance inst = m_Instances.instance(node);
+    DistanceHeap heap = new DistanceHeap(true);
+    heap.push(other, distance(inst, other, null));
+    for (int i = 1; i <= links[0]; i++) {
+      heap.push(links[i], distance(inst, links[i], null));
+    }
+    int[] nodes = new int[heap.size()];
+    double[] dists = new double[heap.size()];
+    int num = drain(heap, nodes, dists);
+    selectLinks(nodes, dists, num, links.length - 1, links);
+  }
+
+  /**
+   * Builds the graph on the supplied set of instances.
+   *
+   * @param insts the instances to search
+   * @throws Exception if the graph cannot be built
+   */
+  public void setInstances(Instances insts) throws Exception {
+    super.setInstances(insts);
+    m_DistanceFunction.setInstances(insts);
+
+    m_Random = new Random(m_Seed);
+    m_Links = new int[Math.max(insts.numInstances(), 16)][][];
+    m_NumNodes = 0;
+    m_Visited = null;
+    while (m_NumNodes < insts.numInstances()) {
+      insertNode();
+    }
+  }
+
+  /**
+   * Inserts the given instance into the graph. The instance must already
+   * have been added to the instances passed to setInstances(Instances).
+   *
+   * @param ins the instance to add
+   * @throws Exception if no instances have been supplied yet
+   */
+  public void update(Instance ins) throws Exception {
+    if (m_Instances == null)
+      throw new Exception("No instances supplied yet. Cannot update without "
+        + "supplying a set of instances first.");
+
+    m_DistanceFunction.update(ins);
+    while (m_NumNodes < m_Instances.numInstances()) {
+      insertNode();
+    }
+  }
+
+  /**
+   * Adds the given instance info. This implementation updates the ranges of
+   * the distance function; the graph is left unchanged.
+   *
+   * @param ins the instance to add the information of
+   */
+  public void addInstanceInfo(Instance ins) {
+    if (m_Instances != null)
+      m_DistanceFunction.update(ins);
+  }
+
+  /**
+   * Returns whether adding the information from the given instance may change
+   * the results of later queries, i.e. whether it changes the distance
+   * function.
+   *
+   * @param ins the instance to check
+   * @return true if adding the information may change the search
+   */
+  public boolean changedByInstanceInfo(Instance ins) {
+    return (m_Instances != null) && distanceChangedBy(ins);
+  }
+
+  /**
+   * Returns a search that shares the graph and the distance function with
+   * this one but has its own query state, so that it can answer queries in
+   * another thread. Only supported with a NormalizableDistance and without
+   * measuring performance.
+   *
+   * @return the copy, null if not supported
+   */
+  public NearestNeighbourSearch concurrentCopy() {
+    if ((m_Instances == null) || m_MeasurePerformance
+      || !(m_DistanceFunction instanceof NormalizableDistance))
+      return null;
+
+    HNSW result = new HNSW();
+    result.m_MaxConnections = m_MaxConnections;
+    result.m_EfConstruction = m_EfConstruction;
+    result.m_EfSearch = m_EfSearch;
+    result.m_Seed = m_Seed;
+    result.m_Instances = m_Instances;
+    result.m_DistanceFunction = m_DistanceFunction;
+    result.m_NumNodes = m_NumNodes;
+    result.m_Links = m_Links;
+    result.m_EntryPoint = m_EntryPoint;
+    result.m_TopLayer = m_TopLayer;
+    return result;
+  }
+
+  /**
+   * Returns the nearest instance in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target the instance to find the nearest neighbour for
+   * @return the nearest instance
+   * @throws Exception if the nearest neighbour could not be found
+   */
+  public Instance nearestNeighbour(Instance target) throws Exception {
+    return (kNearestNeighbours(target, 1)).instance(0);
+  }
+
+  /**
+   * Returns the k nearest instances found in the current neighbourhood to the
+   * supplied instance. As with the other searches, instances at the same
+   * distance as the k-th nearest one are returned as well if they have been
+   * found, and the target itself is left out if it is part of the
+   * neighbourhood.
+   *
+   * @param target the instance to find the k nearest neighbours for
+   * @param kNN the number of nearest neighbours to find
+   * @return the k nearest neighbours
+   * @throws Exception if the neighbours could not be found
+   */
+  public Instances kNearestNeighbours(Instance target, int kNN)
+    throws Exception {
+
+    if (m_Stats != null)
+      m_Stats.searchStart();
+
+    int num = 0;
+    int[] nodes = null;
+    double[] dists = null;
+    if (m_NumNodes > 0) {
+      newPass();
+      int entry = m_EntryPoint;
+      double dist = distance(target, entry, m_Stats);
+      for (int i = m_TopLayer; i > 0; i--) {
+        entry = searchGreedy(target, entry, dist, i, m_Stats);
+        dist = m_Results.topDistance();
+      }
+      m_Results.clear();
+      m_Results.push(entry, dist);
+      searchLayer(target, 0, Math.max(m_EfSearch, kNN + 1), m_Stats);
+
+      nodes = new int[m_Results.size()];
+      dists = new double[m_Results.size()];
+      drain(m_Results, nodes, dists);
+
+      // leave out the target itself (for hold-one-out cross-validation),
+      // then cut off after the k-th nearest and its ties
+      for (int i = 0; i < nodes.length; i++) {
+        if (m_Instances.instance(nodes[i]) == target) {
+          continue;
+        }
+        if ((num >= kNN) && (dists[i] > dists[num - 1])) {
+          break;
+        }
+        nodes[num] = nodes[i];
+        dists[num] = dists[i];
+        num++;
+      }
+    }
+
+    if (m_Stats != null)
+      m_Stats.searchFinish();
+    if (m_RecallStats != null)
+      m_RecallStats.addRecall(recall(target, kNN, dists, num));
+
+    Instances neighbours = new Instances(m_Instances, num);
+    m_Distances = new double[num];
+    for (int i = 0; i < num; i++) {
+      neighbours.add(m_Instances.instance(nodes[i]));
+      m_Distances[i] = dists[i];
+    }
+    m_DistanceFunction.postProcessDistances(m_Distances);
+
+    return neighbours;
+  }
+
+  /**
+   * Determines the recall of a query with a linear search: the fraction of
+   * the k nearest neighbours found that are at most as far away as the true
+   * k-th nearest neighbour.
+   *
+   * @param target the instance the neighbours were searched for
+   * @param kNN the number of nearest neighbours searched for
+   * @param dists the distances of the neighbours found, in increasing order
+   * @param num the number of neighbours found
+   * @return the recall
+   */
+  protected double recall(Instance target, int kNN, double[] dists, int num) {
+
+    DistanceHeap nearest = new DistanceHeap(true);
+    for (int i = 0; i < m_NumNodes; i++) {
+      if (m_Instances.instance(i) == target) {
+        continue;
+      }
+      double d = distance(target, i, null);
+      if ((nearest.size() < kNN) || (d < nearest.topDistance())) {
+        nearest.push(i, d);
+        if (nearest.size() > kNN) {
+          nearest.pop();
+        }
+      }
+    }
+    if (nearest.size() == 0) {
+      return 1;
+    }
+
+    int found = 0;
+    for (int i = 0; i < Math.min(num, nearest.size()); i++) {
+      if (dists[i] <= nearest.topDistance()) {
+        found++;
+      }
+    }
+    return (double) found / nearest.size();
+  }
+
+  /**
+   * Returns the distances of the k nearest neighbours found by the last call
+   * of kNearestNeighbours or nearestNeighbour.
+   *
+   * @return array containing the distances of the nearest neighbours, in the
+   *         same order as the instances returned
+   * @throws Exception if called before calling kNearestNeighbours or
+   *           nearestNeighbour
+   */
+  public double[] getDistances() throws Exception {
+    if (m_Distances == null)
+      throw new Exception("No distances available. Please call either "
+        + "kNearestNeighbours or nearestNeighbours first.");
+    return m_Distances;
+  }
+
+  /**
+   * Returns the number of links in the graph.
+   *
+   * @return the number of links
+   */
+  public double measureNumLinks() {
+    double result = 0;
+    for (int i = 0; i < m_NumNodes; i++) {
+      for (int[] links : m_Links[i]) {
+        result += links[0];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of layers of the graph.
+   *
+   * @return the number of layers
+   */
+  public double measureNumLayers() {
+    return (m_NumNodes == 0) ? 0 : m_TopLayer + 1;
+  }
+
+  /**
+   * Returns an enumeration of the additional measure names.
+   *
+   * @return an enumeration of the measure names
+   */
+  public Enumeration<String> enumerateMeasures() {
+    Vector<String> newVector = new Vector<String>();
+    newVector.addElement("measureNumLinks");
+    newVector.addElement("measureNumLayers");
+    if (m_Stats != null) {
+      newVector.addAll(Collections.list(m_Stats.enumerateMeasures()));
+    }
+    return newVector.elements();
+  }
+
+  /**
+   * Returns the value of the named measure.
+   *
+   * @param additionalMeasureName the name of the measure to query for its
+   *          value
+   * @return the value of the named measure
+   * @throws IllegalArgumentException if the named measure is not supported
+   */
+  public double getMeasure(String additionalMeasureName) {
+    if (additionalMeasureName.compareToIgnoreCase("measureNumLinks") == 0) {
+      return measureNumLinks();
+    } else if (additionalMeasureName
+      .compareToIgnoreCase("measureNumLayers") == 0) {
+      return measureNumLayers();
+    } else if (m_Stats != null) {
+      return m_Stats.getMeasure(additionalMeasureName);
+    } else {
+      throw new IllegalArgumentException(additionalMeasureName
+        + " not supported (HNSW)");
+    }
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -26,6 +26,7 @@ import java.util.Vector;
 
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.NormalizableDistance;
 import weka.core.Option;
 import weka.core.RevisionUtils;
 import weka.core.Utils;
@@ -62,6 +63,12 @@ public class LinearNNSearch
   /** Whether to skip instances from the neighbours that are identical to the query instance. */
   protected boolean m_SkipIdentical = false;
 
+  /** The heap reused by kNearestNeighbours() for queries with the same k. */
+  protected transient MyHeap m_Heap;
+
+  /** The number of neighbours the heap has been created for. */
+  protected transient int m_HeapK;
+
   /**
    * Constructor. Needs setInstances(Instances) 
    * to be called before the class is usable.
@@ -208,7 +215,13 @@ public class LinearNNSearch
     if(m_Stats!=null)
       m_Stats.searchStart();
  
-    MyHeap heap = new MyHeap(kNN);
+    if ((m_Heap == null) || (m_HeapK != kNN)) {
+      m_Heap = new MyHeap(kNN);
+      m_HeapK = kNN;
+    } else {
+      m_Heap.clear();
+    }
+    MyHeap heap = m_Heap;
     double distance; int firstkNN=0;
     for(int i=0; i<m_Instances.numInstances(); i++) {
       if(target == m_Instances.instance(i)) //for hold-one-out cross-validation
@@ -340,6 +353,39 @@ public class LinearNNSearch
       catch(Exception ex) { ex.printStackTrace(); }
   }
   
+  /**
+   * Returns whether adding the information from the given instance may change
+   * the results of later queries, i.e. whether it changes the distance
+   * function.
+   * 
+   * @param ins 	the instance to check
+   * @return		true if adding the information may change the search
+   */
+  public boolean changedByInstanceInfo(Instance ins) {
+    return (m_Instances != null) && distanceChangedBy(ins);
+  }
+
+  /**
+   * Returns a search that shares the neighbourhood and the distance function
+   * with this one but has its own distances and heap, so that it can answer
+   * queries in another thread. Only supported with a NormalizableDistance,
+   * which does not change while computing distances, and without measuring
+   * performance.
+   * 
+   * @return		the copy, null if not supported
+   */
+  public NearestNeighbourSearch concurrentCopy() {
+    if ((m_Instances == null) || m_MeasurePerformance
+        || !(m_DistanceFunction instanceof NormalizableDistance))
+      return null;
+
+    LinearNNSearch result = new LinearNNSearch();
+    result.m_Instances = m_Instances;
+    result.m_DistanceFunction = m_DistanceFunction;
+    result.m_SkipIdentical = m_SkipIdentical;
+    return result;
+  }
+
   /**
    * Returns the revision string.
    * 
@@ -30,6 +30,7 @@ import weka.core.DistanceFunction;
 import weka.core.EuclideanDistance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.NormalizableDistance;
 import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.RevisionHandler;
@@ -248,6 +249,17 @@ public abstract class NearestNeighbourSearch implements Serializable,
       }
     }
 
+    /**
+     * Removes all elements, so that the heap can be reused for another query
+     * with the same maximum size.
+     */
+    public void clear() {
+      m_heap[0].index = 0;
+      m_KthNearest = null;
+      m_KthNearestSize = 0;
+      initSize = 10;
+    }
+
     /**
      * returns the total size.
      * 
@@ -757,6 +769,53 @@ public abstract class NearestNeighbourSearch implements Serializable,
   public void addInstanceInfo(Instance ins) {
   }
 
+  /**
+   * Returns whether adding the information from the given instance with
+   * addInstanceInfo(Instance) may change the results of later queries. This
+   * implementation always returns true.
+   * 
+   * @param ins the instance to check
+   * @return true if adding the information may change the search
+   */
+  public boolean changedByInstanceInfo(Instance ins) {
+    return true;
+  }
+
+  /**
+   * Returns whether updating the distance function with the given instance may
+   * change it. With a NormalizableDistance this is only the case if the
+   * instance lies outside the current ranges of the attributes.
+   * 
+   * @param ins the instance to check
+   * @return true if the update may change the distance function
+   */
+  protected boolean distanceChangedBy(Instance ins) {
+    if (!(m_DistanceFunction instanceof NormalizableDistance)) {
+      return true;
+    }
+
+    NormalizableDistance distance = (NormalizableDistance) m_DistanceFunction;
+    try {
+      return !distance.inRanges(ins, distance.getRanges());
+    } catch (Exception ex) {
+      return true;
+    }
+  }
+
+  /**
+   * Returns a search over the same neighbourhood and with the same distance
+   * function as this one, but with its own query state, e.g. the distances of
+   * the last neighbours found. Copies obtained this way can answer queries in
+   * different threads at the same time, as long as neither the neighbourhood
+   * nor the distance function are changed meanwhile. This implementation
+   * returns null, meaning that concurrent queries are not supported.
+   * 
+   * @return the copy, null if not supported
+   */
+  public NearestNeighbourSearch concurrentCopy() {
+    return null;
+  }
+
   /**
    * Sets the instances.
    * 
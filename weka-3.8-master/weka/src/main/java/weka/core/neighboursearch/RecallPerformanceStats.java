@@ -0,0 +1,186 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * RecallPerformanceStats.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core.neighboursearch;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+
+import weka.core.RevisionUtils;
+
+/**
+ * The class that measures the performance of an approximate nearest
+ * neighbour search algorithm. In addition to the points and coordinates
+ * looked at, it records the recall of the queries, i.e. the fraction of the
+ * true nearest neighbours that were found.
+ *
+ * @version $Revision$
+ */
+public class RecallPerformanceStats
+  extends PerformanceStats {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 3954128409811604432L;
+
+  /** The number of queries the recall was recorded for. */
+  protected int m_NumRecalls;
+
+  /** The min and max recall of a query. */
+  protected double m_MinRecall, m_MaxRecall;
+
+  /** The sum of the recall of all the queries. */
+  protected double m_SumRecall;
+
+  /** The squared sum of the recall of all the queries. */
+  protected double m_SumSqRecall;
+
+  /**
+   * Default constructor.
+   */
+  public RecallPerformanceStats() {
+    reset();
+  }
+
+  /**
+   * Resets all internal fields/counters.
+   */
+  public void reset() {
+    super.reset();
+    m_NumRecalls = 0;
+    m_SumRecall = m_SumSqRecall = 0;
+    m_MinRecall = Double.POSITIVE_INFINITY;
+    m_MaxRecall = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Records the recall of a query.
+   *
+   * @param recall the fraction of the true nearest neighbours found
+   */
+  public void addRecall(double recall) {
+    m_NumRecalls++;
+    m_SumRecall += recall;
+    m_SumSqRecall += recall * recall;
+    if (recall < m_MinRecall) m_MinRecall = recall;
+    if (recall > m_MaxRecall) m_MaxRecall = recall;
+  }
+
+  /**
+   * Returns the mean recall.
+   *
+   * @return The mean recall.
+   */
+  public double getMeanRecall() {
+    return m_SumRecall / m_NumRecalls;
+  }
+
+  /**
+   * Returns the standard deviation of the recall.
+   *
+   * @return The standard deviation.
+   */
+  public double getStdDevRecall() {
+    return Math.sqrt((m_SumSqRecall - (m_SumRecall * m_SumRecall)
+      / m_NumRecalls) / (m_NumRecalls - 1));
+  }
+
+  /**
+   * Returns the minimum recall.
+   *
+   * @return The minimum.
+   */
+  public double getMinRecall() {
+    return m_MinRecall;
+  }
+
+  /**
+   * Returns the maximum recall.
+   *
+   * @return The maximum.
+   */
+  public double getMaxRecall() {
+    return m_MaxRecall;
+  }
+
+  /**
+   * Returns an enumeration of the additional measure names.
+   *
+   * @return An enumeration of the measure names.
+   */
+  public Enumeration<String> enumerateMeasures() {
+    Vector<String> newVector = new Vector<String>();
+
+    newVector.addAll(Collections.list(super.enumerateMeasures()));
+    newVector.addElement("measureMeanRecall");
+    newVector.addElement("measureStdDevRecall");
+    newVector.addElement("measureMinRecall");
+    newVector.addElement("measureMaxRecall");
+
+    return newVector.elements();
+  }
+
+  /**
+   * Returns the value of the named measure.
+   *
+   * @param additionalMeasureName The name of the measure to query for
+   * its value.
+   * @return The value of the named measure.
+   * @throws IllegalArgumentException If the named measure is not
+   * supported.
+   */
+  public double getMeasure(String additionalMeasureName)
+    throws IllegalArgumentException {
+    if (additionalMeasureName.compareToIgnoreCase("measureMeanRecall") == 0) {
+      return getMeanRecall();
+    } else if (additionalMeasureName.compareToIgnoreCase("measureStdDevRecall") == 0) {
+      return getStdDevRecall();
+    } else if (additionalMeasureName.compareToIgnoreCase("measureMinRecall") == 0) {
+      return getMinRecall();
+    } else if (additionalMeasureName.compareToIgnoreCase("measureMaxRecall") == 0) {
+      return getMaxRecall();
+    } else {
+      return super.getMeasure(additionalMeasureName);
+    }
+  }
+
+  /**
+   * Returns a string representation of the statistics.
+   *
+   * @return The statistics as string.
+   */
+  public String getStats() {
+    StringBuffer buf = new StringBuffer(super.getStats());
+
+    buf.append("Recall:    " + getMinRecall() + ", " + getMaxRecall()
+      + ", -, " + getMeanRecall() + ", " + getStdDevRecall() + "\n");
+
+    return buf.toString();
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return		the revision
+   */
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
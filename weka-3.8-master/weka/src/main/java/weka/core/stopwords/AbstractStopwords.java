@@ -20,9 +20,11 @@
 
 package weka.core.stopwords;
 
+import weka.core.CharArrayTrie;
 import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.Utils;
+import weka.core.tokenizers.Token;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -193,4 +195,100 @@ public abstract class AbstractStopwords
 
     return result;
   }
+
+  /**
+   * Returns true if the given character sequence is a stop word.
+   * <p/>
+   * Default implementation checks the sequence as a string.
+   *
+   * @param word the word to test
+   * @return true if the word is a stopword
+   */
+  protected boolean is(CharSequence word) {
+    return is(word.toString());
+  }
+
+  /**
+   * Returns true if the given character sequence is a stop word. Tokens
+   * returned by a tokenizer's nextToken() method can be checked this way
+   * without turning them into strings.
+   *
+   * @param word the word to test
+   * @return true if the word is a stopword
+   */
+  public boolean isStopword(CharSequence word) {
+    boolean	result;
+
+    if (!m_Initialized) {
+      if (m_Debug)
+	debug("Initializing stopwords");
+      initialize();
+      m_Initialized = true;
+    }
+
+    result = is(word);
+    if (m_Debug)
+      debug(word + " --> " + result);
+
+    return result;
+  }
+
+  /**
+   * Returns true if the given character sequence, trimmed and in lower case,
+   * is contained in the trie. Upper case ASCII letters are converted while
+   * walking the trie; sequences that need any other conversion are checked
+   * as strings.
+   *
+   * @param trie the stopwords
+   * @param word the word to test
+   * @return true if the word is a stopword
+   * @see Token#isAsciiLocale()
+   */
+  protected boolean isInLowerCase(CharArrayTrie trie, CharSequence word) {
+    int		start;
+    int		end;
+    int		node;
+    int		i;
+    char	c;
+
+    start = 0;
+    end   = word.length();
+    while ((start < end) && (word.charAt(start) <= ' '))
+      start++;
+    while ((start < end) && (word.charAt(end - 1) <= ' '))
+      end--;
+
+    node = 0;
+    for (i = start; i < end; i++) {
+      c = word.charAt(i);
+      if (c >= 128)
+	return is(word.toString());
+      if ((c >= 'A') && (c <= 'Z')) {
+	if (!Token.isAsciiLocale())
+	  return is(word.toString());
+	c = (char) (c + ('a' - 'A'));
+      }
+      node = trie.getChild(node, c);
+      // no stopword starts like this, whatever the remaining characters are
+      if (node < 0)
+	return false;
+    }
+
+    return trie.isWord(node);
+  }
+
+  /**
+   * Checks a character sequence with the given stopwords handler, without
+   * creating a string if the handler is derived from this class.
+   *
+   * @param handler the stopwords handler
+   * @param word the word to test
+   * @return true if the word is a stopword
+   */
+  public static boolean isStopword(StopwordsHandler handler, CharSequence word) {
+    if (handler instanceof AbstractStopwords)
+      return ((AbstractStopwords) handler).isStopword(word);
+    else
+      return handler.isStopword(word.toString());
+  }
 }
@@ -189,4 +189,26 @@ public class MultiStopwords
     
     return result;
   }
+
+  /**
+   * Returns true if the given character sequence is a stop word.
+   *
+   * @param word the word to test
+   * @return true if the word is a stopword
+   */
+  @Override
+  protected boolean is(CharSequence word) {
+    boolean	result;
+    
+    result = false;
+    
+    for (StopwordsHandler handler: m_Stopwords) {
+      if (isStopword(handler, word)) {
+	result = true;
+	break;
+      }
+    }
+    
+    return result;
+  }
 }
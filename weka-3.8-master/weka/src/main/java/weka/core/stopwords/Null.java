@@ -65,4 +65,15 @@ public class Null
   protected boolean is(String word) {
     return false;
   }
+
+  /**
+   * Returns true if the given character sequence is a stop word.
+   *
+   * @param word the word to test
+   * @return always false
+   */
+  @Override
+  protected boolean is(CharSequence word) {
+    return false;
+  }
 }
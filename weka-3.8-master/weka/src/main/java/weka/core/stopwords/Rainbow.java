@@ -22,6 +22,8 @@ package weka.core.stopwords;
 
 import java.util.HashSet;
 
+import weka.core.CharArrayTrie;
+
 /**
  <!-- globalinfo-start -->
  * Stopwords list based on Rainbow:<br/>
@@ -50,6 +52,9 @@ public class Rainbow
   /** The hash set containing the list of stopwords. */
   protected HashSet<String> m_Words;
 
+  /** The stopwords as trie, for checking character sequences. */
+  protected CharArrayTrie m_Trie;
+
   /**
    * Returns a string describing the stopwords scheme.
    *
@@ -597,6 +602,8 @@ public class Rainbow
     m_Words.add("yourselves");
     m_Words.add("z");
     m_Words.add("zero");
+
+    m_Trie = new CharArrayTrie(m_Words);
   }
 
   /**
@@ -609,4 +616,19 @@ public class Rainbow
   protected boolean is(String word) {
     return m_Words.contains(word.trim().toLowerCase());
   }
+
+  /**
+   * Returns true if the given character sequence is a stop word.
+   *
+   * @param word the word to test
+   * @return true if the word is a stopword
+   */
+  @Override
+  protected boolean is(CharSequence word) {
+    // stopwords initialized before the trie was introduced
+    if (m_Trie == null)
+      m_Trie = new CharArrayTrie(m_Words);
+
+    return isInLowerCase(m_Trie, word);
+  }
 }
@@ -23,6 +23,8 @@ package weka.core.stopwords;
 import java.util.HashSet;
 import java.util.List;
 
+import weka.core.CharArrayTrie;
+
 /**
  <!-- globalinfo-start -->
  * Uses the stopwords located in the specified file (ignored _if pointing to a directory). One stopword per line. Lines starting with '#' are considered comments and ignored.
@@ -54,6 +56,9 @@ public class WordsFromFile
   /** The hash set containing the list of stopwords. */
   protected HashSet<String> m_Words;
 
+  /** The stopwords as trie, for checking character sequences. */
+  protected CharArrayTrie m_Trie;
+
   /**
    * Returns a string describing the stopwords scheme.
    *
@@ -94,6 +99,8 @@ public class WordsFromFile
       if (!word.startsWith("#"))
 	m_Words.add(word);
     }
+
+    m_Trie = new CharArrayTrie(m_Words);
   }
 
   /**
@@ -106,4 +113,19 @@ public class WordsFromFile
   protected synchronized boolean is(String word) {
     return m_Words.contains(word.trim().toLowerCase());
   }
+
+  /**
+   * Returns true if the given character sequence is a stop word.
+   *
+   * @param word the word to test
+   * @return true if the word is a stopword
+   */
+  @Override
+  protected synchronized boolean is(CharSequence word) {
+    // stopwords initialized before the trie was introduced
+    if (m_Trie == null)
+      m_Trie = new CharArrayTrie(m_Words);
+
+    return isInLowerCase(m_Trie, word);
+  }
 }
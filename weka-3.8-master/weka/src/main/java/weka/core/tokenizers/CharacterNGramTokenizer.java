@@ -257,12 +257,37 @@ public class CharacterNGramTokenizer extends Tokenizer {
     } catch (StringIndexOutOfBoundsException ex) {
       // Just return null;
     }
+    advance();
+    return result;
+  }
+
+  /**
+   * Returns N-grams and also (N-1)-grams and ..., as views of the tokenized
+   * string.
+   * 
+   * @return the next token, null if there are no more tokens
+   */
+  @Override
+  public Token nextToken() {
+    if (!hasMoreElements()) {
+      return null;
+    }
+
+    Token result =
+      getToken().set(m_String, m_CurrentPosition, m_CurrentPosition + m_N);
+    advance();
+    return result;
+  }
+
+  /**
+   * Moves on to the next n-gram.
+   */
+  protected void advance() {
     m_N++;
     if ((m_N > m_NMax) || (m_CurrentPosition + m_N > m_String.length())) {
       m_N = m_NMin;
       m_CurrentPosition++;
     }
-    return result;
   }
 
 
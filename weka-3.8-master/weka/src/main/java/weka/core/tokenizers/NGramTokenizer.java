@@ -20,10 +20,13 @@
 
 package weka.core.tokenizers;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import java.util.Vector;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import weka.core.Option;
 import weka.core.RevisionUtils;
@@ -80,8 +83,17 @@ public class NGramTokenizer extends CharacterDelimitedTokenizer {
   /** the current position for returning elements */
   protected int m_CurrentPosition;
 
-  /** all the available grams */
-  protected String[] m_SplitString;
+  /** the string to tokenize */
+  protected String m_String;
+
+  /** the start of each word in the string */
+  protected int[] m_WordStarts = new int[0];
+
+  /** the end (exclusive) of each word in the string */
+  protected int[] m_WordEnds = new int[0];
+
+  /** the pattern matching a delimiter */
+  protected transient Pattern m_DelimiterPattern;
 
   /**
    * Returns a string describing the stemmer
@@ -267,14 +279,32 @@ public class NGramTokenizer extends CharacterDelimitedTokenizer {
    */
   @Override
   public String nextElement() {
-    String retValue = "";
+    Token token = nextToken();
+
+    if (token == null) {
+      throw new NoSuchElementException("No more tokens present");
+    }
+
+    return token.toString();
+  }
 
-    // for (int i = 0; i < m_N && i + m_CurrentPosition < m_MaxPosition; i++) {
-    // retValue += " " + m_SplitString[m_CurrentPosition + i];
-    // }
+  /**
+   * Returns N-grams and also (N-1)-grams and .... and 1-grams. The words of
+   * an n-gram are separated by single blanks in a buffer of the token.
+   * 
+   * @return the next token, null if there are no more tokens
+   */
+  @Override
+  public Token nextToken() {
+    if (!hasMoreElements()) {
+      return null;
+    }
 
+    Token token = getToken().clear();
     for (int i = 0; i < m_N; i++) {
-      retValue += " " + m_SplitString[m_CurrentPosition + i];
+      token.append(' ');
+      token.append(m_String, m_WordStarts[m_CurrentPosition + i],
+        m_WordEnds[m_CurrentPosition + i]);
     }
 
     m_CurrentPosition++;
@@ -284,50 +314,60 @@ public class NGramTokenizer extends CharacterDelimitedTokenizer {
       m_N--;
     }
 
-    return retValue.trim();
+    return token.trim();
   }
 
   /**
-   * filters out empty strings in m_SplitString and replaces m_SplitString with
-   * the cleaned version.
+   * Adds a word, growing the arrays of word boundaries if necessary.
    * 
-   * @see #m_SplitString
+   * @param start the start of the word
+   * @param end the end of the word (exclusive)
    */
-  protected void filterOutEmptyStrings() {
-    String[] newSplit;
-    LinkedList<String> clean = new LinkedList<String>();
-
-    for (int i = 0; i < m_SplitString.length; i++) {
-      if (!m_SplitString[i].equals("")) {
-        clean.add(m_SplitString[i]);
-      }
-    }
-
-    newSplit = new String[clean.size()];
-    for (int i = 0; i < clean.size(); i++) {
-      newSplit[i] = clean.get(i);
+  protected void addWord(int start, int end) {
+    if (m_MaxPosition == m_WordStarts.length) {
+      int capacity = Math.max(16, 2 * m_WordStarts.length);
+      m_WordStarts = Arrays.copyOf(m_WordStarts, capacity);
+      m_WordEnds = Arrays.copyOf(m_WordEnds, capacity);
     }
-
-    m_SplitString = newSplit;
+    m_WordStarts[m_MaxPosition] = start;
+    m_WordEnds[m_MaxPosition] = end;
+    m_MaxPosition++;
   }
 
   /**
-   * Sets the string to tokenize. Tokenization happens immediately.
+   * Sets the string to tokenize. Tokenization happens immediately. The string
+   * is split at the delimiters, ignoring empty words, but only the boundaries
+   * of the words are stored.
    * 
    * @param s the string to tokenize
    */
   @Override
   public void tokenize(String s) {
-    m_N = m_NMax;
-    m_SplitString = s.split("[" + getDelimiters() + "]");
+    String regex = "[" + getDelimiters() + "]";
+    if (m_DelimiterPattern == null
+      || !m_DelimiterPattern.pattern().equals(regex)) {
+      m_DelimiterPattern = Pattern.compile(regex);
+    }
 
-    filterOutEmptyStrings();
+    m_String = s;
+    m_MaxPosition = 0;
+    Matcher matcher = m_DelimiterPattern.matcher(s);
+    int start = 0;
+    while (matcher.find()) {
+      if (matcher.start() > start) {
+        addWord(start, matcher.start());
+      }
+      start = matcher.end();
+    }
+    if (s.length() > start) {
+      addWord(start, s.length());
+    }
 
+    m_N = m_NMax;
     m_CurrentPosition = 0;
-    m_MaxPosition = m_SplitString.length;
 
-    if (m_SplitString.length < m_NMax) {
-      m_N = m_SplitString.length;
+    if (m_MaxPosition < m_NMax) {
+      m_N = m_MaxPosition;
     }
   }
 
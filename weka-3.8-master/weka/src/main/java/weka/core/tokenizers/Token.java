@@ -0,0 +1,283 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Token.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core.tokenizers;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import weka.core.RevisionHandler;
+import weka.core.RevisionUtils;
+
+/**
+ * A token as returned by {@link Tokenizer#nextToken()}: a view of a range of
+ * the string that is tokenized, or of a buffer owned by the token. A
+ * tokenizer reuses the same object for all of its tokens, so a token is only
+ * valid until the next call of nextToken(). Use toString() to obtain a string
+ * that can be kept.
+ *
+ * @version $Revision$
+ */
+public class Token implements CharSequence, RevisionHandler {
+
+  /** the sequence that is viewed, null if an array is viewed. */
+  protected CharSequence m_Sequence;
+
+  /** the array that is viewed, null if a sequence is viewed. */
+  protected char[] m_Chars;
+
+  /** the start of the token in the sequence or array. */
+  protected int m_Start;
+
+  /** the end (exclusive) of the token in the sequence or array. */
+  protected int m_End;
+
+  /** the buffer for tokens that are not a range of the input. */
+  protected char[] m_Buffer = new char[32];
+
+  /**
+   * Makes the token a view of a range of a character sequence.
+   *
+   * @param s the sequence
+   * @param start the start of the range
+   * @param end the end of the range (exclusive)
+   * @return the token itself
+   */
+  public Token set(CharSequence s, int start, int end) {
+    m_Sequence = s;
+    m_Chars = null;
+    m_Start = start;
+    m_End = end;
+    return this;
+  }
+
+  /**
+   * Makes the token a view of a range of a character array.
+   *
+   * @param chars the array
+   * @param start the start of the range
+   * @param end the end of the range (exclusive)
+   * @return the token itself
+   */
+  public Token set(char[] chars, int start, int end) {
+    m_Sequence = null;
+    m_Chars = chars;
+    m_Start = start;
+    m_End = end;
+    return this;
+  }
+
+  /**
+   * Empties the token, so that it can be built with the append methods.
+   *
+   * @return the token itself
+   */
+  public Token clear() {
+    return set(m_Buffer, 0, 0);
+  }
+
+  /**
+   * Copies the token into its own buffer, unless it is already there, so
+   * that it can be modified.
+   */
+  protected void toBuffer() {
+    if (m_Chars == m_Buffer) {
+      return;
+    }
+    int length = length();
+    if (m_Buffer.length < length) {
+      m_Buffer = new char[Math.max(length, 2 * m_Buffer.length)];
+    }
+    for (int i = 0; i < length; i++) {
+      m_Buffer[i] = charAt(i);
+    }
+    set(m_Buffer, 0, length);
+  }
+
+  /**
+   * Makes sure that the buffer can hold a number of additional characters.
+   *
+   * @param additional the number of characters to be appended
+   */
+  protected void ensureCapacity(int additional) {
+    if (m_End + additional > m_Buffer.length) {
+      m_Buffer =
+        Arrays.copyOf(m_Buffer, Math.max(m_End + additional,
+          2 * m_Buffer.length));
+      m_Chars = m_Buffer;
+    }
+  }
+
+  /**
+   * Appends a character.
+   *
+   * @param c the character
+   * @return the token itself
+   */
+  public Token append(char c) {
+    toBuffer();
+    ensureCapacity(1);
+    m_Buffer[m_End++] = c;
+    return this;
+  }
+
+  /**
+   * Appends a range of a character sequence.
+   *
+   * @param s the sequence
+   * @param start the start of the range
+   * @param end the end of the range (exclusive)
+   * @return the token itself
+   */
+  public Token append(CharSequence s, int start, int end) {
+    toBuffer();
+    ensureCapacity(end - start);
+    for (int i = start; i < end; i++) {
+      m_Buffer[m_End++] = s.charAt(i);
+    }
+    return this;
+  }
+
+  /**
+   * Removes leading and trailing whitespace, like String.trim().
+   *
+   * @return the token itself
+   */
+  public Token trim() {
+    while (m_Start < m_End && charAt(0) <= ' ') {
+      m_Start++;
+    }
+    while (m_Start < m_End && charAt(length() - 1) <= ' ') {
+      m_End--;
+    }
+    return this;
+  }
+
+  /**
+   * Converts the token to lower case, with the same result as
+   * String.toLowerCase(). Tokens that are made up of ASCII characters are
+   * converted in place; for others the conversion falls back to a string.
+   *
+   * @return the token itself
+   */
+  public Token toLowerCase() {
+    int length = length();
+    int firstUpper = -1;
+    boolean ascii = true;
+    for (int i = 0; i < length && ascii; i++) {
+      char c = charAt(i);
+      if (c >= 128) {
+        ascii = false;
+      } else if (firstUpper < 0 && c >= 'A' && c <= 'Z') {
+        firstUpper = i;
+      }
+    }
+
+    if (ascii && firstUpper < 0) {
+      return this;
+    }
+    if (ascii && isAsciiLocale()) {
+      toBuffer();
+      for (int j = m_Start + firstUpper; j < m_End; j++) {
+        char c = m_Buffer[j];
+        if (c >= 'A' && c <= 'Z') {
+          m_Buffer[j] = (char) (c + ('a' - 'A'));
+        }
+      }
+      return this;
+    }
+
+    String lower = toString().toLowerCase();
+    return set(lower, 0, lower.length());
+  }
+
+  /**
+   * Returns whether the default locale converts upper case ASCII letters to
+   * their lower case ASCII counterparts regardless of the characters
+   * around them, which is not the case for the letter I in Turkish,
+   * Azerbaijani and Lithuanian.
+   *
+   * @return true if ASCII letters are converted as usual
+   */
+  public static boolean isAsciiLocale() {
+    String language = Locale.getDefault().getLanguage();
+    return !language.equals("tr") && !language.equals("az")
+      && !language.equals("lt");
+  }
+
+  /**
+   * Returns the length of the token.
+   *
+   * @return the number of characters
+   */
+  @Override
+  public int length() {
+    return m_End - m_Start;
+  }
+
+  /**
+   * Returns a character of the token.
+   *
+   * @param index the index of the character within the token
+   * @return the character
+   */
+  @Override
+  public char charAt(int index) {
+    if (m_Chars != null) {
+      return m_Chars[m_Start + index];
+    }
+    return m_Sequence.charAt(m_Start + index);
+  }
+
+  /**
+   * Returns a part of the token, as a string.
+   *
+   * @param start the start of the part
+   * @param end the end of the part (exclusive)
+   * @return the part
+   */
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (m_Chars != null) {
+      return new String(m_Chars, m_Start + start, end - start);
+    }
+    return m_Sequence.subSequence(m_Start + start, m_Start + end).toString();
+  }
+
+  /**
+   * Returns the token as a string.
+   *
+   * @return the token
+   */
+  @Override
+  public String toString() {
+    return subSequence(0, length()).toString();
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
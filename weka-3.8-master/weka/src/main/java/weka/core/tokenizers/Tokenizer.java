@@ -42,6 +42,9 @@ public abstract class Tokenizer implements Enumeration<String>, OptionHandler,
   /** Added to avoid warning */
   private static final long serialVersionUID = 7781271062738973996L;
 
+  /** the token returned by nextToken(), reused for all tokens */
+  protected transient Token m_Token;
+
   /**
    * Returns a string describing the stemmer
    * 
@@ -101,6 +104,35 @@ public abstract class Tokenizer implements Enumeration<String>, OptionHandler,
   @Override
   public abstract String nextElement();
 
+  /**
+   * Returns the object that nextToken() returns its tokens in.
+   * 
+   * @return the token object
+   */
+  protected Token getToken() {
+    if (m_Token == null) {
+      m_Token = new Token();
+    }
+    return m_Token;
+  }
+
+  /**
+   * Returns the next token as a view of the tokenized string or of a buffer.
+   * Unlike nextElement(), this does not need to create a string for every
+   * token. The same object is returned for all tokens, so a token is only
+   * valid until the next call of this method or nextElement(). The default
+   * implementation wraps the string returned by nextElement().
+   * 
+   * @return the next token, null if there are no more tokens
+   */
+  public Token nextToken() {
+    if (!hasMoreElements()) {
+      return null;
+    }
+    String s = nextElement();
+    return getToken().set(s, 0, s.length());
+  }
+
   /**
    * Sets the string to tokenize. Tokenization happens immediately.
    * 
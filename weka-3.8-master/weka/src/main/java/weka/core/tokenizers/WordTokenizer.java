@@ -20,13 +20,13 @@
 
 package weka.core.tokenizers;
 
-import java.util.StringTokenizer;
+import java.util.NoSuchElementException;
 
 import weka.core.RevisionUtils;
 
 /**
- * <!-- globalinfo-start --> A simple tokenizer that is using the
- * java.util.StringTokenizer class to tokenize the strings.
+ * <!-- globalinfo-start --> A simple tokenizer that splits the strings at
+ * the delimiter characters, like the java.util.StringTokenizer class.
  * <p/>
  * <!-- globalinfo-end -->
  * 
@@ -49,8 +49,26 @@ public class WordTokenizer extends CharacterDelimitedTokenizer {
   /** for serialization */
   private static final long serialVersionUID = -930893034037880773L;
 
-  /** the actual tokenizer */
-  protected transient StringTokenizer m_Tokenizer;
+  /** the characters of the string to tokenize */
+  protected transient char[] m_Chars;
+
+  /** the length of the string to tokenize */
+  protected transient int m_Length;
+
+  /** the current position in the string */
+  protected transient int m_Position;
+
+  /** the delimiters the lookup table was built for */
+  protected transient String m_TableDelimiters;
+
+  /** whether an ASCII character is a delimiter */
+  protected transient boolean[] m_IsAsciiDelimiter;
+
+  /** whether the delimiters contain supplementary characters */
+  protected transient boolean m_DelimitersHaveSurrogates;
+
+  /** the code points of the delimiters, if they contain surrogates */
+  protected transient int[] m_DelimiterCodePoints;
 
   /**
    * Returns a string describing the stemmer
@@ -60,8 +78,74 @@ public class WordTokenizer extends CharacterDelimitedTokenizer {
    */
   @Override
   public String globalInfo() {
-    return "A simple tokenizer that is using the java.util.StringTokenizer "
-      + "class to tokenize the strings.";
+    return "A simple tokenizer that splits the strings at the delimiter "
+      + "characters, like the java.util.StringTokenizer class.";
+  }
+
+  /**
+   * Returns whether the character at a position is a delimiter.
+   * 
+   * @param pos the position in the string
+   * @return true if the character is a delimiter
+   */
+  protected boolean isDelimiter(int pos) {
+    char c = m_Chars[pos];
+    if (c < 128) {
+      return m_IsAsciiDelimiter[c];
+    }
+    if (m_DelimitersHaveSurrogates) {
+      int cp = Character.codePointAt(m_Chars, pos, m_Length);
+      for (int delimiter : m_DelimiterCodePoints) {
+        if (delimiter == cp) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return m_Delimiters.indexOf(c) >= 0;
+  }
+
+  /**
+   * Returns the number of characters of the code point at a position, which
+   * is 1 unless the delimiters contain supplementary characters.
+   * 
+   * @param pos the position in the string
+   * @return the number of characters
+   */
+  protected int charCount(int pos) {
+    if (m_DelimitersHaveSurrogates) {
+      return Character.charCount(Character.codePointAt(m_Chars, pos,
+        m_Length));
+    }
+    return 1;
+  }
+
+  /**
+   * Returns the end of the token that starts at the current position, and
+   * moves the position there.
+   * 
+   * @return the end of the token (exclusive)
+   */
+  protected int skipToken() {
+    if (m_DelimitersHaveSurrogates) {
+      while (m_Position < m_Length && !isDelimiter(m_Position)) {
+        m_Position += charCount(m_Position);
+      }
+      return m_Position;
+    }
+
+    char[] chars = m_Chars;
+    boolean[] isAsciiDelimiter = m_IsAsciiDelimiter;
+    int pos = m_Position;
+    while (pos < m_Length) {
+      char c = chars[pos];
+      if ((c < 128) ? isAsciiDelimiter[c] : m_Delimiters.indexOf(c) >= 0) {
+        break;
+      }
+      pos++;
+    }
+    m_Position = pos;
+    return pos;
   }
 
   /**
@@ -72,7 +156,25 @@ public class WordTokenizer extends CharacterDelimitedTokenizer {
    */
   @Override
   public boolean hasMoreElements() {
-    return m_Tokenizer.hasMoreElements();
+    if (m_DelimitersHaveSurrogates) {
+      while (m_Position < m_Length && isDelimiter(m_Position)) {
+        m_Position += charCount(m_Position);
+      }
+      return m_Position < m_Length;
+    }
+
+    char[] chars = m_Chars;
+    boolean[] isAsciiDelimiter = m_IsAsciiDelimiter;
+    int pos = m_Position;
+    while (pos < m_Length) {
+      char c = chars[pos];
+      if (!((c < 128) ? isAsciiDelimiter[c] : m_Delimiters.indexOf(c) >= 0)) {
+        break;
+      }
+      pos++;
+    }
+    m_Position = pos;
+    return pos < m_Length;
   }
 
   /**
@@ -83,17 +185,67 @@ public class WordTokenizer extends CharacterDelimitedTokenizer {
    */
   @Override
   public String nextElement() {
-    return m_Tokenizer.nextToken();
+    if (!hasMoreElements()) {
+      throw new NoSuchElementException("No more tokens present");
+    }
+
+    int start = m_Position;
+    return new String(m_Chars, start, skipToken() - start);
+  }
+
+  /**
+   * Returns the next token as a view of the tokenized string.
+   * 
+   * @return the next token, null if there are no more tokens
+   */
+  @Override
+  public Token nextToken() {
+    if (!hasMoreElements()) {
+      return null;
+    }
+
+    int start = m_Position;
+    return getToken().set(m_Chars, start, skipToken());
   }
 
   /**
-   * Sets the string to tokenize. Tokenization happens immediately.
+   * Sets the string to tokenize. Tokenization happens immediately. The
+   * characters are copied into a buffer that is reused for the next string.
    * 
    * @param s the string to tokenize
    */
   @Override
   public void tokenize(String s) {
-    m_Tokenizer = new StringTokenizer(s, getDelimiters());
+    String delimiters = getDelimiters();
+
+    if (m_IsAsciiDelimiter == null || !delimiters.equals(m_TableDelimiters)) {
+      m_IsAsciiDelimiter = new boolean[128];
+      m_DelimitersHaveSurrogates = false;
+      for (int i = 0; i < delimiters.length(); i++) {
+        char c = delimiters.charAt(i);
+        if (c < 128) {
+          m_IsAsciiDelimiter[c] = true;
+        } else if (Character.isSurrogate(c)) {
+          m_DelimitersHaveSurrogates = true;
+        }
+      }
+      if (m_DelimitersHaveSurrogates) {
+        m_DelimiterCodePoints =
+          new int[delimiters.codePointCount(0, delimiters.length())];
+        for (int i = 0, j = 0; i < delimiters.length(); j++) {
+          m_DelimiterCodePoints[j] = delimiters.codePointAt(i);
+          i += Character.charCount(m_DelimiterCodePoints[j]);
+        }
+      }
+      m_TableDelimiters = delimiters;
+    }
+
+    if (m_Chars == null || m_Chars.length < s.length()) {
+      m_Chars = new char[Math.max(s.length(), 256)];
+    }
+    s.getChars(0, s.length(), m_Chars, 0);
+    m_Length = s.length();
+    m_Position = 0;
   }
 
   /**
@@ -0,0 +1,868 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    HashingStringToWordVector.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.filters.unsupervised.attribute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import weka.core.Attribute;
+import weka.core.Capabilities;
+import weka.core.CountMinSketch;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.OptionMetadata;
+import weka.core.Range;
+import weka.core.RevisionUtils;
+import weka.core.SparseInstance;
+import weka.core.WeightedInstancesHandler;
+import weka.core.stemmers.NullStemmer;
+import weka.core.stemmers.Stemmer;
+import weka.core.stopwords.AbstractStopwords;
+import weka.core.stopwords.Null;
+import weka.core.stopwords.StopwordsHandler;
+import weka.core.tokenizers.Token;
+import weka.core.tokenizers.Tokenizer;
+import weka.core.tokenizers.WordTokenizer;
+import weka.filters.SimpleStreamFilter;
+import weka.filters.UnsupervisedFilter;
+
+/**
+ * <!-- globalinfo-start --> Converts String attributes into a fixed number of
+ * numeric attributes by hashing the tokens of the strings (the "hashing
+ * trick"): every token is mapped to one of 2^bits attributes by a hash
+ * function, and, optionally, a second hash decides whether the token adds to
+ * or subtracts from the attribute, so that collisions cancel out on average.
+ * No dictionary is built, so the filter processes one instance at a time in
+ * constant memory. Document frequencies for the IDF transform are estimated
+ * with a count-min sketch from the documents seen so far.<br>
+ * <br>
+ * For more information see:<br>
+ * <br>
+ * Kilian Weinberger, Anirban Dasgupta, John Langford, Alex Smola, Josh
+ * Attenberg: Feature Hashing for Large Scale Multitask Learning. In: 26th
+ * International Conference on Machine Learning, 1113-1120, 2009.<br>
+ * <br>
+ * <!-- globalinfo-end -->
+ *
+ * <!-- options-start --> Valid options are:
+ * <p>
+ *
+ * <pre>
+ *  -bits &lt;int&gt;
+ *  The number of bits of the hash, the output has 2^bits word attributes
+ *  (default: 14)
+ * </pre>
+ *
+ * <pre>
+ *  -unsigned
+ *  Don't use a second hash to determine the sign of a token's contribution
+ * </pre>
+ *
+ * <pre>
+ *  -C
+ *  Output word counts rather than boolean 0 or 1 (indicating presence or absence of a word)
+ * </pre>
+ *
+ * <pre>
+ *  -R &lt;range&gt;
+ *  Specify range of attributes to act on. This is a comma separated list of attribute
+ *  indices, with "first" and "last" valid values.
+ * </pre>
+ *
+ * <pre>
+ *  -V
+ *  Set attributes selection mode. If false, only selected attributes in the range will
+ *  be worked on. If true, only non-selected attributes will be processed
+ * </pre>
+ *
+ * <pre>
+ *  -P &lt;attribute name prefix&gt;
+ *  Specify a prefix for the created attribute names (default: "hash_")
+ * </pre>
+ *
+ * <pre>
+ *  -T
+ *  Set whether the word frequencies should be transformed into
+ *  log(1+fij), where fij is the frequency of word i in document (instance) j.
+ * </pre>
+ *
+ * <pre>
+ *  -I
+ *  Set whether the word frequencies in a document should be transformed into
+ *  fij*log(num of Docs/num of docs with word i), where fij is the frequency
+ *  of word i in document (instance) j. The counts are taken over the documents
+ *  seen so far.
+ * </pre>
+ *
+ * <pre>
+ *  -sketch-width &lt;int&gt;
+ *  The number of counters per row of the count-min sketch for the document
+ *  frequencies (default: 65536)
+ * </pre>
+ *
+ * <pre>
+ *  -sketch-depth &lt;int&gt;
+ *  The number of rows of the count-min sketch for the document frequencies
+ *  (default: 4)
+ * </pre>
+ *
+ * <pre>
+ *  -L
+ *  Convert all tokens to lowercase before hashing.
+ * </pre>
+ *
+ * <pre>
+ *  -stemmer &lt;spec&gt;
+ *  The stemming algorithm (classname plus parameters) to use.
+ * </pre>
+ *
+ * <pre>
+ *  -stopwords-handler &lt;spec&gt;
+ *  The stopwords handler to use (default = Null)
+ * </pre>
+ *
+ * <pre>
+ *  -tokenizer &lt;spec&gt;
+ *  The tokenizing algorithm (classname plus parameters) to use.
+ *  (default: weka.core.tokenizers.WordTokenizer)
+ * </pre>
+ *
+ * <pre>
+ *  -output-debug-info
+ *  If set, filter is run in debug mode and
+ *  may output additional info to the console
+ * </pre>
+ *
+ * <pre>
+ *  -do-not-check-capabilities
+ *  If set, filter capabilities are not checked before filter is built
+ *  (use with caution).
+ * </pre>
+ *
+ * <!-- options-end -->
+ *
+ * @version $Revision$
+ */
+public class HashingStringToWordVector extends SimpleStreamFilter implements
+  UnsupervisedFilter, WeightedInstancesHandler {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -3160815463380712632L;
+
+  /** The number of bits of the hash. */
+  protected int m_NumBits = 14;
+
+  /** True if the sign of the hash is not to be used. */
+  protected boolean m_Unsigned;
+
+  /** Whether to output frequency counts instead of presence indicators. */
+  protected boolean m_OutputCounts;
+
+  /** Range of columns to convert to word vectors. */
+  protected Range m_SelectedRange = new Range("first-last");
+
+  /** A String prefix for the attribute names. */
+  protected String m_Prefix = "hash_";
+
+  /** True if the TF transform is to be applied. */
+  protected boolean m_TFTransform;
+
+  /** True if the IDF transform is to be applied. */
+  protected boolean m_IDFTransform;
+
+  /** The number of counters per row of the sketch. */
+  protected int m_SketchWidth = 65536;
+
+  /** The number of rows of the sketch. */
+  protected int m_SketchDepth = 4;
+
+  /** True if all tokens should be downcased. */
+  protected boolean m_LowerCaseTokens;
+
+  /** The stemming algorithm. */
+  protected Stemmer m_Stemmer = new NullStemmer();
+
+  /** The stopwords handler. */
+  protected StopwordsHandler m_StopwordsHandler = new Null();
+
+  /** The tokenizer algorithm to use. */
+  protected Tokenizer m_Tokenizer = new WordTokenizer();
+
+  /** The document frequencies of the tokens seen so far. */
+  protected CountMinSketch m_DocFrequencies;
+
+  /** The number of documents seen so far. */
+  protected long m_NumDocs;
+
+  /** The index of the first word attribute in the output. */
+  protected int m_WordOffset;
+
+  /** The token counts of the current document. */
+  protected transient Map<String, int[]> m_TokenCounts;
+
+  /** The values of the word attributes of the current document. */
+  protected transient double[] m_Sums;
+
+  /** Whether a word attribute has a value in the current document. */
+  protected transient boolean[] m_IsTouched;
+
+  /** The word attributes with a value in the current document. */
+  protected transient int[] m_Touched;
+
+  /**
+   * Returns a string describing this filter.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Converts String attributes into a fixed number of numeric "
+      + "attributes by hashing the tokens of the strings (the \"hashing "
+      + "trick\"): every token is mapped to one of 2^bits attributes by a "
+      + "hash function, and, optionally, a second hash decides whether the "
+      + "token adds to or subtracts from the attribute, so that collisions "
+      + "cancel out on average. No dictionary is built, so the filter "
+      + "processes one instance at a time in constant memory. Document "
+      + "frequencies for the IDF transform are estimated with a count-min "
+      + "sketch from the documents seen so far.\n\n"
+      + "For more information see:\n\n"
+      + "Kilian Weinberger, Anirban Dasgupta, John Langford, Alex Smola, "
+      + "Josh Attenberg: Feature Hashing for Large Scale Multitask Learning. "
+      + "In: 26th International Conference on Machine Learning, 1113-1120, "
+      + "2009.";
+  }
+
+  /**
+   * Returns the Capabilities of this filter.
+   *
+   * @return the capabilities of this object
+   * @see Capabilities
+   */
+  @Override
+  public Capabilities getCapabilities() {
+    Capabilities result = super.getCapabilities();
+    result.disableAll();
+
+    // attributes
+    result.enableAllAttributes();
+    result.enable(Capabilities.Capability.MISSING_VALUES);
+
+    // class
+    result.enableAllClasses();
+    result.enable(Capabilities.Capability.MISSING_CLASS_VALUES);
+    result.enable(Capabilities.Capability.NO_CLASS);
+
+    return result;
+  }
+
+  /**
+   * Sets the number of bits of the hash.
+   *
+   * @param numBits the number of bits (1 to 30)
+   */
+  @OptionMetadata(displayName = "Number of bits",
+    description = "The number of bits of the hash, the output has 2^bits "
+      + "word attributes (default: 14)", commandLineParamName = "bits",
+    commandLineParamSynopsis = "-bits <int>", displayOrder = 1)
+  public void setNumBits(int numBits) {
+    m_NumBits = numBits;
+  }
+
+  /**
+   * Gets the number of bits of the hash.
+   *
+   * @return the number of bits
+   */
+  public int getNumBits() {
+    return m_NumBits;
+  }
+
+  /**
+   * Sets whether the sign of a token's contribution is not to be determined
+   * by a second hash.
+   *
+   * @param unsigned true if all contributions are to be positive
+   */
+  @OptionMetadata(displayName = "Unsigned hash",
+    description = "Don't use a second hash to determine the sign of a "
+      + "token's contribution", commandLineParamName = "unsigned",
+    commandLineParamSynopsis = "-unsigned", commandLineParamIsFlag = true,
+    displayOrder = 2)
+  public void setUnsigned(boolean unsigned) {
+    m_Unsigned = unsigned;
+  }
+
+  /**
+   * Gets whether the sign of a token's contribution is not determined by a
+   * second hash.
+   *
+   * @return true if all contributions are positive
+   */
+  public boolean getUnsigned() {
+    return m_Unsigned;
+  }
+
+  /**
+   * Sets whether output instances contain 0 or 1 indicating word presence, or
+   * word counts.
+   *
+   * @param outputWordCounts true if word counts should be output.
+   */
+  @OptionMetadata(displayName = "Output word counts",
+    description = "Output word counts rather than boolean 0 or 1 (indicating "
+      + "presence or absence of a word)", commandLineParamName = "C",
+    commandLineParamSynopsis = "-C", commandLineParamIsFlag = true,
+    displayOrder = 3)
+  public void setOutputWordCounts(boolean outputWordCounts) {
+    m_OutputCounts = outputWordCounts;
+  }
+
+  /**
+   * Gets whether output instances contain 0 or 1 indicating word presence, or
+   * word counts.
+   *
+   * @return true if word counts should be output.
+   */
+  public boolean getOutputWordCounts() {
+    return m_OutputCounts;
+  }
+
+  /**
+   * Sets which attributes are to be worked on.
+   *
+   * @param rangeList a string representing the list of attributes. Since the
+   *          string will typically come from a user, attributes are indexed
+   *          from 1. <br>
+   *          eg: first-3,5,6-last
+   * @throws IllegalArgumentException if an invalid range list is supplied
+   */
+  @OptionMetadata(displayName = "Range of attributes to operate on",
+    description = "Specify range of attributes to act on. This is a comma "
+      + "separated list of attribute\nindices, with \"first\" and "
+      + "\"last\" valid values.", commandLineParamName = "R",
+    commandLineParamSynopsis = "-R <range>", displayOrder = 4)
+  public void setAttributeIndices(String rangeList) {
+    m_SelectedRange.setRanges(rangeList);
+  }
+
+  /**
+   * Gets the current range selection.
+   *
+   * @return a string containing a comma separated list of ranges
+   */
+  public String getAttributeIndices() {
+    return m_SelectedRange.getRanges();
+  }
+
+  /**
+   * Sets whether selected columns should be processed or skipped.
+   *
+   * @param invert the new invert setting
+   */
+  @OptionMetadata(displayName = "Invert selection",
+    description = "Set attributes selection mode. "
+      + "If false, only selected attributes in the range will\nbe worked on. "
+      + "If true, only non-selected attributes will be processed",
+    commandLineParamName = "V", commandLineParamSynopsis = "-V",
+    commandLineParamIsFlag = true, displayOrder = 5)
+  public void setInvertSelection(boolean invert) {
+    m_SelectedRange.setInvert(invert);
+  }
+
+  /**
+   * Gets whether the supplied columns are to be processed or skipped.
+   *
+   * @return true if the supplied columns will be kept
+   */
+  public boolean getInvertSelection() {
+    return m_SelectedRange.getInvert();
+  }
+
+  /**
+   * Set the attribute name prefix.
+   *
+   * @param newPrefix String to use as the attribute name prefix.
+   */
+  @OptionMetadata(displayName = "Prefix for created attribute names",
+    description = "Specify a prefix for the created attribute names "
+      + "(default: \"hash_\")", commandLineParamName = "P",
+    commandLineParamSynopsis = "-P <attribute name prefix>", displayOrder = 6)
+  public void setAttributeNamePrefix(String newPrefix) {
+    m_Prefix = newPrefix;
+  }
+
+  /**
+   * Get the attribute name prefix.
+   *
+   * @return The current attribute name prefix.
+   */
+  public String getAttributeNamePrefix() {
+    return m_Prefix;
+  }
+
+  /**
+   * Sets whether if the word frequencies should be transformed into log(1+fij)
+   * where fij is the frequency of word i in document(instance) j.
+   *
+   * @param TFTransform true if word frequencies are to be transformed.
+   */
+  @OptionMetadata(displayName = "TFT transform",
+    description = "Set whether the word frequencies should be transformed "
+      + "into\nlog(1+fij), where fij is the frequency of word i in document "
+      + "(instance) j.", commandLineParamName = "T",
+    commandLineParamSynopsis = "-T", commandLineParamIsFlag = true,
+    displayOrder = 7)
+  public void setTFTransform(boolean TFTransform) {
+    m_TFTransform = TFTransform;
+  }
+
+  /**
+   * Gets whether if the word frequencies should be transformed into log(1+fij)
+   * where fij is the frequency of word i in document(instance) j.
+   *
+   * @return true if word frequencies are to be transformed.
+   */
+  public boolean getTFTransform() {
+    return m_TFTransform;
+  }
+
+  /**
+   * Sets whether if the word frequencies in a document should be transformed
+   * into: <br>
+   * fij*log(num of Docs/num of Docs with word i) <br>
+   * where fij is the frequency of word i in document(instance) j.
+   *
+   * @param IDFTransform true if the word frequecies are to be transformed
+   */
+  @OptionMetadata(displayName = "IDF transform",
+    description = "Set whether the word frequencies in a document should be "
+      + "transformed into\nfij*log(num of Docs/num of docs with word i), "
+      + "where fij is the frequency\nof word i in document (instance) j. "
+      + "The counts are taken over the documents\nseen so far.",
+    commandLineParamName = "I", commandLineParamSynopsis = "-I",
+    commandLineParamIsFlag = true, displayOrder = 8)
+  public void setIDFTransform(boolean IDFTransform) {
+    m_IDFTransform = IDFTransform;
+  }
+
+  /**
+   * Gets whether if the word frequencies in a document should be transformed
+   * into: <br>
+   * fij*log(num of Docs/num of Docs with word i) <br>
+   * where fij is the frequency of word i in document(instance) j.
+   *
+   * @return true if the word frequencies are to be transformed.
+   */
+  public boolean getIDFTransform() {
+    return m_IDFTransform;
+  }
+
+  /**
+   * Sets the number of counters per row of the count-min sketch.
+   *
+   * @param width the number of counters
+   */
+  @OptionMetadata(displayName = "Sketch width",
+    description = "The number of counters per row of the count-min sketch "
+      + "for the document\nfrequencies (default: 65536)",
+    commandLineParamName = "sketch-width",
+    commandLineParamSynopsis = "-sketch-width <int>", displayOrder = 9)
+  public void setSketchWidth(int width) {
+    m_SketchWidth = width;
+  }
+
+  /**
+   * Gets the number of counters per row of the count-min sketch.
+   *
+   * @return the number of counters
+   */
+  public int getSketchWidth() {
+    return m_SketchWidth;
+  }
+
+  /**
+   * Sets the number of rows of the count-min sketch.
+   *
+   * @param depth the number of rows
+   */
+  @OptionMetadata(displayName = "Sketch depth",
+    description = "The number of rows of the count-min sketch for the "
+      + "document frequencies\n(default: 4)",
+    commandLineParamName = "sketch-depth",
+    commandLineParamSynopsis = "-sketch-depth <int>", displayOrder = 10)
+  public void setSketchDepth(int depth) {
+    m_SketchDepth = depth;
+  }
+
+  /**
+   * Gets the number of rows of the count-min sketch.
+   *
+   * @return the number of rows
+   */
+  public int getSketchDepth() {
+    return m_SketchDepth;
+  }
+
+  /**
+   * Sets whether if the tokens are to be downcased or not. (Doesn't affect
+   * non-alphabetic characters in tokens).
+   *
+   * @param downCaseTokens should be true if only lower case tokens are to be
+   *          formed.
+   */
+  @OptionMetadata(displayName = "Lower case tokens",
+    description = "Convert all tokens to lowercase before hashing.",
+    commandLineParamName = "L", commandLineParamSynopsis = "-L",
+    commandLineParamIsFlag = true, displayOrder = 11)
+  public void setLowerCaseTokens(boolean downCaseTokens) {
+    m_LowerCaseTokens = downCaseTokens;
+  }
+
+  /**
+   * Gets whether if the tokens are to be downcased or not.
+   *
+   * @return true if the tokens are to be downcased.
+   */
+  public boolean getLowerCaseTokens() {
+    return m_LowerCaseTokens;
+  }
+
+  /**
+   * the stemming algorithm to use, null means no stemming at all (i.e., the
+   * NullStemmer is used).
+   *
+   * @param value the configured stemming algorithm, or null
+   * @see NullStemmer
+   */
+  @OptionMetadata(displayName = "Stemmer to use",
+    description = "The stemming algorithm (classname plus parameters) to use.",
+    commandLineParamName = "stemmer",
+    commandLineParamSynopsis = "-stemmer <spec>", displayOrder = 12)
+  public void setStemmer(Stemmer value) {
+    if (value != null) {
+      m_Stemmer = value;
+    } else {
+      m_Stemmer = new NullStemmer();
+    }
+  }
+
+  /**
+   * Returns the current stemming algorithm.
+   *
+   * @return the current stemming algorithm
+   */
+  public Stemmer getStemmer() {
+    return m_Stemmer;
+  }
+
+  /**
+   * Sets the stopwords handler to use.
+   *
+   * @param value the stopwords handler, if null, Null is used
+   */
+  @OptionMetadata(displayName = "Stop words handler",
+    description = "The stopwords handler to use (default = Null)",
+    commandLineParamName = "stopwords-handler",
+    commandLineParamSynopsis = "-stopwords-handler <spec>", displayOrder = 13)
+  public void setStopwordsHandler(StopwordsHandler value) {
+    if (value != null) {
+      m_StopwordsHandler = value;
+    } else {
+      m_StopwordsHandler = new Null();
+    }
+  }
+
+  /**
+   * Gets the stopwords handler.
+   *
+   * @return the stopwords handler
+   */
+  public StopwordsHandler getStopwordsHandler() {
+    return m_StopwordsHandler;
+  }
+
+  /**
+   * the tokenizer algorithm to use.
+   *
+   * @param value the configured tokenizing algorithm
+   */
+  @OptionMetadata(displayName = "Tokenizer",
+    description = "The tokenizing algorithm (classname plus parameters) to "
+      + "use.\n(default: weka.core.tokenizers.WordTokenizer)",
+    commandLineParamName = "tokenizer",
+    commandLineParamSynopsis = "-tokenizer <spec>", displayOrder = 14)
+  public void setTokenizer(Tokenizer value) {
+    m_Tokenizer = value;
+  }
+
+  /**
+   * Returns the current tokenizer algorithm.
+   *
+   * @return the current tokenizer algorithm
+   */
+  public Tokenizer getTokenizer() {
+    return m_Tokenizer;
+  }
+
+  /**
+   * Resets the filter, including the document frequencies.
+   */
+  @Override
+  protected void reset() {
+    super.reset();
+
+    m_DocFrequencies = null;
+    m_NumDocs = 0;
+  }
+
+  /**
+   * Returns the 64 bit hash of a token: 64 bit FNV-1a over the characters,
+   * followed by a bit mixer.
+   *
+   * @param token the token
+   * @return the hash
+   */
+  protected static long hash(String token) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < token.length(); i++) {
+      h ^= token.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    return CountMinSketch.mix(h);
+  }
+
+  /**
+   * Determines the output format: the attributes that are not converted,
+   * followed by the word attributes.
+   *
+   * @param inputFormat the input format to base the output format on
+   * @return the output format
+   * @throws Exception if the number of bits or the sketch size are invalid
+   */
+  @Override
+  protected Instances determineOutputFormat(Instances inputFormat)
+    throws Exception {
+
+    if (m_NumBits < 1 || m_NumBits > 30) {
+      throw new Exception("Number of bits needs to be between 1 and 30!");
+    }
+
+    m_SelectedRange.setUpper(inputFormat.numAttributes() - 1);
+
+    ArrayList<Attribute> atts = new ArrayList<Attribute>();
+    ArrayList<Integer> kept = new ArrayList<Integer>();
+    int classIndex = -1;
+    for (int i = 0; i < inputFormat.numAttributes(); i++) {
+      if (!isConverted(inputFormat, i)) {
+        if (inputFormat.classIndex() == i) {
+          classIndex = atts.size();
+        }
+        atts.add((Attribute) inputFormat.attribute(i).copy());
+        kept.add(i);
+      }
+    }
+    m_WordOffset = atts.size();
+    for (int i = 0; i < (1 << m_NumBits); i++) {
+      atts.add(new Attribute(m_Prefix + i));
+    }
+
+    // locate the string and relational values of the attributes that are
+    // passed through
+    int[] indices = new int[kept.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = kept.get(i);
+    }
+    initInputLocators(getInputFormat(), indices);
+
+    if (m_IDFTransform) {
+      m_DocFrequencies = new CountMinSketch(m_SketchWidth, m_SketchDepth);
+    }
+    m_NumDocs = 0;
+
+    Instances result = new Instances(inputFormat.relationName(), atts, 0);
+    result.setClassIndex(classIndex);
+
+    return result;
+  }
+
+  /**
+   * Returns true if the given attribute is converted.
+   *
+   * @param format the input format
+   * @param index the index of the attribute
+   * @return true if the attribute is a selected string attribute
+   */
+  protected boolean isConverted(Instances format, int index) {
+    return m_SelectedRange.isInRange(index)
+      && format.attribute(index).isString();
+  }
+
+  /**
+   * Converts an instance.
+   *
+   * @param instance the instance to convert
+   * @return the converted instance
+   * @throws Exception if the conversion fails
+   */
+  @Override
+  protected Instance process(Instance instance) throws Exception {
+
+    int numWords = 1 << m_NumBits;
+    if (m_TokenCounts == null) {
+      m_TokenCounts = new HashMap<String, int[]>();
+    }
+    if (m_Sums == null || m_Sums.length != numWords) {
+      m_Sums = new double[numWords];
+      m_IsTouched = new boolean[numWords];
+      m_Touched = new int[16];
+    }
+
+    // count the tokens of the document
+    m_TokenCounts.clear();
+    for (int i = 0; i < instance.numAttributes(); i++) {
+      if (!isConverted(getInputFormat(), i) || instance.isMissing(i)) {
+        continue;
+      }
+      m_Tokenizer.tokenize(instance.stringValue(i));
+      Token token;
+      while ((token = m_Tokenizer.nextToken()) != null) {
+        if (m_LowerCaseTokens) {
+          token.toLowerCase();
+        }
+        String word;
+        if (m_Stemmer instanceof NullStemmer) {
+          if (AbstractStopwords.isStopword(m_StopwordsHandler, token)) {
+            continue;
+          }
+          word = token.toString();
+        } else {
+          word = m_Stemmer.stem(token.toString());
+          if (m_StopwordsHandler.isStopword(word)) {
+            continue;
+          }
+        }
+        int[] count = m_TokenCounts.get(word);
+        if (count == null) {
+          m_TokenCounts.put(word, new int[] { 1 });
+        } else {
+          count[0]++;
+        }
+      }
+    }
+
+    if (m_IDFTransform) {
+      if (m_DocFrequencies == null) {
+        m_DocFrequencies = new CountMinSketch(m_SketchWidth, m_SketchDepth);
+      }
+      m_NumDocs++;
+    }
+
+    // add up the contributions of the tokens
+    int numTouched = 0;
+    int mask = numWords - 1;
+    for (Map.Entry<String, int[]> e : m_TokenCounts.entrySet()) {
+      long h = hash(e.getKey());
+      double value = m_OutputCounts ? e.getValue()[0] : 1;
+      if (m_TFTransform) {
+        value = Math.log(value + 1);
+      }
+      if (m_IDFTransform) {
+        m_DocFrequencies.add(h);
+        double docCount =
+          Math.min(m_DocFrequencies.estimate(h), (double) m_NumDocs);
+        value *= Math.log(m_NumDocs / docCount);
+      }
+      if (!m_Unsigned && h < 0) {
+        value = -value;
+      }
+
+      int index = (int) (h & mask);
+      if (!m_IsTouched[index]) {
+        if (numTouched == m_Touched.length) {
+          m_Touched = Arrays.copyOf(m_Touched, 2 * numTouched);
+        }
+        m_Touched[numTouched++] = index;
+        m_IsTouched[index] = true;
+      }
+      m_Sums[index] += value;
+    }
+    Arrays.sort(m_Touched, 0, numTouched);
+
+    // the attributes that are passed through come first
+    double[] values = new double[m_WordOffset + numTouched];
+    int[] indices = new int[m_WordOffset + numTouched];
+    int numValues = 0;
+    int outIndex = 0;
+    for (int i = 0; i < instance.numAttributes(); i++) {
+      if (!isConverted(getInputFormat(), i)) {
+        if (instance.value(i) != 0) {
+          values[numValues] = instance.value(i);
+          indices[numValues++] = outIndex;
+        }
+        outIndex++;
+      }
+    }
+
+    // collisions may have cancelled out some of the word attributes
+    for (int i = 0; i < numTouched; i++) {
+      int index = m_Touched[i];
+      if (m_Sums[index] != 0) {
+        values[numValues] = m_Sums[index];
+        indices[numValues++] = m_WordOffset + index;
+      }
+      m_Sums[index] = 0;
+      m_IsTouched[index] = false;
+    }
+
+    Instances outputFormat = outputFormatPeek();
+    Instance result = new SparseInstance(instance.weight(),
+      Arrays.copyOf(values, numValues), Arrays.copyOf(indices, numValues),
+      outputFormat.numAttributes());
+
+    // copy possible strings, relational values...
+    copyValues(result, false, instance.dataset(), outputFormat);
+
+    return result;
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+
+  /**
+   * Main method for testing this class.
+   *
+   * @param args should contain arguments to the filter: use -h for help
+   */
+  public static void main(String[] args) {
+    runFilter(new HashingStringToWordVector(), args);
+  }
+}
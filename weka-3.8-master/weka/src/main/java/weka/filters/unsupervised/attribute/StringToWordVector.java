@@ -124,6 +124,12 @@ import weka.filters.UnsupervisedFilter;
  *  instead of in plain text form. Use in conjunction with
  *  -dictionary</pre>
  * 
+ * <pre> -num-slots &lt;num&gt;
+ *  Number of execution slots for building the dictionary
+ *  and vectorizing the first batch.
+ *  (default 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ * 
  <!-- options-end -->
  *
  * @author Len Trigg (len@reeltwo.com)
@@ -270,6 +276,13 @@ public class StringToWordVector extends Filter implements UnsupervisedFilter,
       + "serialized object\n\tinstead of in plain text form. Use in conjunction "
       + "with\n\t-dictionary", "binary-dict", 0, "-binary-dict"));
 
+    result.addElement(new Option(
+      "\tNumber of execution slots for building the dictionary\n"
+        + "\tand vectorizing the first batch.\n"
+        + "\t(default 1 - i.e. no parallelism)\n"
+        + "\t(use 0 to auto-detect number of cores)", "num-slots", 1,
+      "-num-slots <num>"));
+
     return result.elements();
   }
 
@@ -350,6 +363,12 @@ public class StringToWordVector extends Filter implements UnsupervisedFilter,
    *  instead of in plain text form. Use in conjunction with
    *  -dictionary</pre>
    * 
+   * <pre> -num-slots &lt;num&gt;
+   *  Number of execution slots for building the dictionary
+   *  and vectorizing the first batch.
+   *  (default 1 - i.e. no parallelism)
+   *  (use 0 to auto-detect number of cores)</pre>
+   * 
    <!-- options-end -->
    *
    * @param options the list of options as an array of strings
@@ -464,6 +483,13 @@ public class StringToWordVector extends Filter implements UnsupervisedFilter,
 
     setSaveDictionaryInBinaryForm(Utils.getFlag("binary-dict", options));
 
+    value = Utils.getOption("num-slots", options);
+    if (value.length() != 0) {
+      setNumExecutionSlots(Integer.parseInt(value));
+    } else {
+      setNumExecutionSlots(1);
+    }
+
     Utils.checkForRemainingOptions(options);
   }
 
@@ -559,6 +585,10 @@ public class StringToWordVector extends Filter implements UnsupervisedFilter,
       }
     }
 
+    if (getNumExecutionSlots() != 1) {
+      result.add("-num-slots");
+      result.add("" + getNumExecutionSlots());
+    }
 
     return result.toArray(new String[result.size()]);
   }
@@ -672,10 +702,7 @@ public class StringToWordVector extends Filter implements UnsupervisedFilter,
       m_dictionaryBuilder.setPeriodicPruning(pruneRate);
       // m_dictionaryBuilder.setNormalize(m_filterType == FILTER_NORMALIZE_ALL);
 
-      for (int i = 0; i < getInputFormat().numInstances(); i++) {
-        Instance toProcess = getInputFormat().instance(i);
-        m_dictionaryBuilder.processInstance(toProcess);
-      }
+      m_dictionaryBuilder.processBatch(getInputFormat());
       m_dictionaryBuilder.finalizeDictionary();
 
       setOutputFormat(m_dictionaryBuilder.getVectorizedFormat());
@@ -1282,6 +1309,37 @@ public class StringToWordVector extends Filter implements UnsupervisedFilter,
     return "The tokenizing algorithm to use on the strings.";
   }
 
+  /**
+   * Set the number of execution slots.
+   *
+   * @param numSlots the number of execution slots (0 for one per core)
+   */
+  public void setNumExecutionSlots(int numSlots) {
+    m_dictionaryBuilder.setNumExecutionSlots(numSlots);
+  }
+
+  /**
+   * Get the number of execution slots.
+   *
+   * @return the number of execution slots
+   */
+  public int getNumExecutionSlots() {
+    return m_dictionaryBuilder.getNumExecutionSlots();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numExecutionSlotsTipText() {
+    return "The number of execution slots (threads) to use for building the "
+      + "dictionary and vectorizing the first batch (0 to use one per core). "
+      + "When the dictionary is pruned periodically, each thread prunes the "
+      + "dictionary of its own part of the data.";
+  }
+
   /**
    * Returns the revision string.
    *
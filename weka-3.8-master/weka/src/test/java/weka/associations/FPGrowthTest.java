@@ -19,8 +19,14 @@
 
 package weka.associations;
 
+import java.util.ArrayList;
+import java.util.Random;
+
 import weka.associations.AbstractAssociatorTest;
 import weka.associations.Associator;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.SparseInstance;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -44,6 +50,42 @@ public class FPGrowthTest
     return new FPGrowth();
   }
 
+  /**
+   * Tests that mining the FP-tree with several threads finds the same rules
+   * as mining it sequentially.
+   */
+  public void testParallelMining() throws Exception {
+    ArrayList<String> values = new ArrayList<String>();
+    values.add("f");
+    values.add("t");
+    ArrayList<Attribute> atts = new ArrayList<Attribute>();
+    for (int i = 0; i < 30; i++) {
+      atts.add(new Attribute("item" + i, values));
+    }
+    Instances data = new Instances("baskets", atts, 0);
+    Random random = new Random(1);
+    for (int i = 0; i < 2000; i++) {
+      SparseInstance inst = new SparseInstance(atts.size());
+      inst.setDataset(data);
+      for (int j = 0; j < atts.size(); j++) {
+        inst.setValue(j, random.nextInt(j + 2) == 0 ? 1 : 0);
+      }
+      data.add(inst);
+    }
+
+    String[] options = { "-S", "-M", "0.01", "-C", "0.5" };
+    FPGrowth sequential = new FPGrowth();
+    sequential.setOptions(options.clone());
+    sequential.buildAssociations(data);
+    FPGrowth parallel = new FPGrowth();
+    parallel.setOptions(options.clone());
+    parallel.setNumExecutionSlots(3);
+    parallel.buildAssociations(data);
+
+    assertTrue(sequential.getAssociationRules().getNumRules() > 0);
+    assertEquals(sequential.toString(), parallel.toString());
+  }
+
   public static Test suite() {
     return new TestSuite(FPGrowthTest.class);
   }
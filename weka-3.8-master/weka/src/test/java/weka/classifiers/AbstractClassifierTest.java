@@ -20,6 +20,7 @@
 package weka.classifiers;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import junit.framework.TestCase;
 import weka.classifiers.evaluation.EvaluationUtils;
@@ -30,6 +31,7 @@ import weka.core.CheckOptionHandler;
 import weka.core.CheckScheme.PostProcessor;
 import weka.core.Instances;
 import weka.core.OptionHandler;
+import weka.core.converters.ConverterUtils.DataSource;
 import weka.test.Regression;
 
 /**
@@ -123,6 +125,16 @@ public abstract class AbstractClassifierTest extends TestCase {
   /** the attribute type with the highest value */
   protected final static int LAST_CLASSTYPE = Attribute.RELATIONAL;
 
+  /** datasets with a nominal class, for getDataWithMissingValues(String) */
+  protected final static String[] NOMINAL_CLASS_DATASETS = {
+    "weka/classifiers/pmml/data/iris.arff",
+    "weka/classifiers/data/soybean.arff",
+    "weka/classifiers/data/credit-g.arff" };
+
+  /** datasets with a numeric class, for getDataWithMissingValues(String) */
+  protected final static String[] NUMERIC_CLASS_DATASETS = {
+    "weka/classifiers/data/cpu.with.vendor.arff" };
+
   /**
    * wether classifier can predict nominal attributes (array index is attribute
    * type of class)
@@ -247,6 +259,34 @@ public abstract class AbstractClassifierTest extends TestCase {
     return result;
   }
 
+  /**
+   * Loads a dataset from the test resources, using the last attribute as
+   * class, and sets about 10% of the other attribute values to missing
+   * (Random(1), so the dataset is the same every time).
+   * 
+   * @param resource the resource name of the dataset
+   * @return the dataset with missing values
+   * @throws Exception if the dataset can't be read
+   */
+  protected static Instances getDataWithMissingValues(String resource)
+    throws Exception {
+    Instances data;
+    Random random;
+
+    data = DataSource.read(ClassLoader.getSystemResourceAsStream(resource));
+    data.setClassIndex(data.numAttributes() - 1);
+    random = new Random(1);
+    for (int i = 0; i < data.numInstances(); i++) {
+      for (int j = 0; j < data.numAttributes(); j++) {
+        if ((j != data.classIndex()) && (random.nextDouble() < 0.1)) {
+          data.instance(i).setMissing(j);
+        }
+      }
+    }
+
+    return data;
+  }
+
   /**
    * Called by JUnit before each test method. This implementation creates the
    * default classifier to test and loads a test set of Instances.
@@ -21,7 +21,14 @@ package weka.classifiers.bayes;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Attribute;
 import weka.core.CheckScheme.PostProcessor;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -55,6 +62,57 @@ public class NaiveBayesMultinomialTest
     return new AbsPostProcessor();
   }
 
+  /**
+   * Returns random sparse word counts with a nominal class as first
+   * attribute and integer weights.
+   *
+   * @return the data
+   */
+  protected static Instances sparseWordCounts() {
+    ArrayList<Attribute> atts = new ArrayList<Attribute>();
+    atts.add(new Attribute("class", Arrays.asList("a", "b", "c")));
+    for (int i = 0; i < 50; i++) {
+      atts.add(new Attribute("word" + i));
+    }
+    Instances data = new Instances("words", atts, 200);
+    data.setClassIndex(0);
+    Random random = new Random(42);
+    for (int n = 0; n < 200; n++) {
+      double[] values = new double[atts.size()];
+      values[0] = random.nextInt(3);
+      for (int i = 1; i < values.length; i++) {
+        if (random.nextInt(4) == 0) {
+          values[i] = 1 + random.nextInt(5);
+        }
+      }
+      data.add(new SparseInstance(1 + random.nextInt(3), values));
+    }
+    return data;
+  }
+
+  /**
+   * Tests that counting the words with several threads gives the same model
+   * as counting them with one.
+   *
+   * @throws Exception if building or prediction fails
+   */
+  public void testNumExecutionSlots() throws Exception {
+    Instances data = sparseWordCounts();
+
+    NaiveBayesMultinomial sequential = (NaiveBayesMultinomial) getClassifier();
+    sequential.buildClassifier(data);
+    NaiveBayesMultinomial parallel = (NaiveBayesMultinomial) getClassifier();
+    parallel.setNumExecutionSlots(3);
+    parallel.buildClassifier(data);
+
+    assertEquals(sequential.toString(), parallel.toString());
+    for (int i = 0; i < data.numInstances(); i++) {
+      assertTrue("distributions differ for instance " + i,
+        Arrays.equals(sequential.distributionForInstance(data.instance(i)),
+          parallel.distributionForInstance(data.instance(i))));
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(NaiveBayesMultinomialTest.class);
   }
@@ -21,6 +21,16 @@ package weka.classifiers.bayes;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -41,6 +51,62 @@ public class NaiveBayesTest extends AbstractClassifierTest {
     return new NaiveBayes();
   }
 
+  /**
+   * Tests that training on sparse instances, which adds the zeros in bulk,
+   * gives the same model as training on the same data as dense instances,
+   * with numeric and nominal attributes, missing values, and normal as well
+   * as kernel estimators.
+   *
+   * @throws Exception if building or prediction fails
+   */
+  public void testSparseMatchesDense() throws Exception {
+    ArrayList<Attribute> atts = new ArrayList<Attribute>();
+    for (int i = 0; i < 10; i++) {
+      atts.add(new Attribute("num" + i));
+    }
+    atts.add(new Attribute("nom", Arrays.asList("x", "y", "z")));
+    atts.add(4, new Attribute("class", Arrays.asList("a", "b")));
+    Instances dense = new Instances("dense", atts, 100);
+    dense.setClassIndex(4);
+    Instances sparse = new Instances("sparse", atts, 100);
+    sparse.setClassIndex(4);
+    Random random = new Random(1);
+    for (int n = 0; n < 100; n++) {
+      double[] values = new double[atts.size()];
+      for (int i = 0; i < values.length; i++) {
+        int r = random.nextInt(10);
+        if (i == dense.classIndex()) {
+          values[i] = random.nextInt(2);
+        } else if (r == 0) {
+          values[i] = Utils.missingValue();
+        } else if (r < 4) {
+          values[i] = atts.get(i).isNumeric() ? random.nextInt(100) / 10.0
+            : 1 + random.nextInt(2);
+        }
+      }
+      dense.add(new DenseInstance(1, values));
+      sparse.add(new SparseInstance(1, values));
+    }
+
+    for (boolean kernel : new boolean[] { false, true }) {
+      NaiveBayes fromDense = new NaiveBayes();
+      fromDense.setUseKernelEstimator(kernel);
+      fromDense.buildClassifier(dense);
+      NaiveBayes fromSparse = new NaiveBayes();
+      fromSparse.setUseKernelEstimator(kernel);
+      fromSparse.buildClassifier(sparse);
+
+      assertEquals(fromDense.toString(), fromSparse.toString());
+      for (Instance instance : dense) {
+        double[] expected = fromDense.distributionForInstance(instance);
+        double[] actual = fromSparse.distributionForInstance(instance);
+        for (int j = 0; j < expected.length; j++) {
+          assertEquals(expected[j], actual[j], 1e-10);
+        }
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(NaiveBayesTest.class);
   }
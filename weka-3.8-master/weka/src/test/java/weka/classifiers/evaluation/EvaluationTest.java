@@ -21,11 +21,15 @@ package weka.classifiers.evaluation;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Random;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import weka.classifiers.functions.LinearRegression;
+import weka.classifiers.trees.J48;
 import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
 
 /**
  * Tests Evaluation. So far just does a simple regression test for
@@ -80,6 +84,41 @@ public class EvaluationTest extends TestCase {
     }
   }
 
+  public void testParallelCrossValidation() throws Exception {
+    Instances inst = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    inst.setClassIndex(inst.numAttributes() - 1);
+
+    Evaluation sequential = new Evaluation(inst);
+    sequential.crossValidateModel(new J48(), inst, 10, new Random(1));
+    Evaluation parallel = new Evaluation(inst);
+    parallel.setNumExecutionSlots(4);
+    parallel.crossValidateModel(new J48(), inst, 10, new Random(1));
+
+    assertEquals(sequential.toSummaryString(), parallel.toSummaryString());
+    assertEquals(sequential.toClassDetailsString(),
+      parallel.toClassDetailsString());
+    assertEquals(sequential.predictions().size(), parallel.predictions()
+      .size());
+    for (int i = 0; i < sequential.predictions().size(); i++) {
+      assertEquals(sequential.predictions().get(i).predicted(), parallel
+        .predictions().get(i).predicted());
+    }
+
+    inst.setClassIndex(0);
+    sequential = new Evaluation(inst);
+    sequential.crossValidateModel(new LinearRegression(), inst, 5,
+      new Random(2));
+    parallel = new Evaluation(inst);
+    parallel.setNumExecutionSlots(0);
+    parallel.crossValidateModel(new LinearRegression(), inst, 5,
+      new Random(2));
+
+    assertEquals(sequential.toSummaryString(), parallel.toSummaryString());
+    assertEquals(sequential.rootMeanSquaredError(),
+      parallel.rootMeanSquaredError());
+  }
+
   public static Test suite() {
     return new TestSuite(weka.classifiers.evaluation.EvaluationTest.class);
   }
@@ -21,6 +21,8 @@ package weka.classifiers.functions;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -41,6 +43,51 @@ public class LogisticTest extends AbstractClassifierTest {
     return new Logistic();
   }
 
+  /**
+   * Builds Logistic with a ridge of 1 on the iris data, with the given
+   * optimizer and number of threads.
+   *
+   * @param data the training data
+   * @param useLBFGS whether to use L-BFGS
+   * @param numSlots the number of execution slots
+   * @return the model
+   * @throws Exception if building fails
+   */
+  protected Logistic build(Instances data, boolean useLBFGS, int numSlots)
+    throws Exception {
+    Logistic logistic = new Logistic();
+    logistic.setRidge(1.0);
+    logistic.setUseLBFGS(useLBFGS);
+    logistic.setNumExecutionSlots(numSlots);
+    logistic.buildClassifier(data);
+    return logistic;
+  }
+
+  /**
+   * Tests that L-BFGS, also with several threads, finds the same model as
+   * BFGS updates.
+   *
+   * @throws Exception if building or prediction fails
+   */
+  public void testLBFGS() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.setClassIndex(data.numAttributes() - 1);
+
+    Logistic bfgs = build(data, false, 1);
+    Logistic[] others =
+      { build(data, false, 3), build(data, true, 1), build(data, true, 3) };
+    for (Logistic other : others) {
+      for (int i = 0; i < data.numInstances(); i++) {
+        double[] expected = bfgs.distributionForInstance(data.instance(i));
+        double[] actual = other.distributionForInstance(data.instance(i));
+        for (int j = 0; j < expected.length; j++) {
+          assertEquals(expected[j], actual[j], 1e-4);
+        }
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(LogisticTest.class);
   }
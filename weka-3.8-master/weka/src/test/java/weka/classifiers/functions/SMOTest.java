@@ -21,6 +21,11 @@ package weka.classifiers.functions;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.classifiers.functions.supportVector.RBFKernel;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.Arrays;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -41,6 +46,38 @@ public class SMOTest extends AbstractClassifierTest {
     return new SMO();
   }
 
+  /**
+   * Tests that training the binary classifiers concurrently gives the same
+   * model as training them one after the other, also with a shared row
+   * cache.
+   *
+   * @throws Exception if building or prediction fails
+   */
+  public void testParallelTraining() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.setClassIndex(data.numAttributes() - 1);
+
+    for (int rowCacheMemory : new int[] { 0, 1 }) {
+      RBFKernel kernel = new RBFKernel();
+      kernel.setRowCacheMemory(rowCacheMemory);
+
+      SMO sequential = new SMO();
+      sequential.setKernel(kernel);
+      sequential.buildClassifier(data);
+      SMO parallel = new SMO();
+      parallel.setKernel(kernel);
+      parallel.setNumExecutionSlots(3);
+      parallel.buildClassifier(data);
+
+      for (int i = 0; i < data.numInstances(); i++) {
+        assertTrue("distributions differ for instance " + i,
+          Arrays.equals(sequential.distributionForInstance(data.instance(i)),
+            parallel.distributionForInstance(data.instance(i))));
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(SMOTest.class);
   }
@@ -21,6 +21,8 @@ package weka.classifiers.functions.supportVector;
 
 import weka.classifiers.functions.supportVector.AbstractKernelTest;
 import weka.classifiers.functions.supportVector.Kernel;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -44,6 +46,75 @@ public class RBFKernelTest
     return new RBFKernel();
   }
 
+  /**
+   * Tests that the row cache gives the same kernel values as the full cache,
+   * also when shared with a kernel built on a subset of the data.
+   *
+   * @throws Exception if building or evaluating the kernels fails
+   */
+  public void testRowCache() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.setClassIndex(data.numAttributes() - 1);
+
+    RBFKernel full = new RBFKernel();
+    full.setCacheSize(0);
+    full.buildKernel(data);
+    RBFKernel rows = new RBFKernel();
+    rows.setRowCacheMemory(1);
+    rows.buildKernel(data);
+    for (int i = data.numInstances() - 1; i >= 0; i--) {
+      for (int j = 0; j < data.numInstances(); j++) {
+        assertEquals("kernel values differ for " + i + " and " + j,
+          full.eval(i, j, data.instance(i)), rows.eval(i, j, data.instance(i)),
+          0);
+      }
+    }
+
+    // every other instance, in reverse order
+    Instances subset = new Instances(data, 0);
+    int[] indices = new int[data.numInstances() / 2];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = data.numInstances() - 1 - 2 * i;
+      subset.add(data.instance(indices[i]));
+    }
+    RBFKernel shared = new RBFKernel();
+    shared.setRowCacheMemory(1);
+    shared.shareRowCache(rows, indices);
+    shared.buildKernel(subset);
+    for (int i = 0; i < subset.numInstances(); i++) {
+      for (int j = 0; j < subset.numInstances(); j++) {
+        assertEquals("shared kernel values differ for " + i + " and " + j,
+          full.eval(indices[i], indices[j], data.instance(indices[i])),
+          shared.eval(i, j, subset.instance(i)), 0);
+      }
+    }
+  }
+
+  /**
+   * Tests that whole rows computed from the dense rows give the same kernel
+   * values as evaluating the entries one by one.
+   *
+   * @throws Exception if building or evaluating the kernels fails
+   */
+  public void testEvalRow() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.setClassIndex(data.numAttributes() - 1);
+
+    RBFKernel kernel = new RBFKernel();
+    kernel.setCacheSize(-1);
+    kernel.buildKernel(data);
+    double[] row = new double[data.numInstances()];
+    for (int i = 0; i < data.numInstances(); i++) {
+      kernel.evalRow(i, 0, data.numInstances(), row);
+      for (int j = 0; j < data.numInstances(); j++) {
+        assertEquals("kernel values differ for " + i + " and " + j,
+          kernel.eval(i, j, data.instance(i)), row[j], 0);
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(RBFKernelTest.class);
   }
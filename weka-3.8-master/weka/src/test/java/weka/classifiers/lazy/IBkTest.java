@@ -19,8 +19,15 @@
 
 package weka.classifiers.lazy;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -41,6 +48,50 @@ public class IBkTest extends AbstractClassifierTest {
     return new IBk();
   }
 
+  /**
+   * Tests that parallel batch prediction gives the same distributions as
+   * classifying the instances one after the other, including test instances
+   * outside the ranges of the training data.
+   *
+   * @throws Exception if training or prediction fails
+   */
+  public void testBatchPrediction() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.setClassIndex(data.numAttributes() - 1);
+    data.randomize(new Random(1));
+    int numTrain = data.numInstances() * 2 / 3;
+    Instances train = new Instances(data, 0, numTrain);
+    Instances test =
+      new Instances(data, numTrain, data.numInstances() - numTrain);
+    Random random = new Random(2);
+    for (Instance inst : test) {
+      for (int j = 0; j < test.classIndex(); j++) {
+        if (random.nextDouble() < 0.1) {
+          inst.setValue(j, inst.value(j) * 1.5);
+        } else if (random.nextDouble() < 0.1) {
+          inst.setMissing(j);
+        }
+      }
+    }
+
+    for (String options : new String[] { "", "-K 5 -I", "-K 10 -X -F" }) {
+      IBk sequential = new IBk();
+      sequential.setOptions(Utils.splitOptions(options));
+      sequential.buildClassifier(train);
+      IBk parallel = new IBk();
+      parallel.setOptions(Utils.splitOptions(options + " -num-slots 3"));
+      parallel.buildClassifier(train);
+
+      double[][] batch = parallel.distributionsForInstances(test);
+      for (int i = 0; i < test.numInstances(); i++) {
+        assertTrue("distributions differ for instance " + i + " with options \""
+          + options + "\"", Arrays.equals(
+            sequential.distributionForInstance(test.instance(i)), batch[i]));
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(IBkTest.class);
   }
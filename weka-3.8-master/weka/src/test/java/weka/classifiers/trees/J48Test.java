@@ -21,6 +21,10 @@ package weka.classifiers.trees;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.Arrays;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -41,6 +45,31 @@ public class J48Test extends AbstractClassifierTest {
     return new J48();
   }
 
+  /**
+   * Tests that batch prediction with the flattened tree gives the same
+   * distributions as predicting the instances one at a time, for several
+   * settings and with missing values.
+   *
+   * @throws Exception if building or prediction fails
+   */
+  public void testBatchPrediction() throws Exception {
+    for (String dataset : NOMINAL_CLASS_DATASETS) {
+      Instances data = getDataWithMissingValues(dataset);
+      for (String options : new String[] { "", "-B -A", "-U", "-R" }) {
+        J48 tree = new J48();
+        tree.setOptions(Utils.splitOptions(options));
+        tree.buildClassifier(data);
+
+        double[][] batch = tree.distributionsForInstances(data);
+        for (int i = 0; i < data.numInstances(); i++) {
+          assertTrue("distributions differ for instance " + i + " of "
+            + dataset + " with options \"" + options + "\"", Arrays.equals(
+              tree.distributionForInstance(data.instance(i)), batch[i]));
+        }
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(J48Test.class);
   }
@@ -21,6 +21,9 @@ package weka.classifiers.trees;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.Arrays;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -34,6 +37,15 @@ import junit.framework.TestSuite;
  */
 public class REPTreeTest extends AbstractClassifierTest {
 
+  /**
+   * datasets for testHistogramMode(), none with more than 256 distinct
+   * values in a numeric attribute
+   */
+  protected final static String[] HISTOGRAM_DATASETS = {
+    "weka/classifiers/pmml/data/iris.arff",
+    "weka/classifiers/data/soybean.arff",
+    "weka/classifiers/data/cpu.with.vendor.arff" };
+
   public REPTreeTest(String name) { super(name);  }
 
   /** Creates a default REPTree */
@@ -41,6 +53,61 @@ public class REPTreeTest extends AbstractClassifierTest {
     return new REPTree();
   }
 
+  /**
+   * Tests that a tree grown from histograms, with a bin for every distinct
+   * value, is the same as the tree grown by exact split search, also with
+   * missing values. The class counts are summed in a different order, so the
+   * distributions may differ by rounding errors.
+   *
+   * @throws Exception if building fails
+   */
+  public void testHistogramMode() throws Exception {
+    for (String dataset : HISTOGRAM_DATASETS) {
+      Instances data = getDataWithMissingValues(dataset);
+      REPTree exact = new REPTree();
+      exact.buildClassifier(data);
+      REPTree binned = new REPTree();
+      binned.setNumBins(256);
+      binned.buildClassifier(data);
+
+      assertEquals("tree sizes differ for " + dataset, exact.numNodes(),
+        binned.numNodes());
+      for (int i = 0; i < data.numInstances(); i++) {
+        double[] expected = exact.distributionForInstance(data.instance(i));
+        double[] actual = binned.distributionForInstance(data.instance(i));
+        for (int k = 0; k < expected.length; k++) {
+          assertEquals("distributions differ for instance " + i + " of "
+            + dataset, expected[k], actual[k], 1e-12);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that batch prediction with the flattened tree gives the same
+   * distributions as predicting the instances one at a time, also with
+   * missing values.
+   *
+   * @throws Exception if building or prediction fails
+   */
+  public void testBatchPrediction() throws Exception {
+    for (String[] datasets : new String[][] { NOMINAL_CLASS_DATASETS,
+      NUMERIC_CLASS_DATASETS }) {
+      for (String dataset : datasets) {
+        Instances data = getDataWithMissingValues(dataset);
+        REPTree tree = new REPTree();
+        tree.buildClassifier(data);
+
+        double[][] batch = tree.distributionsForInstances(data);
+        for (int i = 0; i < data.numInstances(); i++) {
+          assertTrue("distributions differ for instance " + i + " of "
+            + dataset, Arrays.equals(
+              tree.distributionForInstance(data.instance(i)), batch[i]));
+        }
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(REPTreeTest.class);
   }
@@ -21,6 +21,11 @@ package weka.classifiers.trees;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.classifiers.meta.Bagging;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.Arrays;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -44,6 +49,67 @@ public class RandomForestTest
     return new RandomForest();
   }
 
+  /**
+   * Tests that the trees grown from the presorted data of the forest are the
+   * same as the ones grown by bagging random trees, also with several
+   * threads.
+   *
+   * @throws Exception if building fails
+   */
+  public void testPresortedData() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.setClassIndex(data.numAttributes() - 1);
+
+    Bagging bagging = new Bagging();
+    RandomTree tree = new RandomTree();
+    tree.setKValue(3);
+    bagging.setClassifier(tree);
+    bagging.setNumIterations(10);
+    bagging.setRepresentCopiesUsingWeights(true);
+    bagging.buildClassifier(data);
+
+    for (int numSlots : new int[] { 1, 3 }) {
+      RandomForest forest = new RandomForest();
+      forest.setNumFeatures(3);
+      forest.setNumIterations(10);
+      forest.setNumExecutionSlots(numSlots);
+      forest.buildClassifier(data);
+
+      for (int i = 0; i < data.numInstances(); i++) {
+        assertTrue("distributions differ for instance " + i,
+          Arrays.equals(bagging.distributionForInstance(data.instance(i)),
+            forest.distributionForInstance(data.instance(i))));
+      }
+    }
+  }
+
+  /**
+   * Tests that batch prediction with the flattened trees gives the same
+   * distributions as predicting the instances one at a time, also with
+   * missing values.
+   *
+   * @throws Exception if building or prediction fails
+   */
+  public void testBatchPrediction() throws Exception {
+    for (String[] datasets : new String[][] { NOMINAL_CLASS_DATASETS,
+      NUMERIC_CLASS_DATASETS }) {
+      for (String dataset : datasets) {
+        Instances data = getDataWithMissingValues(dataset);
+        RandomForest forest = new RandomForest();
+        forest.setNumIterations(10);
+        forest.buildClassifier(data);
+
+        double[][] batch = forest.distributionsForInstances(data);
+        for (int i = 0; i < data.numInstances(); i++) {
+          assertTrue("distributions differ for instance " + i + " of "
+            + dataset, Arrays.equals(
+              forest.distributionForInstance(data.instance(i)), batch[i]));
+        }
+      }
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(RandomForestTest.class);
   }
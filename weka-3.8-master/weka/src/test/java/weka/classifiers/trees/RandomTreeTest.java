@@ -21,6 +21,10 @@ package weka.classifiers.trees;
 
 import weka.classifiers.AbstractClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.Arrays;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -44,6 +48,31 @@ public class RandomTreeTest
     return new RandomTree();
   }
 
+  /**
+   * Tests that a tree grown from histograms, with a bin for every distinct
+   * value, classifies the training data like the tree grown by exact split
+   * search.
+   *
+   * @throws Exception if building fails
+   */
+  public void testHistogramMode() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.setClassIndex(data.numAttributes() - 1);
+
+    RandomTree exact = new RandomTree();
+    exact.buildClassifier(data);
+    RandomTree binned = new RandomTree();
+    binned.setNumBins(256);
+    binned.buildClassifier(data);
+
+    for (int i = 0; i < data.numInstances(); i++) {
+      assertTrue("distributions differ for instance " + i,
+        Arrays.equals(exact.distributionForInstance(data.instance(i)),
+          binned.distributionForInstance(data.instance(i))));
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(RandomTreeTest.class);
   }
@@ -21,6 +21,9 @@ package weka.clusterers;
 
 import weka.clusterers.AbstractClustererTest;
 import weka.clusterers.Clusterer;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.converters.ConverterUtils.DataSource;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -44,6 +47,51 @@ public class HierarchicalClustererTest
     return new HierarchicalClusterer();
   }
 
+  /**
+   * Builds a clusterer with the given link type, engine and number of
+   * execution slots on the data and returns its cluster assignments followed
+   * by its Newick output.
+   */
+  protected String buildAndDescribe(Instances data, int linkType,
+    boolean oldEngine, int numSlots) throws Exception {
+    HierarchicalClusterer clusterer = new HierarchicalClusterer();
+    clusterer.setNumClusters(3);
+    clusterer.setLinkType(new SelectedTag(linkType,
+      HierarchicalClusterer.TAGS_LINK_TYPE));
+    // the old engine is only used when debugging output is switched on
+    clusterer.setDebug(oldEngine);
+    clusterer.setNumExecutionSlots(numSlots);
+    clusterer.buildClusterer(data);
+
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < data.numInstances(); i++) {
+      result.append(clusterer.clusterInstance(data.instance(i))).append(' ');
+    }
+    result.append('\n').append(clusterer.graph());
+    return result.toString();
+  }
+
+  /**
+   * Checks that the SLINK and nearest-neighbour chain engines, with one and
+   * with several execution slots, give the same clusters and hierarchy as the
+   * original engine.
+   */
+  public void testEnginesAgree() throws Exception {
+    Instances data = DataSource.read(ClassLoader
+      .getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    data.deleteAttributeAt(data.numAttributes() - 1);
+
+    int[] linkTypes = { HierarchicalClusterer.SINGLE,
+      HierarchicalClusterer.COMPLETE, HierarchicalClusterer.AVERAGE };
+    for (int linkType : linkTypes) {
+      String expected = buildAndDescribe(data, linkType, true, 1);
+      assertEquals("link type " + linkType + ", 1 slot", expected,
+        buildAndDescribe(data, linkType, false, 1));
+      assertEquals("link type " + linkType + ", 4 slots", expected,
+        buildAndDescribe(data, linkType, false, 4));
+    }
+  }
+
   public static Test suite() {
     return new TestSuite(HierarchicalClustererTest.class);
   }
@@ -0,0 +1,102 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests CharArrayTrie. Run from the command line with:<p/>
+ * java weka.core.CharArrayTrieTest
+ *
+ * @version $Revision$
+ */
+public class CharArrayTrieTest
+  extends TestCase {
+
+  /** holds the data for testing the trie */
+  protected String[] m_Data;
+
+  /** the trie built from m_Data */
+  protected CharArrayTrie m_Trie;
+
+  /**
+   * Constructs the <code>CharArrayTrieTest</code>.
+   *
+   * @param name the name of the test class
+   */
+  public CharArrayTrieTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Called by JUnit before each test method.
+   *
+   * @throws Exception if an error occurs
+   */
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    m_Data = new String[]{"the", "then", "them", "a", "an", "and", "", "zero"};
+    m_Trie = new CharArrayTrie(Arrays.asList(m_Data));
+  }
+
+  /**
+   * tests whether all strings the trie got built with are found again.
+   */
+  public void testContains() {
+    assertEquals("size", m_Data.length, m_Trie.size());
+    for (int i = 0; i < m_Data.length; i++)
+      assertTrue("Cannot find '" + m_Data[i] + "'", m_Trie.contains(m_Data[i]));
+  }
+
+  /**
+   * tests that prefixes, extensions and other strings are not found.
+   */
+  public void testNotContains() {
+    String[] other = new String[]{"th", "they", "b", "ann", "zer", "zeros", "The"};
+    for (int i = 0; i < other.length; i++)
+      assertFalse("Found '" + other[i] + "'", m_Trie.contains(other[i]));
+  }
+
+  /**
+   * tests the lookup of ranges, with and without lower-casing.
+   */
+  public void testRange() {
+    String s = "say THEN and";
+    assertTrue(m_Trie.contains(s, 4, 8, true));
+    assertFalse(m_Trie.contains(s, 4, 8, false));
+    assertTrue(m_Trie.contains(s, 9, 12, false));
+    assertTrue(m_Trie.contains(s, 9, 10, false));
+    assertFalse(m_Trie.contains(s, 0, 3, true));
+  }
+
+  public static Test suite() {
+    return new TestSuite(CharArrayTrieTest.class);
+  }
+
+  public static void main(String[] args){
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import weka.classifiers.trees.J48;
+import weka.core.converters.ConverterUtils.DataSource;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Standardize;
+
+/**
+ * Tests ColumnarInstances. Run from the command line with:<p/>
+ * java weka.core.ColumnarInstancesTest
+ *
+ * @version $Revision$
+ */
+public class ColumnarInstancesTest
+  extends TestCase {
+
+  /** the test instances to work with. */
+  protected Instances m_Instances;
+
+  /**
+   * Constructs the <code>ColumnarInstancesTest</code>.
+   *
+   * @param name 	the name of the test
+   */
+  public ColumnarInstancesTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Called by JUnit before each test method.
+   *
+   * @throws Exception 	if an error occurs
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    m_Instances = DataSource.read(ClassLoader.getSystemResourceAsStream("weka/core/data/InstancesTest.arff"));
+  }
+
+  /**
+   * Called by JUnit after each test method.
+   *
+   * @throws Exception 	if an error occurs
+   */
+  protected void tearDown() throws Exception {
+    m_Instances = null;
+
+    super.tearDown();
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(ColumnarInstancesTest.class);
+  }
+
+  /**
+   * Checks that two datasets hold the same values and weights.
+   */
+  protected void assertSameValues(Instances expected, Instances actual) {
+    assertEquals("# of instances differ", expected.numInstances(), actual.numInstances());
+    for (int i = 0; i < expected.numInstances(); i++) {
+      assertTrue("values of instance " + i + " differ",
+        Arrays.equals(expected.instance(i).toDoubleArray(), actual.instance(i).toDoubleArray()));
+      assertEquals("weight of instance " + i + " differs",
+        expected.instance(i).weight(), actual.instance(i).weight(), 0);
+    }
+  }
+
+  /**
+   * Tests the copy of a dataset, on and off the heap.
+   */
+  public void testCopy() {
+    for (boolean offHeap : new boolean[]{false, true}) {
+      ColumnarInstances data = new ColumnarInstances(m_Instances, offHeap);
+
+      assertEquals("off-heap flag", offHeap, data.isOffHeap());
+      assertEquals("# of attributes differ", m_Instances.numAttributes(), data.numAttributes());
+      assertSameValues(m_Instances, data);
+      assertEquals("string values differ", m_Instances.instance(3).stringValue(0), data.instance(3).stringValue(0));
+      assertTrue("views expected", data.instance(0) instanceof ColumnarInstance);
+      assertTrue("copies should be dense", data.instance(0).copy() instanceof DenseInstance);
+    }
+  }
+
+  /**
+   * Tests that changing a value only changes that instance.
+   */
+  public void testSetValue() {
+    ColumnarInstances data = new ColumnarInstances(m_Instances);
+    Instance copy = (Instance) data.instance(0).copy();
+
+    data.instance(0).setValue(2, 42.0);
+    data.instance(1).setWeight(3.0);
+
+    assertEquals("value not set", 42.0, data.instance(0).value(2), 0);
+    assertEquals("copy changed", m_Instances.instance(0).value(2), copy.value(2), 0);
+    assertEquals("other instance changed", m_Instances.instance(1).value(2), data.instance(1).value(2), 0);
+    assertEquals("weight not set", 3.0, data.instance(1).weight(), 0);
+
+    Instance old = data.set(0, m_Instances.instance(5));
+    assertEquals("replaced instance changed", 42.0, old.value(2), 0);
+    assertEquals("instance not replaced", m_Instances.instance(5).value(2), data.instance(0).value(2), 0);
+  }
+
+  /**
+   * Tests the column access after reordering and deleting instances.
+   */
+  public void testColumn() {
+    ColumnarInstances data = new ColumnarInstances(m_Instances, true);
+    Instances plain = new Instances(m_Instances);
+
+    data.randomize(new Random(1));
+    plain.randomize(new Random(1));
+    data.delete(3);
+    plain.delete(3);
+
+    assertSameValues(plain, data);
+    assertTrue("attribute values differ",
+      Arrays.equals(plain.attributeToDoubleArray(5), data.attributeToDoubleArray(5)));
+
+    DoubleBuffer column = data.column(5);
+    assertEquals("column size", plain.numInstances(), column.remaining());
+    for (int i = 0; i < plain.numInstances(); i++) {
+      assertEquals("column value " + i, plain.instance(i).value(5), column.get(i), 0);
+    }
+    assertSameValues(plain, data);
+  }
+
+  /**
+   * Tests deleting, inserting and replacing attributes.
+   */
+  public void testStructure() {
+    ColumnarInstances data = new ColumnarInstances(m_Instances);
+    Instances plain = new Instances(m_Instances);
+
+    data.deleteAttributeAt(1);
+    plain.deleteAttributeAt(1);
+    assertSameValues(plain, data);
+
+    data.insertAttributeAt(new Attribute("new"), 2);
+    plain.insertAttributeAt(new Attribute("new"), 2);
+    assertSameValues(plain, data);
+
+    data.instance(4).setValue(2, 1.5);
+    plain.instance(4).setValue(2, 1.5);
+    assertSameValues(plain, data);
+
+    data.replaceAttributeAt(new Attribute("other"), 1);
+    plain.replaceAttributeAt(new Attribute("other"), 1);
+    assertSameValues(plain, data);
+  }
+
+  /**
+   * Tests that deleted instances keep their values when the columns change.
+   */
+  public void testDeletedInstances() {
+    ColumnarInstances data = new ColumnarInstances(m_Instances);
+
+    Instance deleted = data.instance(2);
+    data.delete(2);
+    Instance removed = data.remove(4);
+    data.deleteAttributeAt(1);
+    data.insertAttributeAt(new Attribute("new"), 0);
+
+    assertTrue("values of deleted instance changed",
+      Arrays.equals(m_Instances.instance(2).toDoubleArray(), deleted.toDoubleArray()));
+    assertTrue("values of removed instance changed",
+      Arrays.equals(m_Instances.instance(5).toDoubleArray(), removed.toDoubleArray()));
+
+    deleted.setValue(2, 42.0);
+    assertEquals("deleted instance wrote into the columns",
+      m_Instances.instance(3).value(3), data.instance(2).value(3), 0);
+  }
+
+  /**
+   * Tests that the rows of deleted instances are reclaimed.
+   */
+  public void testReclaimRows() {
+    Instances plain = new Instances(m_Instances, 0);
+    while (plain.numInstances() < 4 * ColumnarInstances.MIN_FREE_ROWS) {
+      for (int i = 0; i < m_Instances.numInstances(); i++) {
+        plain.add(m_Instances.instance(i));
+      }
+    }
+    ColumnarInstances data = new ColumnarInstances(plain);
+
+    while (plain.numInstances() > 10) {
+      data.delete(plain.numInstances() / 2);
+      plain.delete(plain.numInstances() / 2);
+
+      int free = data.m_Store.m_NumRows - data.numInstances();
+      assertTrue("too many unused rows: " + free,
+        free < ColumnarInstances.MIN_FREE_ROWS || free <= data.numInstances());
+    }
+    assertSameValues(plain, data);
+  }
+
+  /**
+   * Tests serialization of off-heap columns.
+   *
+   * @throws Exception	if serialization fails
+   */
+  public void testSerialization() throws Exception {
+    ColumnarInstances data = new ColumnarInstances(m_Instances, true);
+    Instances copy = (Instances) new SerializedObject(data).getObject();
+
+    assertSameValues(data, copy);
+    copy.instance(0).setValue(2, 42.0);
+    assertEquals("original changed", m_Instances.instance(0).value(2), data.instance(0).value(2), 0);
+  }
+
+  /**
+   * Tests that classifiers and filters give the same results as with regular
+   * instances.
+   *
+   * @throws Exception	if training or filtering fails
+   */
+  public void testUnchangedResults() throws Exception {
+    Instances plain = DataSource.read(ClassLoader.getSystemResourceAsStream("weka/classifiers/pmml/data/iris.arff"));
+    plain.setClassIndex(plain.numAttributes() - 1);
+    Instances data = new ColumnarInstances(plain, true);
+
+    J48 j48 = new J48();
+    j48.buildClassifier(plain);
+    String expected = j48.toString();
+    j48.buildClassifier(data);
+    assertEquals("models differ", expected, j48.toString());
+
+    Standardize filter = new Standardize();
+    filter.setInputFormat(plain);
+    Instances expectedData = Filter.useFilter(plain, filter);
+    filter = new Standardize();
+    filter.setInputFormat(data);
+    assertSameValues(expectedData, Filter.useFilter(data, filter));
+  }
+
+  /**
+   * Executes the test from command-line.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args){
+    TestRunner.run(suite());
+  }
+}
@@ -24,6 +24,7 @@ package weka.core;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.Map;
+import java.util.Random;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -411,6 +412,48 @@ public class DictionaryBuilderTest extends TestCase {
     assertEquals(2, consolidated.size());
   }
 
+  public void testProcessBatchInParallel() throws Exception {
+    Instances data2 = getData2();
+    Instances data = new Instances(data2, 0);
+    String[] words = data2.instance(0).stringValue(0).split(" ");
+    Random r = new Random(1);
+    for (int i = 0; i < 50; i++) {
+      StringBuilder doc = new StringBuilder();
+      for (int j = 0; j < 6; j++) {
+        doc.append(words[r.nextInt(words.length)]).append(r.nextInt(10))
+          .append(' ');
+      }
+      double[] vals = new double[2];
+      vals[0] = data.attribute(0).addStringValue(doc.toString());
+      vals[1] = r.nextInt(2);
+      data.add(new DenseInstance(1.0, vals));
+    }
+
+    DictionaryBuilder sequential = new DictionaryBuilder();
+    sequential.setOutputWordCounts(true);
+    sequential.setIDFTransform(true);
+    sequential.setup(new Instances(data, 0));
+    sequential.processBatch(data);
+    Map<String, int[]> dict1 = sequential.finalizeDictionary();
+    Instances vectorized1 = sequential.vectorizeBatch(data, false);
+
+    DictionaryBuilder parallel = new DictionaryBuilder();
+    parallel.setOutputWordCounts(true);
+    parallel.setIDFTransform(true);
+    parallel.setNumExecutionSlots(3);
+    parallel.setup(new Instances(data, 0));
+    parallel.processBatch(data);
+    Map<String, int[]> dict2 = parallel.finalizeDictionary();
+    Instances vectorized2 = parallel.vectorizeBatch(data, false);
+
+    // same words in the same (insertion) order with the same counts
+    assertEquals(dict1.keySet().toString(), dict2.keySet().toString());
+    for (Map.Entry<String, int[]> e : dict1.entrySet()) {
+      assertEquals(e.getValue()[1], dict2.get(e.getKey())[1]);
+    }
+    assertEquals(vectorized1.toString(), vectorized2.toString());
+  }
+
   public void testListOptions() {
     CheckOptionHandler optionHandler = new CheckOptionHandler();
     DictionaryBuilder builder = new DictionaryBuilder();
@@ -19,8 +19,15 @@
 
 package weka.core.converters;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.Arrays;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import weka.core.Instances;
 
 /**
  * Tests ArffLoader/ArffSaver. Run from the command line with:<p/>
@@ -59,6 +66,54 @@ public class ArffTest
     return new ArffSaver();
   }
 
+  /**
+   * tests that memory-mapped loading gives the same data as the regular
+   * reader, with one and several threads.
+   * 
+   * @throws Exception if loading fails
+   */
+  public void testMappedBatch() throws Exception {
+    File file = new File(m_SourceFilename);
+    BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+    writer.write("% mapped\n@relation mapped\n\n"
+      + "@attribute a numeric\n@attribute 'b c' real\n"
+      + "@attribute d {x, 'y z', '?'}\n@attribute e numeric\n"
+      + "  @DATA % comment\n");
+    for (int i = 0; i < 2000; i++) {
+      writer.write(i + ",-" + i + ".25e-3,x," + (i / 7.0) + "\n");
+      writer.write("1e5 .5 'y z' 1234567890123456789 {0.5}\r\n");
+      writer.write("?,?,'?',0.1 % comment\n\n");
+      writer.write("{1 " + i + ", 2 'y z'} {3}\n");
+      writer.write("{}\n");
+    }
+    writer.close();
+
+    FileReader reader = new FileReader(file);
+    Instances expected = new ArffLoader.ArffReader(reader).getData();
+    reader.close();
+    Instances structure = new Instances(expected, 0);
+    assertNotNull("not mapped",
+      new MappedArffReader(file, structure, 1).readData());
+
+    for (int numSlots : new int[] { 1, 4 }) {
+      ArffLoader loader = new ArffLoader();
+      loader.setNumExecutionSlots(numSlots);
+      loader.setFile(file);
+      Instances data = loader.getDataSet();
+
+      assertEquals("number of instances", expected.numInstances(),
+        data.numInstances());
+      for (int i = 0; i < expected.numInstances(); i++) {
+        assertEquals("type of instance " + i, expected.instance(i).getClass(),
+          data.instance(i).getClass());
+        assertTrue("values of instance " + i, Arrays.equals(expected
+          .instance(i).toDoubleArray(), data.instance(i).toDoubleArray()));
+        assertEquals("weight of instance " + i, expected.instance(i).weight(),
+          data.instance(i).weight(), 0);
+      }
+    }
+  }
+
   /**
    * returns a test suite
    * 
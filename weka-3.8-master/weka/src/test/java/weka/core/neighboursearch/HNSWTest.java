@@ -0,0 +1,85 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.core.neighboursearch;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests HNSW. Run from the command line with: <p/>
+ * java weka.core.neighboursearch.HNSWTest
+ *
+ * @version $Revision$
+ */
+public class HNSWTest
+  extends AbstractNearestNeighbourSearchTest {
+
+  public HNSWTest(String name) {
+    super(name);
+  }
+
+  /** Creates a default HNSW */
+  public NearestNeighbourSearch getNearestNeighbourSearch() {
+    return new HNSW();
+  }
+  
+  /**
+   * Tests that the queries find most of the true nearest neighbours, both
+   * with the graph built at once and with the instances inserted one by one.
+   *
+   * @throws Exception if building or searching fails
+   */
+  public void testRecall() throws Exception {
+    for (boolean incremental : new boolean[] { false, true }) {
+      HNSW search = new HNSW();
+      search.setMeasurePerformance(true);
+      Instances data;
+      if (incremental) {
+        data = new Instances(m_Instances, 0);
+        search.setInstances(data);
+        for (Instance inst : m_Instances) {
+          data.add(inst);
+          search.update(data.lastInstance());
+        }
+      } else {
+        data = m_Instances;
+        search.setInstances(data);
+      }
+
+      for (Instance inst : data) {
+        search.kNearestNeighbours(inst, 5);
+      }
+      double recall = search.getMeasure("measureMeanRecall");
+      assertTrue("mean recall too low (incremental: " + incremental + "): "
+        + recall, recall > 0.95);
+    }
+  }
+
+  public static Test suite() {
+    return new TestSuite(HNSWTest.class);
+  }
+
+  public static void main(String[] args){
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -345,6 +345,31 @@ public abstract class AbstractStopwordsTest extends TestCase {
     }
   }
 
+  /**
+   * tests whether character sequences are treated the same way as strings,
+   * including upper case and surrounding whitespace.
+   */
+  public void testCharSequence() {
+    String[] data;
+    String word;
+    int i;
+    int n;
+
+    for (i = 0; i < m_Data.length; i++) {
+      data = tokenize(m_Data[i]);
+      for (n = 0; n < data.length; n++) {
+        word = data[n];
+        assertEquals("stopword '" + word + "'",
+          m_Stopwords.isStopword(word),
+          AbstractStopwords.isStopword(m_Stopwords, new StringBuilder(word)));
+        word = " " + data[n].toUpperCase() + "\t";
+        assertEquals("stopword '" + word + "'",
+          m_Stopwords.isStopword(word),
+          AbstractStopwords.isStopword(m_Stopwords, new StringBuilder(word)));
+      }
+    }
+  }
+
   /**
    * Runs the stopwords algorithm over the given tokens and returns the result.
    * 
@@ -210,6 +210,33 @@ public abstract class AbstractTokenizerTest extends TestCase {
     }
   }
 
+  /**
+   * tests whether nextToken() returns the same tokens as nextElement()
+   */
+  public void testNextToken() {
+    ArrayList<String> elements;
+    Token token;
+    int i;
+    int n;
+
+    for (i = 0; i < m_Data.length; i++) {
+      elements = new ArrayList<String>();
+      m_Tokenizer.tokenize(m_Data[i]);
+      while (m_Tokenizer.hasMoreElements()) {
+        elements.add(m_Tokenizer.nextElement());
+      }
+
+      n = 0;
+      m_Tokenizer.tokenize(m_Data[i]);
+      while ((token = m_Tokenizer.nextToken()) != null) {
+        assertTrue("too many tokens", n < elements.size());
+        assertEquals("token " + n, elements.get(n), token.toString());
+        n++;
+      }
+      assertEquals("number of tokens", elements.size(), n);
+    }
+  }
+
   /**
    * Runs the tokenizer over the given string and returns the generated tokens.
    * 
@@ -0,0 +1,81 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.filters.unsupervised.attribute;
+
+import weka.core.Instances;
+import weka.filters.AbstractFilterTest;
+import weka.filters.Filter;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests HashingStringToWordVector. Run from the command line with:<p>
+ * java weka.filters.unsupervised.attribute.HashingStringToWordVectorTest
+ *
+ * @version $Revision$
+ */
+public class HashingStringToWordVectorTest extends AbstractFilterTest {
+
+  public HashingStringToWordVectorTest(String name) { super(name);  }
+
+  /** Creates an example HashingStringToWordVector */
+  public Filter getFilter() {
+    HashingStringToWordVector f = new HashingStringToWordVector();
+    f.setNumBits(6);
+    return f;
+  }
+
+  public void testTypical() {
+    Instances result = useFilter();
+    // Number of instances shouldn't change
+    assertEquals(m_Instances.numInstances(),  result.numInstances());
+
+    // the 2 string attributes are replaced by the 2^6 word attributes
+    assertEquals(m_Instances.numAttributes() - 2 + 64, result.numAttributes());
+  }
+
+  public void testIDFTransform() {
+    ((HashingStringToWordVector) m_Filter).setOutputWordCounts(true);
+    ((HashingStringToWordVector) m_Filter).setIDFTransform(true);
+    ((HashingStringToWordVector) m_Filter).setUnsigned(true);
+    Instances result = useFilter();
+    assertEquals(m_Instances.numInstances(),  result.numInstances());
+
+    // nothing is known about the first document, so its words get IDF 0
+    int offset = result.numAttributes() - 64;
+    for (int i = offset; i < result.numAttributes(); i++) {
+      assertEquals(0.0, result.instance(0).value(i), 0.0);
+    }
+    for (int n = 0; n < result.numInstances(); n++) {
+      for (int i = offset; i < result.numAttributes(); i++) {
+        assertTrue(result.instance(n).value(i) >= 0);
+      }
+    }
+  }
+
+  public static Test suite() {
+    return new TestSuite(HashingStringToWordVectorTest.class);
+  }
+
+  public static void main(String[] args){
+    junit.textui.TestRunner.run(suite());
+  }
+}